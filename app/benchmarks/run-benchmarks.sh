@@ -0,0 +1,10 @@
+#!/bin/sh
+# Construit l'application et les benchmarks puis lance JMH.
+# Résultats JSON dans benchmarks/target/jmh-result.json (comparables d'une exécution à l'autre).
+# Arguments supplémentaires transmis à JMH, ex : ./run-benchmarks.sh JwtServiceBenchmark -f 1
+set -e
+cd "$(dirname "$0")"
+MVN="${MVN:-../mvnw}"
+"$MVN" -q -f ../pom.xml -Pbenchmarks -DskipTests install
+"$MVN" -q -f pom.xml package
+java -jar target/benchmarks.jar -rf json -rff target/jmh-result.json "$@"
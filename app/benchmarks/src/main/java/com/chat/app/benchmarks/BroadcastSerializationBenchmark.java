@@ -0,0 +1,129 @@
+package com.chat.app.benchmarks;
+
+import com.chat.app.dto.MessageDto;
+import com.chat.app.service.MessageBroadcaster;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Diffusion d'un MessageDto de bout en bout jusqu'au SimpleBroker : {@code convertAndSend} par
+ * destination (conversion Jackson à chaque appel) contre {@link MessageBroadcaster} (JSON encodé une
+ * fois, mêmes octets pour toutes les destinations et toutes les sessions).
+ * À lancer avec {@code -prof gc} pour comparer les octets alloués par diffusion.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BroadcastSerializationBenchmark {
+
+    private static final String TOPIC = "/topic/channel.1";
+    private static final String USER_QUEUE = "/queue/messages";
+
+    /** Sessions abonnées au topic du salon. */
+    @Param({"10", "100", "1000"})
+    public int subscribers;
+
+    private SimpleBrokerMessageHandler broker;
+    private SimpMessagingTemplate template;
+    private MessageBroadcaster broadcaster;
+    private final LongAdder delivered = new LongAdder();
+    private MessageDto message;
+
+    @Setup
+    public void setup() {
+        // Même configuration que l'ObjectMapper de Spring Boot (dates ISO-8601)
+        ObjectMapper objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+        MessageChannel clientOutbound = (msg, timeout) -> {
+            delivered.increment();
+            return true;
+        };
+        broker = new SimpleBrokerMessageHandler(
+                new ExecutorSubscribableChannel(),
+                clientOutbound,
+                new ExecutorSubscribableChannel(),
+                List.of("/topic", "/user"));
+        broker.start();
+
+        for (int i = 0; i < subscribers; i++) {
+            subscribe("session-" + i, TOPIC);
+        }
+        // Destinations privées telles que les adresse le template (sans résolution de session)
+        subscribe("alice-session", "/user/alice" + USER_QUEUE);
+        subscribe("bob-session", "/user/bob" + USER_QUEUE);
+
+        // Canal synchrone vers le broker, comme brokerChannel sans exécuteur
+        MessageChannel brokerChannel = (msg, timeout) -> {
+            broker.handleMessage(msg);
+            return true;
+        };
+        MappingJackson2MessageConverter converter = new MappingJackson2MessageConverter();
+        converter.setObjectMapper(objectMapper);
+        template = new SimpMessagingTemplate(brokerChannel);
+        template.setMessageConverter(converter);
+        broadcaster = new MessageBroadcaster(template, objectMapper);
+
+        message = new MessageDto(42L, "alice", null, 1L,
+                "Message de test envoyé dans le salon général, assez long pour ressembler à une vraie conversation",
+                LocalDateTime.of(2025, 1, 1, 12, 0));
+    }
+
+    private void subscribe(String sessionId, String destination) {
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.SUBSCRIBE);
+        headers.setSessionId(sessionId);
+        headers.setSubscriptionId("sub-0");
+        headers.setDestination(destination);
+        headers.setLeaveMutable(true);
+        broker.handleMessage(MessageBuilder.createMessage(new byte[0], headers.getMessageHeaders()));
+    }
+
+    @TearDown
+    public void tearDown() {
+        broker.stop();
+    }
+
+    @Benchmark
+    public long topicConvertAndSend() {
+        template.convertAndSend(TOPIC, message);
+        return delivered.sum();
+    }
+
+    @Benchmark
+    public long topicSerializeOnce() {
+        broadcaster.sendToTopic(TOPIC, message);
+        return delivered.sum();
+    }
+
+    @Benchmark
+    public long privateConvertAndSendToUser() {
+        template.convertAndSendToUser("alice", USER_QUEUE, message);
+        template.convertAndSendToUser("bob", USER_QUEUE, message);
+        return delivered.sum();
+    }
+
+    @Benchmark
+    public long privateSerializeOnce() {
+        broadcaster.sendToUsers(USER_QUEUE, message, "alice", "bob");
+        return delivered.sum();
+    }
+}
@@ -0,0 +1,77 @@
+package com.chat.app.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Diffusion d'un message par le SimpleBroker à N abonnés d'un même topic.
+ * Les canaux sont synchrones : on mesure le routage et la copie des messages, pas les threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BrokerFanoutBenchmark {
+
+    private static final String DESTINATION = "/topic/channel.1";
+
+    @Param({"10", "100", "1000"})
+    public int subscribers;
+
+    private SimpleBrokerMessageHandler broker;
+    private final LongAdder delivered = new LongAdder();
+    private Message<byte[]> message;
+
+    @Setup
+    public void setup() {
+        MessageChannel clientOutbound = (msg, timeout) -> {
+            delivered.increment();
+            return true;
+        };
+        broker = new SimpleBrokerMessageHandler(
+                new ExecutorSubscribableChannel(),
+                clientOutbound,
+                new ExecutorSubscribableChannel(),
+                List.of("/topic"));
+        broker.start();
+
+        for (int i = 0; i < subscribers; i++) {
+            SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.SUBSCRIBE);
+            headers.setSessionId("session-" + i);
+            headers.setSubscriptionId("sub-0");
+            headers.setDestination(DESTINATION);
+            headers.setLeaveMutable(true);
+            broker.handleMessage(MessageBuilder.createMessage(new byte[0], headers.getMessageHeaders()));
+        }
+
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        headers.setDestination(DESTINATION);
+        byte[] payload = "{\"id\":1,\"senderUsername\":\"johndoe\",\"channelId\":1,\"content\":\"Bonjour à tous\"}"
+                .getBytes(StandardCharsets.UTF_8);
+        message = MessageBuilder.createMessage(payload, headers.getMessageHeaders());
+    }
+
+    @TearDown
+    public void tearDown() {
+        broker.stop();
+    }
+
+    @Benchmark
+    public long fanout() {
+        broker.handleMessage(message);
+        return delivered.sum();
+    }
+}
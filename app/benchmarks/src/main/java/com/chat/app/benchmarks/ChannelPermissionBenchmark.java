@@ -0,0 +1,75 @@
+package com.chat.app.benchmarks;
+
+import com.chat.app.model.Channel;
+import com.chat.app.service.ChannelAccessCache.ChannelAccess;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Vérifications de permissions sur des salons avec beaucoup de modérateurs/bloqués :
+ * entité JPA (HashSet) et instantané immuable du ChannelAccessCache (Set.copyOf).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChannelPermissionBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int setSize;
+
+    private Channel channel;
+    private ChannelAccess access;
+    private String present;
+    private String absent;
+
+    @Setup
+    public void setup() {
+        Set<String> moderators = new HashSet<>();
+        Set<String> blocked = new HashSet<>();
+        for (int i = 0; i < setSize; i++) {
+            moderators.add("moderator" + i);
+            blocked.add("blocked" + i);
+        }
+        channel = new Channel();
+        channel.setId(1L);
+        channel.setName("general");
+        channel.setCreatorUsername("admin");
+        channel.setModeratorUsernames(moderators);
+        channel.setBlockedUsernames(blocked);
+        access = new ChannelAccess(1L, "admin", Set.copyOf(moderators), Set.copyOf(blocked), 0);
+
+        present = "blocked" + (setSize / 2);
+        absent = "someone-else";
+    }
+
+    @Benchmark
+    public boolean channelIsBlockedHit() {
+        return channel.isBlocked(present);
+    }
+
+    @Benchmark
+    public boolean channelIsBlockedMiss() {
+        return channel.isBlocked(absent);
+    }
+
+    @Benchmark
+    public boolean channelCanModerateMiss() {
+        return channel.canModerateMessages(absent);
+    }
+
+    @Benchmark
+    public boolean accessIsBlockedHit() {
+        return access.isBlocked(present);
+    }
+
+    @Benchmark
+    public boolean accessCanModerateMiss() {
+        return access.canModerateMessages(absent);
+    }
+}
@@ -0,0 +1,104 @@
+package com.chat.app.benchmarks;
+
+import com.chat.app.model.User;
+import com.chat.app.security.JwtService;
+import io.jsonwebtoken.Claims;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Field;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Génération et validation des JWT.
+ * "uncachedTriple" reproduit l'ancien filtre (trois parsings signés par requête),
+ * "uncachedSingle" un parsing unique, "cached" le cache de tokens vérifiés.
+ * "cachedFull" vérifie un nouveau token à chaque opération avec un cache plein (coût de l'éviction).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtServiceBenchmark {
+
+    private JwtService cachedService;
+    private JwtService uncachedService;
+    private User user;
+    private String cachedToken;
+    private String uncachedToken;
+    private JwtService fullService;
+    private String[] rotatingTokens;
+    private int next;
+
+    @Setup
+    public void setup() {
+        user = new User();
+        user.setId(42L);
+        user.setUsername("johndoe");
+        user.setPassword("x");
+        user.setEmail("john.doe@example.com");
+
+        cachedService = newService(10_000);
+        uncachedService = newService(0);
+        cachedToken = cachedService.generateToken(user);
+        uncachedToken = uncachedService.generateToken(user);
+        cachedService.parseToken(cachedToken);
+
+        // Deux fois plus de tokens distincts que de places : chaque parsing est un ajout à un cache plein
+        fullService = newService(10_000);
+        rotatingTokens = new String[20_000];
+        for (int i = 0; i < rotatingTokens.length; i++) {
+            rotatingTokens[i] = fullService.generateToken(Map.of("n", i), user);
+            fullService.parseToken(rotatingTokens[i]);
+        }
+    }
+
+    private static JwtService newService(int cacheSize) {
+        JwtService service = new JwtService();
+        // Champs @Value normalement injectés par Spring ; une taille 0 désactive le cache
+        setField(service, "jwtExpiration", 86_400_000L);
+        setField(service, "verifiedCacheMaxSize", cacheSize);
+        return service;
+    }
+
+    private static void setField(Object target, String name, Object value) {
+        Field field = ReflectionUtils.findField(target.getClass(), name);
+        ReflectionUtils.makeAccessible(field);
+        ReflectionUtils.setField(field, target, value);
+    }
+
+    @Benchmark
+    public String generate() {
+        return cachedService.generateToken(user);
+    }
+
+    @Benchmark
+    public boolean validateUncachedTriple() {
+        String username = uncachedService.extractUsername(uncachedToken);
+        return username != null
+                && uncachedService.isTokenValid(uncachedToken, user)
+                && uncachedService.parseToken(uncachedToken) != null;
+    }
+
+    @Benchmark
+    public boolean validateUncachedSingle() {
+        Claims claims = uncachedService.parseToken(uncachedToken);
+        return uncachedService.isTokenValid(claims, user);
+    }
+
+    @Benchmark
+    public boolean validateCached() {
+        Claims claims = cachedService.parseToken(cachedToken);
+        return cachedService.isTokenValid(claims, user);
+    }
+
+    @Benchmark
+    public Claims validateCachedFull() {
+        String token = rotatingTokens[next];
+        next = (next + 1) % rotatingTokens.length;
+        return fullService.parseToken(token);
+    }
+}
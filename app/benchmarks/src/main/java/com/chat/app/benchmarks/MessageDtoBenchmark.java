@@ -0,0 +1,87 @@
+package com.chat.app.benchmarks;
+
+import com.chat.app.dto.MessageDto;
+import com.chat.app.model.Channel;
+import com.chat.app.model.Message;
+import com.chat.app.model.User;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversion entité -> DTO (ex-mapMessagesToDto) et sérialisation Jackson des messages,
+ * à l'unité et sur des pages d'historique de taille croissante.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageDtoBenchmark {
+
+    @Param({"50", "1000", "10000"})
+    public int size;
+
+    private ObjectMapper objectMapper;
+    private List<Message> messages;
+    private List<MessageDto> dtos;
+    private MessageDto single;
+
+    @Setup
+    public void setup() {
+        // Même configuration que l'ObjectMapper de Spring Boot (dates ISO-8601)
+        objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+        Channel channel = new Channel();
+        channel.setId(7L);
+        channel.setName("general");
+        channel.setCreatorUsername("admin");
+
+        List<User> senders = new ArrayList<>();
+        for (int i = 0; i < 32; i++) {
+            User user = new User();
+            user.setId((long) i);
+            user.setUsername("user" + i);
+            senders.add(user);
+        }
+
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 12, 0);
+        messages = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Message message = new Message();
+            message.setId((long) i + 1);
+            message.setSender(senders.get(i % senders.size()));
+            message.setChannel(channel);
+            message.setContent("Message de test numéro " + i + " envoyé dans le salon général");
+            message.setTimestamp(start.plusSeconds(i));
+            messages.add(message);
+        }
+        dtos = MessageDto.fromMessages(messages);
+        single = dtos.get(0);
+    }
+
+    @Benchmark
+    public List<MessageDto> mapMessagesToDto() {
+        return MessageDto.fromMessages(messages);
+    }
+
+    @Benchmark
+    public byte[] serializeList() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(dtos);
+    }
+
+    @Benchmark
+    public byte[] serializeSingle() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(single);
+    }
+}
@@ -0,0 +1,397 @@
+package com.chat.app.archive;
+
+import com.chat.app.dto.MessageDto;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Archive d'un flux de messages (un salon ou le chat public) : fichiers segments {@code 00000001.seg},
+ * {@code 00000002.seg}... écrits uniquement en fin de fichier. Chaque segment est une suite de blocs
+ * compressés (Deflate) de messages triés par (timestamp, id), précédés d'un en-tête fixe :
+ * <pre>
+ * magic | nombre de messages | taille compressée | taille brute | crc32
+ * premier (timestamp, id) | dernier (timestamp, id) | id min | id max
+ * </pre>
+ * L'index creux ({@link Block}, une entrée par bloc) est reconstruit au chargement en ne lisant que
+ * les en-têtes ; les blocs sont lus par projection mémoire (mmap) du segment.
+ *
+ * Les segments ne sont jamais réécrits : un message archivé supprimé est ajouté (id sur 8 octets) au
+ * fichier {@code deleted.ids} du flux, rechargé à l'ouverture, et filtré à la lecture.
+ */
+@Slf4j
+final class ArchiveStream {
+
+    static final int MAGIC = 0x43484131; // "CHA1"
+    static final int HEADER_BYTES = 5 * Integer.BYTES + 6 * Long.BYTES;
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String TOMBSTONES = "deleted.ids";
+
+    private final Path directory;
+    private final long segmentBytes;
+
+    // Index creux, trié par clé ; remplacé (copie) à chaque ajout, lu sans verrou
+    private volatile List<Block> blocks = List.of();
+    private final List<Segment> segments = new ArrayList<>();
+    // Ids supprimés ; remplacé (copie) à chaque suppression, lu sans verrou
+    private volatile Set<Long> deleted = Set.of();
+
+    private ArchiveStream(Path directory, long segmentBytes) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+    }
+
+    /** Ouvre (ou prépare) le flux ; un bloc final incomplet (arrêt pendant l'écriture) est tronqué. */
+    static ArchiveStream open(Path directory, long segmentBytes) throws IOException {
+        ArchiveStream stream = new ArchiveStream(directory, segmentBytes);
+        if (!Files.isDirectory(directory)) {
+            return stream;
+        }
+        List<Path> files;
+        try (Stream<Path> list = Files.list(directory)) {
+            files = list.filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted(Comparator.comparing(path -> path.getFileName().toString()))
+                    .toList();
+        }
+        List<Block> loaded = new ArrayList<>();
+        for (Path file : files) {
+            Segment segment = new Segment(file);
+            stream.segments.add(segment);
+            loaded.addAll(scan(segment));
+        }
+        stream.blocks = List.copyOf(loaded);
+        stream.deleted = readTombstones(directory.resolve(TOMBSTONES));
+        return stream;
+    }
+
+    // Un id incomplet (arrêt pendant l'écriture) est ignoré : la suppression n'avait pas été confirmée
+    private static Set<Long> readTombstones(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return Set.of();
+        }
+        ByteBuffer ids = ByteBuffer.wrap(Files.readAllBytes(file));
+        Set<Long> loaded = new HashSet<>();
+        while (ids.remaining() >= Long.BYTES) {
+            loaded.add(ids.getLong());
+        }
+        return Set.copyOf(loaded);
+    }
+
+    private static List<Block> scan(Segment segment) throws IOException {
+        List<Block> found = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(segment.path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            long offset = 0;
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            while (offset < size) {
+                header.clear();
+                if (size - offset < HEADER_BYTES || channel.read(header, offset) < HEADER_BYTES) {
+                    break;
+                }
+                header.flip();
+                Block block = Block.read(segment, offset, header);
+                if (block == null || offset + HEADER_BYTES + block.compressedLength() > size) {
+                    break;
+                }
+                found.add(block);
+                offset += HEADER_BYTES + block.compressedLength();
+            }
+            if (offset < size) {
+                log.warn("Segment {} tronqué à {} octets (bloc incomplet)", segment.path, offset);
+                channel.truncate(offset);
+            }
+        }
+        return found;
+    }
+
+    List<Block> blocks() {
+        return blocks;
+    }
+
+    boolean isEmpty() {
+        return blocks.isEmpty();
+    }
+
+    Set<Long> deleted() {
+        return deleted;
+    }
+
+    /** Enregistre durablement la suppression d'un message archivé ; faux s'il l'était déjà. */
+    synchronized boolean markDeleted(long id) throws IOException {
+        Set<Long> current = deleted;
+        if (current.contains(id)) {
+            return false;
+        }
+        Files.createDirectories(directory);
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES).putLong(id).flip();
+        try (FileChannel channel = FileChannel.open(directory.resolve(TOMBSTONES),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+        Set<Long> updated = new HashSet<>(current);
+        updated.add(id);
+        deleted = Set.copyOf(updated);
+        return true;
+    }
+
+    /** Ajoute un bloc (messages triés, tous postérieurs au dernier archivé) et le rend durable. */
+    synchronized Block append(List<MessageDto> ascending) throws IOException {
+        List<Block> current = blocks;
+        MessageDto first = ascending.get(0);
+        if (!current.isEmpty() && current.get(current.size() - 1).compareLast(first.timestamp(), first.id()) >= 0) {
+            throw new IllegalStateException("Bloc hors ordre pour l'archive " + directory);
+        }
+        byte[] raw = encode(ascending);
+        byte[] compressed = deflate(raw);
+        CRC32 crc = new CRC32();
+        crc.update(compressed);
+
+        long minId = Long.MAX_VALUE;
+        long maxId = Long.MIN_VALUE;
+        for (MessageDto message : ascending) {
+            minId = Math.min(minId, message.id());
+            maxId = Math.max(maxId, message.id());
+        }
+        MessageDto last = ascending.get(ascending.size() - 1);
+        Segment segment = activeSegment();
+        long offset = Files.size(segment.path);
+        Block block = new Block(segment, offset, ascending.size(), compressed.length, raw.length, (int) crc.getValue(),
+                micros(first.timestamp()), first.id(), micros(last.timestamp()), last.id(), minId, maxId);
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + compressed.length);
+        block.writeHeader(buffer);
+        buffer.put(compressed).flip();
+        try (FileChannel channel = FileChannel.open(segment.path, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            // Le bloc doit être sur disque avant la suppression des lignes en base
+            channel.force(false);
+        }
+        List<Block> updated = new ArrayList<>(current);
+        updated.add(block);
+        blocks = List.copyOf(updated);
+        return block;
+    }
+
+    private Segment activeSegment() throws IOException {
+        if (!segments.isEmpty()) {
+            Segment last = segments.get(segments.size() - 1);
+            if (Files.size(last.path) < segmentBytes) {
+                return last;
+            }
+        }
+        Files.createDirectories(directory);
+        Segment segment = new Segment(directory.resolve(String.format("%08d%s", segments.size() + 1, SEGMENT_SUFFIX)));
+        Files.createFile(segment.path);
+        segments.add(segment);
+        return segment;
+    }
+
+    /** Supprime tous les segments du flux. */
+    synchronized void delete() throws IOException {
+        blocks = List.of();
+        deleted = Set.of();
+        segments.clear();
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (Stream<Path> list = Files.list(directory)) {
+            for (Path file : list.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    /** Décompresse un bloc, lu depuis la projection mémoire de son segment. */
+    static List<MessageDto> read(Block block) {
+        ByteBuffer compressed = block.segment().slice(block.offset() + HEADER_BYTES, block.compressedLength());
+        CRC32 crc = new CRC32();
+        crc.update(compressed.duplicate());
+        if ((int) crc.getValue() != block.crc()) {
+            throw new IllegalStateException("Bloc corrompu dans " + block.segment().path + " à l'offset " + block.offset());
+        }
+        byte[] raw = new byte[block.rawLength()];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            int read = 0;
+            while (read < raw.length && !inflater.finished()) {
+                read += inflater.inflate(raw, read, raw.length - read);
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Bloc illisible dans " + block.segment().path, e);
+        } finally {
+            inflater.end();
+        }
+        return decode(ByteBuffer.wrap(raw), block.count());
+    }
+
+    // --- Encodage des messages d'un bloc ---
+
+    private static byte[] encode(List<MessageDto> messages) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(messages.size() * 64);
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (MessageDto message : messages) {
+            out.writeLong(message.id());
+            out.writeLong(micros(message.timestamp()));
+            writeString(out, message.senderUsername());
+            writeString(out, message.recipientUsername());
+            out.writeLong(message.channelId() != null ? message.channelId() : -1L);
+            writeString(out, message.content());
+        }
+        return bytes.toByteArray();
+    }
+
+    private static List<MessageDto> decode(ByteBuffer in, int count) {
+        List<MessageDto> messages = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long id = in.getLong();
+            LocalDateTime timestamp = timestamp(in.getLong());
+            String sender = readString(in);
+            String recipient = readString(in);
+            long channelId = in.getLong();
+            String content = readString(in);
+            messages.add(new MessageDto(id, sender, recipient, channelId >= 0 ? channelId : null, content, timestamp));
+        }
+        // Partagé par le cache de blocs
+        return Collections.unmodifiableList(messages);
+    }
+
+    // Longueur en octets puis UTF-8 ; -1 pour null (writeUTF est limité à 64 Ko)
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    private static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, raw.length / 3));
+            byte[] chunk = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(chunk, 0, deflater.deflate(chunk));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    // Les timestamps PostgreSQL ont une précision à la microseconde
+    static long micros(LocalDateTime timestamp) {
+        return timestamp.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + timestamp.getNano() / 1_000;
+    }
+
+    static LocalDateTime timestamp(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+
+    /** Fichier segment, projeté en mémoire à la demande (et de nouveau quand il a grandi). */
+    static final class Segment {
+
+        private final Path path;
+        private MappedByteBuffer mapped;
+
+        Segment(Path path) {
+            this.path = path;
+        }
+
+        synchronized ByteBuffer slice(long offset, int length) {
+            try {
+                if (mapped == null || mapped.capacity() < offset + length) {
+                    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                        mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return mapped.slice((int) offset, length);
+        }
+    }
+
+    /** Entrée de l'index creux : position et bornes d'un bloc. */
+    record Block(Segment segment, long offset, int count, int compressedLength, int rawLength, int crc,
+                 long firstMicros, long firstId, long lastMicros, long lastId, long minId, long maxId) {
+
+        static Block read(Segment segment, long offset, ByteBuffer header) {
+            if (header.getInt() != MAGIC) {
+                return null;
+            }
+            return new Block(segment, offset, header.getInt(), header.getInt(), header.getInt(), header.getInt(),
+                    header.getLong(), header.getLong(), header.getLong(), header.getLong(),
+                    header.getLong(), header.getLong());
+        }
+
+        void writeHeader(ByteBuffer buffer) {
+            buffer.putInt(MAGIC).putInt(count).putInt(compressedLength).putInt(rawLength).putInt(crc)
+                    .putLong(firstMicros).putLong(firstId).putLong(lastMicros).putLong(lastId)
+                    .putLong(minId).putLong(maxId);
+        }
+
+        /** Compare le premier message du bloc à la clé (timestamp, id). */
+        int compareFirst(LocalDateTime timestamp, long id) {
+            return compare(firstMicros, firstId, micros(timestamp), id);
+        }
+
+        /** Compare le dernier message du bloc à la clé (timestamp, id). */
+        int compareLast(LocalDateTime timestamp, long id) {
+            return compare(lastMicros, lastId, micros(timestamp), id);
+        }
+
+        boolean mayContain(long id) {
+            return id >= minId && id <= maxId;
+        }
+
+        private static int compare(long micros, long id, long otherMicros, long otherId) {
+            int byTime = Long.compare(micros, otherMicros);
+            return byTime != 0 ? byTime : Long.compare(id, otherId);
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package com.chat.app.archive;
+
+import com.chat.app.archive.ArchiveStream.Block;
+import com.chat.app.dto.MessageDto;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Messages froids des salons et du chat public, sortis de la table messages par {@link MessageArchiver}.
+ * Un flux d'archive par salon ({@code channel-<id>}) plus un pour le chat public, chacun trié par
+ * (timestamp, id) et entièrement antérieur aux messages qu'il reste en base pour les mêmes durées
+ * de conservation. Les lectures suivent la même pagination par curseur que l'historique en base.
+ *
+ * Les derniers blocs décompressés sont gardés en mémoire ({@code chat.archive.block-cache-size}) :
+ * les pages successives d'un même bloc ne le décompressent qu'une fois.
+ *
+ * Un message archivé supprimé par un modérateur ({@link #deleteMessage}) est exclu de toutes les lectures ;
+ * seul {@link #timestampOf} le trouve encore, pour reprendre une pagination dont il était le curseur.
+ */
+@Slf4j
+@Component
+public class MessageArchive {
+
+    public static final String PUBLIC_STREAM = "public";
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final ConcurrentHashMap<String, ArchiveStream> streams = new ConcurrentHashMap<>();
+    private final Map<Block, List<MessageDto>> blockCache;
+    private final LongAdder blockReads = new LongAdder();
+    private final LongAdder blockCacheHits = new LongAdder();
+
+    public MessageArchive(@Value("${chat.archive.directory:./data/archive}") String directory,
+                          @Value("${chat.archive.segment-size-mb:64}") long segmentSizeMb,
+                          @Value("${chat.archive.block-cache-size:64}") int blockCacheSize) {
+        this.directory = Path.of(directory);
+        this.segmentBytes = segmentSizeMb * 1024 * 1024;
+        int maxCachedBlocks = Math.max(1, blockCacheSize);
+        // LinkedHashMap en ordre d'accès = LRU ; accès protégés par synchronized(blockCache)
+        this.blockCache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Block, List<MessageDto>> eldest) {
+                return size() > maxCachedBlocks;
+            }
+        };
+    }
+
+    public static String channelStream(Long channelId) {
+        return "channel-" + channelId;
+    }
+
+    @PostConstruct
+    void load() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        long blocks = 0;
+        try (Stream<Path> list = Files.list(directory)) {
+            for (Path path : list.filter(Files::isDirectory).toList()) {
+                ArchiveStream stream = ArchiveStream.open(path, segmentBytes);
+                streams.put(path.getFileName().toString(), stream);
+                blocks += stream.blocks().size();
+            }
+        }
+        log.info("Archive des messages chargée : {} flux, {} blocs ({})", streams.size(), blocks, directory.toAbsolutePath());
+    }
+
+    public boolean contains(String stream) {
+        ArchiveStream archived = streams.get(stream);
+        return archived != null && !archived.isEmpty();
+    }
+
+    /** Clé du message le plus récent archivé pour ce flux. */
+    public Optional<Position> last(String stream) {
+        List<Block> blocks = blocks(stream);
+        if (blocks.isEmpty()) {
+            return Optional.empty();
+        }
+        Block last = blocks.get(blocks.size() - 1);
+        return Optional.of(new Position(ArchiveStream.timestamp(last.lastMicros()), last.lastId()));
+    }
+
+    /** Timestamp d'un message archivé, pour reprendre une pagination dont le curseur a été archivé. */
+    public Optional<LocalDateTime> timestampOf(String stream, long messageId) {
+        for (Block block : blocks(stream)) {
+            if (!block.mayContain(messageId)) {
+                continue;
+            }
+            for (MessageDto message : read(block)) {
+                if (message.id() == messageId) {
+                    return Optional.of(message.timestamp());
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    /** Les {@code limit} messages les plus récents, du plus récent au plus ancien. */
+    public List<MessageDto> latest(String stream, int limit) {
+        List<Block> blocks = blocks(stream);
+        return collectBackward(blocks, deleted(stream), blocks.size() - 1, null, 0, limit);
+    }
+
+    /** Messages strictement antérieurs à (timestamp, id), du plus récent au plus ancien. */
+    public List<MessageDto> before(String stream, LocalDateTime timestamp, long id, int limit) {
+        List<Block> blocks = blocks(stream);
+        // Dernier bloc commençant avant la clé
+        int low = 0;
+        int high = blocks.size() - 1;
+        int start = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (blocks.get(mid).compareFirst(timestamp, id) < 0) {
+                start = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return collectBackward(blocks, deleted(stream), start, timestamp, id, limit);
+    }
+
+    /** Messages strictement postérieurs à (timestamp, id), du plus ancien au plus récent. */
+    public List<MessageDto> after(String stream, LocalDateTime timestamp, long id, int limit) {
+        List<Block> blocks = blocks(stream);
+        // Premier bloc se terminant après la clé
+        int low = 0;
+        int high = blocks.size() - 1;
+        int start = blocks.size();
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (blocks.get(mid).compareLast(timestamp, id) > 0) {
+                start = mid;
+                high = mid - 1;
+            } else {
+                low = mid + 1;
+            }
+        }
+        Set<Long> deleted = deleted(stream);
+        List<MessageDto> page = new ArrayList<>(limit);
+        long key = ArchiveStream.micros(timestamp);
+        for (int i = start; i < blocks.size() && page.size() < limit; i++) {
+            for (MessageDto message : read(blocks.get(i))) {
+                if (page.size() == limit) {
+                    break;
+                }
+                if (compare(message, key, id) > 0 && !deleted.contains(message.id())) {
+                    page.add(message);
+                }
+            }
+        }
+        return page;
+    }
+
+    /** Tout le flux, du plus ancien au plus récent, décompressé bloc par bloc (export). */
+    public Stream<MessageDto> stream(String stream) {
+        Set<Long> deleted = deleted(stream);
+        return blocks(stream).stream()
+                .flatMap(block -> ArchiveStream.read(block).stream())
+                .filter(message -> !deleted.contains(message.id()));
+    }
+
+    /**
+     * Supprime un message archivé du flux (pierre tombale, les segments ne sont pas réécrits).
+     * Faux si le message n'est pas dans ce flux ou s'il était déjà supprimé.
+     */
+    public boolean deleteMessage(String stream, long messageId) {
+        ArchiveStream archived = streams.get(stream);
+        if (archived == null || archived.deleted().contains(messageId)
+                || timestampOf(stream, messageId).isEmpty()) {
+            return false;
+        }
+        try {
+            return archived.markDeleted(messageId);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Ajoute des messages triés, tous postérieurs au dernier message archivé du flux. */
+    public void append(String stream, List<MessageDto> ascending) {
+        if (ascending.isEmpty()) {
+            return;
+        }
+        try {
+            streams.computeIfAbsent(stream, this::openStream).append(ascending);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Supprime l'archive d'un flux (salon supprimé). */
+    public void delete(String stream) {
+        ArchiveStream removed = streams.remove(stream);
+        if (removed == null) {
+            return;
+        }
+        try {
+            removed.delete();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public ArchiveStats stats() {
+        long blocks = 0;
+        long messages = 0;
+        for (ArchiveStream stream : streams.values()) {
+            for (Block block : stream.blocks()) {
+                blocks++;
+                messages += block.count();
+            }
+        }
+        return new ArchiveStats(streams.size(), blocks, messages, blockReads.sum(), blockCacheHits.sum());
+    }
+
+    private ArchiveStream openStream(String stream) {
+        try {
+            return ArchiveStream.open(directory.resolve(stream), segmentBytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private List<Block> blocks(String stream) {
+        ArchiveStream archived = streams.get(stream);
+        return archived != null ? archived.blocks() : List.of();
+    }
+
+    private Set<Long> deleted(String stream) {
+        ArchiveStream archived = streams.get(stream);
+        return archived != null ? archived.deleted() : Set.of();
+    }
+
+    // Parcourt les blocs à rebours à partir de {@code start} ; timestamp null = depuis la fin
+    private List<MessageDto> collectBackward(List<Block> blocks, Set<Long> deleted, int start,
+                                             LocalDateTime timestamp, long id, int limit) {
+        List<MessageDto> page = new ArrayList<>(limit);
+        long key = timestamp != null ? ArchiveStream.micros(timestamp) : 0;
+        for (int i = start; i >= 0 && page.size() < limit; i--) {
+            List<MessageDto> messages = read(blocks.get(i));
+            for (int j = messages.size() - 1; j >= 0 && page.size() < limit; j--) {
+                MessageDto message = messages.get(j);
+                if ((timestamp == null || compare(message, key, id) < 0) && !deleted.contains(message.id())) {
+                    page.add(message);
+                }
+            }
+        }
+        return page;
+    }
+
+    private List<MessageDto> read(Block block) {
+        synchronized (blockCache) {
+            List<MessageDto> cached = blockCache.get(block);
+            if (cached != null) {
+                blockCacheHits.increment();
+                return cached;
+            }
+        }
+        List<MessageDto> messages = ArchiveStream.read(block);
+        blockReads.increment();
+        synchronized (blockCache) {
+            blockCache.put(block, messages);
+        }
+        return messages;
+    }
+
+    private static int compare(MessageDto message, long micros, long id) {
+        int byTime = Long.compare(ArchiveStream.micros(message.timestamp()), micros);
+        return byTime != 0 ? byTime : Long.compare(message.id(), id);
+    }
+
+    /** Clé de pagination (timestamp, id) d'un message. */
+    public record Position(LocalDateTime timestamp, long id) {}
+
+    public record ArchiveStats(int streams, long blocks, long messages, long blockReads, long blockCacheHits) {}
+}
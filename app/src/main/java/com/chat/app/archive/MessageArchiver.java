@@ -0,0 +1,229 @@
+package com.chat.app.archive;
+
+import com.chat.app.archive.MessageArchive.Position;
+import com.chat.app.cluster.ClusterFanout;
+import com.chat.app.dto.MessageDto;
+import com.chat.app.retention.RetentionPolicy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Déplace les messages de salon et publics plus anciens que {@code chat.archive.age-days} de la table
+ * messages vers {@link MessageArchive}, par blocs de {@code chat.archive.block-size} messages.
+ * Seuls les messages conservés sans limite (retention_days = 0) sont archivés : les autres expirent
+ * avec leur partition.
+ *
+ * Chaque bloc est écrit et synchronisé sur disque avant la suppression de ses lignes. Après un arrêt
+ * entre les deux, les lignes du dernier bloc sont supprimées au passage suivant, sans être réécrites.
+ *
+ * Les segments sont locaux au nœud alors que la base est partagée : une seule instance peut archiver
+ * (et lire l'archive). L'archivage refuse de démarrer si le cluster a des pairs, et sur PostgreSQL il
+ * prend un verrou consultatif de session, gardé sur une connexion dédiée jusqu'à l'arrêt : une seconde
+ * instance archivant la même base échoue au démarrage.
+ */
+@Slf4j
+@Component
+public class MessageArchiver {
+
+    private static final String SELECT_COLUMNS =
+            "SELECT m.id, s.username AS sender_username, r.username AS recipient_username, " +
+            "m.channel_id, m.content, m.timestamp" +
+            " FROM messages m JOIN users s ON s.id = m.sender_id LEFT JOIN users r ON r.id = m.recipient_id";
+    private static final String CHANNEL_SCOPE = "m.channel_id = ?";
+    private static final String PUBLIC_SCOPE = "m.channel_id IS NULL AND m.recipient_id IS NULL";
+    private static final String AFTER_KEY = " AND (m.timestamp > ? OR (m.timestamp = ? AND m.id > ?))";
+    // Clé du verrou consultatif ("CHATARCH")
+    private static final long ARCHIVER_LOCK_KEY = 0x4348415441524348L;
+
+    private final MessageArchive archive;
+    private final JdbcTemplate jdbcTemplate;
+    private final ClusterFanout clusterFanout;
+    private final boolean enabled;
+    private final int ageDays;
+    private final int blockSize;
+    private final long intervalMinutes;
+    private final long pauseMs;
+    private ScheduledExecutorService scheduler;
+    private Connection lockConnection;
+
+    public MessageArchiver(MessageArchive archive,
+                           JdbcTemplate jdbcTemplate,
+                           ClusterFanout clusterFanout,
+                           @Value("${chat.archive.enabled:false}") boolean enabled,
+                           @Value("${chat.archive.age-days:180}") int ageDays,
+                           @Value("${chat.archive.block-size:256}") int blockSize,
+                           @Value("${chat.archive.interval-minutes:60}") long intervalMinutes,
+                           @Value("${chat.archive.pause-ms:50}") long pauseMs) {
+        this.archive = archive;
+        this.jdbcTemplate = jdbcTemplate;
+        this.clusterFanout = clusterFanout;
+        this.enabled = enabled;
+        this.ageDays = ageDays;
+        this.blockSize = Math.max(1, blockSize);
+        this.intervalMinutes = Math.max(1, intervalMinutes);
+        this.pauseMs = pauseMs;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() throws SQLException {
+        if (!enabled) {
+            return;
+        }
+        if (clusterFanout.hasPeers()) {
+            throw new IllegalStateException("chat.archive.enabled suppose une seule instance : "
+                    + "l'archive est locale au nœud et ne serait pas lue par ses pairs");
+        }
+        if (!acquireArchiverLock()) {
+            throw new IllegalStateException("Une autre instance archive déjà les messages de cette base");
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "message-archiver");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::runSafely, 1, intervalMinutes * 60, TimeUnit.SECONDS);
+        log.info("Archivage des messages de plus de {} jours activé", ageDays);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        if (lockConnection != null) {
+            // Libère le verrou consultatif avec la session
+            try {
+                lockConnection.close();
+            } catch (SQLException e) {
+                log.warn("Fermeture de la connexion du verrou d'archivage : {}", e.getMessage());
+            }
+        }
+    }
+
+    // Verrou de session : il doit rester sur une connexion qui ne retourne pas au pool
+    private boolean acquireArchiverLock() throws SQLException {
+        Connection connection = jdbcTemplate.getDataSource().getConnection();
+        boolean locked = false;
+        try {
+            if (!"PostgreSQL".equalsIgnoreCase(connection.getMetaData().getDatabaseProductName())) {
+                log.warn("Base non PostgreSQL : l'unicité de l'archiveur n'est pas vérifiée");
+                return true;
+            }
+            try (PreparedStatement statement = connection.prepareStatement("SELECT pg_try_advisory_lock(?)")) {
+                statement.setLong(1, ARCHIVER_LOCK_KEY);
+                try (ResultSet result = statement.executeQuery()) {
+                    locked = result.next() && result.getBoolean(1);
+                }
+            }
+            return locked;
+        } finally {
+            if (locked) {
+                lockConnection = connection;
+            } else {
+                connection.close();
+            }
+        }
+    }
+
+    /** Un passage complet : chat public puis chaque salon non supprimé. Renvoie le nombre de messages archivés. */
+    public long archiveAll() throws InterruptedException {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(ageDays);
+        long archived = archiveStream(MessageArchive.PUBLIC_STREAM, PUBLIC_SCOPE, new Object[0], cutoff);
+        for (Long channelId : jdbcTemplate.queryForList(
+                "SELECT id FROM channels WHERE deleted_at IS NULL ORDER BY id", Long.class)) {
+            archived += archiveStream(MessageArchive.channelStream(channelId), CHANNEL_SCOPE, new Object[] { channelId }, cutoff);
+        }
+        return archived;
+    }
+
+    private void runSafely() {
+        try {
+            long started = System.nanoTime();
+            long archived = archiveAll();
+            if (archived > 0) {
+                log.info("{} messages archivés en {} ms", archived, (System.nanoTime() - started) / 1_000_000);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.error("Archivage des messages interrompu", e);
+        }
+    }
+
+    private long archiveStream(String stream, String scope, Object[] scopeArgs, LocalDateTime cutoff)
+            throws InterruptedException {
+        String where = " WHERE " + scope + " AND m.retention_days = " + RetentionPolicy.FOREVER;
+        Position last = archive.last(stream).orElse(null);
+        if (last != null) {
+            // Lignes du dernier bloc, s'il a été écrit juste avant un arrêt
+            deleteArchived(archive.latest(stream, blockSize));
+        }
+        long archived = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            List<Object> args = new ArrayList<>(List.of(scopeArgs));
+            String sql = SELECT_COLUMNS + where + " AND m.timestamp < ?";
+            args.add(Timestamp.valueOf(cutoff));
+            if (last != null) {
+                sql += AFTER_KEY;
+                Timestamp timestamp = Timestamp.valueOf(last.timestamp());
+                args.addAll(List.of(timestamp, timestamp, last.id()));
+            }
+            sql += " ORDER BY m.timestamp, m.id LIMIT ?";
+            args.add(blockSize);
+            List<MessageDto> batch = jdbcTemplate.query(sql, ROW_MAPPER, args.toArray());
+            if (batch.isEmpty()) {
+                break;
+            }
+            archive.append(stream, batch);
+            deleteArchived(batch);
+            archived += batch.size();
+            MessageDto newest = batch.get(batch.size() - 1);
+            last = new Position(newest.timestamp(), newest.id());
+            if (batch.size() < blockSize) {
+                break;
+            }
+            Thread.sleep(pauseMs);
+        }
+        return archived;
+    }
+
+    private void deleteArchived(List<MessageDto> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        StringBuilder sql = new StringBuilder("DELETE FROM messages WHERE id IN (");
+        Object[] ids = new Object[batch.size()];
+        for (int i = 0; i < ids.length; i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+            ids[i] = batch.get(i).id();
+        }
+        jdbcTemplate.update(sql.append(')').toString(), ids);
+    }
+
+    private static final RowMapper<MessageDto> ROW_MAPPER = (rs, rowNum) -> new MessageDto(
+            rs.getLong("id"),
+            rs.getString("sender_username"),
+            rs.getString("recipient_username"),
+            rs.getObject("channel_id", Long.class),
+            rs.getString("content"),
+            rs.getTimestamp("timestamp").toLocalDateTime());
+}
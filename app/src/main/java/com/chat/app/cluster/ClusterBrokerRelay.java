@@ -0,0 +1,110 @@
+package com.chat.app.cluster;
+
+import com.chat.app.service.PresenceService;
+import com.chat.app.service.TypingService;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Relie le broker local au {@link ClusterFanout}.
+ *
+ * Intercepteur du canal broker : tout message applicatif envoyé vers {@code /topic/**} ou
+ * {@code /user/**} (donc tout {@code convertAndSend} / {@code convertAndSendToUser} du
+ * {@link SimpMessagingTemplate}) est aussi publié aux autres nœuds, avec sa charge déjà sérialisée.
+ * Les messages reçus d'un autre nœud sont réinjectés dans le canal broker local, marqués
+ * pour ne pas être republiés ; les destinations {@code /user/**} sont alors résolues vers
+ * les sessions connectées à ce nœud.
+ * Les événements d'état ({@link ClusterEvents}) partagent le transport et sont aiguillés à la réception.
+ *
+ * Les instantanés calculés par chaque nœud à partir d'un état fusionné (frappe, présence) ne sont pas relayés :
+ * chaque nœud publie déjà le sien, complet, à ses propres sessions.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ClusterBrokerRelay implements ChannelInterceptor {
+
+    static final String ORIGIN_HEADER = "clusterOrigin";
+    static final List<String> NODE_LOCAL_PREFIXES = List.of(TypingService.TOPIC_PREFIX, PresenceService.PRESENCE_TOPIC);
+
+    private final ClusterFanout clusterFanout;
+    private final ClusterDeliveryStats stats;
+    private final ClusterEvents clusterEvents;
+    // Résolu à la demande : le canal broker est créé après cet intercepteur
+    private final ObjectProvider<SimpMessagingTemplate> messagingTemplate;
+
+    @PostConstruct
+    void subscribe() {
+        clusterFanout.setReceiver(this::deliverLocally);
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        if (!clusterFanout.hasPeers()) {
+            return message;
+        }
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+        String destination = accessor.getDestination();
+        if (accessor.getMessageType() != SimpMessageType.MESSAGE
+                || accessor.getHeader(ORIGIN_HEADER) != null
+                || destination == null
+                || !(destination.startsWith("/topic/") || destination.startsWith("/user/"))
+                || NODE_LOCAL_PREFIXES.stream().anyMatch(destination::startsWith)) {
+            return message;
+        }
+        byte[] payload = toBytes(message.getPayload());
+        if (payload == null) {
+            return message;
+        }
+        MimeType contentType = accessor.getContentType();
+        clusterFanout.publish(new ClusterEnvelope(
+                clusterFanout.nodeId(),
+                destination,
+                contentType != null ? contentType.toString() : null,
+                System.currentTimeMillis(),
+                payload));
+        stats.recordPublished();
+        return message;
+    }
+
+    private void deliverLocally(ClusterEnvelope envelope) {
+        if (clusterEvents.deliver(envelope)) {
+            return;
+        }
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(envelope.destination());
+        if (envelope.contentType() != null) {
+            accessor.setContentType(MimeType.valueOf(envelope.contentType()));
+        }
+        accessor.setHeader(ORIGIN_HEADER, envelope.originNodeId());
+        accessor.setLeaveMutable(true);
+        Message<byte[]> message = MessageBuilder.createMessage(envelope.payload(), accessor.getMessageHeaders());
+        messagingTemplate.getObject().send(message);
+        stats.recordReceived(envelope.originNodeId(), System.currentTimeMillis() - envelope.sentAtMillis());
+    }
+
+    private static byte[] toBytes(Object payload) {
+        if (payload instanceof byte[] bytes) {
+            return bytes;
+        }
+        if (payload instanceof String text) {
+            return text.getBytes(StandardCharsets.UTF_8);
+        }
+        log.debug("Charge non sérialisée ignorée pour le cluster: {}", payload.getClass());
+        return null;
+    }
+}
@@ -0,0 +1,58 @@
+package com.chat.app.cluster;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latence de livraison des messages reçus des autres nœuds, par nœud d'origine :
+ * temps entre l'envoi au broker sur le nœud d'origine et la remise au broker local.
+ * Mesurée avec les horloges murales des deux nœuds (suppose des horloges synchronisées, NTP).
+ */
+@Component
+public class ClusterDeliveryStats {
+
+    private final LongAdder published = new LongAdder();
+    private final ConcurrentHashMap<String, NodeLatency> received = new ConcurrentHashMap<>();
+
+    void recordPublished() {
+        published.increment();
+    }
+
+    void recordReceived(String originNodeId, long latencyMillis) {
+        received.computeIfAbsent(originNodeId, id -> new NodeLatency()).record(Math.max(0, latencyMillis));
+    }
+
+    public long publishedCount() {
+        return published.sum();
+    }
+
+    public Map<String, NodeLatencySnapshot> receivedByNode() {
+        Map<String, NodeLatencySnapshot> snapshot = new TreeMap<>();
+        received.forEach((node, latency) -> snapshot.put(node, latency.snapshot()));
+        return snapshot;
+    }
+
+    public record NodeLatencySnapshot(long count, double averageMillis, long maxMillis) {}
+
+    private static final class NodeLatency {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalMillis = new LongAdder();
+        private final LongAccumulator maxMillis = new LongAccumulator(Math::max, 0);
+
+        void record(long latencyMillis) {
+            count.increment();
+            totalMillis.add(latencyMillis);
+            maxMillis.accumulate(latencyMillis);
+        }
+
+        NodeLatencySnapshot snapshot() {
+            long n = count.sum();
+            return new NodeLatencySnapshot(n, n == 0 ? 0 : (double) totalMillis.sum() / n, maxMillis.get());
+        }
+    }
+}
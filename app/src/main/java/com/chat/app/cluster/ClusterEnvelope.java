@@ -0,0 +1,42 @@
+package com.chat.app.cluster;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Message de broker transporté entre nœuds : destination STOMP, type de contenu et
+ * charge utile déjà sérialisée. {@code sentAtMillis} sert à mesurer la latence de livraison.
+ */
+public record ClusterEnvelope(String originNodeId, String destination, String contentType,
+                              long sentAtMillis, byte[] payload) {
+
+    public byte[] encode() {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(payload.length + 128);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeUTF(originNodeId);
+            out.writeUTF(destination);
+            out.writeUTF(contentType != null ? contentType : "");
+            out.writeLong(sentAtMillis);
+            out.writeInt(payload.length);
+            out.write(payload);
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static ClusterEnvelope decode(DataInputStream in) throws IOException {
+        String origin = in.readUTF();
+        String destination = in.readUTF();
+        String contentType = in.readUTF();
+        long sentAt = in.readLong();
+        byte[] payload = new byte[in.readInt()];
+        in.readFully(payload);
+        return new ClusterEnvelope(origin, destination, contentType.isEmpty() ? null : contentType, sentAt, payload);
+    }
+}
@@ -0,0 +1,92 @@
+package com.chat.app.cluster;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Événements d'état entre nœuds (invalidations et mises à jour des caches en mémoire), transportés
+ * par le même {@link ClusterFanout} que les messages du broker, sous des destinations
+ * {@code cluster-event:<type>} qui ne passent jamais par le broker STOMP.
+ *
+ * Un événement reçu n'est appliqué qu'en local : les abonnés ne doivent pas le republier.
+ * Les événements d'un même nœud arrivent dans l'ordre d'envoi (une file par pair).
+ */
+@Slf4j
+@Component
+public class ClusterEvents {
+
+    static final String DESTINATION_PREFIX = "cluster-event:";
+
+    private final ClusterFanout clusterFanout;
+    private final ObjectMapper objectMapper;
+    private final ConcurrentHashMap<String, Handler<?>> handlers = new ConcurrentHashMap<>();
+
+    public ClusterEvents(ClusterFanout clusterFanout, ObjectMapper objectMapper) {
+        this.clusterFanout = clusterFanout;
+        this.objectMapper = objectMapper;
+    }
+
+    public String nodeId() {
+        return clusterFanout.nodeId();
+    }
+
+    /** Publie l'événement aux autres nœuds (JSON) ; ne fait rien sans pair. */
+    public void publish(String type, Object event) {
+        if (!clusterFanout.hasPeers()) {
+            return;
+        }
+        byte[] payload;
+        try {
+            payload = objectMapper.writeValueAsBytes(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Événement cluster non sérialisable : " + type, e);
+        }
+        clusterFanout.publish(new ClusterEnvelope(clusterFanout.nodeId(), DESTINATION_PREFIX + type,
+                "application/json", System.currentTimeMillis(), payload));
+    }
+
+    /** Un seul abonné par type ; il reçoit le nœud d'origine et l'événement désérialisé. */
+    public <T> void subscribe(String type, Class<T> eventType, RemoteEventHandler<T> handler) {
+        handlers.put(type, new Handler<>(eventType, handler));
+    }
+
+    public <T> void subscribe(String type, Class<T> eventType, Consumer<T> handler) {
+        subscribe(type, eventType, (originNodeId, event) -> handler.accept(event));
+    }
+
+    /** Vrai si l'enveloppe est un événement (traité ou ignoré ici), faux si c'est un message du broker. */
+    boolean deliver(ClusterEnvelope envelope) {
+        if (!envelope.destination().startsWith(DESTINATION_PREFIX)) {
+            return false;
+        }
+        String type = envelope.destination().substring(DESTINATION_PREFIX.length());
+        Handler<?> handler = handlers.get(type);
+        if (handler == null) {
+            log.debug("Événement cluster sans abonné : {}", type);
+            return true;
+        }
+        try {
+            handler.accept(objectMapper, envelope);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Événement cluster {} de {} non appliqué : {}", type, envelope.originNodeId(), e.getMessage());
+        }
+        return true;
+    }
+
+    @FunctionalInterface
+    public interface RemoteEventHandler<T> {
+        void accept(String originNodeId, T event);
+    }
+
+    private record Handler<T>(Class<T> eventType, RemoteEventHandler<T> handler) {
+        void accept(ObjectMapper objectMapper, ClusterEnvelope envelope) throws IOException {
+            handler.accept(envelope.originNodeId(), objectMapper.readValue(envelope.payload(), eventType));
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.chat.app.cluster;
+
+import java.util.function.Consumer;
+
+/**
+ * SPI de diffusion entre instances : transporte vers les autres nœuds les messages
+ * envoyés au broker local ({@code /topic/**} et {@code /user/**}).
+ *
+ * Implémentations : {@link LoopbackClusterFanout} (instances du même JVM, mode par défaut)
+ * et {@link TcpClusterFanout} (pair-à-pair TCP), choisies par {@code chat.cluster.mode}.
+ */
+public interface ClusterFanout {
+
+    // Identifiant de ce nœud, porté par chaque enveloppe publiée
+    String nodeId();
+
+    // Envoie l'enveloppe à tous les autres nœuds (ne doit pas bloquer l'appelant)
+    void publish(ClusterEnvelope envelope);
+
+    // Appelé pour chaque enveloppe reçue d'un autre nœud
+    void setReceiver(Consumer<ClusterEnvelope> receiver);
+
+    // Faux si aucun autre nœud n'est connu : la publication peut alors être évitée
+    boolean hasPeers();
+}
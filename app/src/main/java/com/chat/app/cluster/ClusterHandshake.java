@@ -0,0 +1,99 @@
+package com.chat.app.cluster;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+
+/**
+ * Authentification mutuelle de deux nœuds à l'ouverture d'une connexion TCP, par défi-réponse
+ * HMAC-SHA256 sur le secret partagé {@code chat.cluster.tcp.secret} (le secret ne circule pas).
+ *
+ * <pre>
+ * serveur → client : MAGIC, nonceServeur
+ * client → serveur : nodeIdClient, nonceClient, HMAC("client", nonceServeur, nonceClient, nodeIdClient)
+ * serveur → client : nodeIdServeur, HMAC("server", nonceClient, nonceServeur, nodeIdServeur)
+ * </pre>
+ *
+ * Les trames qui suivent ne sont ni chiffrées ni signées : le lien doit rester sur un réseau privé.
+ */
+final class ClusterHandshake {
+
+    static final int MAGIC = 0x43484154; // "CHAT"
+    private static final int NONCE_BYTES = 32;
+    private static final int MAC_BYTES = 32;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private ClusterHandshake() {
+    }
+
+    /** Côté acceptant ; renvoie le nodeId authentifié du pair. */
+    static String accept(DataInputStream in, DataOutputStream out, byte[] secret, String nodeId) throws IOException {
+        byte[] serverNonce = nonce();
+        out.writeInt(MAGIC);
+        out.write(serverNonce);
+        out.flush();
+
+        String peerNodeId = in.readUTF();
+        byte[] clientNonce = readBytes(in, NONCE_BYTES);
+        byte[] clientMac = readBytes(in, MAC_BYTES);
+        if (!MessageDigest.isEqual(clientMac, mac(secret, "client", serverNonce, clientNonce, peerNodeId))) {
+            throw new IOException("Authentification du nœud " + peerNodeId + " refusée");
+        }
+        out.writeUTF(nodeId);
+        out.write(mac(secret, "server", clientNonce, serverNonce, nodeId));
+        out.flush();
+        return peerNodeId;
+    }
+
+    /** Côté connectant ; renvoie le nodeId authentifié du pair. */
+    static String connect(DataInputStream in, DataOutputStream out, byte[] secret, String nodeId) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Le pair ne parle pas le protocole du cluster");
+        }
+        byte[] serverNonce = readBytes(in, NONCE_BYTES);
+        byte[] clientNonce = nonce();
+        out.writeUTF(nodeId);
+        out.write(clientNonce);
+        out.write(mac(secret, "client", serverNonce, clientNonce, nodeId));
+        out.flush();
+
+        String peerNodeId = in.readUTF();
+        byte[] serverMac = readBytes(in, MAC_BYTES);
+        if (!MessageDigest.isEqual(serverMac, mac(secret, "server", clientNonce, serverNonce, peerNodeId))) {
+            throw new IOException("Authentification du pair " + peerNodeId + " refusée");
+        }
+        return peerNodeId;
+    }
+
+    private static byte[] nonce() {
+        byte[] nonce = new byte[NONCE_BYTES];
+        RANDOM.nextBytes(nonce);
+        return nonce;
+    }
+
+    private static byte[] readBytes(DataInputStream in, int length) throws IOException {
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private static byte[] mac(byte[] secret, String role, byte[] first, byte[] second, String nodeId) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret, "HmacSHA256"));
+            mac.update(role.getBytes(StandardCharsets.UTF_8));
+            mac.update(first);
+            mac.update(second);
+            mac.update(nodeId.getBytes(StandardCharsets.UTF_8));
+            return mac.doFinal();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 indisponible", e);
+        }
+    }
+}
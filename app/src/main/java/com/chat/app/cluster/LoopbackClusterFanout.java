@@ -0,0 +1,65 @@
+package com.chat.app.cluster;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.function.Consumer;
+
+/**
+ * Diffusion entre contextes Spring d'un même JVM (tests, plusieurs instances embarquées).
+ * Avec une seule instance, aucun pair n'est enregistré et la publication ne fait rien.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "chat.cluster.mode", havingValue = "loopback", matchIfMissing = true)
+public class LoopbackClusterFanout implements ClusterFanout {
+
+    private static final Set<LoopbackClusterFanout> NODES = new CopyOnWriteArraySet<>();
+
+    private final String nodeId;
+    private volatile Consumer<ClusterEnvelope> receiver = envelope -> { };
+
+    public LoopbackClusterFanout(@Value("${chat.cluster.node-id:}") String nodeId) {
+        this.nodeId = nodeId.isBlank() ? UUID.randomUUID().toString() : nodeId;
+        NODES.add(this);
+    }
+
+    @PreDestroy
+    void leave() {
+        NODES.remove(this);
+    }
+
+    @Override
+    public String nodeId() {
+        return nodeId;
+    }
+
+    @Override
+    public void publish(ClusterEnvelope envelope) {
+        for (LoopbackClusterFanout node : NODES) {
+            if (node != this) {
+                try {
+                    node.receiver.accept(envelope);
+                } catch (RuntimeException e) {
+                    log.warn("Livraison loopback vers {} en échec: {}", node.nodeId, e.getMessage());
+                }
+            }
+        }
+    }
+
+    @Override
+    public void setReceiver(Consumer<ClusterEnvelope> receiver) {
+        this.receiver = receiver;
+    }
+
+    @Override
+    public boolean hasPeers() {
+        return NODES.size() > 1;
+    }
+}
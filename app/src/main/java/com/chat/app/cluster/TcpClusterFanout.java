@@ -0,0 +1,300 @@
+package com.chat.app.cluster;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Diffusion pair-à-pair en TCP : chaque nœud écoute sur {@code chat.cluster.tcp.bind-address}:{@code port}
+ * et ouvre une connexion sortante vers chaque pair de {@code chat.cluster.tcp.peers} (maillage complet).
+ *
+ * Sécurité : seules les connexions venant des adresses des pairs configurés sont acceptées, et chaque
+ * connexion commence par une authentification mutuelle sur le secret partagé
+ * {@code chat.cluster.tcp.secret} ({@link ClusterHandshake}) ; sans secret, le nœud refuse de démarrer.
+ * Une trame dont le nœud d'origine n'est pas celui authentifié ferme la connexion.
+ *
+ * Trames : longueur (int) puis {@link ClusterEnvelope#encode()}. Chaque pair a sa propre file
+ * bornée et son thread d'écriture ; un pair lent ou absent ne bloque ni l'envoi ni les autres pairs
+ * (les trames en excès sont abandonnées et comptées).
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "chat.cluster.mode", havingValue = "tcp")
+public class TcpClusterFanout implements ClusterFanout {
+
+    private static final int MAX_FRAME_BYTES = 16 * 1024 * 1024;
+    private static final long RECONNECT_DELAY_MS = 1000;
+    private static final int HANDSHAKE_TIMEOUT_MS = 5000;
+
+    private final String nodeId;
+    private final String bindAddress;
+    private final int port;
+    private final byte[] secret;
+    private final List<PeerLink> peers = new ArrayList<>();
+    private final Set<Socket> inboundSockets = ConcurrentHashMap.newKeySet();
+    private final LongAdder droppedFrames = new LongAdder();
+
+    private volatile Consumer<ClusterEnvelope> receiver = envelope -> { };
+    private volatile boolean running;
+    private ServerSocket serverSocket;
+
+    public TcpClusterFanout(
+            @Value("${chat.cluster.node-id:}") String nodeId,
+            @Value("${chat.cluster.tcp.bind-address:127.0.0.1}") String bindAddress,
+            @Value("${chat.cluster.tcp.port:7800}") int port,
+            @Value("${chat.cluster.tcp.secret:}") String secret,
+            @Value("${chat.cluster.tcp.peers:}") List<String> peerAddresses,
+            @Value("${chat.cluster.tcp.queue-capacity:10000}") int queueCapacity) {
+        if (secret.length() < 16) {
+            throw new IllegalStateException("chat.cluster.tcp.secret doit faire au moins 16 caractères en mode tcp");
+        }
+        this.nodeId = nodeId.isBlank() ? UUID.randomUUID().toString() : nodeId;
+        this.bindAddress = bindAddress;
+        this.port = port;
+        this.secret = secret.getBytes(StandardCharsets.UTF_8);
+        for (String address : peerAddresses) {
+            if (address.isBlank()) {
+                continue;
+            }
+            String[] hostPort = address.trim().split(":");
+            peers.add(new PeerLink(hostPort[0], Integer.parseInt(hostPort[1]), queueCapacity));
+        }
+    }
+
+    @PostConstruct
+    void start() throws IOException {
+        running = true;
+        serverSocket = new ServerSocket();
+        serverSocket.setReuseAddress(true);
+        serverSocket.bind(new InetSocketAddress(bindAddress, port));
+        Thread acceptor = new Thread(this::acceptLoop, "cluster-tcp-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        peers.forEach(PeerLink::start);
+        log.info("Cluster TCP: nœud {} en écoute sur {}:{}, {} pair(s)", nodeId, bindAddress, port, peers.size());
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        closeQuietly(serverSocket);
+        inboundSockets.forEach(TcpClusterFanout::closeQuietly);
+        peers.forEach(PeerLink::stop);
+    }
+
+    @Override
+    public String nodeId() {
+        return nodeId;
+    }
+
+    @Override
+    public void publish(ClusterEnvelope envelope) {
+        byte[] frame = envelope.encode();
+        for (PeerLink peer : peers) {
+            if (!peer.queue.offer(frame)) {
+                droppedFrames.increment();
+            }
+        }
+    }
+
+    @Override
+    public void setReceiver(Consumer<ClusterEnvelope> receiver) {
+        this.receiver = receiver;
+    }
+
+    @Override
+    public boolean hasPeers() {
+        return !peers.isEmpty();
+    }
+
+    public long droppedFrames() {
+        return droppedFrames.sum();
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                if (!isKnownPeer(socket.getInetAddress())) {
+                    log.warn("Cluster TCP: connexion refusée depuis {} (pas un pair configuré)", socket.getRemoteSocketAddress());
+                    closeQuietly(socket);
+                    continue;
+                }
+                socket.setTcpNoDelay(true);
+                inboundSockets.add(socket);
+                Thread reader = new Thread(() -> readLoop(socket), "cluster-tcp-reader-" + socket.getRemoteSocketAddress());
+                reader.setDaemon(true);
+                reader.start();
+            } catch (IOException e) {
+                if (running) {
+                    log.warn("Cluster TCP: erreur d'acceptation: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    // Adresse de l'un des pairs de chat.cluster.tcp.peers (résolue à chaque connexion)
+    private boolean isKnownPeer(InetAddress address) {
+        for (PeerLink peer : peers) {
+            try {
+                for (InetAddress candidate : InetAddress.getAllByName(peer.host)) {
+                    if (candidate.equals(address)) {
+                        return true;
+                    }
+                }
+            } catch (UnknownHostException e) {
+                log.debug("Cluster TCP: pair {} introuvable: {}", peer.host, e.getMessage());
+            }
+        }
+        return false;
+    }
+
+    private void readLoop(Socket socket) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()))) {
+            socket.setSoTimeout(HANDSHAKE_TIMEOUT_MS);
+            String peerNodeId = ClusterHandshake.accept(in,
+                    new DataOutputStream(new BufferedOutputStream(socket.getOutputStream())), secret, nodeId);
+            socket.setSoTimeout(0);
+            log.info("Cluster TCP: nœud {} authentifié depuis {}", peerNodeId, socket.getRemoteSocketAddress());
+            while (running) {
+                int length = in.readInt();
+                if (length <= 0 || length > MAX_FRAME_BYTES) {
+                    throw new IOException("Trame invalide (" + length + " octets)");
+                }
+                byte[] frame = new byte[length];
+                in.readFully(frame);
+                ClusterEnvelope envelope = ClusterEnvelope.decode(new DataInputStream(new ByteArrayInputStream(frame)));
+                if (!peerNodeId.equals(envelope.originNodeId())) {
+                    throw new IOException("Trame attribuée à " + envelope.originNodeId() + " sur la connexion de " + peerNodeId);
+                }
+                try {
+                    receiver.accept(envelope);
+                } catch (RuntimeException e) {
+                    log.warn("Cluster TCP: livraison locale en échec: {}", e.getMessage());
+                }
+            }
+        } catch (EOFException e) {
+            log.debug("Cluster TCP: pair {} déconnecté", socket.getRemoteSocketAddress());
+        } catch (IOException e) {
+            if (running) {
+                log.warn("Cluster TCP: lecture interrompue depuis {}: {}", socket.getRemoteSocketAddress(), e.getMessage());
+            }
+        } finally {
+            inboundSockets.remove(socket);
+            closeQuietly(socket);
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch (IOException ignored) {
+            // fermeture best-effort
+        }
+    }
+
+    // Connexion sortante vers un pair, reconnectée automatiquement
+    private final class PeerLink {
+        private final String host;
+        private final int port;
+        private final BlockingQueue<byte[]> queue;
+        private Thread writer;
+        private volatile Socket socket;
+
+        PeerLink(String host, int port, int queueCapacity) {
+            this.host = host;
+            this.port = port;
+            this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        }
+
+        void start() {
+            writer = new Thread(this::writeLoop, "cluster-tcp-writer-" + host + ":" + port);
+            writer.setDaemon(true);
+            writer.start();
+        }
+
+        void stop() {
+            closeQuietly(socket);
+            if (writer != null) {
+                writer.interrupt();
+            }
+        }
+
+        private void writeLoop() {
+            while (running) {
+                try (Socket s = new Socket()) {
+                    s.connect(new InetSocketAddress(host, port), (int) RECONNECT_DELAY_MS * 5);
+                    s.setTcpNoDelay(true);
+                    socket = s;
+                    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+                    s.setSoTimeout(HANDSHAKE_TIMEOUT_MS);
+                    String peerNodeId = ClusterHandshake.connect(
+                            new DataInputStream(new BufferedInputStream(s.getInputStream())), out, secret, nodeId);
+                    s.setSoTimeout(0);
+                    log.info("Cluster TCP: connecté au pair {} ({}:{})", peerNodeId, host, port);
+                    while (running) {
+                        byte[] frame = queue.poll(1, TimeUnit.SECONDS);
+                        if (frame == null) {
+                            continue;
+                        }
+                        writeFrame(out, frame);
+                        // Regroupe les trames déjà en attente avant de vider le tampon
+                        while ((frame = queue.poll()) != null) {
+                            writeFrame(out, frame);
+                        }
+                        out.flush();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (IOException e) {
+                    if (running) {
+                        log.debug("Cluster TCP: pair {}:{} indisponible: {}", host, port, e.getMessage());
+                        try {
+                            Thread.sleep(RECONNECT_DELAY_MS);
+                        } catch (InterruptedException interrupted) {
+                            Thread.currentThread().interrupt();
+                            return;
+                        }
+                    }
+                }
+            }
+        }
+
+        private void writeFrame(DataOutputStream out, byte[] frame) throws IOException {
+            out.writeInt(frame.length);
+            out.write(frame);
+        }
+    }
+}
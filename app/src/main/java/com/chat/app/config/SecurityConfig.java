@@ -2,6 +2,7 @@ package com.chat.app.config;
 
 import com.chat.app.security.JwtAuthenticationFilter;
 import com.chat.app.service.IUserService;
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -35,6 +36,9 @@ public class SecurityConfig {
             .cors(withDefaults())
             .csrf(csrf -> csrf.disable())
             .authorizeHttpRequests(auth -> auth
+                // Redispatchs d'une requête déjà autorisée : fin d'une réponse en flux (export NDJSON)
+                // et page d'erreur (sans quoi une 400/404 levée par un contrôleur devient une 403)
+                .dispatcherTypeMatchers(DispatcherType.ASYNC, DispatcherType.ERROR).permitAll()
                 .requestMatchers(
                     "/", 
                     "/index.html", 
@@ -43,6 +47,9 @@ public class SecurityConfig {
                     "/webjars/**", 
                     "/api/auth/**", 
                     "/ws/**",
+                    // Sonde de vie et collecte Prometheus (pas de données utilisateur)
+                    "/actuator/health",
+                    "/actuator/prometheus",
                     // URLs Swagger
                     "/v3/api-docs/**",
                     "/swagger-ui/**",
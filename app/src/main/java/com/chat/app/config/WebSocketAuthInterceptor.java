@@ -1,7 +1,8 @@
 package com.chat.app.config;
 
 import com.chat.app.security.IJwtService;
-import com.chat.app.service.IUserService;
+import com.chat.app.security.JwtUserDetailsResolver;
+import io.jsonwebtoken.Claims;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.messaging.Message;
@@ -23,7 +24,7 @@ import java.util.List;
 public class WebSocketAuthInterceptor implements ChannelInterceptor {
 
     private final IJwtService jwtService;
-    private final IUserService userService;
+    private final JwtUserDetailsResolver userDetailsResolver;
 
     @Override
     public Message<?> preSend(Message<?> message, MessageChannel channel) {
@@ -55,13 +56,14 @@ public class WebSocketAuthInterceptor implements ChannelInterceptor {
 
             if (jwt != null) {
                 try {
-                    String username = jwtService.extractUsername(jwt);
+                    Claims claims = jwtService.parseToken(jwt);
+                    String username = claims.getSubject();
                     log.debug("Username extracted from JWT: {}", username);
 
                     if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                        UserDetails userDetails = userService.loadUserByUsername(username);
+                        UserDetails userDetails = userDetailsResolver.resolve(claims);
 
-                        if (jwtService.isTokenValid(jwt, userDetails)) {
+                        if (jwtService.isTokenValid(claims, userDetails)) {
                             log.info("JWT token is valid for user: {}", username);
                             // Créer l'objet d'authentification Spring Security
                             UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
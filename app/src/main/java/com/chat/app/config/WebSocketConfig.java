@@ -1,9 +1,19 @@
 package com.chat.app.config;
 
+import com.chat.app.cluster.ClusterBrokerRelay;
+import com.chat.app.metrics.InboundTimestampInterceptor;
+import com.chat.app.outbound.OutboundBackpressure;
+import com.chat.app.ratelimit.InboundRateLimitInterceptor;
+import com.chat.app.resume.ReplayGateInterceptor;
+import com.chat.app.resume.StompResumeInterceptor;
+import org.springframework.boot.autoconfigure.thread.Threading;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
 import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,12 +25,37 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
     @Autowired // Injecte l'intercepteur créé
     private WebSocketAuthInterceptor webSocketAuthInterceptor;
 
+    @Autowired // Seaux à jetons par utilisateur et par salon sur les trames SEND
+    private InboundRateLimitInterceptor inboundRateLimitInterceptor;
+
+    @Autowired // Diffusion des messages du broker vers les autres instances
+    private ClusterBrokerRelay clusterBrokerRelay;
+
+    @Autowired // Horodatage des trames SEND pour la métrique de latence réception → diffusion
+    private InboundTimestampInterceptor inboundTimestampInterceptor;
+
+    @Autowired // Rejeu des messages manqués après reconnexion (en-têtes resume-* sur SUBSCRIBE)
+    private StompResumeInterceptor stompResumeInterceptor;
+
+    @Autowired // Retient les trames en direct d'un abonnement pendant son rejeu
+    private ReplayGateInterceptor replayGateInterceptor;
+
+    @Autowired // Tampon sortant borné par session, écrit hors des threads clientOutbound
+    private OutboundBackpressure outboundBackpressure;
+
+    @Autowired // Pour savoir si spring.threads.virtual.enabled est actif (Java 21+)
+    private Environment environment;
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
         // Préfixe pour les destinations gérées par le broker (ex: /topic/public, /queue/private)
         config.enableSimpleBroker("/topic", "/queue"); 
         // Préfixe pour les destinations mappées aux méthodes @MessageMapping dans les contrôleurs
         config.setApplicationDestinationPrefixes("/app");
+        // Les messages envoyés au broker local sont aussi publiés aux autres nœuds (chat.cluster.mode)
+        config.configureBrokerChannel().interceptors(clusterBrokerRelay);
+        // Avec un thread virtuel par message, on garantit l'ordre d'envoi par session
+        config.setPreservePublishOrder(isVirtualThreads());
         // Optionnel : Configurer le préfixe pour les destinations spécifiques à l'utilisateur
         // Par défaut, c'est /user/. Utilisé pour simpMessagingTemplate.convertAndSendToUser
         // config.setUserDestinationPrefix("/user"); 
@@ -38,14 +73,42 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
     // Enregistrer l'intercepteur pour le canal entrant
     @Override
     public void configureClientInboundChannel(ChannelRegistration registration) {
-        registration.interceptors(webSocketAuthInterceptor);
+        registration.interceptors(inboundTimestampInterceptor, webSocketAuthInterceptor, inboundRateLimitInterceptor,
+                stompResumeInterceptor);
+        if (isVirtualThreads()) {
+            registration.executor(virtualThreadExecutor("ws-inbound-"));
+        }
+    }
+
+    // Canal sortant : pool par défaut, ou threads virtuels si activés
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        registration.interceptors(replayGateInterceptor);
+        if (isVirtualThreads()) {
+            registration.executor(virtualThreadExecutor("ws-outbound-"));
+        }
+    }
+
+    // Clients lents : limites par session (chat.websocket.outbound.*) appliquées par OutboundBackpressure.
+    // Le décorateur de Spring posé au-dessus reçoit les mêmes valeurs ; nos envois ne bloquant pas,
+    // son propre tampon reste vide.
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.addDecoratorFactory(outboundBackpressure)
+                .setSendBufferSizeLimit(outboundBackpressure.bufferSizeLimit())
+                .setSendTimeLimit((int) outboundBackpressure.sendTimeLimitMs());
+    }
+
+    // Mode threads virtuels : même interrupteur que Tomcat (spring.threads.virtual.enabled, Java 21+)
+    private boolean isVirtualThreads() {
+        return Threading.VIRTUAL.isActive(environment);
     }
 
-    // On pourrait aussi configurer le canal sortant si nécessaire
-    // @Override
-    // public void configureClientOutboundChannel(ChannelRegistration registration) {
-    //     // ...
-    // }
+    private SimpleAsyncTaskExecutor virtualThreadExecutor(String threadNamePrefix) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(threadNamePrefix);
+        executor.setVirtualThreads(true);
+        return executor;
+    }
 
     // Vous pourriez ajouter ici la configuration de sécurité pour WebSocket si nécessaire
     // Par exemple, intégrer avec Spring Security pour authentifier les connexions WebSocket
@@ -1,9 +1,14 @@
 package com.chat.app.controller;
 
 import com.chat.app.model.Channel;
+import com.chat.app.model.ChannelPurgeJob;
 import com.chat.app.repository.ChannelRepository;
-import com.chat.app.repository.MessageRepository;
+import com.chat.app.retention.RetentionPolicy;
+import com.chat.app.service.ChannelAccessCache;
+import com.chat.app.service.ChannelAccessCache.ChannelAccess;
+import com.chat.app.service.ChannelPurgeService;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -13,19 +18,24 @@ import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 
+import java.net.URI;
 import java.security.Principal;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.stream.Collectors;
 import java.util.HashSet;
 import java.util.Set;
 
+@Slf4j
 @RestController
 @RequestMapping("/api/channels")
 @RequiredArgsConstructor
 public class ChannelController {
 
     private final ChannelRepository channelRepository;
-    private final MessageRepository messageRepository;
+    private final ChannelAccessCache channelAccessCache;
+    private final ChannelPurgeService channelPurgeService;
+    private final RetentionPolicy retentionPolicy;
 
     @GetMapping
     @Operation(summary = "Liste tous les salons")
@@ -34,7 +44,7 @@ public class ChannelController {
         if (principal == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
-        List<Channel> channels = channelRepository.findAll();
+        List<Channel> channels = channelRepository.findByDeletedAtIsNull();
         List<ChannelDto> channelDtos = channels.stream()
                 .map(channel -> new ChannelDto(
                     channel.getId(), 
@@ -60,8 +70,10 @@ public class ChannelController {
         newChannel.setName(request.name().trim());
         newChannel.setDescription(request.description());
         newChannel.setCreatorUsername(principal.getName());
+        newChannel.setRetentionDays(retentionPolicy.defaultDays());
         
         Channel savedChannel = channelRepository.save(newChannel);
+        channelAccessCache.update(savedChannel);
         ChannelDto channelDto = new ChannelDto(
             savedChannel.getId(), 
             savedChannel.getName(), 
@@ -82,17 +94,21 @@ public class ChannelController {
             Principal principal) {
         
         try {
-            Channel channel = channelRepository.findById(channelId)
+            // Vérification des droits via le cache, avant tout chargement du salon
+            ChannelAccess access = channelAccessCache.get(channelId)
                 .orElseThrow(() -> new RuntimeException("Salon non trouvé"));
     
-            if (!channel.getCreatorUsername().equals(principal.getName())) {
+            if (!access.isAdmin(principal.getName())) {
                 return ResponseEntity.status(HttpStatus.FORBIDDEN)
                     .body(new ErrorResponse("Seul l'administrateur peut gérer les modérateurs"));
             }
     
+            Channel channel = channelRepository.findById(channelId)
+                .orElseThrow(() -> new RuntimeException("Salon non trouvé"));
+
             System.out.println("Mise à jour des modérateurs pour le salon " + channelId + ": " + moderatorUsernames);
             channel.setModeratorUsernames(new HashSet<>(moderatorUsernames));
-            channelRepository.save(channel);
+            channelAccessCache.update(channelRepository.save(channel));
             
             return ResponseEntity.ok(new SuccessResponse("Modérateurs mis à jour avec succès"));
         } catch (Exception e) {
@@ -101,54 +117,109 @@ public class ChannelController {
         }
     }
 
+    @PutMapping("/{channelId}/retention")
+    @Operation(summary = "Modifie la durée de conservation des messages du salon",
+               description = "S'applique aux messages écrits après la modification ; 0 = sans limite")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<?> updateRetention(
+            @PathVariable Long channelId,
+            @RequestBody RetentionDto request,
+            Principal principal) {
+        if (principal == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        ChannelAccess access = channelAccessCache.get(channelId).orElse(null);
+        if (access == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ErrorResponse("Salon non trouvé"));
+        }
+        if (!access.isAdmin(principal.getName())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                .body(new ErrorResponse("Seul l'administrateur peut modifier la durée de conservation"));
+        }
+        if (!retentionPolicy.isAllowed(request.retentionDays())) {
+            return ResponseEntity.badRequest()
+                .body(new ErrorResponse("Durée non autorisée, valeurs possibles : " + retentionPolicy.allowedDays()));
+        }
+
+        Channel channel = channelRepository.findById(channelId).orElse(null);
+        if (channel == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ErrorResponse("Salon non trouvé"));
+        }
+        channel.setRetentionDays(request.retentionDays());
+        channelAccessCache.update(channelRepository.save(channel));
+        return ResponseEntity.ok(new RetentionDto(channel.getRetentionDays()));
+    }
+
+    @GetMapping("/{channelId}/retention")
+    @Operation(summary = "Durée de conservation des messages du salon, en jours (0 = sans limite)")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<?> getRetention(@PathVariable Long channelId, Principal principal) {
+        if (principal == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        return channelAccessCache.get(channelId)
+                .<ResponseEntity<?>>map(access -> ResponseEntity.ok(new RetentionDto(access.retentionDays())))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ErrorResponse("Salon non trouvé")));
+    }
+
     @DeleteMapping("/{channelId}")
-    @Operation(summary = "Supprime un salon")
+    @Operation(summary = "Supprime un salon",
+               description = "Masque le salon immédiatement et purge ses messages en arrière-plan ; " +
+                             "la progression est disponible sur /api/channels/purge-jobs/{jobId}")
+    @ApiResponse(responseCode = "202", description = "Suppression planifiée")
     @SecurityRequirement(name = "bearerAuth")
     public ResponseEntity<?> deleteChannel(
             @PathVariable Long channelId,
             Principal principal) {
         try {
-            System.out.println("Tentative de suppression du salon " + channelId + " par " + principal.getName());
+            log.info("Tentative de suppression du salon {} par {}", channelId, principal.getName());
             
-            // Vérifier si le salon existe
-            Channel channel = channelRepository.findById(channelId)
+            // Vérifier si le salon existe et si l'utilisateur est l'administrateur (via le cache)
+            ChannelAccess access = channelAccessCache.get(channelId)
                 .orElseThrow(() -> new RuntimeException("Salon non trouvé: " + channelId));
 
-            System.out.println("Salon trouvé: " + channel.getName());
-            System.out.println("Créateur du salon: " + channel.getCreatorUsername());
-            System.out.println("Utilisateur actuel: " + principal.getName());
-
-            // Vérifier si l'utilisateur est l'administrateur
-            if (!channel.getCreatorUsername().equals(principal.getName())) {
-                System.out.println("Tentative non autorisée de suppression");
+            if (!access.isAdmin(principal.getName())) {
+                log.warn("Tentative non autorisée de suppression du salon {} par {}", channelId, principal.getName());
                 return ResponseEntity.status(HttpStatus.FORBIDDEN)
                     .body(new ErrorResponse("Seul l'administrateur peut supprimer le salon"));
             }
 
-            try {
-                // Supprimer d'abord les messages associés au salon
-                System.out.println("Suppression des messages du salon");
-                messageRepository.deleteByChannelId(channelId);
-
-                // Supprimer le salon
-                System.out.println("Suppression du salon");
-                channelRepository.delete(channel);
-                
-                System.out.println("Salon supprimé avec succès");
-                return ResponseEntity.ok().body(new SuccessResponse("Salon supprimé avec succès"));
-            } catch (Exception e) {
-                System.err.println("Erreur lors de la suppression: " + e.getMessage());
-                e.printStackTrace();
-                throw e;
-            }
+            Channel channel = channelRepository.findById(channelId)
+                .orElseThrow(() -> new RuntimeException("Salon non trouvé: " + channelId));
+
+            // Le salon disparaît tout de suite ; les messages sont supprimés par lots hors de la requête
+            ChannelPurgeJob job = channelPurgeService.requestPurge(channel, principal.getName());
+            log.info("Purge du salon {} planifiée (tâche {})", channel.getName(), job.getId());
+            return ResponseEntity.accepted()
+                .location(URI.create("/api/channels/purge-jobs/" + job.getId()))
+                .body(PurgeJobDto.of(job));
         } catch (Exception e) {
-            System.err.println("Erreur globale: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Erreur lors de la suppression du salon {}", channelId, e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                 .body(new ErrorResponse("Erreur lors de la suppression du salon: " + e.getMessage()));
         }
     }
 
+    @GetMapping("/purge-jobs/{jobId}")
+    @Operation(summary = "Progression de la suppression d'un salon")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<?> getPurgeJob(
+            @PathVariable Long jobId,
+            Principal principal) {
+        if (principal == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        ChannelPurgeJob job = channelPurgeService.find(jobId).orElse(null);
+        if (job == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ErrorResponse("Tâche non trouvée"));
+        }
+        if (!job.getRequestedBy().equals(principal.getName())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                .body(new ErrorResponse("Seul l'auteur de la suppression peut suivre sa progression"));
+        }
+        return ResponseEntity.ok(PurgeJobDto.of(job));
+    }
+
     @GetMapping("/{channelId}/permissions")
     @Operation(summary = "Récupère les permissions de l'utilisateur pour un salon")
     @SecurityRequirement(name = "bearerAuth")
@@ -156,11 +227,11 @@ public class ChannelController {
             @PathVariable Long channelId,
             Principal principal) {
         
-        Channel channel = channelRepository.findById(channelId)
+        ChannelAccess access = channelAccessCache.get(channelId)
             .orElseThrow(() -> new RuntimeException("Salon non trouvé"));
 
-        boolean isAdmin = channel.isAdmin(principal.getName());
-        boolean isModerator = channel.isModerator(principal.getName());
+        boolean isAdmin = access.isAdmin(principal.getName());
+        boolean isModerator = access.isModerator(principal.getName());
 
         return ResponseEntity.ok(new PermissionsDto(isAdmin, isModerator));
     }
@@ -173,21 +244,24 @@ public class ChannelController {
             @PathVariable String username,
             Principal principal) {
         try {
-            Channel channel = channelRepository.findById(channelId)
+            ChannelAccess access = channelAccessCache.get(channelId)
                 .orElseThrow(() -> new RuntimeException("Salon non trouvé"));
             
             // Vérifier si l'utilisateur actuel est administrateur ou modérateur
-            if (!channel.canModerateMessages(principal.getName())) {
+            if (!access.canModerateMessages(principal.getName())) {
                 return ResponseEntity.status(HttpStatus.FORBIDDEN)
                     .body(new ErrorResponse("Vous devez être administrateur ou modérateur pour bloquer un utilisateur"));
             }
             
             // Vérifier que l'utilisateur à bloquer n'est pas l'administrateur
-            if (channel.isAdmin(username)) {
+            if (access.isAdmin(username)) {
                 return ResponseEntity.status(HttpStatus.FORBIDDEN)
                     .body(new ErrorResponse("Impossible de bloquer l'administrateur du salon"));
             }
             
+            Channel channel = channelRepository.findById(channelId)
+                .orElseThrow(() -> new RuntimeException("Salon non trouvé"));
+
             // Ajouter l'utilisateur à la liste des utilisateurs bloqués
             Set<String> blockedUsers = channel.getBlockedUsernames();
             blockedUsers.add(username);
@@ -200,7 +274,7 @@ public class ChannelController {
                 channel.setModeratorUsernames(moderators);
             }
             
-            channelRepository.save(channel);
+            channelAccessCache.update(channelRepository.save(channel));
             
             return ResponseEntity.ok(new SuccessResponse("Utilisateur " + username + " bloqué avec succès"));
         } catch (Exception e) {
@@ -217,20 +291,23 @@ public class ChannelController {
             @PathVariable String username,
             Principal principal) {
         try {
-            Channel channel = channelRepository.findById(channelId)
+            ChannelAccess access = channelAccessCache.get(channelId)
                 .orElseThrow(() -> new RuntimeException("Salon non trouvé"));
             
             // Vérifier si l'utilisateur actuel est administrateur ou modérateur
-            if (!channel.canModerateMessages(principal.getName())) {
+            if (!access.canModerateMessages(principal.getName())) {
                 return ResponseEntity.status(HttpStatus.FORBIDDEN)
                     .body(new ErrorResponse("Vous devez être administrateur ou modérateur pour débloquer un utilisateur"));
             }
             
+            Channel channel = channelRepository.findById(channelId)
+                .orElseThrow(() -> new RuntimeException("Salon non trouvé"));
+
             // Retirer l'utilisateur de la liste des utilisateurs bloqués
             Set<String> blockedUsers = channel.getBlockedUsernames();
             blockedUsers.remove(username);
             channel.setBlockedUsernames(blockedUsers);
-            channelRepository.save(channel);
+            channelAccessCache.update(channelRepository.save(channel));
             
             return ResponseEntity.ok(new SuccessResponse("Utilisateur " + username + " débloqué avec succès"));
         } catch (Exception e) {
@@ -246,16 +323,16 @@ public class ChannelController {
             @PathVariable Long channelId,
             Principal principal) {
         try {
-            Channel channel = channelRepository.findById(channelId)
+            ChannelAccess access = channelAccessCache.get(channelId)
                 .orElseThrow(() -> new RuntimeException("Salon non trouvé"));
             
             // Vérifier si l'utilisateur actuel est administrateur ou modérateur
-            if (!channel.canModerateMessages(principal.getName())) {
+            if (!access.canModerateMessages(principal.getName())) {
                 return ResponseEntity.status(HttpStatus.FORBIDDEN)
                     .body(new ErrorResponse("Vous devez être administrateur ou modérateur pour voir les utilisateurs bloqués"));
             }
             
-            return ResponseEntity.ok(channel.getBlockedUsernames());
+            return ResponseEntity.ok(access.blockedUsernames());
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                 .body(new ErrorResponse("Erreur lors de la récupération des utilisateurs bloqués: " + e.getMessage()));
@@ -274,6 +351,7 @@ public class ChannelController {
         
         try {
             Channel channel = channelRepository.findById(channelId)
+                .filter(found -> !found.isDeleted())
                 .orElseThrow(() -> new RuntimeException("Salon non trouvé"));
             
             ChannelDto channelDto = new ChannelDto(
@@ -302,10 +380,9 @@ public class ChannelController {
         }
         
         try {
-            Channel channel = channelRepository.findById(channelId)
-                .orElseThrow(() -> new RuntimeException("Salon non trouvé"));
-            
-            boolean isAdmin = channel.isAdmin(principal.getName());
+            boolean isAdmin = channelAccessCache.get(channelId)
+                .orElseThrow(() -> new RuntimeException("Salon non trouvé"))
+                .isAdmin(principal.getName());
             return ResponseEntity.ok(new AdminStatusDto(isAdmin));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -333,6 +410,26 @@ public class ChannelController {
 
     record AdminStatusDto(boolean isAdmin) {}
 
+    record RetentionDto(int retentionDays) {}
+
+    record PurgeJobDto(
+        Long jobId,
+        Long channelId,
+        String channelName,
+        ChannelPurgeJob.Status status,
+        long totalMessages,
+        long deletedMessages,
+        LocalDateTime createdAt,
+        LocalDateTime completedAt,
+        String error
+    ) {
+        static PurgeJobDto of(ChannelPurgeJob job) {
+            return new PurgeJobDto(job.getId(), job.getChannelId(), job.getChannelName(), job.getStatus(),
+                    job.getTotalMessages(), job.getDeletedMessages(), job.getCreatedAt(), job.getCompletedAt(),
+                    job.getError());
+        }
+    }
+
     // Classes pour les réponses
     record ErrorResponse(String message) {}
     record SuccessResponse(String message) {}
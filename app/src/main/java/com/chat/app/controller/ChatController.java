@@ -1,10 +1,13 @@
 package com.chat.app.controller;
 
+import com.chat.app.dto.MessageDto;
+import com.chat.app.metrics.MessagingMetrics;
 import com.chat.app.model.Message;
 import com.chat.app.model.User; // Assurez-vous que le User est correctement récupéré (ex: via SecurityContext)
 import com.chat.app.repository.MessageRepository;
 import com.chat.app.repository.UserRepository; // Pour récupérer les détails de l'utilisateur
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
@@ -14,10 +17,13 @@ import org.springframework.stereotype.Controller;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -33,10 +39,24 @@ import java.security.Principal;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import com.chat.app.model.Channel;
 import com.chat.app.repository.ChannelRepository;
+import com.chat.app.retention.RetentionPolicy;
+import com.chat.app.security.JwtUserPrincipal;
+import com.chat.app.service.ChannelAccessCache;
+import com.chat.app.service.HotHistoryCache;
+import com.chat.app.service.MessageBroadcaster;
+import com.chat.app.service.MessageHistoryService;
+import com.chat.app.service.MessagePersistenceService;
+import com.chat.app.service.PresenceService;
+import com.chat.app.service.ReadMarkerService;
+import com.chat.app.service.TypingService;
+import com.chat.app.service.UserDirectoryService;
 
+@Slf4j
 @RestController
 @RequiredArgsConstructor
 @Tag(name = "Messages", description = "API de gestion des messages")
@@ -46,6 +66,17 @@ public class ChatController {
     private final MessageRepository messageRepository;
     private final UserRepository userRepository; // Injecté pour trouver les utilisateurs
     private final ChannelRepository channelRepository; // Injecter ChannelRepository
+    private final MessageHistoryService messageHistoryService; // Historique paginé par curseur
+    private final MessagePersistenceService messagePersistenceService; // Sauvegarde synchrone ou différée
+    private final ChannelAccessCache channelAccessCache; // Droits des salons sans requête SQL
+    private final HotHistoryCache hotHistoryCache; // Derniers messages des salons et du chat public
+    private final MessagingMetrics messagingMetrics; // Débit, taille de diffusion et latence (Actuator)
+    private final PresenceService presenceService; // Utilisateurs connectés (sessions STOMP)
+    private final UserDirectoryService userDirectoryService; // Annuaire paginé et autocomplétion en mémoire
+    private final RetentionPolicy retentionPolicy; // Durée de conservation des messages privés et publics
+    private final MessageBroadcaster messageBroadcaster; // Diffusion sérialisée une seule fois
+    private final TypingService typingService; // Indicateurs de frappe éphémères, regroupés par tick
+    private final ReadMarkerService readMarkerService; // Compteurs de non-lus en mémoire, écrits par lots
 
     // Gère l'envoi d'un message public (ou à un salon spécifique)
     @MessageMapping("/chat.sendMessage")
@@ -54,28 +85,29 @@ public class ChatController {
                description = "Envoie un message (privé, salon ou public) via WebSocket")
     // Injecter Principal pour obtenir l'utilisateur authentifié
     // Supprimer @Payload si le message ne contient que le contenu
-    public void sendMessage(Principal principal, @Payload ChatMessagePayload payload) {
+    public void sendMessage(Principal principal, @Payload ChatMessagePayload payload,
+                            @Header(name = MessagingMetrics.RECEIVED_AT_HEADER, required = false) Long receivedAtNanos) {
         if (principal == null) { /* ... gestion erreur ... */ return; }
         String currentUsername = principal.getName();
-        User sender = userRepository.findByUsername(currentUsername)
-                .orElseThrow(() -> new RuntimeException(/*...*/));
+        User sender = resolveSender(principal);
         
         User recipient = null;
         Channel channel = null;
         String destinationTopic = "/topic/public"; // Destination par défaut (ancien comportement)
+        int retentionDays = retentionPolicy.defaultDays(); // Messages privés et publics
 
         if (payload.channelId() != null) {
-            // Message destiné à un salon
-            channel = channelRepository.findById(payload.channelId()).orElse(null);
-            if (channel == null) {
-                System.err.println("Salon non trouvé: " + payload.channelId());
+            // Message destiné à un salon : existence et blocage vérifiés via le cache
+            ChannelAccessCache.ChannelAccess access = channelAccessCache.get(payload.channelId()).orElse(null);
+            if (access == null) {
+                log.warn("Salon non trouvé: {}", payload.channelId());
                 // Envoyer une erreur à l'utilisateur ?
                 return; // Ne pas envoyer le message
             }
             
             // Vérifier si l'utilisateur est bloqué dans ce salon
-            if (channel.isBlocked(currentUsername)) {
-                System.err.println("Utilisateur bloqué dans le salon: " + currentUsername);
+            if (access.isBlocked(currentUsername)) {
+                log.warn("Utilisateur {} bloqué dans le salon {}", currentUsername, payload.channelId());
                 // Envoyer un message d'erreur à l'utilisateur
                 MessageDto errorDto = new MessageDto(
                     null,
@@ -89,21 +121,26 @@ public class ChatController {
                 return; // Ne pas envoyer le message
             }
             
+            // Simple référence pour la clé étrangère, sans SELECT
+            channel = channelRepository.getReferenceById(payload.channelId());
+            retentionDays = access.retentionDays();
             destinationTopic = "/topic/channel." + channel.getId(); // Destination spécifique au salon
-            System.out.println("Sending message to channel: " + destinationTopic);
+            log.debug("Envoi du message sur {}", destinationTopic);
 
         } else if (payload.recipientUsername() != null && !payload.recipientUsername().isEmpty()) {
             // Message privé
             recipient = userRepository.findByUsername(payload.recipientUsername()).orElse(null);
             if (recipient == null) {
-                 System.err.println("Destinataire privé non trouvé: " + payload.recipientUsername());
+                 log.warn("Destinataire privé non trouvé: {}", payload.recipientUsername());
                  return; // Ne pas envoyer si destinataire privé inconnu
             }
-            // La diffusion se fera via convertAndSendToUser
+            // La diffusion se fera via MessageBroadcaster#sendToUsers
         } else {
-             System.out.println("Sending message to public topic (no channel, no recipient)");
+             log.debug("Envoi du message sur /topic/public (ni salon ni destinataire)");
              // Message public générique (si on garde cette logique)
         }
+        messagingMetrics.recordInbound(channel != null ? MessagingMetrics.TYPE_CHANNEL
+                : recipient != null ? MessagingMetrics.TYPE_PRIVATE : MessagingMetrics.TYPE_PUBLIC);
 
         // Créer et sauvegarder le message
         Message message = new Message();
@@ -112,27 +149,78 @@ public class ChatController {
         message.setChannel(channel);     // Null si message privé ou public générique
         message.setContent(payload.content());
         message.setTimestamp(LocalDateTime.now());
-        Message savedMessage = messageRepository.save(message);
+        message.setRetentionDays(retentionDays);
+        // En mode write-behind, l'id est réservé et l'insertion se fait en lot après la diffusion
+        Message savedMessage = messagePersistenceService.persist(message);
 
         // Construire le DTO
         MessageDto messageDto = new MessageDto(
             savedMessage.getId(),
-            sender.getUsername(),
+            currentUsername,
             recipient != null ? recipient.getUsername() : null,
             channel != null ? channel.getId() : null, // Inclure l'ID du salon
             savedMessage.getContent(),
             savedMessage.getTimestamp()
         );
 
+        // Alimenter l'historique chaud (salons et chat public)
+        if (channel != null) {
+            hotHistoryCache.append(HotHistoryCache.channelKey(channel.getId()), messageDto);
+        } else if (recipient == null) {
+            hotHistoryCache.append(HotHistoryCache.PUBLIC_KEY, messageDto);
+        }
+
         // Diffuser le message
         if (recipient != null) {
-            // Message privé
-            messagingTemplate.convertAndSendToUser(sender.getUsername(), "/queue/messages", messageDto);
-            messagingTemplate.convertAndSendToUser(recipient.getUsername(), "/queue/messages", messageDto);
+            // Message privé : JSON encodé une fois pour l'expéditeur et le destinataire
+            messageBroadcaster.sendToUsers("/queue/messages", messageDto, currentUsername, recipient.getUsername());
+            messagingMetrics.recordPrivateBroadcast(currentUsername, recipient.getUsername(), receivedAtNanos);
         } else {
             // Message de salon ou public générique
-            messagingTemplate.convertAndSend(destinationTopic, messageDto);
+            messageBroadcaster.sendToTopic(destinationTopic, messageDto);
+            messagingMetrics.recordTopicBroadcast(
+                    channel != null ? MessagingMetrics.TYPE_CHANNEL : MessagingMetrics.TYPE_PUBLIC,
+                    destinationTopic, receivedAtNanos);
+        }
+        if (channel != null) {
+            // Le message part : l'indicateur de frappe de l'expéditeur s'éteint au prochain tick
+            typingService.stopped(channel.getId(), currentUsername);
+        }
+
+        // Non-lus : un incrément en mémoire, l'expéditeur a lu jusqu'à son message
+        if (channel != null) {
+            readMarkerService.channelMessage(channel.getId(), currentUsername, savedMessage.getId());
+        } else if (recipient != null) {
+            readMarkerService.privateMessage(sender.getId(), currentUsername, recipient.getId(),
+                    recipient.getUsername(), savedMessage.getId());
+        } else {
+            readMarkerService.publicMessage(currentUsername, savedMessage.getId());
+        }
+    }
+
+    // Indicateur de frappe : aucun accès base, regroupé par salon et publié sur /topic/typing.{id}
+    @MessageMapping("/chat.typing")
+    @Operation(summary = "Signaler une frappe en cours",
+               description = "Événement éphémère : un instantané des utilisateurs qui tapent est publié par tick sur /topic/typing.{channelId}")
+    public void typing(Principal principal, @Payload TypingPayload payload) {
+        if (principal == null || payload.channelId() == null) {
+            return;
+        }
+        ChannelAccessCache.ChannelAccess access = channelAccessCache.get(payload.channelId()).orElse(null);
+        if (access == null || access.isBlocked(principal.getName())) {
+            return;
         }
+        typingService.typing(payload.channelId(), principal.getName(), payload.typing() == null || payload.typing());
+    }
+
+    // En mode sans état, l'expéditeur est une simple référence construite depuis l'id du JWT (pas de SELECT)
+    private User resolveSender(Principal principal) {
+        if (principal instanceof Authentication authentication
+                && authentication.getPrincipal() instanceof JwtUserPrincipal jwtUser) {
+            return userRepository.getReferenceById(jwtUser.getId());
+        }
+        return userRepository.findByUsername(principal.getName())
+                .orElseThrow(() -> new RuntimeException("Utilisateur non trouvé: " + principal.getName()));
     }
 
     // On pourrait ajouter une méthode pour gérer l'ajout d'un utilisateur au chat (connexion)
@@ -152,19 +240,27 @@ public class ChatController {
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Historique récupéré avec succès",
                      content = @Content(array = @ArraySchema(schema = @Schema(implementation = MessageDto.class)))),
-        @ApiResponse(responseCode = "401", description = "Utilisateur non authentifié")
+        @ApiResponse(responseCode = "400", description = "Paramètres before et after combinés"),
+        @ApiResponse(responseCode = "401", description = "Utilisateur non authentifié"),
+        @ApiResponse(responseCode = "404", description = "Message de référence (before/after) inconnu ou supprimé")
     })
     @SecurityRequirement(name = "bearerAuth")
     public List<MessageDto> getUserConversationHistory(
             @Parameter(hidden = true) Principal principal,
             @Parameter(description = "Nom d'utilisateur de l'autre participant", required = true) 
-            @PathVariable String otherUsername) {
+            @PathVariable String otherUsername,
+            @Parameter(description = "Renvoie les messages plus anciens que ce message (id)")
+            @RequestParam(required = false) Long before,
+            @Parameter(description = "Renvoie les messages plus récents que ce message (id)")
+            @RequestParam(required = false) Long after,
+            @Parameter(description = "Nombre maximum de messages (défaut 50, max 200)")
+            @RequestParam(required = false) Integer limit) {
         if (principal == null) { return List.of(); }
         User currentUser = userRepository.findByUsername(principal.getName()).orElse(null);
         User otherUser = userRepository.findByUsername(otherUsername).orElse(null);
         if (currentUser == null || otherUser == null) { return List.of(); }
-        List<Message> messages = messageRepository.findConversationHistory(currentUser.getId(), otherUser.getId());
-        return mapMessagesToDto(messages);
+        return pageOrError(() -> messageHistoryService.conversationHistory(
+                currentUser.getId(), otherUser.getId(), before, after, limit));
     }
 
     @GetMapping("/api/messages/channel/{channelId}") // Chemin spécifique pour channel
@@ -174,22 +270,29 @@ public class ChatController {
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Historique récupéré avec succès",
                      content = @Content(array = @ArraySchema(schema = @Schema(implementation = MessageDto.class)))),
+        @ApiResponse(responseCode = "400", description = "Paramètres before et after combinés"),
         @ApiResponse(responseCode = "401", description = "Utilisateur non authentifié"),
-        @ApiResponse(responseCode = "404", description = "Salon non trouvé")
+        @ApiResponse(responseCode = "404", description = "Salon non trouvé, ou message de référence (before/after) inconnu ou supprimé")
     })
     @SecurityRequirement(name = "bearerAuth")
     public List<MessageDto> getChannelHistory(
             @Parameter(hidden = true) Principal principal, 
             @Parameter(description = "Identifiant du salon", required = true) 
-            @PathVariable Long channelId) {
+            @PathVariable Long channelId,
+            @Parameter(description = "Renvoie les messages plus anciens que ce message (id)")
+            @RequestParam(required = false) Long before,
+            @Parameter(description = "Renvoie les messages plus récents que ce message (id)")
+            @RequestParam(required = false) Long after,
+            @Parameter(description = "Nombre maximum de messages (défaut 50, max 200)")
+            @RequestParam(required = false) Integer limit) {
          if (principal == null) { return List.of(); } // Doit être loggé pour voir l'historique
          // Vérifier si le salon existe (optionnel, mais recommandé)
-         if (!channelRepository.existsById(channelId)) {
+         if (!channelAccessCache.exists(channelId)) {
              // Ou retourner 404 Not Found
              return List.of();
          }
-         List<Message> messages = messageRepository.findByChannelIdOrderByTimestampAsc(channelId);
-         return mapMessagesToDto(messages);
+         return pageOrError(() ->
+                 messageHistoryService.channelHistory(channelId, before, after, limit));
     }
 
     @GetMapping("/api/messages/public") // Endpoint pour historique public générique
@@ -199,33 +302,40 @@ public class ChatController {
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Historique récupéré avec succès",
                      content = @Content(array = @ArraySchema(schema = @Schema(implementation = MessageDto.class)))),
-        @ApiResponse(responseCode = "401", description = "Utilisateur non authentifié")
+        @ApiResponse(responseCode = "400", description = "Paramètres before et after combinés"),
+        @ApiResponse(responseCode = "401", description = "Utilisateur non authentifié"),
+        @ApiResponse(responseCode = "404", description = "Message de référence (before/after) inconnu ou supprimé")
     })
     @SecurityRequirement(name = "bearerAuth")
-    public List<MessageDto> getPublicHistory(@Parameter(hidden = true) Principal principal) {
+    public List<MessageDto> getPublicHistory(
+            @Parameter(hidden = true) Principal principal,
+            @Parameter(description = "Renvoie les messages plus anciens que ce message (id)")
+            @RequestParam(required = false) Long before,
+            @Parameter(description = "Renvoie les messages plus récents que ce message (id)")
+            @RequestParam(required = false) Long after,
+            @Parameter(description = "Nombre maximum de messages (défaut 50, max 200)")
+            @RequestParam(required = false) Integer limit) {
         if (principal == null) { return List.of(); } // Doit être loggé
-        List<Message> messages = messageRepository.findByRecipientIsNullAndChannelIsNullOrderByTimestampAsc();
-        return mapMessagesToDto(messages);
+        return pageOrError(() ->
+                messageHistoryService.publicHistory(before, after, limit));
     }
 
-    // Méthode utilitaire pour mapper Message en MessageDto
-    private List<MessageDto> mapMessagesToDto(List<Message> messages) {
-        return messages.stream()
-                .map(msg -> new MessageDto(
-                        msg.getId(),
-                        msg.getSender().getUsername(),
-                        msg.getRecipient() != null ? msg.getRecipient().getUsername() : null,
-                        msg.getChannel() != null ? msg.getChannel().getId() : null,
-                        msg.getContent(),
-                        msg.getTimestamp()))
-                .collect(Collectors.toList());
+    // Traduit une combinaison de curseurs invalide en 400, un curseur inconnu (message supprimé) en 404
+    private List<MessageDto> pageOrError(Supplier<List<MessageDto>> query) {
+        try {
+            return query.get();
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (NoSuchElementException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        }
     }
 
     // --- Endpoint REST pour récupérer la liste des utilisateurs (pour le chat privé) ---
     @GetMapping("/api/users")
     @ResponseBody
     @Operation(summary = "Liste des utilisateurs", 
-               description = "Récupère la liste de tous les utilisateurs disponibles pour le chat privé")
+               description = "Récupère la liste de tous les utilisateurs disponibles pour le chat privé, avec leur statut en ligne")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Liste récupérée avec succès",
                      content = @Content(array = @ArraySchema(schema = @Schema(implementation = UserDto.class)))),
@@ -237,14 +347,72 @@ public class ChatController {
             return List.of(); 
         }
         String currentUsername = principal.getName();
-        List<User> users = userRepository.findAll();
-        return users.stream()
+        // Servi depuis l'index en mémoire ; préférer /api/users/directory et /api/users/search
+        return userDirectoryService.all().stream()
                     // Exclure l'utilisateur actuel de la liste
-                    .filter(user -> !user.getUsername().equals(currentUsername)) 
-                    .map(user -> new UserDto(user.getUsername())) // Ne renvoyer que le username
+                    .filter(username -> !username.equals(currentUsername))
+                    .map(username -> new UserDto(username, presenceService.isOnline(username)))
                     .collect(Collectors.toList());
     }
 
+    @GetMapping("/api/users/directory")
+    @ResponseBody
+    @Operation(summary = "Annuaire paginé des utilisateurs",
+               description = "Utilisateurs triés par nom ; passer nextCursor dans after pour la page suivante")
+    @SecurityRequirement(name = "bearerAuth")
+    public UserPageDto getUserDirectory(
+            @Parameter(hidden = true) Principal principal,
+            @Parameter(description = "Renvoie les utilisateurs après ce nom (curseur nextCursor de la page précédente)")
+            @RequestParam(required = false) String after,
+            @Parameter(description = "Nombre maximum d'utilisateurs (défaut 50, max 200)")
+            @RequestParam(required = false) Integer limit) {
+        if (principal == null) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED);
+        }
+        List<String> usernames = userDirectoryService.page(after, limit);
+        List<UserDto> users = usernames.stream()
+                .map(username -> new UserDto(username, presenceService.isOnline(username)))
+                .toList();
+        int requested = userDirectoryService.resolvePageSize(limit);
+        String nextCursor = usernames.size() < requested ? null : usernames.get(usernames.size() - 1);
+        return new UserPageDto(users, nextCursor);
+    }
+
+    @GetMapping("/api/users/search")
+    @ResponseBody
+    @Operation(summary = "Autocomplétion des noms d'utilisateur",
+               description = "Noms commençant par le préfixe (insensible à la casse), servis depuis la mémoire")
+    @SecurityRequirement(name = "bearerAuth")
+    public List<UserDto> searchUsers(
+            @Parameter(hidden = true) Principal principal,
+            @Parameter(description = "Début du nom d'utilisateur", required = true)
+            @RequestParam String prefix,
+            @Parameter(description = "Nombre maximum de suggestions (défaut et max 20)")
+            @RequestParam(required = false) Integer limit) {
+        if (principal == null) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED);
+        }
+        return userDirectoryService.autocomplete(prefix, limit).stream()
+                .map(username -> new UserDto(username, presenceService.isOnline(username)))
+                .toList();
+    }
+
+    // --- Utilisateurs en ligne, servis depuis la mémoire (aucune requête en base) ---
+    @GetMapping("/api/users/online")
+    @ResponseBody
+    @Operation(summary = "Utilisateurs en ligne",
+               description = "Utilisateurs ayant au moins une session STOMP ouverte sur cette instance. " +
+                             "Les changements suivants sont publiés sur /topic/presence (champ version croissant)")
+    @SecurityRequirement(name = "bearerAuth")
+    public OnlineUsersDto getOnlineUsers(@Parameter(hidden = true) Principal principal) {
+        if (principal == null) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED);
+        }
+        // Version lue avant la liste : les diffs de version supérieure peuvent déjà y figurer, les réappliquer est sans effet
+        long version = presenceService.version();
+        return new OnlineUsersDto(version, presenceService.onlineUsernames().stream().sorted().toList());
+    }
+
     // --- Endpoint REST pour l'historique des messages publics (exemple) ---
     // @GetMapping("/api/messages/public")
     // @ResponseBody
@@ -263,17 +431,6 @@ public class ChatController {
     //             .collect(Collectors.toList());
     // }
 
-    // DTO pour les messages envoyés aux clients (pour ne pas exposer toute l'entité User)
-    @Schema(description = "DTO pour les messages")
-    record MessageDto(
-        @Schema(description = "Identifiant unique du message") Long id, 
-        @Schema(description = "Nom d'utilisateur de l'expéditeur") String senderUsername, 
-        @Schema(description = "Nom d'utilisateur du destinataire (pour les messages privés)") String recipientUsername, 
-        @Schema(description = "Identifiant du salon (pour les messages de salon)") Long channelId, 
-        @Schema(description = "Contenu du message") String content, 
-        @Schema(description = "Timestamp du message") LocalDateTime timestamp
-    ) {}
-    
     // Payload pour WebSocket (ne contient plus le sender)
     @Schema(description = "Payload pour l'envoi de message via WebSocket")
     record ChatMessagePayload(
@@ -282,7 +439,22 @@ public class ChatController {
         @Schema(description = "Identifiant du salon (pour message de salon)") Long channelId
     ) {}
 
+    @Schema(description = "Payload d'indicateur de frappe via WebSocket")
+    record TypingPayload(
+        @Schema(description = "Identifiant du salon", example = "1") Long channelId,
+        @Schema(description = "true pendant la frappe (défaut), false à l'arrêt") Boolean typing
+    ) {}
+
     // DTO pour la liste des utilisateurs
     @Schema(description = "DTO pour un utilisateur")
-    record UserDto(@Schema(description = "Nom d'utilisateur") String username) {}
+    record UserDto(@Schema(description = "Nom d'utilisateur") String username,
+                   @Schema(description = "Au moins une session STOMP ouverte") boolean online) {}
+
+    @Schema(description = "Page de l'annuaire des utilisateurs")
+    record UserPageDto(@Schema(description = "Utilisateurs de la page") List<UserDto> users,
+                       @Schema(description = "Curseur de la page suivante (null si dernière page)") String nextCursor) {}
+
+    @Schema(description = "Utilisateurs en ligne et version de la présence")
+    record OnlineUsersDto(@Schema(description = "Dernière version de diff publiée sur /topic/presence") long version,
+                          @Schema(description = "Noms d'utilisateur en ligne") List<String> usernames) {}
 } 
\ No newline at end of file
@@ -1,19 +1,38 @@
 package com.chat.app.controller;
 
+import com.chat.app.archive.MessageArchive;
 import com.chat.app.model.Message;
-import com.chat.app.model.Channel;
+import com.chat.app.model.User;
 import com.chat.app.repository.MessageRepository;
-import com.chat.app.repository.ChannelRepository;
+import com.chat.app.repository.UserRepository;
+import com.chat.app.service.ChannelAccessCache;
+import com.chat.app.service.ChannelAccessCache.ChannelAccess;
+import com.chat.app.service.HotHistoryCache;
+import com.chat.app.service.MessageExportService;
+import com.chat.app.service.MessageSearchService;
+import com.chat.app.service.MessageSearchService.SearchPage;
+import com.chat.app.service.ReadMarkerService;
+import com.chat.app.service.ReadMarkerService.UnreadConversation;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.http.HttpStatus;
 
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.security.Principal;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/messages")
@@ -21,7 +40,178 @@ import java.security.Principal;
 public class MessageController {
 
     private final MessageRepository messageRepository;
-    private final ChannelRepository channelRepository;
+    private final ChannelAccessCache channelAccessCache;
+    private final HotHistoryCache hotHistoryCache;
+    private final MessageSearchService messageSearchService;
+    private final UserRepository userRepository;
+    private final MessageExportService messageExportService;
+    private final ReadMarkerService readMarkerService;
+    private final MessageArchive messageArchive;
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final MediaType GZIP = MediaType.parseMediaType("application/gzip");
+
+    @GetMapping("/search")
+    @Operation(summary = "Rechercher des messages",
+               description = "Recherche plein texte dans un salon (channelId) ou une conversation privée (username), " +
+                             "résultats classés par pertinence puis du plus récent au plus ancien")
+    @ApiResponse(responseCode = "400", description = "Requête vide, curseur invalide, ou ni/à la fois channelId et username")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<?> searchMessages(
+            @Parameter(description = "Texte recherché (syntaxe web : \"expression exacte\", -exclu, or)", required = true)
+            @RequestParam String q,
+            @Parameter(description = "Salon dans lequel chercher")
+            @RequestParam(required = false) Long channelId,
+            @Parameter(description = "Autre participant de la conversation privée dans laquelle chercher")
+            @RequestParam(required = false) String username,
+            @Parameter(description = "nextCursor de la page précédente (absent pour la première page)")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Taille de page (défaut 20, max 100)")
+            @RequestParam(required = false) Integer size,
+            Principal principal) {
+        if (principal == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(new ErrorResponse("Non authentifié"));
+        }
+        if ((channelId == null) == (username == null)) {
+            return ResponseEntity.badRequest().body(new ErrorResponse("Préciser soit channelId, soit username"));
+        }
+        try {
+            SearchPage result;
+            if (channelId != null) {
+                if (!channelAccessCache.exists(channelId)) {
+                    return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ErrorResponse("Salon non trouvé"));
+                }
+                result = messageSearchService.searchChannel(channelId, q, cursor, size);
+            } else {
+                User currentUser = userRepository.findByUsername(principal.getName()).orElse(null);
+                User otherUser = userRepository.findByUsername(username).orElse(null);
+                if (currentUser == null || otherUser == null) {
+                    return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ErrorResponse("Utilisateur non trouvé"));
+                }
+                result = messageSearchService.searchConversation(currentUser.getId(), otherUser.getId(), q, cursor, size);
+            }
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+        }
+    }
+
+    @GetMapping("/export")
+    @Operation(summary = "Exporter un historique complet",
+               description = "Historique complet d'un salon (channelId) ou d'une conversation privée (username), " +
+                             "en NDJSON (un message JSON par ligne, du plus ancien au plus récent), envoyé en flux")
+    @ApiResponse(responseCode = "400", description = "Ni/à la fois channelId et username")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<StreamingResponseBody> exportMessages(
+            @Parameter(description = "Salon à exporter")
+            @RequestParam(required = false) Long channelId,
+            @Parameter(description = "Autre participant de la conversation privée à exporter")
+            @RequestParam(required = false) String username,
+            @Parameter(description = "Compresser l'export (fichier .ndjson.gz)")
+            @RequestParam(defaultValue = "false") boolean gzip,
+            Principal principal) {
+        // Le corps est un flux : les erreurs passent par ResponseStatusException
+        if (principal == null) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Non authentifié");
+        }
+        if ((channelId == null) == (username == null)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Préciser soit channelId, soit username");
+        }
+        String filename;
+        MessageExporter exporter;
+        if (channelId != null) {
+            if (!channelAccessCache.exists(channelId)) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Salon non trouvé");
+            }
+            filename = "channel-" + channelId;
+            exporter = out -> messageExportService.exportChannel(channelId, out);
+        } else {
+            User currentUser = userRepository.findByUsername(principal.getName()).orElse(null);
+            User otherUser = userRepository.findByUsername(username).orElse(null);
+            if (currentUser == null || otherUser == null) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Utilisateur non trouvé");
+            }
+            filename = "conversation-" + currentUser.getUsername() + "-" + otherUser.getUsername();
+            exporter = out -> messageExportService.exportConversation(currentUser.getId(), otherUser.getId(), out);
+        }
+
+        // Exécuté hors du thread de la requête : la transaction et le curseur sont ouverts par le service
+        StreamingResponseBody body = out -> {
+            if (gzip) {
+                GZIPOutputStream compressed = new GZIPOutputStream(out, 8192);
+                exporter.export(compressed);
+                compressed.finish();
+            } else {
+                exporter.export(out);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(gzip ? GZIP : NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(filename + (gzip ? ".ndjson.gz" : ".ndjson"))
+                        .build().toString())
+                .body(body);
+    }
+
+    @FunctionalInterface
+    private interface MessageExporter {
+        long export(OutputStream out) throws IOException;
+    }
+
+    @GetMapping("/unread")
+    @Operation(summary = "Non-lus par conversation",
+               description = "Badges de toutes les conversations de l'utilisateur (salons, privées, chat public), " +
+                             "la plus récente d'abord : une requête sur ses marqueurs de lecture, sans compter les messages")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<?> getUnread(Principal principal) {
+        if (principal == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(new ErrorResponse("Non authentifié"));
+        }
+        // Salons supprimés depuis : masqués en attendant la fin de leur purge
+        List<UnreadConversation> conversations = readMarkerService.unread(principal.getName()).stream()
+                .filter(conversation -> conversation.channelId() == null
+                        || channelAccessCache.exists(conversation.channelId()))
+                .toList();
+        return ResponseEntity.ok(conversations);
+    }
+
+    @PutMapping("/read")
+    @Operation(summary = "Marquer une conversation comme lue",
+               description = "Salon (channelId), conversation privée (username) ou, sans paramètre, chat public")
+    @ApiResponse(responseCode = "400", description = "À la fois channelId et username")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<?> markRead(
+            @Parameter(description = "Salon lu")
+            @RequestParam(required = false) Long channelId,
+            @Parameter(description = "Autre participant de la conversation privée lue")
+            @RequestParam(required = false) String username,
+            Principal principal) {
+        if (principal == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(new ErrorResponse("Non authentifié"));
+        }
+        if (channelId != null && username != null) {
+            return ResponseEntity.badRequest().body(new ErrorResponse("Préciser soit channelId, soit username"));
+        }
+        if (channelId != null) {
+            if (!channelAccessCache.exists(channelId)) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ErrorResponse("Salon non trouvé"));
+            }
+            readMarkerService.markRead(principal.getName(), ReadMarkerService.channelConversation(channelId),
+                    channelId, null);
+        } else if (username != null) {
+            User currentUser = userRepository.findByUsername(principal.getName()).orElse(null);
+            User otherUser = userRepository.findByUsername(username).orElse(null);
+            if (currentUser == null || otherUser == null) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ErrorResponse("Utilisateur non trouvé"));
+            }
+            readMarkerService.markRead(currentUser.getUsername(),
+                    ReadMarkerService.privateConversation(currentUser.getId(), otherUser.getId()),
+                    null, otherUser.getUsername());
+        } else {
+            readMarkerService.markRead(principal.getName(), ReadMarkerService.PUBLIC_CONVERSATION, null, null);
+        }
+        return ResponseEntity.ok(new SuccessResponse("Conversation marquée comme lue"));
+    }
 
     @DeleteMapping("/channel/{channelId}/messages/{messageId}")
     @Operation(summary = "Supprimer un message")
@@ -37,13 +227,17 @@ public class MessageController {
                         .body(new ErrorResponse("Non authentifié"));
             }
             
-            Channel channel = channelRepository.findById(channelId)
+            ChannelAccess channel = channelAccessCache.get(channelId)
                     .orElseThrow(() -> new RuntimeException("Salon non trouvé"));
     
-            Message message = messageRepository.findById(messageId)
-                    .orElseThrow(() -> new RuntimeException("Message non trouvé"));
+            // Un message absent de la base peut avoir été archivé (flux du salon)
+            Message message = messageRepository.findById(messageId).orElse(null);
+            String archiveStream = MessageArchive.channelStream(channelId);
+            if (message == null && messageArchive.timestampOf(archiveStream, messageId).isEmpty()) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ErrorResponse("Message non trouvé"));
+            }
     
-            if (message.getChannel() == null || !message.getChannel().getId().equals(channelId)) {
+            if (message != null && (message.getChannel() == null || !message.getChannel().getId().equals(channelId))) {
                 return ResponseEntity.badRequest()
                         .body(new ErrorResponse("Le message n'appartient pas à ce salon"));
             }
@@ -54,7 +248,12 @@ public class MessageController {
                         .body(new ErrorResponse("Vous devez être modérateur ou administrateur pour supprimer des messages"));
             }
     
-            messageRepository.deleteById(messageId);
+            if (message != null) {
+                messageRepository.deleteById(messageId);
+            } else if (!messageArchive.deleteMessage(archiveStream, messageId)) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ErrorResponse("Message non trouvé"));
+            }
+            hotHistoryCache.remove(HotHistoryCache.channelKey(channelId), messageId);
             return ResponseEntity.ok(new SuccessResponse("Message supprimé avec succès"));
             
         } catch (Exception e) {
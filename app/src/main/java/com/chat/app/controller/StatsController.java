@@ -0,0 +1,67 @@
+package com.chat.app.controller;
+
+import com.chat.app.cluster.ClusterDeliveryStats;
+import com.chat.app.outbound.OutboundBackpressure;
+import com.chat.app.ratelimit.InboundRateLimitInterceptor;
+import com.chat.app.service.ChannelAccessCache;
+import com.chat.app.service.HotHistoryCache;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/stats")
+@RequiredArgsConstructor
+@Tag(name = "Statistiques", description = "Compteurs internes des caches et du pipeline de messages")
+public class StatsController {
+
+    private final ChannelAccessCache channelAccessCache;
+    private final HotHistoryCache hotHistoryCache;
+    private final ClusterDeliveryStats clusterDeliveryStats;
+    private final OutboundBackpressure outboundBackpressure;
+    private final InboundRateLimitInterceptor inboundRateLimitInterceptor;
+
+    @GetMapping("/channel-access-cache")
+    @Operation(summary = "Compteurs hit/miss du cache des droits des salons")
+    @SecurityRequirement(name = "bearerAuth")
+    public ChannelAccessCache.CacheStats getChannelAccessCacheStats() {
+        return channelAccessCache.stats();
+    }
+
+    @GetMapping("/hot-history")
+    @Operation(summary = "Compteurs de l'historique chaud (tampons circulaires par salon)")
+    @SecurityRequirement(name = "bearerAuth")
+    public HotHistoryCache.HotHistoryStats getHotHistoryStats() {
+        return hotHistoryCache.stats();
+    }
+
+    @GetMapping("/cluster")
+    @Operation(summary = "Messages publiés vers les autres nœuds et latence de livraison par nœud d'origine")
+    @SecurityRequirement(name = "bearerAuth")
+    public ClusterStatsDto getClusterStats() {
+        return new ClusterStatsDto(clusterDeliveryStats.publishedCount(), clusterDeliveryStats.receivedByNode());
+    }
+
+    @GetMapping("/outbound")
+    @Operation(summary = "Tampons sortants des sessions WebSocket : totaux, trames abandonnées et sessions les plus en retard")
+    @SecurityRequirement(name = "bearerAuth")
+    public OutboundBackpressure.OutboundStats getOutboundStats() {
+        return outboundBackpressure.stats();
+    }
+
+    @GetMapping("/rate-limit")
+    @Operation(summary = "Limitation du débit entrant : seaux suivis et trames refusées par utilisateur ou par salon")
+    @SecurityRequirement(name = "bearerAuth")
+    public InboundRateLimitInterceptor.RateLimitStats getRateLimitStats() {
+        return inboundRateLimitInterceptor.stats();
+    }
+
+    record ClusterStatsDto(long published, Map<String, ClusterDeliveryStats.NodeLatencySnapshot> receivedByNode) {}
+}
@@ -0,0 +1,33 @@
+package com.chat.app.dto;
+
+import com.chat.app.model.Message;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// DTO pour les messages envoyés aux clients (pour ne pas exposer toute l'entité User)
+@Schema(description = "DTO pour les messages")
+public record MessageDto(
+    @Schema(description = "Identifiant unique du message") Long id,
+    @Schema(description = "Nom d'utilisateur de l'expéditeur") String senderUsername,
+    @Schema(description = "Nom d'utilisateur du destinataire (pour les messages privés)") String recipientUsername,
+    @Schema(description = "Identifiant du salon (pour les messages de salon)") Long channelId,
+    @Schema(description = "Contenu du message") String content,
+    @Schema(description = "Timestamp du message") LocalDateTime timestamp
+) {
+
+    public static MessageDto from(Message msg) {
+        return new MessageDto(
+                msg.getId(),
+                msg.getSender().getUsername(),
+                msg.getRecipient() != null ? msg.getRecipient().getUsername() : null,
+                msg.getChannel() != null ? msg.getChannel().getId() : null,
+                msg.getContent(),
+                msg.getTimestamp());
+    }
+
+    public static List<MessageDto> fromMessages(List<Message> messages) {
+        return messages.stream().map(MessageDto::from).toList();
+    }
+}
@@ -0,0 +1,104 @@
+package com.chat.app.metrics;
+
+import com.chat.app.cluster.ClusterDeliveryStats;
+import com.chat.app.service.ChannelAccessCache;
+import com.chat.app.service.HotHistoryCache;
+import com.chat.app.service.MessageWriteBehindWriter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+import java.util.concurrent.Executor;
+
+/**
+ * Jauges de saturation : exécuteurs des canaux STOMP, file write-behind, caches et diffusion cluster.
+ * Les valeurs sont lues à chaque collecte, sans coût sur le chemin des messages.
+ */
+@Component
+public class ChatMeterBinder implements MeterBinder {
+
+    private final Executor clientInboundChannelExecutor;
+    private final Executor clientOutboundChannelExecutor;
+    private final Optional<MessageWriteBehindWriter> writeBehindWriter;
+    private final ChannelAccessCache channelAccessCache;
+    private final HotHistoryCache hotHistoryCache;
+    private final ClusterDeliveryStats clusterDeliveryStats;
+
+    public ChatMeterBinder(@Qualifier("clientInboundChannelExecutor") Executor clientInboundChannelExecutor,
+                           @Qualifier("clientOutboundChannelExecutor") Executor clientOutboundChannelExecutor,
+                           Optional<MessageWriteBehindWriter> writeBehindWriter,
+                           ChannelAccessCache channelAccessCache,
+                           HotHistoryCache hotHistoryCache,
+                           ClusterDeliveryStats clusterDeliveryStats) {
+        this.clientInboundChannelExecutor = clientInboundChannelExecutor;
+        this.clientOutboundChannelExecutor = clientOutboundChannelExecutor;
+        this.writeBehindWriter = writeBehindWriter;
+        this.channelAccessCache = channelAccessCache;
+        this.hotHistoryCache = hotHistoryCache;
+        this.clusterDeliveryStats = clusterDeliveryStats;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        bindExecutor(registry, "inbound", clientInboundChannelExecutor);
+        bindExecutor(registry, "outbound", clientOutboundChannelExecutor);
+
+        writeBehindWriter.ifPresent(writer -> {
+            Gauge.builder("chat.persistence.write-behind.queue.size", writer, MessageWriteBehindWriter::queueSize)
+                    .description("Messages en attente d'écriture en base")
+                    .register(registry);
+            FunctionCounter.builder("chat.persistence.write-behind.flushed", writer, MessageWriteBehindWriter::flushedCount)
+                    .register(registry);
+            FunctionCounter.builder("chat.persistence.write-behind.overflows", writer, MessageWriteBehindWriter::overflowCount)
+                    .description("Messages écrits de manière synchrone faute de place dans la file")
+                    .register(registry);
+            FunctionCounter.builder("chat.persistence.write-behind.retries", writer, MessageWriteBehindWriter::retryCount)
+                    .description("Nouvelles tentatives d'écriture d'un lot après une erreur passagère de la base")
+                    .register(registry);
+            FunctionCounter.builder("chat.persistence.write-behind.dropped", writer, MessageWriteBehindWriter::droppedCount)
+                    .register(registry);
+        });
+
+        FunctionCounter.builder("chat.cache.channel-access.requests", channelAccessCache, cache -> cache.stats().hits())
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("chat.cache.channel-access.requests", channelAccessCache, cache -> cache.stats().misses())
+                .tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("chat.cache.hot-history.requests", hotHistoryCache, cache -> cache.stats().hits())
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("chat.cache.hot-history.requests", hotHistoryCache, cache -> cache.stats().misses())
+                .tag("result", "miss")
+                .register(registry);
+        Gauge.builder("chat.cache.hot-history.messages", hotHistoryCache, cache -> cache.stats().messages())
+                .register(registry);
+
+        FunctionCounter.builder("chat.cluster.published", clusterDeliveryStats, ClusterDeliveryStats::publishedCount)
+                .description("Messages du broker publiés vers les autres nœuds")
+                .register(registry);
+    }
+
+    // En mode threads virtuels l'exécuteur n'a ni file ni pool : rien à mesurer
+    private static void bindExecutor(MeterRegistry registry, String channel, Executor executor) {
+        if (!(executor instanceof ThreadPoolTaskExecutor pool)) {
+            return;
+        }
+        Gauge.builder("chat.stomp.executor.queued", pool, ThreadPoolTaskExecutor::getQueueSize)
+                .description("Tâches en attente dans l'exécuteur du canal STOMP")
+                .tag("channel", channel)
+                .register(registry);
+        Gauge.builder("chat.stomp.executor.active", pool, ThreadPoolTaskExecutor::getActiveCount)
+                .description("Threads occupés de l'exécuteur du canal STOMP")
+                .tag("channel", channel)
+                .register(registry);
+        Gauge.builder("chat.stomp.executor.pool.size", pool, ThreadPoolTaskExecutor::getPoolSize)
+                .tag("channel", channel)
+                .register(registry);
+    }
+}
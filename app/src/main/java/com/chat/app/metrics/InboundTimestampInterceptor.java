@@ -0,0 +1,26 @@
+package com.chat.app.metrics;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Horodate les trames SEND à leur arrivée sur clientInboundChannel, avant la file de l'exécuteur :
+ * la latence réception → diffusion inclut ainsi l'attente dans le pool inbound.
+ */
+@Component
+public class InboundTimestampInterceptor implements ChannelInterceptor {
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor != null && accessor.isMutable() && StompCommand.SEND.equals(accessor.getCommand())) {
+            accessor.setHeader(MessagingMetrics.RECEIVED_AT_HEADER, System.nanoTime());
+        }
+        return message;
+    }
+}
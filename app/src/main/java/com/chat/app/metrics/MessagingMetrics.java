@@ -0,0 +1,102 @@
+package com.chat.app.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Métriques Micrometer du pipeline des messages STOMP (exposées par Actuator, préfixe chat.*).
+ * Le tag "type" vaut channel, private ou public ; aucun tag par salon ou utilisateur
+ * pour garder une cardinalité bornée.
+ */
+@Component
+public class MessagingMetrics {
+
+    public static final String TYPE_CHANNEL = "channel";
+    public static final String TYPE_PRIVATE = "private";
+    public static final String TYPE_PUBLIC = "public";
+
+    // Header interne posé par InboundTimestampInterceptor (System.nanoTime() à la réception)
+    public static final String RECEIVED_AT_HEADER = "chatReceivedAtNanos";
+
+    private static final String USER_QUEUE = "/user/queue/messages";
+
+    private final StompSessionMetrics sessionMetrics;
+    private final Map<String, Counter> inbound;
+    private final Map<String, DistributionSummary> fanout;
+    private final Map<String, Timer> latency;
+    private final Timer syncPersist;
+    private final Timer writeBehindPersist;
+
+    public MessagingMetrics(MeterRegistry registry, StompSessionMetrics sessionMetrics) {
+        this.sessionMetrics = sessionMetrics;
+        this.inbound = perType(type -> Counter.builder("chat.messages.inbound")
+                .description("Messages reçus via STOMP, par type de destination")
+                .tag("type", type)
+                .register(registry));
+        this.fanout = perType(type -> DistributionSummary.builder("chat.messages.fanout")
+                .description("Nombre d'abonnements destinataires par diffusion")
+                .baseUnit("subscriptions")
+                .tag("type", type)
+                .publishPercentiles(0.5, 0.99)
+                .register(registry));
+        this.latency = perType(type -> Timer.builder("chat.messages.broadcast.latency")
+                .description("Temps entre la réception d'une trame SEND et la remise du message au broker")
+                .tag("type", type)
+                .publishPercentiles(0.5, 0.99, 0.999)
+                .publishPercentileHistogram()
+                .register(registry));
+        this.syncPersist = persistTimer(registry, "sync");
+        this.writeBehindPersist = persistTimer(registry, "write-behind");
+    }
+
+    public void recordInbound(String type) {
+        inbound.get(type).increment();
+    }
+
+    /** Mesure la sauvegarde d'un message (save synchrone ou mise en file write-behind). */
+    public <T> T timePersist(boolean writeBehind, Supplier<T> persist) {
+        return (writeBehind ? writeBehindPersist : syncPersist).record(persist);
+    }
+
+    /** Diffusion sur un topic du broker (/topic/channel.{id} ou /topic/public). */
+    public void recordTopicBroadcast(String type, String destination, Long receivedAtNanos) {
+        recordBroadcast(type, sessionMetrics.subscriberCount(destination), receivedAtNanos);
+    }
+
+    /** Message privé : copie dans /user/queue/messages de l'expéditeur et du destinataire. */
+    public void recordPrivateBroadcast(String senderUsername, String recipientUsername, Long receivedAtNanos) {
+        int sessions = sessionMetrics.userSubscriberCount(senderUsername, USER_QUEUE)
+                + sessionMetrics.userSubscriberCount(recipientUsername, USER_QUEUE);
+        recordBroadcast(TYPE_PRIVATE, sessions, receivedAtNanos);
+    }
+
+    private void recordBroadcast(String type, int subscriptions, Long receivedAtNanos) {
+        fanout.get(type).record(subscriptions);
+        if (receivedAtNanos != null) {
+            latency.get(type).record(System.nanoTime() - receivedAtNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static Timer persistTimer(MeterRegistry registry, String mode) {
+        return Timer.builder("chat.messages.persist")
+                .description("Temps passé à sauvegarder un message envoyé via STOMP")
+                .tag("mode", mode)
+                .publishPercentiles(0.5, 0.99)
+                .register(registry);
+    }
+
+    private static <M> Map<String, M> perType(Function<String, M> factory) {
+        return Map.of(
+                TYPE_CHANNEL, factory.apply(TYPE_CHANNEL),
+                TYPE_PRIVATE, factory.apply(TYPE_PRIVATE),
+                TYPE_PUBLIC, factory.apply(TYPE_PUBLIC));
+    }
+}
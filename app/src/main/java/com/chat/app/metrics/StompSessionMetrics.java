@@ -0,0 +1,116 @@
+package com.chat.app.metrics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.simp.user.SimpSession;
+import org.springframework.messaging.simp.user.SimpUser;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sessions STOMP connectées et nombre d'abonnés par destination, tenus à jour à partir
+ * des événements de session. Permet de connaître la taille d'une diffusion sans parcourir
+ * toutes les souscriptions du broker.
+ */
+@Component
+public class StompSessionMetrics {
+
+    private final SimpUserRegistry simpUserRegistry;
+
+    // sessionId -> (subscriptionId -> destination)
+    private final ConcurrentHashMap<String, Map<String, String>> sessions = new ConcurrentHashMap<>();
+    // destination -> nombre d'abonnements
+    private final ConcurrentHashMap<String, Integer> subscribers = new ConcurrentHashMap<>();
+
+    public StompSessionMetrics(SimpUserRegistry simpUserRegistry, MeterRegistry meterRegistry) {
+        this.simpUserRegistry = simpUserRegistry;
+        Gauge.builder("chat.stomp.sessions", sessions, Map::size)
+                .description("Sessions STOMP connectées")
+                .register(meterRegistry);
+        Gauge.builder("chat.stomp.subscriptions", subscribers,
+                        map -> map.values().stream().mapToInt(Integer::intValue).sum())
+                .description("Abonnements STOMP actifs")
+                .register(meterRegistry);
+    }
+
+    @EventListener
+    public void onConnected(SessionConnectedEvent event) {
+        String sessionId = StompHeaderAccessor.wrap(event.getMessage()).getSessionId();
+        if (sessionId != null) {
+            sessions.computeIfAbsent(sessionId, id -> new ConcurrentHashMap<>());
+        }
+    }
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        String sessionId = accessor.getSessionId();
+        String subscriptionId = accessor.getSubscriptionId();
+        String destination = accessor.getDestination();
+        if (sessionId == null || subscriptionId == null || destination == null) {
+            return;
+        }
+        Map<String, String> subscriptions = sessions.computeIfAbsent(sessionId, id -> new ConcurrentHashMap<>());
+        if (subscriptions.put(subscriptionId, destination) == null) {
+            subscribers.merge(destination, 1, Integer::sum);
+        }
+    }
+
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        Map<String, String> subscriptions = accessor.getSessionId() != null ? sessions.get(accessor.getSessionId()) : null;
+        if (subscriptions != null && accessor.getSubscriptionId() != null) {
+            String destination = subscriptions.remove(accessor.getSubscriptionId());
+            if (destination != null) {
+                decrement(destination);
+            }
+        }
+    }
+
+    // Peut être reçu plusieurs fois pour une même session : le retrait de la map rend l'opération idempotente
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        Map<String, String> subscriptions = sessions.remove(event.getSessionId());
+        if (subscriptions != null) {
+            subscriptions.values().forEach(this::decrement);
+        }
+    }
+
+    public int connectedSessions() {
+        return sessions.size();
+    }
+
+    /** Nombre d'abonnements à une destination du broker (ex: /topic/channel.42). */
+    public int subscriberCount(String destination) {
+        return subscribers.getOrDefault(destination, 0);
+    }
+
+    /** Nombre de sessions d'un utilisateur abonnées à une destination utilisateur (ex: /user/queue/messages). */
+    public int userSubscriberCount(String username, String destination) {
+        SimpUser user = simpUserRegistry.getUser(username);
+        if (user == null) {
+            return 0;
+        }
+        int count = 0;
+        for (SimpSession session : user.getSessions()) {
+            count += (int) session.getSubscriptions().stream()
+                    .filter(subscription -> destination.equals(subscription.getDestination()))
+                    .count();
+        }
+        return count;
+    }
+
+    private void decrement(String destination) {
+        subscribers.computeIfPresent(destination, (key, count) -> count > 1 ? count - 1 : null);
+    }
+}
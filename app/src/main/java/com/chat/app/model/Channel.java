@@ -36,6 +36,14 @@ public class Channel {
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt = LocalDateTime.now();
 
+    // Renseigné à la demande de suppression : le salon est masqué pendant la purge de ses messages
+    // (ChannelPurgeService), puis supprimé
+    private LocalDateTime deletedAt;
+
+    // Durée de conservation des nouveaux messages du salon, en jours (0 = sans limite)
+    @Column(nullable = false, columnDefinition = "integer not null default 0")
+    private int retentionDays;
+
     // Méthodes utilitaires pour vérifier les permissions
     public boolean isAdmin(String username) {
         return creatorUsername.equals(username);
@@ -52,4 +60,8 @@ public class Channel {
     public boolean isBlocked(String username) {
         return blockedUsernames.contains(username);
     }
+
+    public boolean isDeleted() {
+        return deletedAt != null;
+    }
 } 
\ No newline at end of file
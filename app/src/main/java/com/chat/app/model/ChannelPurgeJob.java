@@ -0,0 +1,55 @@
+package com.chat.app.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Suppression d'un salon en arrière-plan : les messages sont purgés par lots, puis le salon est supprimé.
+ * L'état est persisté pour reprendre les purges interrompues au redémarrage.
+ */
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "channel_purge_jobs", indexes = {
+    @Index(name = "idx_channel_purge_jobs_status", columnList = "status")
+})
+public class ChannelPurgeJob {
+
+    public enum Status { PENDING, RUNNING, COMPLETED, FAILED }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Pas de clé étrangère : le salon est supprimé à la fin de la purge
+    @Column(nullable = false)
+    private Long channelId;
+
+    @Column(nullable = false)
+    private String channelName;
+
+    @Column(nullable = false)
+    private String requestedBy;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Status status = Status.PENDING;
+
+    // Nombre de messages au lancement de la purge (estimation de la progression)
+    private long totalMessages;
+
+    private long deletedMessages;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    private LocalDateTime updatedAt;
+
+    private LocalDateTime completedAt;
+
+    @Column(length = 1000)
+    private String error;
+}
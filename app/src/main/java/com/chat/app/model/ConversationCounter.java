@@ -0,0 +1,27 @@
+package com.chat.app.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Nombre de messages d'une conversation ("public", "channel:{id}" ou "dm:{minId}:{maxId}"),
+ * incrémenté par lots depuis la mémoire. Les non-lus d'un utilisateur sont {@code seq - readSeq}
+ * de son {@link ReadMarker} : aucun comptage des messages.
+ */
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "conversation_counters")
+public class ConversationCounter {
+
+    @Id
+    @Column(length = 64)
+    private String conversation;
+
+    @Column(nullable = false)
+    private long seq;
+
+    // Dernier message de la conversation (tri des conversations côté client)
+    private Long lastMessageId;
+}
@@ -11,7 +11,14 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "messages")
+@Table(name = "messages", indexes = {
+    // Index composites utilisés par la pagination par curseur de l'historique
+    @Index(name = "idx_messages_channel_ts_id", columnList = "channel_id, timestamp, id"),
+    @Index(name = "idx_messages_sender_recipient_ts_id", columnList = "sender_id, recipient_id, timestamp, id"),
+    @Index(name = "idx_messages_recipient_sender_ts_id", columnList = "recipient_id, sender_id, timestamp, id"),
+    @Index(name = "idx_messages_public_ts_id", columnList = "recipient_id, channel_id, timestamp, id"),
+    @Index(name = "idx_messages_conversation_ts_id", columnList = "conversation_key, timestamp, id")
+})
 public class Message {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -34,9 +41,31 @@ public class Message {
     // @JoinColumn(name = "channel_id")
     // private Channel channel;
 
+    // Clé canonique d'une conversation privée ("plusPetitId:plusGrandId"), null pour les messages de salon/publics.
+    // Permet de lire l'historique d'une conversation par un seul parcours d'index (conversation_key, timestamp, id).
+    @Column(name = "conversation_key", length = 41)
+    private String conversationKey;
+
     @Column(nullable = false, columnDefinition = "TEXT")
     private String content;
 
     @Column(nullable = false)
     private LocalDateTime timestamp = LocalDateTime.now(); // Initialisé par défaut
-} 
\ No newline at end of file
+
+    // Durée de conservation en jours (0 = sans limite), figée à l'écriture : clé de partitionnement
+    // de la table (voir MessagePartitionManager)
+    @Column(name = "retention_days", nullable = false, columnDefinition = "integer not null default 0")
+    private int retentionDays;
+
+    public static String conversationKey(Long userId1, Long userId2) {
+        return Math.min(userId1, userId2) + ":" + Math.max(userId1, userId2);
+    }
+
+    // Appelé avant chaque INSERT JPA (et par le write-behind, qui écrit en JDBC)
+    @PrePersist
+    public void assignConversationKey() {
+        if (recipient != null && conversationKey == null) {
+            conversationKey = conversationKey(sender.getId(), recipient.getId());
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.chat.app.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * Marqueur de lecture d'un utilisateur dans une conversation : position {@code readSeq} dans le
+ * compteur {@link ConversationCounter} de la conversation. Créé au premier message envoyé ou reçu
+ * (ou à la première lecture), jamais reculé.
+ */
+@Data
+@NoArgsConstructor
+@Entity
+@IdClass(ReadMarker.Key.class)
+@Table(name = "read_markers", indexes = {
+    @Index(name = "idx_read_markers_username", columnList = "username")
+})
+public class ReadMarker {
+
+    @Id
+    private String username;
+
+    @Id
+    @Column(length = 64)
+    private String conversation;
+
+    @Column(nullable = false)
+    private long readSeq;
+
+    private Long lastReadMessageId;
+
+    // Salon de la conversation (null hors salon)
+    private Long channelId;
+
+    // Autre participant d'une conversation privée (null sinon)
+    private String peerUsername;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private String username;
+        private String conversation;
+    }
+}
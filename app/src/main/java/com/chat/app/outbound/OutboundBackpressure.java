@@ -0,0 +1,244 @@
+package com.chat.app.outbound;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limites sortantes par session WebSocket. Chaque session reçoit un {@link OutboundSessionDecorator}
+ * avant d'être enregistrée par le SubProtocolWebSocketHandler de Spring : les threads clientOutbound
+ * déposent les trames dans son tampon et des threads d'écriture dédiés ("ws-writer-N", au plus
+ * {@code writer-threads}) les envoient.
+ * Un tampon au-delà de {@code buffer-size-limit} octets déclenche la {@link OverflowPolicy} configurée ;
+ * une écriture bloquée depuis plus de {@code send-time-limit-ms} ferme la session, que de nouvelles trames
+ * arrivent ou non (vérification périodique par le thread "ws-outbound-watchdog", qui fait aussi les fermetures).
+ *
+ * Les métriques restent agrégées (chat.websocket.outbound.*) ; le détail par session est servi par
+ * /api/stats/outbound (sessions les plus en retard).
+ */
+@Slf4j
+@Component
+public class OutboundBackpressure implements WebSocketHandlerDecoratorFactory {
+
+    static final String REASON_BUFFER_SIZE = "buffer-size";
+    static final String REASON_SEND_TIME = "send-time";
+
+    private static final int SLOWEST_SESSIONS = 10;
+
+    private final int bufferSizeLimit;
+    private final long sendTimeLimitMs;
+    private final OverflowPolicy overflowPolicy;
+    private final List<String> coalescePrefixes;
+    private final ExecutorService writer;
+    private ScheduledExecutorService watchdog;
+
+    private final ConcurrentHashMap<String, OutboundSessionDecorator> sessions = new ConcurrentHashMap<>();
+    private final LongAdder droppedFrames = new LongAdder();
+    private final LongAdder coalescedFrames = new LongAdder();
+    private final Map<String, LongAdder> disconnects = Map.of(
+            REASON_BUFFER_SIZE, new LongAdder(),
+            REASON_SEND_TIME, new LongAdder());
+
+    public OutboundBackpressure(@Value("${chat.websocket.outbound.buffer-size-limit:524288}") int bufferSizeLimit,
+                                @Value("${chat.websocket.outbound.send-time-limit-ms:10000}") long sendTimeLimitMs,
+                                @Value("${chat.websocket.outbound.overflow-policy:disconnect}") String overflowPolicy,
+                                @Value("${chat.websocket.outbound.coalesce-prefixes:/topic/typing.}") List<String> coalescePrefixes,
+                                @Value("${chat.websocket.outbound.writer-threads:64}") int writerThreads,
+                                MeterRegistry registry) {
+        this.bufferSizeLimit = bufferSizeLimit;
+        this.sendTimeLimitMs = sendTimeLimitMs;
+        this.overflowPolicy = OverflowPolicy.parse(overflowPolicy);
+        this.coalescePrefixes = coalescePrefixes.stream().map(String::trim).filter(prefix -> !prefix.isEmpty()).toList();
+        AtomicInteger threads = new AtomicInteger();
+        // Un thread par session en cours d'écriture, rendu dès que son tampon est vide ; au-delà de
+        // writer-threads écritures bloquées, les sessions suivantes attendent que le watchdog en ferme une
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(writerThreads, writerThreads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "ws-writer-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        pool.allowCoreThreadTimeOut(true);
+        this.writer = pool;
+        bindMetrics(registry);
+    }
+
+    @PostConstruct
+    void start() {
+        watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ws-outbound-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long periodMs = Math.max(10, Math.min(1000, sendTimeLimitMs / 4));
+        watchdog.scheduleWithFixedDelay(this::checkSendTimes, periodMs, periodMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        watchdog.shutdownNow();
+        writer.shutdownNow();
+    }
+
+    private void checkSendTimes() {
+        long now = System.nanoTime();
+        for (OutboundSessionDecorator session : sessions.values()) {
+            try {
+                session.checkSendTime(now);
+            } catch (RuntimeException e) {
+                // Une exception arrêterait la tâche périodique
+                log.error("Vérification du délai d'écriture de la session {} impossible", session.getId(), e);
+            }
+        }
+    }
+
+    @Override
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                OutboundSessionDecorator decorated = new OutboundSessionDecorator(session, OutboundBackpressure.this);
+                track(decorated);
+                super.afterConnectionEstablished(decorated);
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                OutboundSessionDecorator decorated = sessions.remove(session.getId());
+                if (decorated != null) {
+                    decorated.discard();
+                }
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
+    }
+
+    public int bufferSizeLimit() {
+        return bufferSizeLimit;
+    }
+
+    public long sendTimeLimitMs() {
+        return sendTimeLimitMs;
+    }
+
+    long sendTimeLimitNanos() {
+        return TimeUnit.MILLISECONDS.toNanos(sendTimeLimitMs);
+    }
+
+    OverflowPolicy overflowPolicy() {
+        return overflowPolicy;
+    }
+
+    ExecutorService writer() {
+        return writer;
+    }
+
+    /** Fermetures et échéances : jamais sur un thread d'écriture, qui peut être bloqué. */
+    ScheduledExecutorService watchdog() {
+        return watchdog;
+    }
+
+    /** Enregistre la session pour le watchdog et les statistiques. */
+    void track(OutboundSessionDecorator session) {
+        sessions.put(session.getId(), session);
+    }
+
+    /** Clé de regroupement d'une trame (sa destination), null si elle ne doit jamais être remplacée. */
+    String coalesceKey(WebSocketMessage<?> frame) {
+        if (coalescePrefixes.isEmpty()) {
+            return null;
+        }
+        String destination = OutboundSessionDecorator.destinationOf(frame);
+        if (destination == null) {
+            return null;
+        }
+        for (String prefix : coalescePrefixes) {
+            if (destination.startsWith(prefix)) {
+                return destination;
+            }
+        }
+        return null;
+    }
+
+    void recordDropped() {
+        droppedFrames.increment();
+    }
+
+    void recordCoalesced() {
+        coalescedFrames.increment();
+    }
+
+    void recordDisconnect(String reason) {
+        disconnects.get(reason).increment();
+    }
+
+    public OutboundStats stats() {
+        List<SessionBuffer> buffers = sessions.values().stream().map(OutboundSessionDecorator::snapshot).toList();
+        long bufferedBytes = buffers.stream().mapToLong(SessionBuffer::bufferedBytes).sum();
+        List<SessionBuffer> slowest = buffers.stream()
+                .filter(buffer -> buffer.bufferedFrames() > 0 || buffer.sendingForMs() > 0)
+                .sorted(Comparator.comparingLong(SessionBuffer::bufferedBytes).reversed())
+                .limit(SLOWEST_SESSIONS)
+                .toList();
+        return new OutboundStats(overflowPolicy, bufferSizeLimit, sendTimeLimitMs, buffers.size(), bufferedBytes,
+                droppedFrames.sum(), coalescedFrames.sum(),
+                disconnects.get(REASON_BUFFER_SIZE).sum(), disconnects.get(REASON_SEND_TIME).sum(), slowest);
+    }
+
+    private void bindMetrics(MeterRegistry registry) {
+        Gauge.builder("chat.websocket.outbound.buffered.bytes", sessions,
+                        map -> map.values().stream().mapToLong(OutboundSessionDecorator::bufferedBytes).sum())
+                .description("Octets en attente d'écriture, toutes sessions confondues")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("chat.websocket.outbound.buffered.max", sessions,
+                        map -> map.values().stream().mapToLong(OutboundSessionDecorator::bufferedBytes).max().orElse(0))
+                .description("Plus gros tampon sortant d'une session")
+                .baseUnit("bytes")
+                .register(registry);
+        FunctionCounter.builder("chat.websocket.outbound.dropped", droppedFrames, LongAdder::sum)
+                .description("Trames retirées des tampons pleins (politique drop-oldest)")
+                .register(registry);
+        FunctionCounter.builder("chat.websocket.outbound.coalesced", coalescedFrames, LongAdder::sum)
+                .description("Trames remplacées par une plus récente de même destination (politique coalesce)")
+                .register(registry);
+        disconnects.forEach((reason, count) ->
+                FunctionCounter.builder("chat.websocket.outbound.disconnects", count, LongAdder::sum)
+                        .description("Sessions fermées car trop lentes")
+                        .tag("reason", reason)
+                        .register(registry));
+    }
+
+    /** État du tampon sortant d'une session. */
+    public record SessionBuffer(String sessionId, String username, int bufferedFrames, int bufferedBytes,
+                                int highWaterBytes, long sendingForMs, long droppedFrames, long coalescedFrames) {}
+
+    public record OutboundStats(OverflowPolicy overflowPolicy, int bufferSizeLimit, long sendTimeLimitMs,
+                                int sessions, long bufferedBytes, long droppedFrames, long coalescedFrames,
+                                long bufferSizeDisconnects, long sendTimeDisconnects, List<SessionBuffer> slowest) {}
+}
@@ -0,0 +1,265 @@
+package com.chat.app.outbound;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Tampon sortant borné d'une session WebSocket. {@link #sendMessage} ne fait que mettre la trame en file :
+ * l'écriture sur la socket se fait sur un thread d'écriture de {@link OutboundBackpressure}, jamais sur
+ * un thread clientOutbound. Un client lent n'immobilise donc que son propre tampon, limité en octets
+ * et en durée d'écriture.
+ *
+ * {@link #close} (par exemple après une trame ERROR) n'abandonne pas le tampon : les trames déjà en file sont
+ * écrites, puis la session est fermée, au plus tard après {@code send-time-limit-ms}. Seules les fermetures
+ * pour client trop lent abandonnent les trames en attente.
+ */
+@Slf4j
+class OutboundSessionDecorator extends WebSocketSessionDecorator {
+
+    private final OutboundBackpressure owner;
+
+    // Accès protégés par synchronized(buffer)
+    private final ArrayDeque<WebSocketMessage<?>> buffer = new ArrayDeque<>();
+    private int bufferedBytes;
+    private int highWaterBytes;
+    private long droppedFrames;
+    private long coalescedFrames;
+    private boolean writing;
+    // Fermeture demandée pendant une écriture : faite par le thread d'écriture une fois le tampon vide
+    private CloseStatus pendingClose;
+
+    // System.nanoTime() au début de l'écriture en cours, 0 si aucune
+    private volatile long writeStartedNanos;
+    // Plus aucune trame acceptée (fermeture demandée ou tampon abandonné)
+    private volatile boolean closing;
+    private final AtomicBoolean discarded = new AtomicBoolean();
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    OutboundSessionDecorator(WebSocketSession delegate, OutboundBackpressure owner) {
+        super(delegate);
+        this.owner = owner;
+    }
+
+    @Override
+    public void sendMessage(WebSocketMessage<?> message) throws IOException {
+        if (closing) {
+            return;
+        }
+        String overflow = null;
+        boolean startWriter = false;
+        synchronized (buffer) {
+            buffer.addLast(message);
+            bufferedBytes += message.getPayloadLength();
+            highWaterBytes = Math.max(highWaterBytes, bufferedBytes);
+            long started = writeStartedNanos;
+            if (started != 0 && System.nanoTime() - started > owner.sendTimeLimitNanos()) {
+                overflow = OutboundBackpressure.REASON_SEND_TIME;
+            } else if (bufferedBytes > owner.bufferSizeLimit()) {
+                overflow = relieve();
+            }
+            if (overflow == null && !writing) {
+                writing = true;
+                startWriter = true;
+            }
+        }
+        if (overflow != null) {
+            disconnect(overflow);
+        } else if (startWriter) {
+            owner.writer().execute(this::drain);
+        }
+    }
+
+    // Applique la politique de débordement ; renvoie la raison de fermeture si le tampon reste trop plein
+    private String relieve() {
+        switch (owner.overflowPolicy()) {
+            case DROP_OLDEST -> {
+                // La trame la plus récente est toujours gardée, même seule au-dessus de la limite
+                while (bufferedBytes > owner.bufferSizeLimit() && buffer.size() > 1) {
+                    bufferedBytes -= buffer.pollFirst().getPayloadLength();
+                    droppedFrames++;
+                    owner.recordDropped();
+                }
+                return null;
+            }
+            case COALESCE -> {
+                Set<String> newer = new HashSet<>();
+                Iterator<WebSocketMessage<?>> newestFirst = buffer.descendingIterator();
+                while (newestFirst.hasNext()) {
+                    WebSocketMessage<?> frame = newestFirst.next();
+                    String key = owner.coalesceKey(frame);
+                    if (key != null && !newer.add(key)) {
+                        newestFirst.remove();
+                        bufferedBytes -= frame.getPayloadLength();
+                        coalescedFrames++;
+                        owner.recordCoalesced();
+                    }
+                }
+                return bufferedBytes > owner.bufferSizeLimit() ? OutboundBackpressure.REASON_BUFFER_SIZE : null;
+            }
+            default -> {
+                return OutboundBackpressure.REASON_BUFFER_SIZE;
+            }
+        }
+    }
+
+    // Thread d'écriture : vide le tampon dans l'ordre, une trame à la fois
+    private void drain() {
+        while (true) {
+            WebSocketMessage<?> next;
+            CloseStatus closeStatus;
+            synchronized (buffer) {
+                next = buffer.pollFirst();
+                if (next == null) {
+                    writing = false;
+                    closeStatus = pendingClose;
+                    pendingClose = null;
+                } else {
+                    bufferedBytes -= next.getPayloadLength();
+                    closeStatus = null;
+                }
+            }
+            if (next == null) {
+                if (closeStatus != null) {
+                    closeDelegate(closeStatus);
+                }
+                return;
+            }
+            writeStartedNanos = System.nanoTime();
+            try {
+                getDelegate().sendMessage(next);
+            } catch (IOException | RuntimeException e) {
+                log.debug("Échec d'écriture sur la session {}: {}", getId(), e.getMessage());
+                discard();
+                return;
+            } finally {
+                writeStartedNanos = 0;
+            }
+        }
+    }
+
+    /** Appelé par le watchdog : ferme la session si l'écriture en cours dépasse {@code send-time-limit-ms}. */
+    void checkSendTime(long now) {
+        long started = writeStartedNanos;
+        if (started != 0 && now - started > owner.sendTimeLimitNanos()) {
+            disconnect(OutboundBackpressure.REASON_SEND_TIME);
+        }
+    }
+
+    private void disconnect(String reason) {
+        if (!discard()) {
+            return;
+        }
+        owner.recordDisconnect(reason);
+        log.warn("Session {} ({}) fermée : client trop lent ({})", getId(),
+                getPrincipal() != null ? getPrincipal().getName() : "anonyme", reason);
+        // Hors du thread appelant : la fermeture peut attendre la fin d'une écriture bloquée
+        owner.watchdog().execute(() -> closeDelegate(CloseStatus.SESSION_NOT_RELIABLE));
+    }
+
+    /** Abandonne les trames en attente ; les envois suivants sont ignorés. Faux si déjà abandonnées. */
+    boolean discard() {
+        closing = true;
+        if (!discarded.compareAndSet(false, true)) {
+            return false;
+        }
+        synchronized (buffer) {
+            buffer.clear();
+            bufferedBytes = 0;
+        }
+        return true;
+    }
+
+    @Override
+    public void close() {
+        close(CloseStatus.NORMAL);
+    }
+
+    @Override
+    public void close(CloseStatus status) {
+        boolean flushing;
+        synchronized (buffer) {
+            closing = true;
+            flushing = writing;
+            if (flushing) {
+                pendingClose = status;
+            }
+        }
+        if (!flushing) {
+            closeDelegate(status);
+            return;
+        }
+        // Le client ne lit plus : les trames restantes sont abandonnées à l'échéance
+        owner.watchdog().schedule(() -> {
+            if (!closed.get()) {
+                discard();
+                closeDelegate(status);
+            }
+        }, owner.sendTimeLimitMs(), TimeUnit.MILLISECONDS);
+    }
+
+    private void closeDelegate(CloseStatus status) {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            getDelegate().close(status);
+        } catch (IOException | RuntimeException e) {
+            log.debug("Fermeture de la session {} : {}", getId(), e.getMessage());
+        }
+    }
+
+    OutboundBackpressure.SessionBuffer snapshot() {
+        long started = writeStartedNanos;
+        synchronized (buffer) {
+            return new OutboundBackpressure.SessionBuffer(getId(),
+                    getPrincipal() != null ? getPrincipal().getName() : null,
+                    buffer.size(), bufferedBytes, highWaterBytes,
+                    started != 0 ? (System.nanoTime() - started) / 1_000_000 : 0,
+                    droppedFrames, coalescedFrames);
+        }
+    }
+
+    /** Vrai quand aucun thread d'écriture n'est en cours pour cette session. */
+    boolean idle() {
+        synchronized (buffer) {
+            return !writing;
+        }
+    }
+
+    int bufferedBytes() {
+        synchronized (buffer) {
+            return bufferedBytes;
+        }
+    }
+
+    /** Destination d'une trame STOMP MESSAGE, lue dans les en-têtes sans décoder la trame. */
+    static String destinationOf(WebSocketMessage<?> frame) {
+        if (!(frame instanceof TextMessage text)) {
+            return null;
+        }
+        String payload = text.getPayload();
+        if (!payload.startsWith("MESSAGE\n")) {
+            return null;
+        }
+        int headersEnd = payload.indexOf("\n\n");
+        int start = payload.indexOf("\ndestination:");
+        if (start < 0 || (headersEnd >= 0 && start > headersEnd)) {
+            return null;
+        }
+        start += "\ndestination:".length();
+        int end = payload.indexOf('\n', start);
+        return end < 0 ? null : payload.substring(start, end);
+    }
+}
@@ -0,0 +1,25 @@
+package com.chat.app.outbound;
+
+import java.util.Locale;
+
+/**
+ * Politique appliquée quand le tampon sortant d'une session dépasse {@code chat.websocket.outbound.buffer-size-limit}.
+ * Dépasser {@code send-time-limit-ms} ferme toujours la session, quelle que soit la politique.
+ */
+public enum OverflowPolicy {
+
+    /** Ferme la session : le client se reconnecte et rejoue les messages manqués (en-têtes resume-*). */
+    DISCONNECT,
+    /** Retire les trames les plus anciennes du tampon jusqu'à repasser sous la limite. */
+    DROP_OLDEST,
+    /**
+     * Ne garde que la trame la plus récente de chaque destination coalescente
+     * ({@code chat.websocket.outbound.coalesce-prefixes}) ; ferme la session si cela ne suffit pas.
+     */
+    COALESCE;
+
+    /** Accepte la forme des propriétés : disconnect, drop-oldest, coalesce. */
+    public static OverflowPolicy parse(String value) {
+        return valueOf(value.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+    }
+}
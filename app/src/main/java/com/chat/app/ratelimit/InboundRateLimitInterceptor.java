@@ -0,0 +1,194 @@
+package com.chat.app.ratelimit;
+
+import com.chat.app.dto.MessageDto;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import java.io.IOException;
+import java.security.Principal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limite le débit des trames SEND entrantes (destinations {@code chat.ratelimit.destinations}) :
+ * un seau à jetons par utilisateur, et un par salon pour les messages de salon. Appliqué dans preSend
+ * de clientInboundChannel, avant la file de l'exécuteur : une trame refusée ne coûte ni requête
+ * ni diffusion. L'expéditeur reçoit une erreur sur /user/queue/messages, au plus une par seconde.
+ *
+ * Les seaux pleins (utilisateurs et salons inactifs) sont oubliés toutes les minutes.
+ */
+@Slf4j
+@Component
+public class InboundRateLimitInterceptor implements ChannelInterceptor {
+
+    public static final String SCOPE_USER = "user";
+    public static final String SCOPE_CHANNEL = "channel";
+
+    private static final String ERROR_QUEUE = "/queue/messages";
+
+    private final ObjectProvider<SimpMessagingTemplate> messagingTemplate;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final List<String> destinations;
+    private final double userRate;
+    private final int userBurst;
+    private final double channelRate;
+    private final int channelBurst;
+
+    private final ConcurrentHashMap<String, TokenBucket> users = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, TokenBucket> channels = new ConcurrentHashMap<>();
+    // Erreurs envoyées à un utilisateur limité : une par seconde au plus
+    private final ConcurrentHashMap<String, TokenBucket> notices = new ConcurrentHashMap<>();
+    private final Counter userRejections;
+    private final Counter channelRejections;
+    private ScheduledExecutorService sweeper;
+
+    public InboundRateLimitInterceptor(ObjectProvider<SimpMessagingTemplate> messagingTemplate,
+                                       ObjectMapper objectMapper,
+                                       MeterRegistry registry,
+                                       @Value("${chat.ratelimit.enabled:true}") boolean enabled,
+                                       @Value("${chat.ratelimit.destinations:/app/chat.sendMessage}") List<String> destinations,
+                                       @Value("${chat.ratelimit.user.rate-per-second:5}") double userRate,
+                                       @Value("${chat.ratelimit.user.burst:20}") int userBurst,
+                                       @Value("${chat.ratelimit.channel.rate-per-second:50}") double channelRate,
+                                       @Value("${chat.ratelimit.channel.burst:200}") int channelBurst) {
+        this.messagingTemplate = messagingTemplate;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.destinations = List.copyOf(destinations);
+        this.userRate = userRate;
+        this.userBurst = userBurst;
+        this.channelRate = channelRate;
+        this.channelBurst = channelBurst;
+        this.userRejections = rejections(registry, SCOPE_USER);
+        this.channelRejections = rejections(registry, SCOPE_CHANNEL);
+    }
+
+    private static Counter rejections(MeterRegistry registry, String scope) {
+        return Counter.builder("chat.messages.rejected")
+                .description("Trames SEND refusées par la limitation de débit")
+                .tag("scope", scope)
+                .register(registry);
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rate-limit-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweeper.scheduleWithFixedDelay(this::evictIdle, 1, 1, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+        }
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        if (!enabled) {
+            return message;
+        }
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || !StompCommand.SEND.equals(accessor.getCommand())
+                || !destinations.contains(accessor.getDestination())) {
+            return message;
+        }
+        Principal user = accessor.getUser();
+        if (user == null) {
+            // Trame non authentifiée : refusée plus loin par le contrôleur
+            return message;
+        }
+        long now = System.nanoTime();
+        String username = user.getName();
+        if (!users.computeIfAbsent(username, name -> new TokenBucket(userRate, userBurst, now)).tryAcquire(now)) {
+            userRejections.increment();
+            reject(username, null, "Trop de messages envoyés, réessayez dans quelques secondes.", now);
+            return null;
+        }
+        Long channelId = channelId(message.getPayload());
+        if (channelId != null
+                && !channels.computeIfAbsent(channelId, id -> new TokenBucket(channelRate, channelBurst, now)).tryAcquire(now)) {
+            channelRejections.increment();
+            reject(username, channelId, "Ce salon reçoit trop de messages, réessayez dans quelques secondes.", now);
+            return null;
+        }
+        return message;
+    }
+
+    private void reject(String username, Long channelId, String reason, long now) {
+        log.debug("Message de {} refusé (salon {}) : débit dépassé", username, channelId);
+        if (!notices.computeIfAbsent(username, name -> new TokenBucket(1, 1, now)).tryAcquire(now)) {
+            return;
+        }
+        // Même forme que les autres erreurs envoyées par ChatController
+        MessageDto errorDto = new MessageDto(null, "Système", username, channelId, reason, LocalDateTime.now());
+        messagingTemplate.getObject().convertAndSendToUser(username, ERROR_QUEUE, errorDto);
+    }
+
+    // channelId de premier niveau du JSON, lu en flux sans construire le payload
+    private Long channelId(Object payload) {
+        if (!(payload instanceof byte[] bytes)) {
+            return null;
+        }
+        try (JsonParser parser = objectMapper.getFactory().createParser(bytes)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("channelId".equals(field)) {
+                    return value == JsonToken.VALUE_NUMBER_INT ? parser.getLongValue() : null;
+                }
+                parser.skipChildren();
+            }
+        } catch (IOException e) {
+            // JSON invalide : la conversion échouera dans le contrôleur
+        }
+        return null;
+    }
+
+    void evictIdle() {
+        long now = System.nanoTime();
+        users.values().removeIf(bucket -> bucket.isFull(now));
+        channels.values().removeIf(bucket -> bucket.isFull(now));
+        notices.values().removeIf(bucket -> bucket.isFull(now));
+    }
+
+    public RateLimitStats stats() {
+        return new RateLimitStats(enabled, users.size(), channels.size(),
+                (long) userRejections.count(), (long) channelRejections.count());
+    }
+
+    public record RateLimitStats(boolean enabled, int trackedUsers, int trackedChannels,
+                                 long userRejections, long channelRejections) {}
+}
@@ -0,0 +1,40 @@
+package com.chat.app.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Seau à jetons sans verrou : {@code burst} jetons au plus, rechargés à {@code ratePerSecond}.
+ * L'état tient dans un seul long (algorithme GCRA) : l'instant théorique où le seau sera de nouveau
+ * plein. Prendre un jeton l'avance d'un intervalle d'émission, par compare-and-set ; le refus
+ * n'écrit rien.
+ */
+public class TokenBucket {
+
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    private final AtomicLong fullAtNanos;
+
+    public TokenBucket(double ratePerSecond, int burst, long nowNanos) {
+        this.intervalNanos = Math.max(1, (long) (1_000_000_000L / ratePerSecond));
+        this.toleranceNanos = intervalNanos * Math.max(1, burst);
+        this.fullAtNanos = new AtomicLong(nowNanos);
+    }
+
+    public boolean tryAcquire(long nowNanos) {
+        while (true) {
+            long fullAt = fullAtNanos.get();
+            long next = Math.max(fullAt, nowNanos) + intervalNanos;
+            if (next - nowNanos > toleranceNanos) {
+                return false;
+            }
+            if (fullAtNanos.compareAndSet(fullAt, next)) {
+                return true;
+            }
+        }
+    }
+
+    /** Seau plein : équivalent à un seau neuf, il peut être oublié. */
+    public boolean isFull(long nowNanos) {
+        return fullAtNanos.get() - nowNanos <= 0;
+    }
+}
@@ -0,0 +1,13 @@
+package com.chat.app.repository;
+
+import com.chat.app.model.ChannelPurgeJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface ChannelPurgeJobRepository extends JpaRepository<ChannelPurgeJob, Long> {
+
+    // Purges à reprendre au démarrage
+    List<ChannelPurgeJob> findByStatusInOrderByIdAsc(Collection<ChannelPurgeJob.Status> statuses);
+}
@@ -1,11 +1,21 @@
 package com.chat.app.repository;
 
 import com.chat.app.model.Channel;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface ChannelRepository extends JpaRepository<Channel, Long> {
     Optional<Channel> findByName(String name);
     boolean existsByName(String name);
+
+    // Charge le salon avec ses modérateurs et utilisateurs bloqués en une seule requête
+    @EntityGraph(attributePaths = {"moderatorUsernames", "blockedUsernames"})
+    Optional<Channel> findWithAccessListsById(Long id);
+
+    // Salons visibles (hors salons en cours de suppression)
+    @EntityGraph(attributePaths = {"moderatorUsernames"})
+    List<Channel> findByDeletedAtIsNull();
 } 
\ No newline at end of file
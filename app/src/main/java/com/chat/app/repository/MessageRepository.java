@@ -1,19 +1,24 @@
 package com.chat.app.repository;
 
+import com.chat.app.dto.MessageDto;
 import com.chat.app.model.Message;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
-import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface MessageRepository extends JpaRepository<Message, Long> {
 
-    // Exemple pour récupérer l'historique d'une conversation privée
-    @Query("SELECT m FROM Message m WHERE (m.sender.id = :userId1 AND m.recipient.id = :userId2) OR (m.sender.id = :userId2 AND m.recipient.id = :userId1) ORDER BY m.timestamp ASC")
-    List<Message> findConversationHistory(@Param("userId1") Long userId1, @Param("userId2") Long userId2);
+    // Historique complet d'une conversation privée (clé Message.conversationKey(userId1, userId2))
+    List<Message> findByConversationKeyOrderByTimestampAsc(String conversationKey);
 
     // Historique d'un salon public
     List<Message> findByChannelIdOrderByTimestampAsc(Long channelId);
@@ -21,14 +26,108 @@ public interface MessageRepository extends JpaRepository<Message, Long> {
     // Historique public générique (ni privé, ni salon)
     List<Message> findByRecipientIsNullAndChannelIsNullOrderByTimestampAsc();
 
+    // --- Pagination par curseur (keyset) sur (timestamp, id) ---
+    // Les pages "latest" et "before" sont lues en ordre décroissant puis inversées par l'appelant,
+    // la page "after" est lue directement en ordre croissant.
+
+    @Query("SELECT m.timestamp FROM Message m WHERE m.id = :messageId")
+    Optional<LocalDateTime> findTimestampById(@Param("messageId") Long messageId);
+
+    @Query("SELECT m FROM Message m JOIN FETCH m.sender LEFT JOIN FETCH m.recipient " +
+           "WHERE m.channel.id = :channelId ORDER BY m.timestamp DESC, m.id DESC")
+    List<Message> findChannelLatest(@Param("channelId") Long channelId, Pageable pageable);
+
+    @Query("SELECT m FROM Message m JOIN FETCH m.sender LEFT JOIN FETCH m.recipient " +
+           "WHERE m.channel.id = :channelId AND m.timestamp <= :ts AND (m.timestamp < :ts OR m.id < :id) " +
+           "ORDER BY m.timestamp DESC, m.id DESC")
+    List<Message> findChannelBefore(@Param("channelId") Long channelId, @Param("ts") LocalDateTime ts,
+                                    @Param("id") Long id, Pageable pageable);
+
+    @Query("SELECT m FROM Message m JOIN FETCH m.sender LEFT JOIN FETCH m.recipient " +
+           "WHERE m.channel.id = :channelId AND m.timestamp >= :ts AND (m.timestamp > :ts OR m.id > :id) " +
+           "ORDER BY m.timestamp ASC, m.id ASC")
+    List<Message> findChannelAfter(@Param("channelId") Long channelId, @Param("ts") LocalDateTime ts,
+                                   @Param("id") Long id, Pageable pageable);
+
+    // Conversations privées : un seul parcours de l'index (conversation_key, timestamp, id)
+
+    @Query("SELECT m FROM Message m JOIN FETCH m.sender LEFT JOIN FETCH m.recipient " +
+           "WHERE m.conversationKey = :key ORDER BY m.timestamp DESC, m.id DESC")
+    List<Message> findConversationKeyLatest(@Param("key") String conversationKey, Pageable pageable);
+
+    @Query("SELECT m FROM Message m JOIN FETCH m.sender LEFT JOIN FETCH m.recipient " +
+           "WHERE m.conversationKey = :key AND m.timestamp <= :ts AND (m.timestamp < :ts OR m.id < :id) " +
+           "ORDER BY m.timestamp DESC, m.id DESC")
+    List<Message> findConversationKeyBefore(@Param("key") String conversationKey, @Param("ts") LocalDateTime ts,
+                                            @Param("id") Long id, Pageable pageable);
+
+    @Query("SELECT m FROM Message m JOIN FETCH m.sender LEFT JOIN FETCH m.recipient " +
+           "WHERE m.conversationKey = :key AND m.timestamp >= :ts AND (m.timestamp > :ts OR m.id > :id) " +
+           "ORDER BY m.timestamp ASC, m.id ASC")
+    List<Message> findConversationKeyAfter(@Param("key") String conversationKey, @Param("ts") LocalDateTime ts,
+                                           @Param("id") Long id, Pageable pageable);
+
+    // Variantes par paire expéditeur/destinataire, utilisées tant que la clé n'est pas renseignée partout
+    // (voir ConversationKeyBackfill)
+
+    @Query("SELECT m FROM Message m JOIN FETCH m.sender LEFT JOIN FETCH m.recipient " +
+           "WHERE ((m.sender.id = :userId1 AND m.recipient.id = :userId2) OR (m.sender.id = :userId2 AND m.recipient.id = :userId1)) " +
+           "ORDER BY m.timestamp DESC, m.id DESC")
+    List<Message> findConversationLatest(@Param("userId1") Long userId1, @Param("userId2") Long userId2, Pageable pageable);
+
+    @Query("SELECT m FROM Message m JOIN FETCH m.sender LEFT JOIN FETCH m.recipient " +
+           "WHERE ((m.sender.id = :userId1 AND m.recipient.id = :userId2) OR (m.sender.id = :userId2 AND m.recipient.id = :userId1)) " +
+           "AND m.timestamp <= :ts AND (m.timestamp < :ts OR m.id < :id) " +
+           "ORDER BY m.timestamp DESC, m.id DESC")
+    List<Message> findConversationBefore(@Param("userId1") Long userId1, @Param("userId2") Long userId2,
+                                         @Param("ts") LocalDateTime ts, @Param("id") Long id, Pageable pageable);
+
+    @Query("SELECT m FROM Message m JOIN FETCH m.sender LEFT JOIN FETCH m.recipient " +
+           "WHERE ((m.sender.id = :userId1 AND m.recipient.id = :userId2) OR (m.sender.id = :userId2 AND m.recipient.id = :userId1)) " +
+           "AND m.timestamp >= :ts AND (m.timestamp > :ts OR m.id > :id) " +
+           "ORDER BY m.timestamp ASC, m.id ASC")
+    List<Message> findConversationAfter(@Param("userId1") Long userId1, @Param("userId2") Long userId2,
+                                        @Param("ts") LocalDateTime ts, @Param("id") Long id, Pageable pageable);
+
+    @Query("SELECT m FROM Message m JOIN FETCH m.sender " +
+           "WHERE m.channel IS NULL AND m.recipient IS NULL ORDER BY m.timestamp DESC, m.id DESC")
+    List<Message> findPublicLatest(Pageable pageable);
+
+    @Query("SELECT m FROM Message m JOIN FETCH m.sender " +
+           "WHERE m.channel IS NULL AND m.recipient IS NULL AND m.timestamp <= :ts AND (m.timestamp < :ts OR m.id < :id) " +
+           "ORDER BY m.timestamp DESC, m.id DESC")
+    List<Message> findPublicBefore(@Param("ts") LocalDateTime ts, @Param("id") Long id, Pageable pageable);
+
+    @Query("SELECT m FROM Message m JOIN FETCH m.sender " +
+           "WHERE m.channel IS NULL AND m.recipient IS NULL AND m.timestamp >= :ts AND (m.timestamp > :ts OR m.id > :id) " +
+           "ORDER BY m.timestamp ASC, m.id ASC")
+    List<Message> findPublicAfter(@Param("ts") LocalDateTime ts, @Param("id") Long id, Pageable pageable);
+
+    // --- Export en flux (NDJSON) ---
+    // Projection DTO (aucune entité gérée dans le contexte de persistance) lue par curseur serveur :
+    // le pilote ne ramène que EXPORT_FETCH_SIZE lignes à la fois. À consommer dans une transaction
+    // (sans quoi le pilote PostgreSQL charge tout le résultat) et à fermer après usage.
+
+    String EXPORT_FETCH_SIZE = "1000";
+    String EXPORT_SELECT = "SELECT new com.chat.app.dto.MessageDto(m.id, s.username, r.username, m.channel.id, m.content, m.timestamp) " +
+                           "FROM Message m JOIN m.sender s LEFT JOIN m.recipient r ";
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE))
+    @Query(EXPORT_SELECT + "WHERE m.channel.id = :channelId ORDER BY m.timestamp ASC, m.id ASC")
+    Stream<MessageDto> streamChannelExport(@Param("channelId") Long channelId);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE))
+    @Query(EXPORT_SELECT + "WHERE m.conversationKey = :key ORDER BY m.timestamp ASC, m.id ASC")
+    Stream<MessageDto> streamConversationKeyExport(@Param("key") String conversationKey);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE))
+    @Query(EXPORT_SELECT + "WHERE ((m.sender.id = :userId1 AND m.recipient.id = :userId2) OR (m.sender.id = :userId2 AND m.recipient.id = :userId1)) " +
+           "ORDER BY m.timestamp ASC, m.id ASC")
+    Stream<MessageDto> streamConversationExport(@Param("userId1") Long userId1, @Param("userId2") Long userId2);
+
     @Query("SELECT CASE WHEN COUNT(m) > 0 THEN true ELSE false END FROM Message m WHERE m.id = :messageId AND m.channel.id = :channelId")
     boolean existsByIdAndChannelId(@Param("messageId") Long messageId, @Param("channelId") Long channelId);
 
     // Ajoutez d'autres méthodes si nécessaire (ex: pour des salons publics/groupes)
     // List<Message> findByChannelIdOrderByTimestampAsc(Long channelId); 
-
-    @Modifying
-    @Transactional
-    @Query("DELETE FROM Message m WHERE m.channel.id = :channelId")
-    void deleteByChannelId(@Param("channelId") Long channelId);
 } 
\ No newline at end of file
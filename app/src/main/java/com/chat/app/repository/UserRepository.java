@@ -1,7 +1,12 @@
 package com.chat.app.repository;
 
 import com.chat.app.model.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
 
 import java.util.Optional;
 
@@ -10,4 +15,15 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
     boolean existsByUsername(String username);
     boolean existsByEmail(String email);
+
+    // Noms d'utilisateur seuls, sans charger les entités (ni les hash de mots de passe)
+    @Query("SELECT u.username FROM User u ORDER BY u.username")
+    List<String> findAllUsernames();
+
+    // Annuaire paginé par curseur sur username (index unique)
+    @Query("SELECT u.username FROM User u ORDER BY u.username")
+    List<String> findUsernamesFirstPage(Pageable pageable);
+
+    @Query("SELECT u.username FROM User u WHERE u.username > :after ORDER BY u.username")
+    List<String> findUsernamesAfter(@Param("after") String after, Pageable pageable);
 } 
\ No newline at end of file
@@ -0,0 +1,94 @@
+package com.chat.app.resume;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Intercepteur du canal sortant : pendant le rejeu d'un abonnement, les trames en direct
+ * destinées à cet abonnement sont retenues, puis livrées après les messages rejoués.
+ * Sans rejeu en cours, le coût se limite à un test sur une map vide.
+ */
+@Component
+public class ReplayGateInterceptor implements ChannelInterceptor {
+
+    private static final char SEPARATOR = '\0';
+
+    // "sessionId\0subscriptionId" -> porte fermée le temps du rejeu
+    private final ConcurrentHashMap<String, Gate> gates = new ConcurrentHashMap<>();
+
+    /** Ferme la porte de l'abonnement ; à appeler avant que le broker n'enregistre l'abonnement. */
+    void close(String sessionId, String subscriptionId) {
+        gates.put(key(sessionId, subscriptionId), new Gate());
+    }
+
+    boolean isClosed(String sessionId, String subscriptionId) {
+        return gates.containsKey(key(sessionId, subscriptionId));
+    }
+
+    /**
+     * Appelle {@code flush} avec les trames retenues (dans leur ordre d'arrivée) puis rouvre la porte.
+     * Les trames publiées pendant {@code flush} attendent : l'ordre rejeu → retenues → direct est garanti.
+     */
+    void open(String sessionId, String subscriptionId, Consumer<List<Message<?>>> flush) {
+        Gate gate = gates.get(key(sessionId, subscriptionId));
+        if (gate == null) {
+            return;
+        }
+        synchronized (gate) {
+            try {
+                flush.accept(gate.held);
+            } finally {
+                gate.open = true;
+                gate.held.clear();
+                gates.remove(key(sessionId, subscriptionId), gate);
+            }
+        }
+    }
+
+    void sessionClosed(String sessionId) {
+        if (!gates.isEmpty()) {
+            gates.keySet().removeIf(key -> key.startsWith(sessionId + SEPARATOR));
+        }
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        if (gates.isEmpty()) {
+            return message;
+        }
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        String subscriptionId = SimpMessageHeaderAccessor.getSubscriptionId(message.getHeaders());
+        if (sessionId == null || subscriptionId == null) {
+            return message;
+        }
+        Gate gate = gates.get(key(sessionId, subscriptionId));
+        if (gate == null) {
+            return message;
+        }
+        synchronized (gate) {
+            if (gate.open) {
+                return message;
+            }
+            // Retenue : la trame sera livrée par open()
+            gate.held.add(message);
+            return null;
+        }
+    }
+
+    private static String key(String sessionId, String subscriptionId) {
+        return sessionId + SEPARATOR + subscriptionId;
+    }
+
+    private static final class Gate {
+        private final List<Message<?>> held = new ArrayList<>();
+        private boolean open;
+    }
+}
@@ -0,0 +1,289 @@
+package com.chat.app.resume;
+
+import com.chat.app.dto.MessageDto;
+import com.chat.app.model.User;
+import com.chat.app.repository.UserRepository;
+import com.chat.app.security.JwtUserPrincipal;
+import com.chat.app.service.ChannelAccessCache;
+import com.chat.app.service.MessageHistoryService;
+import com.chat.app.service.MessageHistoryService.MissedMessages;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.simp.user.UserDestinationMessageHandler;
+import org.springframework.messaging.support.AbstractSubscribableChannel;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.io.IOException;
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reprise après reconnexion : le client indique sur SUBSCRIBE le dernier message vu et le serveur
+ * rejoue uniquement les messages manqués, dans l'ordre, avant la reprise du direct.
+ *
+ * En-têtes STOMP acceptés :
+ *   - resume-after: &lt;id&gt; sur /topic/channel.{id} et /topic/public ;
+ *   - resume-conversations: alice=120,bob=98 sur /user/queue/messages (dernier id vu par conversation).
+ *
+ * Le rejeu est lancé une fois l'abonnement enregistré par le broker, pour ne rien perdre entre la
+ * lecture de l'historique et le direct ; en attendant, {@link ReplayGateInterceptor} retient les
+ * trames en direct de l'abonnement, qui sont livrées ensuite sans les doublons du rejeu.
+ * Les trames rejouées portent l'en-tête "replayed: true" ; au-delà de chat.resume.max-messages,
+ * seuls les derniers sont rejoués et la première trame porte "resume-truncated: true"
+ * (le client complète alors par l'historique REST avec before=).
+ */
+@Component
+@Slf4j
+public class StompResumeInterceptor implements ExecutorChannelInterceptor {
+
+    public static final String RESUME_AFTER_HEADER = "resume-after";
+    public static final String RESUME_CONVERSATIONS_HEADER = "resume-conversations";
+    public static final String REPLAYED_HEADER = "replayed";
+    public static final String TRUNCATED_HEADER = "resume-truncated";
+
+    private static final String CHANNEL_TOPIC_PREFIX = "/topic/channel.";
+    private static final String PUBLIC_TOPIC = "/topic/public";
+    private static final String PRIVATE_QUEUE = "/user/queue/messages";
+
+    private final ReplayGateInterceptor replayGate;
+    private final MessageHistoryService messageHistoryService;
+    private final ChannelAccessCache channelAccessCache;
+    private final UserRepository userRepository;
+    private final ObjectMapper objectMapper;
+    private final AbstractSubscribableChannel clientOutboundChannel;
+    private final int maxMessages;
+
+    public StompResumeInterceptor(ReplayGateInterceptor replayGate,
+                                  MessageHistoryService messageHistoryService,
+                                  ChannelAccessCache channelAccessCache,
+                                  UserRepository userRepository,
+                                  ObjectMapper objectMapper,
+                                  // Lazy : le canal est construit à partir de WebSocketConfig, qui dépend de cet intercepteur
+                                  @Lazy @Qualifier("clientOutboundChannel") AbstractSubscribableChannel clientOutboundChannel,
+                                  @Value("${chat.resume.max-messages:100}") int maxMessages) {
+        this.replayGate = replayGate;
+        this.messageHistoryService = messageHistoryService;
+        this.channelAccessCache = channelAccessCache;
+        this.userRepository = userRepository;
+        this.objectMapper = objectMapper;
+        this.clientOutboundChannel = clientOutboundChannel;
+        this.maxMessages = maxMessages;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor != null && StompCommand.SUBSCRIBE.equals(accessor.getCommand()) && isResumable(accessor)) {
+            // Avant l'enregistrement de l'abonnement : aucune trame en direct ne peut passer avant le rejeu
+            replayGate.close(accessor.getSessionId(), accessor.getSubscriptionId());
+        }
+        return message;
+    }
+
+    @Override
+    public void afterMessageHandled(Message<?> message, MessageChannel channel, MessageHandler handler, Exception ex) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || !StompCommand.SUBSCRIBE.equals(accessor.getCommand())
+                || !registersSubscription(accessor.getDestination(), handler)) {
+            return;
+        }
+        String sessionId = accessor.getSessionId();
+        String subscriptionId = accessor.getSubscriptionId();
+        if (!replayGate.isClosed(sessionId, subscriptionId)) {
+            return;
+        }
+        replayGate.open(sessionId, subscriptionId, held -> {
+            Set<Long> replayedIds = new HashSet<>();
+            try {
+                if (ex == null) {
+                    replay(accessor, replayedIds);
+                }
+            } catch (RuntimeException e) {
+                log.error("Rejeu impossible pour {} (session {}) : {}", accessor.getDestination(), sessionId, e.getMessage());
+            }
+            for (Message<?> frame : held) {
+                if (!replayedIds.contains(messageId(frame))) {
+                    deliver(frame);
+                }
+            }
+        });
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        replayGate.sessionClosed(event.getSessionId());
+    }
+
+    private boolean isResumable(StompHeaderAccessor accessor) {
+        String destination = accessor.getDestination();
+        if (destination == null || accessor.getSessionId() == null || accessor.getSubscriptionId() == null) {
+            return false;
+        }
+        if (PRIVATE_QUEUE.equals(destination)) {
+            return accessor.getFirstNativeHeader(RESUME_CONVERSATIONS_HEADER) != null && accessor.getUser() != null;
+        }
+        return (PUBLIC_TOPIC.equals(destination) || destination.startsWith(CHANNEL_TOPIC_PREFIX))
+                && accessor.getFirstNativeHeader(RESUME_AFTER_HEADER) != null;
+    }
+
+    // Handler qui enregistre l'abonnement : le broker pour /topic, la résolution /user pour la file privée
+    private static boolean registersSubscription(String destination, MessageHandler handler) {
+        return PRIVATE_QUEUE.equals(destination)
+                ? handler instanceof UserDestinationMessageHandler
+                : handler instanceof SimpleBrokerMessageHandler;
+    }
+
+    private void replay(StompHeaderAccessor accessor, Set<Long> replayedIds) {
+        String destination = accessor.getDestination();
+        MissedMessages missed;
+        if (PRIVATE_QUEUE.equals(destination)) {
+            missed = missedConversations(accessor.getUser(), accessor.getFirstNativeHeader(RESUME_CONVERSATIONS_HEADER));
+        } else {
+            Long afterId = parseId(accessor.getFirstNativeHeader(RESUME_AFTER_HEADER));
+            if (afterId == null) {
+                return;
+            }
+            if (PUBLIC_TOPIC.equals(destination)) {
+                missed = messageHistoryService.publicSince(afterId, maxMessages);
+            } else {
+                Long channelId = parseId(destination.substring(CHANNEL_TOPIC_PREFIX.length()));
+                if (channelId == null || !channelAccessCache.exists(channelId)) {
+                    return;
+                }
+                missed = messageHistoryService.channelSince(channelId, afterId, maxMessages);
+            }
+        }
+
+        boolean first = true;
+        for (MessageDto dto : missed.messages()) {
+            deliver(replayFrame(accessor, dto, first && missed.truncated()));
+            replayedIds.add(dto.id());
+            first = false;
+        }
+        if (!missed.messages().isEmpty()) {
+            log.debug("Rejeu de {} messages sur {} (session {}, tronqué : {})", missed.messages().size(),
+                    destination, accessor.getSessionId(), missed.truncated());
+        }
+    }
+
+    // Fusion des conversations par (timestamp, id), plafonnée au total à maxMessages
+    private MissedMessages missedConversations(Principal principal, String header) {
+        Long userId = resolveUserId(principal);
+        if (userId == null) {
+            return new MissedMessages(List.of(), false);
+        }
+        List<MessageDto> merged = new ArrayList<>();
+        boolean truncated = false;
+        for (Map.Entry<String, Long> watermark : parseConversations(header).entrySet()) {
+            User other = userRepository.findByUsername(watermark.getKey()).orElse(null);
+            if (other == null) {
+                continue;
+            }
+            MissedMessages missed = messageHistoryService.conversationSince(userId, other.getId(), watermark.getValue(), maxMessages);
+            merged.addAll(missed.messages());
+            truncated |= missed.truncated();
+        }
+        merged.sort(Comparator.comparing(MessageDto::timestamp).thenComparing(MessageDto::id));
+        if (merged.size() > maxMessages) {
+            merged = merged.subList(merged.size() - maxMessages, merged.size());
+            truncated = true;
+        }
+        return new MissedMessages(merged, truncated);
+    }
+
+    private Long resolveUserId(Principal principal) {
+        if (principal instanceof Authentication authentication
+                && authentication.getPrincipal() instanceof JwtUserPrincipal jwtUser) {
+            return jwtUser.getId();
+        }
+        return userRepository.findByUsername(principal.getName()).map(User::getId).orElse(null);
+    }
+
+    // "alice=120,bob=98" -> {alice=120, bob=98} ; les entrées mal formées sont ignorées
+    static Map<String, Long> parseConversations(String header) {
+        Map<String, Long> watermarks = new LinkedHashMap<>();
+        for (String entry : header.split(",")) {
+            int separator = entry.lastIndexOf('=');
+            if (separator <= 0) {
+                continue;
+            }
+            Long id = parseId(entry.substring(separator + 1));
+            if (id != null) {
+                watermarks.put(entry.substring(0, separator).trim(), id);
+            }
+        }
+        return watermarks;
+    }
+
+    private static Long parseId(String value) {
+        try {
+            return Long.valueOf(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private Message<byte[]> replayFrame(StompHeaderAccessor subscribe, MessageDto dto, boolean truncated) {
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        headers.setSessionId(subscribe.getSessionId());
+        headers.setSubscriptionId(subscribe.getSubscriptionId());
+        headers.setDestination(subscribe.getDestination());
+        headers.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        headers.setNativeHeader(REPLAYED_HEADER, "true");
+        if (truncated) {
+            headers.setNativeHeader(TRUNCATED_HEADER, "true");
+        }
+        try {
+            return MessageBuilder.createMessage(objectMapper.writeValueAsBytes(dto), headers.getMessageHeaders());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Livraison directe au handler WebSocket, sans passer par l'exécuteur du canal sortant :
+    // ses threads pourraient réordonner les trames d'une même session
+    private void deliver(Message<?> frame) {
+        for (MessageHandler handler : clientOutboundChannel.getSubscribers()) {
+            handler.handleMessage(frame);
+        }
+    }
+
+    // Id du message d'une trame retenue (JSON MessageDto), pour écarter les doublons du rejeu
+    private Long messageId(Message<?> frame) {
+        if (!(frame.getPayload() instanceof byte[] payload)) {
+            return null;
+        }
+        try {
+            JsonNode id = objectMapper.readTree(payload).get("id");
+            return id != null && id.canConvertToLong() ? id.asLong() : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,363 @@
+package com.chat.app.retention;
+
+import com.chat.app.service.HotHistoryCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Partitionnement de {@code messages} (PostgreSQL, {@code chat.partitioning.enabled=true}) :
+ * <pre>
+ * messages                 PARTITION BY LIST (retention_days)
+ *   messages_r{j}          une partition par durée de conservation, PARTITION BY RANGE (timestamp)
+ *     messages_r{j}_{aaaamm}   une partition par mois
+ *     messages_r{j}_default    filet de sécurité pour un mois non encore créé
+ * </pre>
+ * Au premier démarrage, la table existante est convertie dans une seule transaction : elle est renommée
+ * {@code messages_legacy} puis rattachée telle quelle à {@code messages_r0} (sans limite) pour tout ce qui
+ * précède le mois suivant, sans recopie des lignes.
+ *
+ * Une maintenance quotidienne crée les mois à venir et supprime par DROP TABLE les mois entièrement
+ * expirés de chaque durée : l'expiration est donc arrondie au mois, et aucune ligne n'est supprimée
+ * une à une. Les lignes tombées dans une partition par défaut (maintenance arrêtée plus de
+ * months-ahead mois) sont déplacées dans la partition de leur mois dès sa création.
+ *
+ * L'historique n'est pas filtré par retention_days : chaque requête ouvre toutes les durées.
+ * Les pages before/after, bornées par timestamp, écartent les mois situés de l'autre côté de la borne
+ * (au plan, ou au démarrage de l'exécution pour un plan générique) ; les dernières pages, sans borne,
+ * ouvrent un parcours d'index par mois, fusionnés dans l'ordre et arrêtés à la limite.
+ */
+@Slf4j
+@Component
+@DependsOn("entityManagerFactory") // Après la mise à jour du schéma par Hibernate
+public class MessagePartitionManager {
+
+    private static final DateTimeFormatter MONTH_SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final Pattern CLASS_PARTITION = Pattern.compile("messages_r(\\d+)");
+    private static final Pattern MONTH_PARTITION = Pattern.compile("messages_r(\\d+)_(\\d{6})");
+    // Borne haute d'une partition rattachée à la main (messages_legacy) : "... TO ('2026-11-01 00:00:00')"
+    private static final Pattern UPPER_BOUND = Pattern.compile("TO \\('([^']+)'\\)");
+    private static final DateTimeFormatter BOUND_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final String LEGACY_TABLE = "messages_legacy";
+    private static final String SEQUENCE = "messages_id_seq";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final RetentionPolicy retentionPolicy;
+    private final HotHistoryCache hotHistoryCache;
+    private final boolean enabled;
+    private final int monthsAhead;
+    private final long maintenanceIntervalMinutes;
+
+    private volatile boolean partitioned;
+    private ScheduledExecutorService maintainer;
+
+    public MessagePartitionManager(JdbcTemplate jdbcTemplate,
+                                   TransactionTemplate transactionTemplate,
+                                   RetentionPolicy retentionPolicy,
+                                   HotHistoryCache hotHistoryCache,
+                                   @Value("${chat.partitioning.enabled:false}") boolean enabled,
+                                   @Value("${chat.partitioning.months-ahead:2}") int monthsAhead,
+                                   @Value("${chat.partitioning.maintenance-interval-minutes:1440}") long maintenanceIntervalMinutes) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.retentionPolicy = retentionPolicy;
+        this.hotHistoryCache = hotHistoryCache;
+        this.enabled = enabled;
+        this.monthsAhead = Math.max(1, monthsAhead);
+        this.maintenanceIntervalMinutes = Math.max(1, maintenanceIntervalMinutes);
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            log.info("Table messages non partitionnée : les durées de conservation ne sont pas appliquées");
+            return;
+        }
+        if (!isPostgres()) {
+            log.warn("Partitionnement des messages ignoré : base non PostgreSQL");
+            return;
+        }
+        // Avant l'ouverture du serveur : aucune écriture ne peut arriver pendant la conversion
+        transactionTemplate.executeWithoutResult(status -> convertIfNeeded());
+        partitioned = true;
+        maintain();
+        maintainer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "message-partitions");
+            thread.setDaemon(true);
+            return thread;
+        });
+        maintainer.scheduleWithFixedDelay(this::maintainSafely,
+                maintenanceIntervalMinutes, maintenanceIntervalMinutes, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (maintainer != null) {
+            maintainer.shutdownNow();
+        }
+    }
+
+    public boolean isPartitioned() {
+        return partitioned;
+    }
+
+    /** Crée les partitions manquantes et supprime les mois expirés. */
+    public void maintain() {
+        SortedSet<Integer> classes = new TreeSet<>(retentionPolicy.allowedDays());
+        // Une durée retirée de la configuration garde sa partition : ses mois continuent d'expirer
+        for (String name : children("messages")) {
+            Matcher matcher = CLASS_PARTITION.matcher(name);
+            if (matcher.matches()) {
+                classes.add(Integer.parseInt(matcher.group(1)));
+            }
+        }
+        boolean dropped = false;
+        for (int days : classes) {
+            ensureClass(days);
+            ensureMonths(days);
+            if (days != RetentionPolicy.FOREVER) {
+                dropped |= dropExpired(days);
+            }
+        }
+        if (dropped) {
+            // Les tampons peuvent contenir des messages expirés : ils seront rechargés depuis la base
+            hotHistoryCache.evictAll();
+        }
+    }
+
+    private void maintainSafely() {
+        try {
+            maintain();
+        } catch (RuntimeException e) {
+            log.error("Maintenance des partitions de messages impossible", e);
+        }
+    }
+
+    private void convertIfNeeded() {
+        List<String> kind = jdbcTemplate.queryForList(
+                "SELECT relkind::text FROM pg_class WHERE oid = to_regclass('messages')", String.class);
+        if (kind.isEmpty() || !"r".equals(kind.get(0))) {
+            return;
+        }
+        log.info("Conversion de la table messages en table partitionnée...");
+        jdbcTemplate.execute("LOCK TABLE messages IN ACCESS EXCLUSIVE MODE");
+
+        Integer referencing = jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM pg_constraint WHERE confrelid = 'messages'::regclass", Integer.class);
+        if (referencing != null && referencing > 0) {
+            throw new IllegalStateException("Partitionnement impossible : des clés étrangères référencent messages");
+        }
+
+        // Une colonne identity ne peut pas appartenir à une table partitionnée (avant PostgreSQL 17) :
+        // elle est remplacée par une séquence classique qui reprend au même point
+        String sequence;
+        String identity = jdbcTemplate.queryForObject(
+                "SELECT attidentity::text FROM pg_attribute WHERE attrelid = 'messages'::regclass AND attname = 'id'",
+                String.class);
+        if (identity != null && !identity.isEmpty()) {
+            Long next = jdbcTemplate.queryForObject(
+                    "SELECT GREATEST((SELECT COALESCE(MAX(id), 0) + 1 FROM messages), " +
+                    "(SELECT CASE WHEN is_called THEN last_value + 1 ELSE last_value END FROM " +
+                    jdbcTemplate.queryForObject("SELECT pg_get_serial_sequence('messages', 'id')", String.class) + "))",
+                    Long.class);
+            jdbcTemplate.execute("ALTER TABLE messages ALTER COLUMN id DROP IDENTITY");
+            jdbcTemplate.execute("CREATE SEQUENCE " + SEQUENCE + " START WITH " + next);
+            jdbcTemplate.execute("ALTER TABLE messages ALTER COLUMN id SET DEFAULT nextval('" + SEQUENCE + "')");
+            sequence = SEQUENCE;
+        } else {
+            sequence = jdbcTemplate.queryForObject("SELECT pg_get_serial_sequence('messages', 'id')", String.class);
+        }
+
+        // Index et clés étrangères sont recréés à l'identique sur la table parente
+        List<Map<String, Object>> indexes = jdbcTemplate.queryForList(
+                "SELECT i.relname AS name, pg_get_indexdef(i.oid) AS definition, x.indisunique AS is_unique " +
+                "FROM pg_index x JOIN pg_class i ON i.oid = x.indexrelid " +
+                "WHERE x.indrelid = 'messages'::regclass AND NOT x.indisprimary");
+        List<Map<String, Object>> foreignKeys = jdbcTemplate.queryForList(
+                "SELECT conname AS name, pg_get_constraintdef(oid) AS definition FROM pg_constraint " +
+                "WHERE conrelid = 'messages'::regclass AND contype = 'f'");
+        String primaryKey = jdbcTemplate.queryForObject(
+                "SELECT conname FROM pg_constraint WHERE conrelid = 'messages'::regclass AND contype = 'p'", String.class);
+
+        jdbcTemplate.execute("ALTER TABLE messages RENAME TO " + LEGACY_TABLE);
+        // La clé primaire (id) sera reconstruite au rattachement sur (id, retention_days, timestamp)
+        jdbcTemplate.execute("ALTER TABLE " + LEGACY_TABLE + " DROP CONSTRAINT " + primaryKey);
+        for (Map<String, Object> index : indexes) {
+            jdbcTemplate.execute("ALTER INDEX " + index.get("name") + " RENAME TO " + legacyName((String) index.get("name")));
+        }
+
+        // La clé de partitionnement doit faire partie de la clé primaire
+        jdbcTemplate.execute("CREATE TABLE messages (LIKE " + LEGACY_TABLE + " INCLUDING DEFAULTS, " +
+                "CONSTRAINT messages_pkey PRIMARY KEY (id, retention_days, timestamp)) PARTITION BY LIST (retention_days)");
+        for (Map<String, Object> index : indexes) {
+            if (Boolean.TRUE.equals(index.get("is_unique"))) {
+                log.warn("Index unique {} non recréé : il devrait inclure retention_days et timestamp", index.get("name"));
+                continue;
+            }
+            jdbcTemplate.execute((String) index.get("definition"));
+        }
+        for (Map<String, Object> foreignKey : foreignKeys) {
+            jdbcTemplate.execute("ALTER TABLE messages ADD CONSTRAINT " + foreignKey.get("name") + " " + foreignKey.get("definition"));
+        }
+        jdbcTemplate.execute("ALTER SEQUENCE " + sequence + " OWNED BY messages.id");
+
+        // Les lignes existantes ont retention_days = 0 (valeur par défaut de la colonne)
+        ensureClass(RetentionPolicy.FOREVER);
+        LocalDateTime nextMonth = YearMonth.now().plusMonths(1).atDay(1).atStartOfDay();
+        jdbcTemplate.execute("ALTER TABLE " + classTable(RetentionPolicy.FOREVER) + " ATTACH PARTITION " + LEGACY_TABLE +
+                " FOR VALUES FROM (MINVALUE) TO ('" + BOUND_FORMAT.format(nextMonth) + "')");
+        log.info("Table messages partitionnée ; messages existants conservés dans {}", LEGACY_TABLE);
+    }
+
+    private void ensureClass(int days) {
+        String table = classTable(days);
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + table + " PARTITION OF messages FOR VALUES IN (" + days + ")" +
+                " PARTITION BY RANGE (timestamp)");
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + table + "_default PARTITION OF " + table + " DEFAULT");
+    }
+
+    private void ensureMonths(int days) {
+        String table = classTable(days);
+        List<String> existing = children(table);
+        // Les mois déjà couverts par une partition rattachée (messages_legacy) ne sont pas recréés
+        LocalDateTime coveredUntil = null;
+        for (Map<String, Object> partition : jdbcTemplate.queryForList(
+                "SELECT c.relname AS name, pg_get_expr(c.relpartbound, c.oid) AS bound FROM pg_inherits i " +
+                "JOIN pg_class c ON c.oid = i.inhrelid WHERE i.inhparent = to_regclass(?)", table)) {
+            Matcher bound = UPPER_BOUND.matcher((String) partition.get("bound"));
+            if (!MONTH_PARTITION.matcher((String) partition.get("name")).matches() && bound.find()) {
+                LocalDateTime upper = LocalDateTime.parse(bound.group(1), BOUND_FORMAT);
+                coveredUntil = coveredUntil == null || upper.isAfter(coveredUntil) ? upper : coveredUntil;
+            }
+        }
+        SortedSet<YearMonth> months = new TreeSet<>();
+        YearMonth current = YearMonth.now();
+        for (int i = 0; i <= monthsAhead; i++) {
+            months.add(current.plusMonths(i));
+        }
+        // Mois arrivés dans la partition par défaut faute de partition (y compris passés : ils doivent pouvoir expirer)
+        for (String month : jdbcTemplate.queryForList(
+                "SELECT DISTINCT to_char(timestamp, 'YYYYMM') FROM " + table + "_default", String.class)) {
+            months.add(YearMonth.parse(month, MONTH_SUFFIX));
+        }
+        for (YearMonth month : months) {
+            String name = table + "_" + MONTH_SUFFIX.format(month);
+            LocalDateTime start = month.atDay(1).atStartOfDay();
+            if (existing.contains(name) || (coveredUntil != null && start.isBefore(coveredUntil))) {
+                continue;
+            }
+            try {
+                createMonth(table, name, start);
+            } catch (RuntimeException e) {
+                log.error("Création de la partition {} impossible : {}", name, e.getMessage());
+            }
+        }
+    }
+
+    // Une partition ne peut pas être créée tant que la partition par défaut contient des lignes de son mois :
+    // celle-ci est alors détachée le temps de les déplacer (écritures de cette durée bloquées pendant le déplacement)
+    private void createMonth(String table, String name, LocalDateTime start) {
+        String defaultTable = table + "_default";
+        String from = BOUND_FORMAT.format(start);
+        String to = BOUND_FORMAT.format(start.plusMonths(1));
+        String inMonth = " WHERE timestamp >= '" + from + "' AND timestamp < '" + to + "'";
+        long moved = transactionTemplate.execute(status -> {
+            jdbcTemplate.execute("SET LOCAL lock_timeout = '5s'");
+            Boolean stranded = jdbcTemplate.queryForObject(
+                    "SELECT EXISTS (SELECT 1 FROM " + defaultTable + inMonth + ")", Boolean.class);
+            if (!Boolean.TRUE.equals(stranded)) {
+                jdbcTemplate.execute("CREATE TABLE " + name + " PARTITION OF " + table +
+                        " FOR VALUES FROM ('" + from + "') TO ('" + to + "')");
+                return 0L;
+            }
+            jdbcTemplate.execute("ALTER TABLE " + table + " DETACH PARTITION " + defaultTable);
+            jdbcTemplate.execute("CREATE TABLE " + name + " PARTITION OF " + table +
+                    " FOR VALUES FROM ('" + from + "') TO ('" + to + "')");
+            long count = jdbcTemplate.update("WITH moved AS (DELETE FROM " + defaultTable + inMonth + " RETURNING *) " +
+                    "INSERT INTO " + name + " SELECT * FROM moved");
+            jdbcTemplate.execute("ALTER TABLE " + table + " ATTACH PARTITION " + defaultTable + " DEFAULT");
+            return count;
+        });
+        if (moved > 0) {
+            log.warn("Partition {} créée : {} messages déplacés depuis {}", name, moved, defaultTable);
+        } else {
+            log.info("Partition {} créée", name);
+        }
+    }
+
+    private boolean dropExpired(int days) {
+        // Un mois est supprimé quand son dernier message a dépassé la durée de conservation
+        LocalDateTime cutoff = LocalDate.now().minusDays(days).atStartOfDay();
+        boolean dropped = false;
+        for (String name : children(classTable(days))) {
+            Matcher matcher = MONTH_PARTITION.matcher(name);
+            if (!matcher.matches()) {
+                continue;
+            }
+            YearMonth month = YearMonth.parse(matcher.group(2), MONTH_SUFFIX);
+            if (month.plusMonths(1).atDay(1).atStartOfDay().isAfter(cutoff)) {
+                continue;
+            }
+            try {
+                // DROP verrouille brièvement toute la table : on n'attend pas derrière une longue requête
+                transactionTemplate.executeWithoutResult(status -> {
+                    jdbcTemplate.execute("SET LOCAL lock_timeout = '5s'");
+                    jdbcTemplate.execute("DROP TABLE " + name);
+                });
+                dropped = true;
+                log.info("Partition {} supprimée (conservation {} j)", name, days);
+            } catch (RuntimeException e) {
+                log.warn("Suppression de la partition {} reportée : {}", name, e.getMessage());
+            }
+        }
+        return dropped;
+    }
+
+    private List<String> children(String parent) {
+        return jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+                "WHERE i.inhparent = to_regclass(?) ORDER BY c.relname", String.class, parent);
+    }
+
+    private static String classTable(int days) {
+        return "messages_r" + days;
+    }
+
+    // Les noms PostgreSQL sont limités à 63 caractères
+    private static String legacyName(String name) {
+        String suffix = "_legacy";
+        return (name.length() + suffix.length() > 63 ? name.substring(0, 63 - suffix.length()) : name) + suffix;
+    }
+
+    private boolean isPostgres() {
+        try (Connection connection = jdbcTemplate.getDataSource().getConnection()) {
+            return "PostgreSQL".equalsIgnoreCase(connection.getMetaData().getDatabaseProductName());
+        } catch (SQLException | RuntimeException e) {
+            log.warn("Type de base inconnu : {}", e.getMessage());
+            return false;
+        }
+    }
+}
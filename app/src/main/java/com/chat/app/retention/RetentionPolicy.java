@@ -0,0 +1,53 @@
+package com.chat.app.retention;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Durées de conservation des messages, en jours (0 = sans limite).
+ * Chaque message porte la durée en vigueur à son écriture : celle de son salon, ou
+ * {@code chat.retention.default-days} pour les messages privés et publics. Seules les durées
+ * de {@code chat.retention.allowed-days} peuvent être choisies, chacune correspondant à une
+ * partition de {@code messages} (voir {@link MessagePartitionManager}).
+ */
+@Component
+public class RetentionPolicy {
+
+    public static final int FOREVER = 0;
+
+    private final SortedSet<Integer> allowedDays = new TreeSet<>();
+    private final int defaultDays;
+
+    public RetentionPolicy(@Value("${chat.retention.allowed-days:30,90,365}") List<Integer> allowedDays,
+                           @Value("${chat.retention.default-days:0}") int defaultDays) {
+        for (Integer days : allowedDays) {
+            if (days == null || days < 0) {
+                throw new IllegalArgumentException("chat.retention.allowed-days invalide : " + allowedDays);
+            }
+            this.allowedDays.add(days);
+        }
+        this.allowedDays.add(FOREVER);
+        if (!this.allowedDays.contains(defaultDays)) {
+            throw new IllegalArgumentException("chat.retention.default-days doit faire partie de chat.retention.allowed-days : " + defaultDays);
+        }
+        this.defaultDays = defaultDays;
+    }
+
+    public int defaultDays() {
+        return defaultDays;
+    }
+
+    /** Durées autorisées, 0 (sans limite) compris, par ordre croissant. */
+    public SortedSet<Integer> allowedDays() {
+        return Collections.unmodifiableSortedSet(allowedDays);
+    }
+
+    public boolean isAllowed(int days) {
+        return allowedDays.contains(days);
+    }
+}
@@ -1,9 +1,14 @@
 package com.chat.app.security;
 
+import io.jsonwebtoken.Claims;
 import org.springframework.security.core.userdetails.UserDetails;
 
 public interface IJwtService {
     String extractUsername(String token);
     String generateToken(UserDetails userDetails);
     boolean isTokenValid(String token, UserDetails userDetails);
-} 
\ No newline at end of file
+
+    // Vérifie la signature une seule fois et renvoie les claims (lève une JwtException si invalide)
+    Claims parseToken(String token);
+    boolean isTokenValid(Claims claims, UserDetails userDetails);
+}
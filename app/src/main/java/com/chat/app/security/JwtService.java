@@ -1,20 +1,36 @@
 package com.chat.app.security;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import com.chat.app.model.User;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
-import java.security.Key;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.AbstractMap;
+import java.util.Base64;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.function.Function;
 import javax.crypto.SecretKey;
 
+@Slf4j
 @Service
 public class JwtService implements IJwtService {
 
@@ -23,8 +39,56 @@ public class JwtService implements IJwtService {
     @Value("${jwt.expiration}")
     private long jwtExpiration;
 
+    @Value("${jwt.verified-cache.max-size:10000}")
+    private int verifiedCacheMaxSize;
+
+    // Tokens déjà vérifiés, indexés par empreinte SHA-256 (le token lui-même n'est pas conservé)
+    private final ConcurrentHashMap<String, VerifiedToken> verifiedTokens = new ConcurrentHashMap<>();
+    // Ordre d'ajout au cache ; tous les tokens ont la même durée de vie, c'est donc aussi à peu près leur ordre d'expiration
+    private final ConcurrentLinkedQueue<CacheSlot> insertionOrder = new ConcurrentLinkedQueue<>();
+
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    // Clé HS256 : 256 bits minimum
+    private static final int MIN_SECRET_BYTES = 32;
+
+    /** Clé aléatoire propre à ce JVM (tests, benchmarks). */
     public JwtService() {
-        this.secretKey = Keys.secretKeyFor(SignatureAlgorithm.HS256);
+        this("", "loopback");
+    }
+
+    /**
+     * Tous les nœuds d'un cluster doivent signer avec la même clé ({@code jwt.secret}, base64) pour
+     * accepter les tokens émis par les autres. Sans clé, une clé aléatoire est générée, ce qui n'est
+     * admis que sur une instance seule.
+     */
+    @Autowired
+    public JwtService(@Value("${jwt.secret:}") String secret,
+                      @Value("${chat.cluster.mode:loopback}") String clusterMode) {
+        if (secret == null || secret.isBlank()) {
+            if ("tcp".equalsIgnoreCase(clusterMode)) {
+                throw new IllegalStateException("jwt.secret est obligatoire en mode cluster tcp (clé partagée par tous les nœuds)");
+            }
+            log.warn("jwt.secret absent : clé aléatoire, les tokens ne survivent pas au redémarrage et ne sont valides que sur ce nœud");
+            this.secretKey = Keys.secretKeyFor(SignatureAlgorithm.HS256);
+            return;
+        }
+        byte[] bytes;
+        try {
+            bytes = Base64.getDecoder().decode(secret.trim());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("jwt.secret doit être encodé en base64", e);
+        }
+        if (bytes.length < MIN_SECRET_BYTES) {
+            throw new IllegalStateException("jwt.secret doit faire au moins 256 bits (" + bytes.length * 8 + " fournis)");
+        }
+        this.secretKey = Keys.hmacShaKeyFor(bytes);
     }
 
     @Override
@@ -33,13 +97,45 @@ public class JwtService implements IJwtService {
     }
 
     public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
+        final Claims claims = parseToken(token);
         return claimsResolver.apply(claims);
     }
 
+    /**
+     * Renvoie les claims d'un token valide, en lecture seule. La signature n'est vérifiée qu'au premier
+     * passage : les appels suivants avec le même token partagent les mêmes claims, servies depuis le cache
+     * jusqu'à son expiration.
+     */
+    @Override
+    public Claims parseToken(String token) {
+        final String key = digest(token);
+        final long now = System.currentTimeMillis();
+        VerifiedToken cached = verifiedTokens.get(key);
+        if (cached != null) {
+            if (cached.expiresAt() > now) {
+                return cached.claims();
+            }
+            verifiedTokens.remove(key, cached);
+            throw new ExpiredJwtException(null, cached.claims(), "JWT expiré");
+        }
+        Claims claims = new ReadOnlyClaims(extractAllClaims(token));
+        remember(key, claims, now);
+        return claims;
+    }
+
     @Override
     public String generateToken(UserDetails userDetails) {
-        return generateToken(new HashMap<>(), userDetails);
+        // L'id et les rôles permettent l'authentification sans requête en base (jwt.stateless-auth)
+        Map<String, Object> claims = new HashMap<>();
+        if (userDetails instanceof User user && user.getId() != null) {
+            claims.put(JwtUserPrincipal.USER_ID_CLAIM, user.getId());
+        } else if (userDetails instanceof JwtUserPrincipal principal) {
+            claims.put(JwtUserPrincipal.USER_ID_CLAIM, principal.getId());
+        }
+        claims.put(JwtUserPrincipal.ROLES_CLAIM, userDetails.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .toList());
+        return generateToken(claims, userDetails);
     }
 
     public String generateToken(Map<String, Object> extraClaims, UserDetails userDetails) {
@@ -55,16 +151,41 @@ public class JwtService implements IJwtService {
 
     @Override
     public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername())) && !isTokenExpired(token);
+        return isTokenValid(parseToken(token), userDetails);
+    }
+
+    @Override
+    public boolean isTokenValid(Claims claims, UserDetails userDetails) {
+        return claims.getSubject().equals(userDetails.getUsername()) && !isTokenExpired(claims);
     }
 
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    private boolean isTokenExpired(Claims claims) {
+        return claims.getExpiration().before(new Date());
     }
 
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    // Retire les plus anciens tokens (expirés, ou au-delà de la taille maximale) : O(1) amorti par ajout
+    private void remember(String key, Claims claims, long now) {
+        if (claims.getExpiration() == null || verifiedCacheMaxSize <= 0) {
+            return;
+        }
+        CacheSlot oldest;
+        while ((oldest = insertionOrder.peek()) != null
+                && (oldest.token().expiresAt() <= now || verifiedTokens.size() >= verifiedCacheMaxSize)) {
+            // Un autre thread peut avoir retiré ce token entre-temps : on retire alors le suivant
+            CacheSlot evicted = insertionOrder.poll();
+            if (evicted != null) {
+                verifiedTokens.remove(evicted.key(), evicted.token());
+            }
+        }
+        VerifiedToken token = new VerifiedToken(claims, claims.getExpiration().getTime());
+        if (verifiedTokens.putIfAbsent(key, token) == null) {
+            insertionOrder.offer(new CacheSlot(key, token));
+        }
+    }
+
+    private static String digest(String token) {
+        byte[] hash = SHA256.get().digest(token.getBytes(StandardCharsets.US_ASCII));
+        return Base64.getEncoder().encodeToString(hash);
     }
 
     private Claims extractAllClaims(String token) {
@@ -75,4 +196,131 @@ public class JwtService implements IJwtService {
                 .parseClaimsJws(token)
                 .getBody();
     }
+
+    private record VerifiedToken(Claims claims, long expiresAt) {}
+
+    private record CacheSlot(String key, VerifiedToken token) {}
+
+    /** Claims partagées par tous les appelants d'un même token : toute modification est refusée. */
+    static final class ReadOnlyClaims extends AbstractMap<String, Object> implements Claims {
+
+        private final Claims claims;
+        private final Map<String, Object> values;
+
+        ReadOnlyClaims(Claims claims) {
+            this.claims = claims;
+            Map<String, Object> copy = new LinkedHashMap<>();
+            claims.forEach((name, value) -> copy.put(name, readOnly(value)));
+            this.values = Collections.unmodifiableMap(copy);
+        }
+
+        // Les listes et objets d'un claim (ex : rôles) sont eux aussi figés
+        private static Object readOnly(Object value) {
+            if (value instanceof List<?> list) {
+                return Collections.unmodifiableList(list.stream().map(ReadOnlyClaims::readOnly).toList());
+            }
+            if (value instanceof Map<?, ?> map) {
+                Map<Object, Object> copy = new LinkedHashMap<>();
+                map.forEach((name, nested) -> copy.put(name, readOnly(nested)));
+                return Collections.unmodifiableMap(copy);
+            }
+            return value;
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return values.entrySet();
+        }
+
+        @Override
+        public Object get(Object name) {
+            return values.get(name);
+        }
+
+        @Override
+        public boolean containsKey(Object name) {
+            return values.containsKey(name);
+        }
+
+        @Override
+        public <T> T get(String claimName, Class<T> requiredType) {
+            Object value = values.get(claimName);
+            // Conversions (Date, Long...) : nouvelle instance à chaque appel
+            return requiredType.isInstance(value) ? requiredType.cast(value) : claims.get(claimName, requiredType);
+        }
+
+        @Override
+        public String getIssuer() {
+            return claims.getIssuer();
+        }
+
+        @Override
+        public String getSubject() {
+            return claims.getSubject();
+        }
+
+        @Override
+        public String getAudience() {
+            return claims.getAudience();
+        }
+
+        @Override
+        public Date getExpiration() {
+            return claims.getExpiration();
+        }
+
+        @Override
+        public Date getNotBefore() {
+            return claims.getNotBefore();
+        }
+
+        @Override
+        public Date getIssuedAt() {
+            return claims.getIssuedAt();
+        }
+
+        @Override
+        public String getId() {
+            return claims.getId();
+        }
+
+        @Override
+        public Claims setIssuer(String iss) {
+            throw readOnlyClaims();
+        }
+
+        @Override
+        public Claims setSubject(String sub) {
+            throw readOnlyClaims();
+        }
+
+        @Override
+        public Claims setAudience(String aud) {
+            throw readOnlyClaims();
+        }
+
+        @Override
+        public Claims setExpiration(Date exp) {
+            throw readOnlyClaims();
+        }
+
+        @Override
+        public Claims setNotBefore(Date nbf) {
+            throw readOnlyClaims();
+        }
+
+        @Override
+        public Claims setIssuedAt(Date iat) {
+            throw readOnlyClaims();
+        }
+
+        @Override
+        public Claims setId(String jti) {
+            throw readOnlyClaims();
+        }
+
+        private static UnsupportedOperationException readOnlyClaims() {
+            return new UnsupportedOperationException("Claims en lecture seule");
+        }
+    }
 } 
\ No newline at end of file
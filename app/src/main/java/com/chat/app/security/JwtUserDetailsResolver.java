@@ -0,0 +1,33 @@
+package com.chat.app.security;
+
+import com.chat.app.service.IUserService;
+import io.jsonwebtoken.Claims;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+/**
+ * Détermine l'utilisateur associé à un JWT déjà vérifié.
+ * En mode sans état ({@code jwt.stateless-auth=true}) il est construit à partir des claims,
+ * sinon il est rechargé via {@link IUserService#loadUserByUsername}.
+ */
+@Component
+@RequiredArgsConstructor
+public class JwtUserDetailsResolver {
+
+    private final IUserService userService;
+
+    @Value("${jwt.stateless-auth:false}")
+    private boolean statelessAuth;
+
+    public UserDetails resolve(Claims claims) {
+        if (statelessAuth) {
+            JwtUserPrincipal principal = JwtUserPrincipal.fromClaims(claims);
+            if (principal != null) {
+                return principal;
+            }
+        }
+        return userService.loadUserByUsername(claims.getSubject());
+    }
+}
@@ -0,0 +1,59 @@
+package com.chat.app.security;
+
+import io.jsonwebtoken.Claims;
+import lombok.Getter;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Utilisateur authentifié reconstruit uniquement à partir des claims du JWT
+ * (id, nom d'utilisateur, rôles), sans lecture en base.
+ */
+@Getter
+public class JwtUserPrincipal implements UserDetails {
+
+    public static final String USER_ID_CLAIM = "uid";
+    public static final String ROLES_CLAIM = "roles";
+
+    private final Long id;
+    private final String username;
+    private final List<GrantedAuthority> authorities;
+
+    public JwtUserPrincipal(Long id, String username, List<GrantedAuthority> authorities) {
+        this.id = id;
+        this.username = username;
+        this.authorities = authorities;
+    }
+
+    // Renvoie null si le token a été émis sans les claims nécessaires (ancien format)
+    public static JwtUserPrincipal fromClaims(Claims claims) {
+        Object uid = claims.get(USER_ID_CLAIM);
+        Object roles = claims.get(ROLES_CLAIM);
+        if (!(uid instanceof Number) || !(roles instanceof List<?> roleList) || claims.getSubject() == null) {
+            return null;
+        }
+        List<GrantedAuthority> authorities = roleList.stream()
+                .map(role -> (GrantedAuthority) new SimpleGrantedAuthority(String.valueOf(role)))
+                .toList();
+        return new JwtUserPrincipal(((Number) uid).longValue(), claims.getSubject(), authorities);
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+
+    @Override
+    public String getPassword() {
+        return null;
+    }
+
+    @Override
+    public String getUsername() {
+        return username;
+    }
+}
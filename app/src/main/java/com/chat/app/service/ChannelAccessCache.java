@@ -0,0 +1,145 @@
+package com.chat.app.service;
+
+import com.chat.app.cluster.ClusterEvents;
+import com.chat.app.model.Channel;
+import com.chat.app.repository.ChannelRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache en mémoire des droits d'un salon (administrateur, modérateurs, utilisateurs bloqués),
+ * indexé par id de salon. Évite de recharger le salon et ses collections à chaque message
+ * ou à chaque vérification de modération.
+ *
+ * Le cache est mis à jour par les endpoints qui modifient ces listes
+ * ({@code updateModerators}, {@code blockUser}, {@code unblockUser}, {@code updateRetention}) et invalidé à la
+ * demande de suppression ({@link ChannelPurgeService}) ; un salon masqué n'y est plus chargé. Chaque mise à jour
+ * ou invalidation est aussi publiée aux autres nœuds ({@link ClusterEvents}), qui retirent leur entrée et
+ * relisent le salon en base à la demande suivante.
+ *
+ * Un chargement concurrent d'une invalidation ne doit pas remettre en cache l'état qu'elle retire :
+ * chaque invalidation incrémente {@code generation}, et un chargement n'est gardé que si aucune
+ * invalidation n'a eu lieu depuis sa lecture en base.
+ */
+@Service
+@RequiredArgsConstructor
+public class ChannelAccessCache {
+
+    static final String INVALIDATE_EVENT = "channel-access.invalidate";
+
+    private final ChannelRepository channelRepository;
+    private final ClusterEvents clusterEvents;
+
+    private final ConcurrentHashMap<Long, ChannelAccess> entries = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    @PostConstruct
+    void subscribe() {
+        clusterEvents.subscribe(INVALIDATE_EVENT, Long.class, this::invalidateLocally);
+    }
+
+    public Optional<ChannelAccess> get(Long channelId) {
+        ChannelAccess access = entries.get(channelId);
+        if (access != null) {
+            hits.increment();
+            return Optional.of(access);
+        }
+        misses.increment();
+        long seen = generation.get();
+        return channelRepository.findWithAccessListsById(channelId)
+                // Un salon en cours de suppression est traité comme inexistant
+                .filter(channel -> !channel.isDeleted())
+                .map(ChannelAccess::of)
+                .map(loaded -> {
+                    // Ne pas écraser une mise à jour concurrente plus récente, ni annuler une invalidation
+                    ChannelAccess cached = entries.compute(channelId, (id, current) ->
+                            current != null ? current : generation.get() == seen ? loaded : null);
+                    return cached != null ? cached : loaded;
+                });
+    }
+
+    public boolean exists(Long channelId) {
+        return get(channelId).isPresent();
+    }
+
+    public boolean isBlocked(Long channelId, String username) {
+        return get(channelId).map(access -> access.isBlocked(username)).orElse(false);
+    }
+
+    public boolean isModerator(Long channelId, String username) {
+        return get(channelId).map(access -> access.isModerator(username)).orElse(false);
+    }
+
+    public boolean isAdmin(Long channelId, String username) {
+        return get(channelId).map(access -> access.isAdmin(username)).orElse(false);
+    }
+
+    public boolean canModerateMessages(Long channelId, String username) {
+        return get(channelId).map(access -> access.canModerateMessages(username)).orElse(false);
+    }
+
+    // Remplace l'entrée par l'état du salon qui vient d'être sauvegardé ; les autres nœuds le relisent en base
+    public void update(Channel channel) {
+        generation.incrementAndGet();
+        entries.put(channel.getId(), ChannelAccess.of(channel));
+        clusterEvents.publish(INVALIDATE_EVENT, channel.getId());
+    }
+
+    public void invalidate(Long channelId) {
+        invalidateLocally(channelId);
+        clusterEvents.publish(INVALIDATE_EVENT, channelId);
+    }
+
+    // Incrément avant le retrait : un chargement entre les deux n'est pas gardé
+    private void invalidateLocally(Long channelId) {
+        generation.incrementAndGet();
+        entries.remove(channelId);
+    }
+
+    public CacheStats stats() {
+        return new CacheStats(hits.sum(), misses.sum(), entries.size());
+    }
+
+    // Instantané immuable des droits d'un salon
+    public record ChannelAccess(Long channelId, String creatorUsername,
+                                Set<String> moderatorUsernames, Set<String> blockedUsernames,
+                                int retentionDays) {
+
+        static ChannelAccess of(Channel channel) {
+            return new ChannelAccess(
+                    channel.getId(),
+                    channel.getCreatorUsername(),
+                    Set.copyOf(channel.getModeratorUsernames()),
+                    Set.copyOf(channel.getBlockedUsernames()),
+                    channel.getRetentionDays());
+        }
+
+        public boolean isAdmin(String username) {
+            return creatorUsername.equals(username);
+        }
+
+        public boolean isModerator(String username) {
+            return moderatorUsernames.contains(username);
+        }
+
+        public boolean canModerateMessages(String username) {
+            return isAdmin(username) || isModerator(username);
+        }
+
+        public boolean isBlocked(String username) {
+            return blockedUsernames.contains(username);
+        }
+    }
+
+    public record CacheStats(long hits, long misses, int size) {}
+}
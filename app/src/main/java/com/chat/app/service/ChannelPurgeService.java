@@ -0,0 +1,193 @@
+package com.chat.app.service;
+
+import com.chat.app.archive.MessageArchive;
+import com.chat.app.model.Channel;
+import com.chat.app.model.ChannelPurgeJob;
+import com.chat.app.model.ChannelPurgeJob.Status;
+import com.chat.app.repository.ChannelPurgeJobRepository;
+import com.chat.app.repository.ChannelRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PreDestroy;
+
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Suppression asynchrone des salons. La demande masque le salon immédiatement (deletedAt) et
+ * enregistre une tâche ; un thread dédié supprime ensuite les messages par lots de
+ * {@code chat.channel-purge.batch-size}, chaque lot dans sa propre transaction courte, avec une pause
+ * de {@code chat.channel-purge.pause-ms} entre deux lots pour limiter les verrous et le volume de WAL.
+ * Le salon lui-même est supprimé quand il n'a plus de messages, puis son archive ({@link MessageArchive}).
+ *
+ * Les tâches non terminées sont reprises au démarrage : un lot est idempotent, la purge repart
+ * simplement des messages restants. Les tâches sont traitées une à la fois.
+ */
+@Service
+@Slf4j
+public class ChannelPurgeService {
+
+    // Lot borné par la clé primaire : verrous et WAL limités à batch-size lignes par transaction
+    private static final String DELETE_BATCH_SQL =
+            "DELETE FROM messages WHERE id IN (SELECT id FROM messages WHERE channel_id = ? LIMIT ?)";
+
+    private final ChannelRepository channelRepository;
+    private final ChannelPurgeJobRepository jobRepository;
+    private final ChannelAccessCache channelAccessCache;
+    private final HotHistoryCache hotHistoryCache;
+    private final MessageArchive messageArchive;
+    private final ReadMarkerService readMarkerService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final long pauseMs;
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "channel-purge");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ChannelPurgeService(ChannelRepository channelRepository,
+                               ChannelPurgeJobRepository jobRepository,
+                               ChannelAccessCache channelAccessCache,
+                               HotHistoryCache hotHistoryCache,
+                               MessageArchive messageArchive,
+                               ReadMarkerService readMarkerService,
+                               JdbcTemplate jdbcTemplate,
+                               TransactionTemplate transactionTemplate,
+                               @Value("${chat.channel-purge.batch-size:5000}") int batchSize,
+                               @Value("${chat.channel-purge.pause-ms:100}") long pauseMs) {
+        this.channelRepository = channelRepository;
+        this.jobRepository = jobRepository;
+        this.channelAccessCache = channelAccessCache;
+        this.hotHistoryCache = hotHistoryCache;
+        this.messageArchive = messageArchive;
+        this.readMarkerService = readMarkerService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.pauseMs = pauseMs;
+    }
+
+    /** Masque le salon et planifie la purge de ses messages ; la tâche démarre après le commit. */
+    @Transactional
+    public ChannelPurgeJob requestPurge(Channel channel, String requestedBy) {
+        channel.setDeletedAt(LocalDateTime.now());
+        channelRepository.save(channel);
+
+        ChannelPurgeJob job = new ChannelPurgeJob();
+        job.setChannelId(channel.getId());
+        job.setChannelName(channel.getName());
+        job.setRequestedBy(requestedBy);
+        ChannelPurgeJob saved = jobRepository.save(job);
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                // Après le commit : avant, un chargement concurrent relirait le salon encore visible
+                channelAccessCache.invalidate(channel.getId());
+                hotHistoryCache.evict(HotHistoryCache.channelKey(channel.getId()));
+                schedule(saved.getId());
+            }
+        });
+        return saved;
+    }
+
+    public Optional<ChannelPurgeJob> find(Long jobId) {
+        return jobRepository.findById(jobId);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeUnfinished() {
+        for (ChannelPurgeJob job : jobRepository.findByStatusInOrderByIdAsc(EnumSet.of(Status.PENDING, Status.RUNNING))) {
+            log.info("Reprise de la purge du salon {} (tâche {}, {} messages déjà supprimés)",
+                    job.getChannelId(), job.getId(), job.getDeletedMessages());
+            schedule(job.getId());
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        // Interrompt la pause entre deux lots ; la tâche reste RUNNING et sera reprise au démarrage
+        worker.shutdownNow();
+    }
+
+    private void schedule(Long jobId) {
+        worker.execute(() -> run(jobId));
+    }
+
+    private void run(Long jobId) {
+        ChannelPurgeJob job = jobRepository.findById(jobId).orElse(null);
+        if (job == null || job.getStatus() == Status.COMPLETED || job.getStatus() == Status.FAILED) {
+            return;
+        }
+        Long channelId = job.getChannelId();
+        try {
+            if (job.getStatus() == Status.PENDING) {
+                job.setTotalMessages(jdbcTemplate.queryForObject(
+                        "SELECT COUNT(*) FROM messages WHERE channel_id = ?", Long.class, channelId));
+                job.setStatus(Status.RUNNING);
+                job = save(job);
+            }
+            long started = System.nanoTime();
+            while (!Thread.currentThread().isInterrupted()) {
+                int deleted = jdbcTemplate.update(DELETE_BATCH_SQL, channelId, batchSize);
+                if (deleted > 0) {
+                    job.setDeletedMessages(job.getDeletedMessages() + deleted);
+                    job = save(job);
+                    Thread.sleep(pauseMs);
+                } else if (deleteChannel(channelId)) {
+                    break;
+                }
+                // Sinon un message est arrivé entre le dernier lot et la suppression : on reprend
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            messageArchive.delete(MessageArchive.channelStream(channelId));
+            readMarkerService.forget(ReadMarkerService.channelConversation(channelId));
+            job.setStatus(Status.COMPLETED);
+            job.setCompletedAt(LocalDateTime.now());
+            save(job);
+            log.info("Salon {} supprimé : {} messages purgés en {} ms", channelId, job.getDeletedMessages(),
+                    (System.nanoTime() - started) / 1_000_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.error("Échec de la purge du salon {} (tâche {})", channelId, jobId, e);
+            job.setStatus(Status.FAILED);
+            job.setError(e.getMessage() != null && e.getMessage().length() > 1000
+                    ? e.getMessage().substring(0, 1000) : e.getMessage());
+            save(job);
+        }
+    }
+
+    // Supprime le salon (et ses listes de modérateurs/bloqués) ; false si des messages restent
+    private boolean deleteChannel(Long channelId) {
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    channelRepository.findById(channelId).ifPresent(channelRepository::delete));
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            return false;
+        }
+    }
+
+    private ChannelPurgeJob save(ChannelPurgeJob job) {
+        job.setUpdatedAt(LocalDateTime.now());
+        return jobRepository.save(job);
+    }
+}
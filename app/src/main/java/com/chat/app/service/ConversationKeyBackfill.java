@@ -0,0 +1,108 @@
+package com.chat.app.service;
+
+import com.chat.app.retention.MessagePartitionManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Renseigne messages.conversation_key pour les messages privés écrits avant son introduction.
+ * Le parcours se fait par tranches d'id (clé primaire), en arrière-plan après le démarrage ;
+ * les nouveaux messages reçoivent leur clé à l'insertion. Tant que le rattrapage n'est pas
+ * terminé, l'historique des conversations reste lu par paire expéditeur/destinataire.
+ * Sous PostgreSQL, un index partiel sur les seuls messages privés sans clé (vide une fois le
+ * rattrapage fait) évite de reparcourir la table à chaque démarrage pour le constater.
+ */
+@Component
+@Slf4j
+public class ConversationKeyBackfill {
+
+    private static final String MISSING_KEY_INDEX = "idx_messages_conversation_key_missing";
+    private static final String MISSING_KEY = "recipient_id IS NOT NULL AND conversation_key IS NULL";
+    private static final String FIRST_MISSING_SQL =
+            "SELECT MIN(id) FROM messages WHERE " + MISSING_KEY;
+    private static final String BACKFILL_SQL =
+            "UPDATE messages SET conversation_key = " +
+            "CAST(LEAST(sender_id, recipient_id) AS VARCHAR(20)) || ':' || CAST(GREATEST(sender_id, recipient_id) AS VARCHAR(20)) " +
+            "WHERE id >= ? AND id < ? AND " + MISSING_KEY;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MessagePartitionManager partitionManager;
+    private final int batchSize;
+    private volatile boolean complete;
+
+    public ConversationKeyBackfill(JdbcTemplate jdbcTemplate,
+                                   MessagePartitionManager partitionManager,
+                                   @Value("${chat.history.conversation-backfill.batch-size:10000}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.partitionManager = partitionManager;
+        this.batchSize = batchSize;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        Thread thread = new Thread(this::run, "conversation-key-backfill");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    void run() {
+        try {
+            if (isPostgres()) {
+                createMissingKeyIndex();
+            }
+            Long firstId = jdbcTemplate.queryForObject(FIRST_MISSING_SQL, Long.class);
+            if (firstId != null) {
+                // Les messages insérés après ce point ont déjà leur clé
+                Long lastId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM messages", Long.class);
+                log.info("Rattrapage de conversation_key pour les messages {} à {}", firstId, lastId);
+                long updated = 0;
+                for (long from = firstId; from <= lastId; from += batchSize) {
+                    updated += jdbcTemplate.update(BACKFILL_SQL, from, from + batchSize);
+                }
+                log.info("Rattrapage de conversation_key terminé : {} messages privés mis à jour", updated);
+            }
+            complete = true;
+        } catch (RuntimeException e) {
+            log.error("Rattrapage de conversation_key interrompu, l'historique reste lu par paire d'utilisateurs", e);
+        }
+    }
+
+    // Construit une seule fois (parcours unique de la table), ensuite tenu à jour par la base ;
+    // CONCURRENTLY n'est pas accepté sur une table partitionnée
+    private void createMissingKeyIndex() {
+        try {
+            String concurrently = partitionManager.isPartitioned() ? "" : "CONCURRENTLY ";
+            // Un CREATE INDEX CONCURRENTLY interrompu laisse un index INVALID, que IF NOT EXISTS garderait
+            List<Boolean> valid = jdbcTemplate.queryForList(
+                    "SELECT i.indisvalid FROM pg_index i WHERE i.indexrelid = to_regclass(?)", Boolean.class, MISSING_KEY_INDEX);
+            if (!valid.isEmpty() && !valid.get(0)) {
+                jdbcTemplate.execute("DROP INDEX " + concurrently + "IF EXISTS " + MISSING_KEY_INDEX);
+            }
+            jdbcTemplate.execute("CREATE INDEX " + concurrently + "IF NOT EXISTS " + MISSING_KEY_INDEX +
+                    " ON messages (id) WHERE " + MISSING_KEY);
+        } catch (RuntimeException e) {
+            // Le rattrapage reste possible, au prix d'un parcours de la table
+            log.warn("Création de l'index {} impossible : {}", MISSING_KEY_INDEX, e.getMessage());
+        }
+    }
+
+    private boolean isPostgres() {
+        try (Connection connection = jdbcTemplate.getDataSource().getConnection()) {
+            return "PostgreSQL".equalsIgnoreCase(connection.getMetaData().getDatabaseProductName());
+        } catch (SQLException | RuntimeException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.chat.app.service;
+
+import com.chat.app.dto.MessageDto;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tampon circulaire des derniers messages d'un salon (ou du chat public), trié par (timestamp, id).
+ *
+ * Invariant : une fois chauffé, le tampon contient tous les messages postérieurs à son plus ancien
+ * élément. {@code complete} indique en plus qu'il contient tout l'historique de la conversation.
+ */
+class HotHistoryBuffer {
+
+    static final Comparator<MessageDto> ORDER =
+            Comparator.comparing(MessageDto::timestamp).thenComparing(MessageDto::id);
+
+    private final MessageDto[] ring;
+    private int head; // index du plus ancien élément
+    private int size;
+    private boolean warm;
+    private boolean complete;
+
+    HotHistoryBuffer(int capacity) {
+        this.ring = new MessageDto[capacity];
+    }
+
+    synchronized boolean isWarm() {
+        return warm;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Ajoute un nouveau message. Les envois concurrents peuvent arriver légèrement désordonnés :
+     * on insère donc à sa place en partant de la fin.
+     */
+    synchronized void append(MessageDto message) {
+        int position = size;
+        while (position > 0 && ORDER.compare(get(position - 1), message) > 0) {
+            position--;
+        }
+        if (size == ring.length) {
+            if (position == 0) {
+                return; // plus ancien que tout le tampon : hors de la fenêtre chaude
+            }
+            // Évince le plus ancien
+            ring[head] = null;
+            head = (head + 1) % ring.length;
+            size--;
+            position--;
+            complete = false;
+        }
+        for (int i = size; i > position; i--) {
+            set(i, get(i - 1));
+        }
+        set(position, message);
+        size++;
+    }
+
+    synchronized boolean remove(Long messageId) {
+        int index = indexOf(messageId);
+        if (index < 0) {
+            return false;
+        }
+        for (int i = index; i < size - 1; i++) {
+            set(i, get(i + 1));
+        }
+        set(size - 1, null);
+        size--;
+        return true;
+    }
+
+    /**
+     * Fusionne les derniers messages lus en base avec ceux ajoutés pendant la lecture.
+     * {@code complete} : la base a renvoyé moins de messages que la capacité.
+     */
+    synchronized void seed(List<MessageDto> latestAscending, boolean complete) {
+        Map<Long, MessageDto> merged = new LinkedHashMap<>();
+        for (MessageDto message : latestAscending) {
+            merged.put(message.id(), message);
+        }
+        for (int i = 0; i < size; i++) {
+            merged.put(get(i).id(), get(i));
+        }
+        List<MessageDto> sorted = new ArrayList<>(merged.values());
+        sorted.sort(ORDER);
+        int from = Math.max(0, sorted.size() - ring.length);
+        Arrays.fill(ring, null);
+        head = 0;
+        size = 0;
+        for (int i = from; i < sorted.size(); i++) {
+            ring[size++] = sorted.get(i);
+        }
+        this.complete = complete && from == 0;
+        this.warm = true;
+    }
+
+    // Les {@code limit} derniers messages, ou null si le tampon ne peut pas répondre seul
+    synchronized List<MessageDto> latest(int limit) {
+        if (!warm || (size < limit && !complete)) {
+            return null;
+        }
+        return slice(Math.max(0, size - limit), size);
+    }
+
+    synchronized List<MessageDto> before(Long messageId, int limit) {
+        if (!warm) {
+            return null;
+        }
+        int index = indexOf(messageId);
+        if (index < 0 || (index < limit && !complete)) {
+            return null;
+        }
+        return slice(Math.max(0, index - limit), index);
+    }
+
+    synchronized List<MessageDto> after(Long messageId, int limit) {
+        if (!warm) {
+            return null;
+        }
+        int index = indexOf(messageId);
+        if (index < 0) {
+            return null;
+        }
+        return slice(index + 1, Math.min(size, index + 1 + limit));
+    }
+
+    private List<MessageDto> slice(int from, int to) {
+        List<MessageDto> result = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            result.add(get(i));
+        }
+        return result;
+    }
+
+    private int indexOf(Long messageId) {
+        for (int i = size - 1; i >= 0; i--) {
+            if (get(i).id().equals(messageId)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private MessageDto get(int logicalIndex) {
+        return ring[(head + logicalIndex) % ring.length];
+    }
+
+    private void set(int logicalIndex, MessageDto message) {
+        ring[(head + logicalIndex) % ring.length] = message;
+    }
+}
@@ -0,0 +1,248 @@
+package com.chat.app.service;
+
+import com.chat.app.cluster.ClusterEvents;
+import com.chat.app.dto.MessageDto;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Historique "chaud" : un tampon circulaire par salon plus un pour le chat public.
+ * Les tampons sont chauffés à la première lecture de l'historique puis alimentés par
+ * {@code sendMessage} ; les pages plus anciennes continuent d'être lues en base.
+ *
+ * La mémoire est bornée globalement ({@code max-messages}) : au-delà de
+ * {@code max-messages / capacity} tampons, le moins récemment utilisé est évincé.
+ *
+ * Un message ajouté juste avant la création d'un tampon peut ne pas encore être visible en base
+ * quand le tampon est chauffé (transaction de l'envoi ou write-behind pas encore validés) : les ajouts
+ * des {@code recent-window-ms} dernières millisecondes sont donc gardés et fusionnés au chauffage.
+ *
+ * Ajouts, retraits et évictions sont publiés aux autres nœuds ({@link ClusterEvents}) et y sont
+ * appliqués localement : un message envoyé sur un nœud apparaît dans les tampons de tous.
+ */
+@Service
+public class HotHistoryCache {
+
+    public static final String PUBLIC_KEY = "public";
+
+    private static final int MAX_RECENT = 10_000;
+    static final String APPEND_EVENT = "hot-history.append";
+    static final String REMOVE_EVENT = "hot-history.remove";
+    static final String EVICT_EVENT = "hot-history.evict";
+    static final String EVICT_ALL_EVENT = "hot-history.evict-all";
+
+    private final ClusterEvents clusterEvents;
+    private final int capacity;
+    private final long recentWindowNanos;
+    private final Map<String, HotHistoryBuffer> buffers;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    // Derniers ajouts, tous tampons confondus, du plus ancien au plus récent ; protégé par synchronized(recent)
+    private final ArrayDeque<RecentAppend> recent = new ArrayDeque<>();
+
+    public HotHistoryCache(
+            ClusterEvents clusterEvents,
+            @Value("${chat.history.hot.capacity:200}") int capacity,
+            @Value("${chat.history.hot.max-messages:100000}") int maxMessages,
+            @Value("${chat.history.hot.recent-window-ms:5000}") long recentWindowMs) {
+        this.clusterEvents = clusterEvents;
+        this.capacity = Math.max(1, capacity);
+        this.recentWindowNanos = TimeUnit.MILLISECONDS.toNanos(recentWindowMs);
+        int maxBuffers = Math.max(1, maxMessages / this.capacity);
+        // LinkedHashMap en ordre d'accès = LRU ; accès protégés par synchronized(buffers)
+        this.buffers = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, HotHistoryBuffer> eldest) {
+                return size() > maxBuffers;
+            }
+        };
+    }
+
+    @PostConstruct
+    void subscribe() {
+        clusterEvents.subscribe(APPEND_EVENT, AppendEvent.class, event -> appendLocally(event.key(), event.message()));
+        clusterEvents.subscribe(REMOVE_EVENT, RemoveEvent.class, event -> removeLocally(event.key(), event.messageId()));
+        clusterEvents.subscribe(EVICT_EVENT, String.class, this::evictLocally);
+        clusterEvents.subscribe(EVICT_ALL_EVENT, Boolean.class, ignored -> evictAllLocally());
+    }
+
+    public static String channelKey(Long channelId) {
+        return "channel:" + channelId;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    // N'alimente que les tampons existants : un tampon froid sera chauffé depuis la base (et les ajouts récents)
+    public void append(String key, MessageDto message) {
+        appendLocally(key, message);
+        clusterEvents.publish(APPEND_EVENT, new AppendEvent(key, message));
+    }
+
+    public void remove(String key, Long messageId) {
+        removeLocally(key, messageId);
+        clusterEvents.publish(REMOVE_EVENT, new RemoveEvent(key, messageId));
+    }
+
+    public void evict(String key) {
+        evictLocally(key);
+        clusterEvents.publish(EVICT_EVENT, key);
+    }
+
+    public void evictAll() {
+        evictAllLocally();
+        clusterEvents.publish(EVICT_ALL_EVENT, Boolean.TRUE);
+    }
+
+    private void appendLocally(String key, MessageDto message) {
+        long now = System.nanoTime();
+        synchronized (recent) {
+            recent.addLast(new RecentAppend(key, message, now));
+            while (recent.size() > MAX_RECENT || now - recent.peekFirst().appendedAt() > recentWindowNanos) {
+                recent.removeFirst();
+            }
+        }
+        HotHistoryBuffer buffer = find(key);
+        if (buffer != null) {
+            buffer.append(message);
+        }
+    }
+
+    private void removeLocally(String key, Long messageId) {
+        synchronized (recent) {
+            recent.removeIf(append -> append.key().equals(key) && append.message().id().equals(messageId));
+        }
+        HotHistoryBuffer buffer = find(key);
+        if (buffer != null) {
+            buffer.remove(messageId);
+        }
+    }
+
+    private void evictLocally(String key) {
+        synchronized (recent) {
+            recent.removeIf(append -> append.key().equals(key));
+        }
+        synchronized (buffers) {
+            buffers.remove(key);
+        }
+    }
+
+    private void evictAllLocally() {
+        synchronized (buffers) {
+            buffers.clear();
+        }
+    }
+
+    /**
+     * Sert une page depuis le tampon si possible. Sans curseur et sur un tampon froid,
+     * le tampon est chauffé avec les {@code capacity} derniers messages fournis par {@code loader}.
+     */
+    public Optional<List<MessageDto>> read(String key, Long before, Long after, int limit,
+                                           Supplier<List<MessageDto>> loader) {
+        if (limit > capacity) {
+            misses.increment();
+            return Optional.empty();
+        }
+        HotHistoryBuffer buffer = find(key);
+        if (buffer == null || !buffer.isWarm()) {
+            if (before != null || after != null) {
+                misses.increment();
+                return Optional.empty();
+            }
+            buffer = warm(key, loader);
+            misses.increment();
+            return Optional.ofNullable(buffer.latest(limit));
+        }
+        List<MessageDto> page;
+        if (after != null) {
+            page = buffer.after(after, limit);
+        } else if (before != null) {
+            page = buffer.before(before, limit);
+        } else {
+            page = buffer.latest(limit);
+        }
+        if (page == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        return Optional.of(page);
+    }
+
+    public HotHistoryStats stats() {
+        int bufferCount;
+        long messages = 0;
+        synchronized (buffers) {
+            bufferCount = buffers.size();
+            for (HotHistoryBuffer buffer : buffers.values()) {
+                messages += buffer.size();
+            }
+        }
+        return new HotHistoryStats(hits.sum(), misses.sum(), bufferCount, messages);
+    }
+
+    private HotHistoryBuffer find(String key) {
+        synchronized (buffers) {
+            return buffers.get(key);
+        }
+    }
+
+    private HotHistoryBuffer warm(String key, Supplier<List<MessageDto>> loader) {
+        // Le tampon est enregistré avant la lecture en base pour capter les envois concurrents
+        HotHistoryBuffer buffer;
+        synchronized (buffers) {
+            buffer = buffers.computeIfAbsent(key, k -> new HotHistoryBuffer(capacity));
+        }
+        try {
+            List<MessageDto> latest = loader.get();
+            // Les ajouts faits pendant la lecture sont déjà dans le tampon ; ceux d'avant sa création
+            // viennent du journal des ajouts récents (seed dédoublonne par id et trie par (timestamp, id))
+            List<MessageDto> merged = new ArrayList<>(latest);
+            merged.addAll(recentAppends(key));
+            buffer.seed(merged, latest.size() < capacity);
+        } catch (RuntimeException e) {
+            evictLocally(key);
+            throw e;
+        }
+        return buffer;
+    }
+
+    private List<MessageDto> recentAppends(String key) {
+        List<MessageDto> messages = new ArrayList<>();
+        synchronized (recent) {
+            Iterator<RecentAppend> iterator = recent.descendingIterator();
+            long now = System.nanoTime();
+            while (iterator.hasNext()) {
+                RecentAppend append = iterator.next();
+                if (now - append.appendedAt() > recentWindowNanos) {
+                    break;
+                }
+                if (append.key().equals(key)) {
+                    messages.add(append.message());
+                }
+            }
+        }
+        return messages;
+    }
+
+    record AppendEvent(String key, MessageDto message) {}
+
+    record RemoveEvent(String key, Long messageId) {}
+
+    private record RecentAppend(String key, MessageDto message, long appendedAt) {}
+
+    public record HotHistoryStats(long hits, long misses, int buffers, long messages) {}
+}
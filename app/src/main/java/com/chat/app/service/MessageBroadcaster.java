@@ -0,0 +1,69 @@
+package com.chat.app.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.util.StringUtils;
+
+import java.util.Map;
+
+/**
+ * Diffusion d'un payload sérialisé une seule fois. {@code convertAndSend} relance la conversion Jackson
+ * à chaque appel (deux fois pour un message privé) ; ici le JSON est produit une fois puis le même
+ * tableau d'octets est envoyé à chaque destination. Le SimpleBroker le partage entre les sessions
+ * abonnées et {@link com.chat.app.cluster.ClusterBrokerRelay} le publie tel quel aux autres nœuds.
+ *
+ * Le tableau ne doit plus être modifié une fois encodé.
+ */
+@Service
+public class MessageBroadcaster {
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final ObjectMapper objectMapper;
+
+    // Mêmes en-têtes que MappingJackson2MessageConverter : les clients désérialisent à l'identique
+    private static final Map<String, Object> JSON_HEADERS =
+            Map.of(MessageHeaders.CONTENT_TYPE, MimeTypeUtils.APPLICATION_JSON);
+
+    public MessageBroadcaster(SimpMessagingTemplate messagingTemplate, ObjectMapper objectMapper) {
+        this.messagingTemplate = messagingTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    /** Encode le payload en JSON ; le message obtenu est immuable et réutilisable pour plusieurs envois. */
+    public Message<byte[]> encode(Object payload) {
+        try {
+            return MessageBuilder.createMessage(objectMapper.writeValueAsBytes(payload), new MessageHeaders(JSON_HEADERS));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Payload non sérialisable: " + payload.getClass(), e);
+        }
+    }
+
+    /** Sérialise une fois et diffuse sur un topic. */
+    public void sendToTopic(String destination, Object payload) {
+        send(destination, encode(payload));
+    }
+
+    /** Sérialise une fois et envoie la même charge sur {@code destination} de chaque utilisateur. */
+    public void sendToUsers(String destination, Object payload, String... usernames) {
+        Message<byte[]> encoded = encode(payload);
+        for (String username : usernames) {
+            sendToUser(username, destination, encoded);
+        }
+    }
+
+    public void send(String destination, Message<byte[]> encoded) {
+        // En-têtes immuables : le template recopie les en-têtes, pas le payload
+        messagingTemplate.send(destination, encoded);
+    }
+
+    public void sendToUser(String username, String destination, Message<byte[]> encoded) {
+        // Même construction de destination que SimpMessagingTemplate#convertAndSendToUser
+        send(messagingTemplate.getUserDestinationPrefix() + StringUtils.replace(username, "/", "%2F") + destination, encoded);
+    }
+}
@@ -0,0 +1,90 @@
+package com.chat.app.service;
+
+import com.chat.app.archive.MessageArchive;
+import com.chat.app.dto.MessageDto;
+import com.chat.app.model.Message;
+import com.chat.app.repository.MessageRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Export complet de l'historique d'un salon ou d'une conversation au format NDJSON
+ * (un message JSON par ligne, du plus ancien au plus récent).
+ * Les lignes sont lues par curseur serveur et écrites au fil de l'eau dans le flux de sortie :
+ * la mémoire utilisée ne dépend pas de la taille de l'historique. Pour un salon, les messages
+ * archivés ({@link MessageArchive}) précèdent ceux de la base, bloc par bloc.
+ */
+@Service
+@Slf4j
+public class MessageExportService {
+
+    private final MessageRepository messageRepository;
+    private final ConversationKeyBackfill conversationKeyBackfill;
+    private final MessageArchive messageArchive;
+    private final ObjectMapper objectMapper;
+    // Pas de flush après chaque message : c'est le tampon de la réponse qui décide des envois
+    private final ObjectWriter messageWriter;
+
+    public MessageExportService(MessageRepository messageRepository,
+                                ConversationKeyBackfill conversationKeyBackfill,
+                                MessageArchive messageArchive,
+                                ObjectMapper objectMapper) {
+        this.messageRepository = messageRepository;
+        this.conversationKeyBackfill = conversationKeyBackfill;
+        this.messageArchive = messageArchive;
+        this.objectMapper = objectMapper;
+        this.messageWriter = objectMapper.writerFor(MessageDto.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    /** Écrit l'historique du salon dans {@code out} (non fermé) ; renvoie le nombre de messages. */
+    @Transactional(readOnly = true)
+    public long exportChannel(Long channelId, OutputStream out) throws IOException {
+        try (Stream<MessageDto> messages = Stream.concat(
+                messageArchive.stream(MessageArchive.channelStream(channelId)),
+                messageRepository.streamChannelExport(channelId))) {
+            long count = writeNdjson(messages, out);
+            log.info("Export du salon {} : {} messages", channelId, count);
+            return count;
+        }
+    }
+
+    /** Écrit la conversation privée entre les deux utilisateurs dans {@code out} (non fermé). */
+    @Transactional(readOnly = true)
+    public long exportConversation(Long userId1, Long userId2, OutputStream out) throws IOException {
+        try (Stream<MessageDto> messages = conversationKeyBackfill.isComplete()
+                ? messageRepository.streamConversationKeyExport(Message.conversationKey(userId1, userId2))
+                : messageRepository.streamConversationExport(userId1, userId2)) {
+            long count = writeNdjson(messages, out);
+            log.info("Export de la conversation {} : {} messages", Message.conversationKey(userId1, userId2), count);
+            return count;
+        }
+    }
+
+    private long writeNdjson(Stream<MessageDto> messages, OutputStream out) throws IOException {
+        long count = 0;
+        try (JsonGenerator generator = objectMapper.createGenerator(out)) {
+            // Le flux appartient à l'appelant (compression éventuelle à terminer)
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // Séparateur de valeurs racines : saut de ligne explicite au lieu de l'espace par défaut
+            generator.setRootValueSeparator(null);
+            Iterator<MessageDto> iterator = messages.iterator();
+            while (iterator.hasNext()) {
+                messageWriter.writeValue(generator, iterator.next());
+                generator.writeRaw('\n');
+                count++;
+            }
+        }
+        return count;
+    }
+}
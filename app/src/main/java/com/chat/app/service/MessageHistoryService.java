@@ -0,0 +1,267 @@
+package com.chat.app.service;
+
+import com.chat.app.archive.MessageArchive;
+import com.chat.app.dto.MessageDto;
+import com.chat.app.model.Message;
+import com.chat.app.repository.MessageRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+
+/**
+ * Lecture paginée de l'historique par curseur (keyset) sur (timestamp, id).
+ * Chaque page est une lecture d'intervalle sur un index composite : le coût ne dépend
+ * que de la taille de la page, pas de la profondeur dans l'historique.
+ * Les pages sont toujours renvoyées dans l'ordre chronologique (plus ancien en premier).
+ * Un curseur inconnu (message inexistant ou supprimé) lève {@link NoSuchElementException} :
+ * sa position dans l'historique n'est plus connue.
+ * Pour les salons et le chat public, les pages récentes sont servies par {@link HotHistoryCache},
+ * et les pages qui dépassent les messages restant en base sont complétées par {@link MessageArchive}.
+ */
+@Service
+@RequiredArgsConstructor
+public class MessageHistoryService {
+
+    private final MessageRepository messageRepository;
+    private final HotHistoryCache hotHistoryCache;
+    private final ConversationKeyBackfill conversationKeyBackfill;
+    private final MessageArchive messageArchive;
+
+    @Value("${chat.history.default-limit:50}")
+    private int defaultLimit;
+
+    @Value("${chat.history.max-limit:200}")
+    private int maxLimit;
+
+    public List<MessageDto> channelHistory(Long channelId, Long before, Long after, Integer limit) {
+        checkCursors(before, after);
+        String archive = MessageArchive.channelStream(channelId);
+        return hotHistoryCache.read(HotHistoryCache.channelKey(channelId), before, after, resolveLimit(limit),
+                        () -> latest(archive, pageable -> messageRepository.findChannelLatest(channelId, pageable),
+                                hotHistoryCache.capacity()))
+                .orElseGet(() -> channelHistoryFromDatabase(channelId, before, after, limit));
+    }
+
+    private List<MessageDto> channelHistoryFromDatabase(Long channelId, Long before, Long after, Integer limit) {
+        return page(MessageArchive.channelStream(channelId), before, after, limit,
+                pageable -> messageRepository.findChannelLatest(channelId, pageable),
+                (ts, id, pageable) -> messageRepository.findChannelBefore(channelId, ts, id, pageable),
+                (ts, id, pageable) -> messageRepository.findChannelAfter(channelId, ts, id, pageable));
+    }
+
+    public List<MessageDto> conversationHistory(Long userId1, Long userId2, Long before, Long after, Integer limit) {
+        if (conversationKeyBackfill.isComplete()) {
+            String key = Message.conversationKey(userId1, userId2);
+            return page(null, before, after, limit,
+                    pageable -> messageRepository.findConversationKeyLatest(key, pageable),
+                    (ts, id, pageable) -> messageRepository.findConversationKeyBefore(key, ts, id, pageable),
+                    (ts, id, pageable) -> messageRepository.findConversationKeyAfter(key, ts, id, pageable));
+        }
+        return page(null, before, after, limit,
+                pageable -> messageRepository.findConversationLatest(userId1, userId2, pageable),
+                (ts, id, pageable) -> messageRepository.findConversationBefore(userId1, userId2, ts, id, pageable),
+                (ts, id, pageable) -> messageRepository.findConversationAfter(userId1, userId2, ts, id, pageable));
+    }
+
+    public List<MessageDto> publicHistory(Long before, Long after, Integer limit) {
+        checkCursors(before, after);
+        return hotHistoryCache.read(HotHistoryCache.PUBLIC_KEY, before, after, resolveLimit(limit),
+                        () -> latest(MessageArchive.PUBLIC_STREAM, messageRepository::findPublicLatest,
+                                hotHistoryCache.capacity()))
+                .orElseGet(() -> publicHistoryFromDatabase(before, after, limit));
+    }
+
+    private List<MessageDto> publicHistoryFromDatabase(Long before, Long after, Integer limit) {
+        return page(MessageArchive.PUBLIC_STREAM, before, after, limit,
+                messageRepository::findPublicLatest,
+                messageRepository::findPublicBefore,
+                messageRepository::findPublicAfter);
+    }
+
+    // --- Reprise après reconnexion : messages postérieurs au dernier message vu (voir StompResumeInterceptor) ---
+
+    public MissedMessages channelSince(Long channelId, Long afterId, int max) {
+        String key = HotHistoryCache.channelKey(channelId);
+        return since(afterId, max,
+                limit -> hotHistoryCache.read(key, null, afterId, limit,
+                        () -> latest(MessageArchive.channelStream(channelId),
+                                pageable -> messageRepository.findChannelLatest(channelId, pageable), hotHistoryCache.capacity())),
+                pageable -> messageRepository.findChannelLatest(channelId, pageable),
+                (ts, id, pageable) -> messageRepository.findChannelAfter(channelId, ts, id, pageable));
+    }
+
+    public MissedMessages publicSince(Long afterId, int max) {
+        return since(afterId, max,
+                limit -> hotHistoryCache.read(HotHistoryCache.PUBLIC_KEY, null, afterId, limit,
+                        () -> latest(MessageArchive.PUBLIC_STREAM, messageRepository::findPublicLatest,
+                                hotHistoryCache.capacity())),
+                messageRepository::findPublicLatest,
+                messageRepository::findPublicAfter);
+    }
+
+    public MissedMessages conversationSince(Long userId1, Long userId2, Long afterId, int max) {
+        if (conversationKeyBackfill.isComplete()) {
+            String key = Message.conversationKey(userId1, userId2);
+            return since(afterId, max, limit -> Optional.empty(),
+                    pageable -> messageRepository.findConversationKeyLatest(key, pageable),
+                    (ts, id, pageable) -> messageRepository.findConversationKeyAfter(key, ts, id, pageable));
+        }
+        return since(afterId, max, limit -> Optional.empty(),
+                pageable -> messageRepository.findConversationLatest(userId1, userId2, pageable),
+                (ts, id, pageable) -> messageRepository.findConversationAfter(userId1, userId2, ts, id, pageable));
+    }
+
+    /**
+     * Au plus {@code max} messages après {@code afterId}, en ordre chronologique. Si l'écart est plus grand,
+     * renvoie les {@code max} derniers (contigus au direct) et signale le trou par {@code truncated}.
+     */
+    private MissedMessages since(Long afterId, int max, HotQuery hot, LatestQuery latest, CursorQuery afterQuery) {
+        // Un message de plus que le maximum pour savoir si l'écart dépasse ; dernier message vu supprimé
+        // entre-temps : l'écart est inconnu, traité comme trop grand
+        List<MessageDto> missed = hot.find(max + 1).orElseGet(() -> messageRepository.findTimestampById(afterId)
+                .map(ts -> MessageDto.fromMessages(afterQuery.find(ts, afterId, PageRequest.of(0, max + 1))))
+                .orElse(null));
+        if (missed != null && missed.size() <= max) {
+            return new MissedMessages(missed, false);
+        }
+        List<Message> ascending = new ArrayList<>(latest.find(PageRequest.of(0, max)));
+        Collections.reverse(ascending);
+        return new MissedMessages(MessageDto.fromMessages(ascending), true);
+    }
+
+    public record MissedMessages(List<MessageDto> messages, boolean truncated) {}
+
+    public int resolveLimit(Integer limit) {
+        if (limit == null || limit <= 0) {
+            return defaultLimit;
+        }
+        return Math.min(limit, maxLimit);
+    }
+
+    private void checkCursors(Long before, Long after) {
+        if (before != null && after != null) {
+            throw new IllegalArgumentException("Les paramètres 'before' et 'after' sont exclusifs");
+        }
+    }
+
+    /**
+     * Page par curseur sur la base, complétée par l'archive du flux {@code archive} (null : pas d'archive)
+     * quand la page n'est pas pleine ou atteint des messages plus anciens que le dernier archivé.
+     */
+    private List<MessageDto> page(String archive, Long before, Long after, Integer limit,
+                                  LatestQuery latest, CursorQuery beforeQuery, CursorQuery afterQuery) {
+        checkCursors(before, after);
+        int size = resolveLimit(limit);
+        if (before == null && after == null) {
+            return latest(archive, latest, size);
+        }
+        Long cursor = after != null ? after : before;
+        LocalDateTime ts = cursorTimestamp(archive, cursor)
+                .orElseThrow(() -> new NoSuchElementException("Message de référence inconnu : " + cursor));
+        Pageable pageable = PageRequest.of(0, size);
+
+        if (after != null) {
+            // Lu directement en ordre croissant ; l'archive n'a rien après son dernier message
+            List<MessageDto> ascending = MessageDto.fromMessages(afterQuery.find(ts, after, pageable));
+            MessageArchive.Position archived = archivedUpTo(archive);
+            if (archived != null && compare(ts, after, archived) < 0) {
+                ascending = merge(ascending, messageArchive.after(archive, ts, after, size), CHRONOLOGICAL, size);
+            }
+            return ascending;
+        }
+        List<MessageDto> descending = MessageDto.fromMessages(beforeQuery.find(ts, before, pageable));
+        if (reachesArchive(descending, size, archive)) {
+            descending = merge(descending, messageArchive.before(archive, ts, before, size), CHRONOLOGICAL.reversed(), size);
+        }
+        return reverse(descending);
+    }
+
+    // Les {@code count} derniers messages, en ordre chronologique
+    private List<MessageDto> latest(String archive, LatestQuery latest, int count) {
+        List<MessageDto> descending = MessageDto.fromMessages(latest.find(PageRequest.of(0, count)));
+        if (reachesArchive(descending, count, archive)) {
+            descending = merge(descending, messageArchive.latest(archive, count), CHRONOLOGICAL.reversed(), count);
+        }
+        return reverse(descending);
+    }
+
+    private Optional<LocalDateTime> cursorTimestamp(String archive, Long messageId) {
+        Optional<LocalDateTime> ts = messageRepository.findTimestampById(messageId);
+        if (ts.isEmpty() && archive != null) {
+            return messageArchive.timestampOf(archive, messageId);
+        }
+        return ts;
+    }
+
+    // Page incomplète, ou dont le plus ancien message précède le dernier archivé
+    private boolean reachesArchive(List<MessageDto> descending, int size, String archive) {
+        MessageArchive.Position archived = archivedUpTo(archive);
+        if (archived == null) {
+            return false;
+        }
+        if (descending.size() < size) {
+            return true;
+        }
+        MessageDto oldest = descending.get(descending.size() - 1);
+        return compare(oldest.timestamp(), oldest.id(), archived) < 0;
+    }
+
+    private MessageArchive.Position archivedUpTo(String archive) {
+        return archive != null ? messageArchive.last(archive).orElse(null) : null;
+    }
+
+    private static final Comparator<MessageDto> CHRONOLOGICAL =
+            Comparator.comparing(MessageDto::timestamp).thenComparing(MessageDto::id);
+
+    private static int compare(LocalDateTime ts, Long id, MessageArchive.Position position) {
+        int byTime = ts.compareTo(position.timestamp());
+        return byTime != 0 ? byTime : Long.compare(id, position.id());
+    }
+
+    // Fusion de deux pages triées selon {@code order}, tronquée à {@code size}
+    private static List<MessageDto> merge(List<MessageDto> first, List<MessageDto> second,
+                                          Comparator<MessageDto> order, int size) {
+        List<MessageDto> merged = new ArrayList<>(Math.min(size, first.size() + second.size()));
+        int i = 0;
+        int j = 0;
+        while (merged.size() < size && (i < first.size() || j < second.size())) {
+            if (j == second.size() || (i < first.size() && order.compare(first.get(i), second.get(j)) <= 0)) {
+                merged.add(first.get(i++));
+            } else {
+                merged.add(second.get(j++));
+            }
+        }
+        return merged;
+    }
+
+    private static List<MessageDto> reverse(List<MessageDto> descending) {
+        List<MessageDto> ascending = new ArrayList<>(descending);
+        Collections.reverse(ascending);
+        return ascending;
+    }
+
+    @FunctionalInterface
+    private interface HotQuery {
+        Optional<List<MessageDto>> find(int limit);
+    }
+
+    @FunctionalInterface
+    private interface LatestQuery {
+        List<Message> find(Pageable pageable);
+    }
+
+    @FunctionalInterface
+    private interface CursorQuery {
+        List<Message> find(LocalDateTime ts, Long id, Pageable pageable);
+    }
+}
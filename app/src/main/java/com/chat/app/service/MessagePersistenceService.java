@@ -0,0 +1,34 @@
+package com.chat.app.service;
+
+import com.chat.app.metrics.MessagingMetrics;
+import com.chat.app.model.Message;
+import com.chat.app.repository.MessageRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+
+/**
+ * Point d'entrée unique pour persister un message envoyé par STOMP.
+ * Par défaut le message est sauvegardé de manière synchrone ; lorsque
+ * {@code chat.persistence.write-behind.enabled=true} il est confié au
+ * {@link MessageWriteBehindWriter} et la diffusion n'attend plus le commit.
+ */
+@Service
+@RequiredArgsConstructor
+public class MessagePersistenceService {
+
+    private final MessageRepository messageRepository;
+    private final Optional<MessageWriteBehindWriter> writeBehindWriter;
+    private final MessagingMetrics messagingMetrics;
+
+    public Message persist(Message message) {
+        return messagingMetrics.timePersist(isWriteBehind(), () -> writeBehindWriter
+                .map(writer -> writer.enqueue(message))
+                .orElseGet(() -> messageRepository.save(message)));
+    }
+
+    public boolean isWriteBehind() {
+        return writeBehindWriter.isPresent();
+    }
+}
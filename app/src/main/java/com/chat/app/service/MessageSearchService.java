@@ -0,0 +1,223 @@
+package com.chat.app.service;
+
+import com.chat.app.dto.MessageDto;
+import com.chat.app.model.Message;
+import com.chat.app.retention.MessagePartitionManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Recherche plein texte dans un salon ou une conversation privée.
+ * Sous PostgreSQL, elle s'appuie sur un index GIN d'expression sur to_tsvector(content) :
+ * l'index est mis à jour par la base à chaque insertion (y compris les lots write-behind)
+ * et à chaque suppression, sans réindexation côté application. Les résultats sont classés
+ * par ts_rank puis du plus récent au plus ancien, parmi les {@code chat.search.max-candidates}
+ * correspondances les plus récentes, et paginés par curseur (rank, timestamp, id) plutôt que par OFFSET.
+ * Sur une autre base (H2 des tests), repli sur un LIKE insensible à la casse, sans classement.
+ */
+@Service
+@Slf4j
+public class MessageSearchService {
+
+    private static final String CANDIDATE_COLUMNS =
+            "SELECT m.id, m.sender_id, m.recipient_id, m.channel_id, m.content, m.timestamp";
+    private static final String CHANNEL_SCOPE = "m.channel_id = ?";
+    private static final String CONVERSATION_SCOPE = "m.conversation_key = ?";
+    private static final String CONVERSATION_PAIR_SCOPE =
+            "((m.sender_id = ? AND m.recipient_id = ?) OR (m.sender_id = ? AND m.recipient_id = ?))";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ConversationKeyBackfill conversationKeyBackfill;
+    private final MessagePartitionManager partitionManager;
+    private final String textSearchConfig;
+    private final int defaultSize;
+    private final int maxSize;
+    private final int maxCandidates;
+    private final boolean fullText;
+
+    public MessageSearchService(JdbcTemplate jdbcTemplate,
+                                ConversationKeyBackfill conversationKeyBackfill,
+                                MessagePartitionManager partitionManager,
+                                @Value("${chat.search.text-search-config:french}") String textSearchConfig,
+                                @Value("${chat.search.default-size:20}") int defaultSize,
+                                @Value("${chat.search.max-size:100}") int maxSize,
+                                @Value("${chat.search.max-candidates:1000}") int maxCandidates) {
+        // Le nom de configuration est inséré tel quel dans le SQL (il doit correspondre à l'expression indexée)
+        if (!textSearchConfig.matches("[a-z_]+")) {
+            throw new IllegalArgumentException("chat.search.text-search-config invalide : " + textSearchConfig);
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.conversationKeyBackfill = conversationKeyBackfill;
+        this.partitionManager = partitionManager;
+        this.textSearchConfig = textSearchConfig;
+        this.defaultSize = defaultSize;
+        this.maxSize = maxSize;
+        this.maxCandidates = Math.max(1, maxCandidates);
+        this.fullText = isPostgres();
+    }
+
+    // Après la mise à jour du schéma par Hibernate ; CONCURRENTLY évite de bloquer les écritures.
+    // Une table partitionnée ne l'accepte pas : l'index est alors créé sur chaque partition en une fois
+    @EventListener(ApplicationReadyEvent.class)
+    public void createIndex() {
+        if (!fullText) {
+            log.info("Base non PostgreSQL : recherche des messages par LIKE, sans index plein texte");
+            return;
+        }
+        String index = "idx_messages_content_fts_" + textSearchConfig;
+        try {
+            String concurrently = partitionManager.isPartitioned() ? "" : "CONCURRENTLY ";
+            // Un CREATE INDEX CONCURRENTLY interrompu laisse un index INVALID, que IF NOT EXISTS garderait
+            if (Boolean.FALSE.equals(indexValidity(index))) {
+                log.warn("Index plein texte {} invalide (création interrompue) : reconstruction", index);
+                jdbcTemplate.execute("DROP INDEX " + concurrently + "IF EXISTS " + index);
+            }
+            jdbcTemplate.execute("CREATE INDEX " + concurrently + "IF NOT EXISTS " + index +
+                    " ON messages USING GIN (" + vector("content") + ")");
+            if (!Boolean.TRUE.equals(indexValidity(index))) {
+                log.error("Index plein texte {} invalide après sa création : recherche sans index", index);
+            }
+        } catch (RuntimeException e) {
+            log.error("Création de l'index plein texte des messages impossible : {}", e.getMessage());
+        }
+    }
+
+    // pg_index.indisvalid ; null si l'index n'existe pas
+    private Boolean indexValidity(String index) {
+        List<Boolean> valid = jdbcTemplate.queryForList(
+                "SELECT i.indisvalid FROM pg_index i WHERE i.indexrelid = to_regclass(?)", Boolean.class, index);
+        return valid.isEmpty() ? null : valid.get(0);
+    }
+
+    public SearchPage searchChannel(Long channelId, String query, String cursor, Integer size) {
+        return search(CHANNEL_SCOPE, new Object[] { channelId }, query, cursor, size);
+    }
+
+    public SearchPage searchConversation(Long userId1, Long userId2, String query, String cursor, Integer size) {
+        if (conversationKeyBackfill.isComplete()) {
+            return search(CONVERSATION_SCOPE, new Object[] { Message.conversationKey(userId1, userId2) }, query, cursor, size);
+        }
+        return search(CONVERSATION_PAIR_SCOPE, new Object[] { userId1, userId2, userId2, userId1 }, query, cursor, size);
+    }
+
+    private SearchPage search(String scope, Object[] scopeArgs, String query, String cursor, Integer size) {
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("Le paramètre q est obligatoire");
+        }
+        int resolvedSize = size == null || size <= 0 ? defaultSize : Math.min(size, maxSize);
+        SearchCursor after = cursor == null || cursor.isBlank() ? null : SearchCursor.decode(cursor);
+
+        List<Object> args = new ArrayList<>();
+        String candidates;
+        if (fullText) {
+            String tsQuery = "websearch_to_tsquery('" + textSearchConfig + "', ?)";
+            candidates = CANDIDATE_COLUMNS + ", ts_rank(" + vector("m.content") + ", " + tsQuery + ") AS rank" +
+                    " FROM messages m WHERE " + scope + " AND " + vector("m.content") + " @@ " + tsQuery;
+            args.add(query);
+            args.addAll(List.of(scopeArgs));
+            args.add(query);
+        } else {
+            candidates = CANDIDATE_COLUMNS + ", CAST(0 AS REAL) AS rank" +
+                    " FROM messages m WHERE " + scope + " AND LOWER(m.content) LIKE ? ESCAPE '\\'";
+            args.addAll(List.of(scopeArgs));
+            args.add("%" + escapeLike(query.toLowerCase()) + "%");
+        }
+        // Seules les max-candidates correspondances les plus récentes sont classées : le coût d'une page
+        // ne dépend ni de sa profondeur ni du nombre total de correspondances
+        candidates += " ORDER BY m.timestamp DESC, m.id DESC LIMIT ?";
+        args.add(maxCandidates);
+
+        String sql = "SELECT c.id, s.username AS sender_username, r.username AS recipient_username, " +
+                "c.channel_id, c.content, c.timestamp, c.rank FROM (" + candidates + ") c" +
+                " JOIN users s ON s.id = c.sender_id LEFT JOIN users r ON r.id = c.recipient_id";
+        if (after != null) {
+            sql += " WHERE c.rank < ? OR (c.rank = ? AND (c.timestamp < ? OR (c.timestamp = ? AND c.id < ?)))";
+            Timestamp timestamp = Timestamp.valueOf(after.timestamp());
+            args.addAll(List.of(after.rank(), after.rank(), timestamp, timestamp, after.id()));
+        }
+        sql += " ORDER BY c.rank DESC, c.timestamp DESC, c.id DESC LIMIT ?";
+        // Une ligne de plus que la page pour savoir s'il reste des résultats
+        args.add(resolvedSize + 1);
+
+        List<SearchHit> hits = jdbcTemplate.query(sql, HIT_MAPPER, args.toArray());
+        if (hits.size() <= resolvedSize) {
+            return new SearchPage(hits, resolvedSize, false, null);
+        }
+        hits = hits.subList(0, resolvedSize);
+        SearchHit last = hits.get(hits.size() - 1);
+        String nextCursor = new SearchCursor(last.rank(), last.message().timestamp(), last.message().id()).encode();
+        return new SearchPage(hits, resolvedSize, true, nextCursor);
+    }
+
+    // Les jokers saisis par l'utilisateur sont recherchés littéralement
+    static String escapeLike(String text) {
+        return text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    // Même expression que l'index, pour que le planificateur l'utilise
+    private String vector(String column) {
+        return "to_tsvector('" + textSearchConfig + "', " + column + ")";
+    }
+
+    private boolean isPostgres() {
+        try (Connection connection = jdbcTemplate.getDataSource().getConnection()) {
+            return "PostgreSQL".equalsIgnoreCase(connection.getMetaData().getDatabaseProductName());
+        } catch (SQLException | RuntimeException e) {
+            log.warn("Type de base inconnu, recherche plein texte désactivée : {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private static final RowMapper<SearchHit> HIT_MAPPER = (rs, rowNum) -> {
+        Timestamp timestamp = rs.getTimestamp("timestamp");
+        MessageDto message = new MessageDto(
+                rs.getLong("id"),
+                rs.getString("sender_username"),
+                rs.getString("recipient_username"),
+                rs.getObject("channel_id", Long.class),
+                rs.getString("content"),
+                timestamp != null ? timestamp.toLocalDateTime() : null);
+        return new SearchHit(message, rs.getFloat("rank"));
+    };
+
+    public record SearchHit(MessageDto message, float rank) {}
+
+    /** nextCursor : à repasser en {@code cursor} pour la page suivante, null sur la dernière. */
+    public record SearchPage(List<SearchHit> hits, int size, boolean hasMore, String nextCursor) {}
+
+    // Dernier résultat d'une page, encodé en base64url "rank|timestamp|id"
+    record SearchCursor(float rank, LocalDateTime timestamp, long id) {
+
+        String encode() {
+            String raw = rank + "|" + timestamp + "|" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static SearchCursor decode(String cursor) {
+            try {
+                String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+                if (parts.length != 3) {
+                    throw new IllegalArgumentException("Curseur de recherche invalide");
+                }
+                return new SearchCursor(Float.parseFloat(parts[0]), LocalDateTime.parse(parts[1]), Long.parseLong(parts[2]));
+            } catch (IllegalArgumentException | DateTimeParseException e) {
+                throw new IllegalArgumentException("Curseur de recherche invalide", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,378 @@
+package com.chat.app.service;
+
+import com.chat.app.model.Message;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Persistance différée (write-behind) des messages.
+ * Les messages sont placés dans une file bornée puis insérés par un thread dédié
+ * sous forme d'INSERT multi-lignes, par lots de {@code flush-size} ou toutes les
+ * {@code flush-interval-ms} millisecondes.
+ *
+ * Un lot refusé pour ses données est rejoué ligne par ligne et seules les lignes
+ * fautives sont perdues. Sur une erreur passagère (base injoignable, bascule), le
+ * lot reste en tête et est retenté avec un délai croissant : la file se remplit et
+ * la contre-pression de {@link #enqueue} s'applique.
+ *
+ * Les identifiants sont réservés à l'avance dans la séquence de la colonne id
+ * de {@code messages} afin que le message diffusé porte déjà son id : le démarrage
+ * échoue si la base n'est pas PostgreSQL.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "chat.persistence.write-behind.enabled", havingValue = "true")
+public class MessageWriteBehindWriter {
+
+    // Limite de paramètres d'une requête PostgreSQL (32767) / 8 colonnes
+    private static final int MAX_ROWS_PER_STATEMENT = 4000;
+    // Tentatives sur erreur passagère pendant l'arrêt, avant d'abandonner les messages restants
+    private static final int SHUTDOWN_ATTEMPTS = 3;
+    private static final String INSERT_PREFIX =
+            "INSERT INTO messages (id, sender_id, recipient_id, channel_id, conversation_key, content, timestamp, retention_days) VALUES ";
+    private static final String ROW_PLACEHOLDER = "(?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate requiresNew;
+    private final BlockingQueue<PendingMessage> queue;
+    private final int flushSize;
+    private final long flushIntervalNanos;
+    private final long enqueueTimeoutMs;
+    private final int idBlockSize;
+    private final long retryBackoffMs;
+    private final long retryBackoffMaxMs;
+
+    private final ArrayDeque<Long> reservedIds = new ArrayDeque<>();
+    // Lot en cours du thread d'écriture ; lu par stop() seulement après la fin de ce thread
+    private final List<PendingMessage> batch = new ArrayList<>();
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder flushed = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder overflows = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    private volatile boolean running;
+    // Passe à false au début de l'arrêt : les messages suivants sont écrits par l'appelant
+    private volatile boolean accepting = true;
+    private Thread writerThread;
+
+    public MessageWriteBehindWriter(
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            @Value("${chat.persistence.write-behind.queue-capacity:10000}") int queueCapacity,
+            @Value("${chat.persistence.write-behind.flush-size:500}") int flushSize,
+            @Value("${chat.persistence.write-behind.flush-interval-ms:50}") long flushIntervalMs,
+            @Value("${chat.persistence.write-behind.enqueue-timeout-ms:100}") long enqueueTimeoutMs,
+            @Value("${chat.persistence.write-behind.id-block-size:100}") int idBlockSize,
+            @Value("${chat.persistence.write-behind.retry-backoff-ms:100}") long retryBackoffMs,
+            @Value("${chat.persistence.write-behind.retry-backoff-max-ms:5000}") long retryBackoffMaxMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        // Transaction propre à l'écriture de secours, indépendante de celle de l'appelant
+        this.requiresNew = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.flushSize = Math.max(1, Math.min(flushSize, MAX_ROWS_PER_STATEMENT));
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        this.enqueueTimeoutMs = enqueueTimeoutMs;
+        this.idBlockSize = Math.max(1, idBlockSize);
+        this.retryBackoffMs = Math.max(1, retryBackoffMs);
+        this.retryBackoffMaxMs = Math.max(this.retryBackoffMs, retryBackoffMaxMs);
+    }
+
+    @PostConstruct
+    void start() {
+        if (!isPostgres()) {
+            throw new IllegalStateException("chat.persistence.write-behind.enabled nécessite PostgreSQL");
+        }
+        running = true;
+        writerThread = new Thread(this::runLoop, "message-write-behind");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        log.info("Write-behind activé (flushSize={}, intervalle={} ms)", flushSize,
+                TimeUnit.NANOSECONDS.toMillis(flushIntervalNanos));
+    }
+
+    /**
+     * Arrêt : les nouveaux messages sont dès lors écrits par l'appelant ; on laisse
+     * le thread terminer son lot courant puis on vide la file de manière synchrone
+     * avant la fermeture de la DataSource.
+     */
+    @PreDestroy
+    void stop() throws InterruptedException {
+        accepting = false;
+        running = false;
+        List<PendingMessage> remaining = new ArrayList<>();
+        if (writerThread != null) {
+            writerThread.interrupt();
+            writerThread.join(TimeUnit.NANOSECONDS.toMillis(flushIntervalNanos) + 5000);
+            if (writerThread.isAlive()) {
+                log.error("Thread write-behind toujours actif après l'arrêt, son lot courant n'est pas repris");
+            } else {
+                remaining.addAll(batch);
+                batch.clear();
+            }
+        }
+        queue.drainTo(remaining);
+        for (int i = 0; i < remaining.size(); i += flushSize) {
+            List<PendingMessage> chunk = new ArrayList<>(remaining.subList(i, Math.min(remaining.size(), i + flushSize)));
+            long backoff = retryBackoffMs;
+            for (int attempt = 1; !write(chunk); attempt++) {
+                if (attempt >= SHUTDOWN_ATTEMPTS) {
+                    dropped.add(chunk.size());
+                    log.error("Base indisponible pendant l'arrêt : {} messages non persistés", chunk.size());
+                    break;
+                }
+                Thread.sleep(backoff);
+                backoff = Math.min(backoff * 2, retryBackoffMaxMs);
+            }
+        }
+        log.info("Write-behind arrêté ({} messages écrits, {} rejetés)", flushed.sum(), dropped.sum());
+    }
+
+    /**
+     * Attribue un id au message et le place dans la file d'écriture.
+     * Si la file reste pleine au-delà du délai configuré, ou après l'arrêt, le
+     * message est écrit directement par l'appelant (contre-pression plutôt que perte),
+     * dans sa propre transaction : il ne doit pas disparaître si la transaction de
+     * l'appelant est annulée après sa diffusion. Un échec de cette écriture est
+     * remonté à l'appelant, avant la diffusion.
+     */
+    public Message enqueue(Message message) {
+        message.setId(nextId());
+        PendingMessage pending = PendingMessage.of(message);
+        if (!accepting) {
+            insertNow(pending);
+            return message;
+        }
+        boolean accepted;
+        try {
+            accepted = queue.offer(pending, enqueueTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            accepted = false;
+        }
+        if (accepted) {
+            enqueued.increment();
+            // Arrêt commencé pendant l'ajout : si la file a déjà été vidée, le message est repris ici
+            if (!accepting && queue.remove(pending)) {
+                insertNow(pending);
+            }
+        } else {
+            overflows.increment();
+            log.warn("File write-behind pleine, écriture synchrone du message {}", pending.id());
+            insertNow(pending);
+        }
+        return message;
+    }
+
+    private void insertNow(PendingMessage pending) {
+        requiresNew.executeWithoutResult(status -> insert(List.of(pending)));
+    }
+
+    public int queueSize() {
+        return queue.size();
+    }
+
+    public long enqueuedCount() {
+        return enqueued.sum();
+    }
+
+    public long flushedCount() {
+        return flushed.sum();
+    }
+
+    public long batchCount() {
+        return batches.sum();
+    }
+
+    public long overflowCount() {
+        return overflows.sum();
+    }
+
+    public long retryCount() {
+        return retries.sum();
+    }
+
+    public long droppedCount() {
+        return dropped.sum();
+    }
+
+    private synchronized long nextId() {
+        if (reservedIds.isEmpty()) {
+            reservedIds.addAll(jdbcTemplate.queryForList(
+                    "SELECT nextval(pg_get_serial_sequence('messages', 'id')) FROM generate_series(1, ?)",
+                    Long.class, idBlockSize));
+        }
+        return reservedIds.poll();
+    }
+
+    private boolean isPostgres() {
+        try (Connection connection = jdbcTemplate.getDataSource().getConnection()) {
+            return "PostgreSQL".equalsIgnoreCase(connection.getMetaData().getDatabaseProductName());
+        } catch (SQLException | RuntimeException e) {
+            log.warn("Type de base inconnu : {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private void runLoop() {
+        long backoff = retryBackoffMs;
+        while (running) {
+            try {
+                if (batch.isEmpty() && !fill()) {
+                    continue;
+                }
+                if (write(batch)) {
+                    batch.clear();
+                    backoff = retryBackoffMs;
+                } else {
+                    // Le lot reste en tête : rien d'autre n'est écrit avant lui
+                    retries.increment();
+                    Thread.sleep(backoff);
+                    backoff = Math.min(backoff * 2, retryBackoffMaxMs);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            } catch (Exception e) {
+                log.error("Erreur inattendue du thread write-behind: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    // Attend le premier message puis complète le lot jusqu'à flush-size ou la fin de l'intervalle
+    private boolean fill() throws InterruptedException {
+        PendingMessage first = queue.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+        if (first == null) {
+            return false;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + flushIntervalNanos;
+        while (batch.size() < flushSize) {
+            queue.drainTo(batch, flushSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= flushSize || remaining <= 0) {
+                break;
+            }
+            PendingMessage next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+        }
+        return true;
+    }
+
+    /**
+     * Écrit le lot et en retire les lignes traitées (écrites ou rejetées).
+     * Renvoie false sur une erreur passagère : les lignes restantes sont à retenter.
+     */
+    private boolean write(List<PendingMessage> rows) {
+        if (rows.isEmpty()) {
+            return true;
+        }
+        try {
+            insert(rows);
+            rows.clear();
+            return true;
+        } catch (RuntimeException e) {
+            if (isTransient(e)) {
+                log.warn("Base indisponible, lot de {} messages conservé pour une nouvelle tentative: {}", rows.size(), e.getMessage());
+                return false;
+            }
+            // Un lot en échec (ex: salon supprimé entre-temps) est rejoué ligne par ligne
+            log.warn("Échec de l'insertion d'un lot de {} messages, repli ligne par ligne: {}", rows.size(), e.getMessage());
+        }
+        for (Iterator<PendingMessage> it = rows.iterator(); it.hasNext(); ) {
+            PendingMessage pending = it.next();
+            try {
+                insert(List.of(pending));
+            } catch (DuplicateKeyException rowError) {
+                // Id réservé à ce message : le lot avait été validé avant la perte de la connexion
+                log.info("Message {} déjà persisté", pending.id());
+            } catch (RuntimeException rowError) {
+                if (isTransient(rowError)) {
+                    log.warn("Base indisponible, {} messages conservés pour une nouvelle tentative: {}", rows.size(), rowError.getMessage());
+                    return false;
+                }
+                dropped.increment();
+                log.error("Message {} non persisté: {}", pending.id(), rowError.getMessage());
+            }
+            it.remove();
+        }
+        return true;
+    }
+
+    // Connexion refusée ou perdue, bascule, délai dépassé, conflit de verrou : rien à reprocher aux données
+    private static boolean isTransient(RuntimeException e) {
+        return e instanceof TransientDataAccessException
+                || e instanceof RecoverableDataAccessException
+                || e instanceof DataAccessResourceFailureException;
+    }
+
+    private void insert(List<PendingMessage> rows) {
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX.length() + rows.size() * (ROW_PLACEHOLDER.length() + 2));
+        sql.append(INSERT_PREFIX);
+        Object[] args = new Object[rows.size() * 8];
+        int i = 0;
+        for (PendingMessage row : rows) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(ROW_PLACEHOLDER);
+            args[i++] = row.id();
+            args[i++] = row.senderId();
+            args[i++] = row.recipientId();
+            args[i++] = row.channelId();
+            args[i++] = row.conversationKey();
+            args[i++] = row.content();
+            args[i++] = Timestamp.valueOf(row.timestamp());
+            args[i++] = row.retentionDays();
+        }
+        jdbcTemplate.update(sql.toString(), args);
+        flushed.add(rows.size());
+        batches.increment();
+    }
+
+    // Copie immuable des colonnes à écrire, détachée de l'entité JPA
+    record PendingMessage(long id, long senderId, Long recipientId, Long channelId,
+                          String conversationKey, String content, LocalDateTime timestamp, int retentionDays) {
+        static PendingMessage of(Message message) {
+            message.assignConversationKey();
+            return new PendingMessage(
+                    message.getId(),
+                    message.getSender().getId(),
+                    message.getRecipient() != null ? message.getRecipient().getId() : null,
+                    message.getChannel() != null ? message.getChannel().getId() : null,
+                    message.getConversationKey(),
+                    message.getContent(),
+                    message.getTimestamp(),
+                    message.getRetentionDays());
+        }
+    }
+}
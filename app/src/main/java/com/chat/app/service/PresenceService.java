@@ -0,0 +1,239 @@
+package com.chat.app.service;
+
+import com.chat.app.cluster.ClusterEvents;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Présence des utilisateurs, alimentée par les événements de connexion/déconnexion STOMP.
+ * Un utilisateur est en ligne tant qu'il a au moins une session. Les changements sont
+ * regroupés puis publiés sur /topic/presence toutes les {@code chat.presence.flush-interval-ms} :
+ * une connexion suivie d'une déconnexion dans la même fenêtre ne produit aucun message.
+ *
+ * Sur plusieurs instances, chaque nœud publie aux autres ({@link ClusterEvents}) ses passages en ligne /
+ * hors ligne, plus toutes les {@code chat.presence.sync-interval-ms} la liste complète de ses utilisateurs
+ * (qui corrige un événement perdu). Un nœud sans liste reçue depuis trois intervalles est oublié.
+ * Chaque nœud publie à ses propres sessions le diff de l'état fusionné ; /topic/presence n'est pas relayé
+ * et la {@code version} est propre au nœud (une reconnexion ailleurs recharge la liste).
+ */
+@Service
+@Slf4j
+public class PresenceService {
+
+    public static final String PRESENCE_TOPIC = "/topic/presence";
+    static final String CHANGE_EVENT = "presence.change";
+    static final String SNAPSHOT_EVENT = "presence.snapshot";
+    private static final int MISSED_SYNCS_BEFORE_EXPIRY = 3;
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final ClusterEvents clusterEvents;
+    private final long flushIntervalMs;
+    private final long syncIntervalMs;
+
+    // sessionId -> username : le retrait rend la déconnexion idempotente (événement parfois reçu deux fois)
+    private final ConcurrentHashMap<String, String> sessions = new ConcurrentHashMap<>();
+    // username -> nombre de sessions ouvertes (absent = hors ligne)
+    private final ConcurrentHashMap<String, Integer> sessionCounts = new ConcurrentHashMap<>();
+    // username -> état publié avant le premier changement de la fenêtre en cours
+    private final ConcurrentHashMap<String, Boolean> pendingChanges = new ConcurrentHashMap<>();
+    // nodeId -> utilisateurs en ligne sur cet autre nœud
+    private final ConcurrentHashMap<String, Set<String>> remoteOnline = new ConcurrentHashMap<>();
+    // nodeId -> dernière liste reçue (System.nanoTime())
+    private final ConcurrentHashMap<String, Long> remoteSeen = new ConcurrentHashMap<>();
+    private final AtomicLong version = new AtomicLong();
+    private ScheduledExecutorService flusher;
+
+    public PresenceService(SimpMessagingTemplate messagingTemplate,
+                           ClusterEvents clusterEvents,
+                           @Value("${chat.presence.flush-interval-ms:500}") long flushIntervalMs,
+                           @Value("${chat.presence.sync-interval-ms:10000}") long syncIntervalMs) {
+        this.messagingTemplate = messagingTemplate;
+        this.clusterEvents = clusterEvents;
+        this.flushIntervalMs = flushIntervalMs;
+        this.syncIntervalMs = syncIntervalMs;
+    }
+
+    @PostConstruct
+    void start() {
+        clusterEvents.subscribe(CHANGE_EVENT, PresenceChange.class, this::remoteChanged);
+        clusterEvents.subscribe(SNAPSHOT_EVENT, PresenceSnapshot.class, this::remoteSnapshot);
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "presence-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushSafely, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        flusher.scheduleWithFixedDelay(this::syncSafely, syncIntervalMs, syncIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        flusher.shutdownNow();
+    }
+
+    @EventListener
+    public void onConnected(SessionConnectedEvent event) {
+        Principal user = event.getUser();
+        String sessionId = StompHeaderAccessor.wrap(event.getMessage()).getSessionId();
+        if (user != null && sessionId != null) {
+            connected(sessionId, user.getName());
+        }
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        disconnected(event.getSessionId());
+    }
+
+    void connected(String sessionId, String username) {
+        if (sessions.putIfAbsent(sessionId, username) != null) {
+            return;
+        }
+        boolean onlineElsewhere = isOnlineRemotely(username);
+        if (sessionCounts.merge(username, 1, Integer::sum) == 1) {
+            pendingChanges.putIfAbsent(username, onlineElsewhere);
+            clusterEvents.publish(CHANGE_EVENT, new PresenceChange(username, true));
+        }
+    }
+
+    void disconnected(String sessionId) {
+        String username = sessions.remove(sessionId);
+        if (username == null) {
+            return;
+        }
+        if (sessionCounts.computeIfPresent(username, (name, count) -> count > 1 ? count - 1 : null) == null) {
+            pendingChanges.putIfAbsent(username, Boolean.TRUE);
+            clusterEvents.publish(CHANGE_EVENT, new PresenceChange(username, false));
+        }
+    }
+
+    void remoteChanged(String nodeId, PresenceChange change) {
+        pendingChanges.putIfAbsent(change.username(), isOnline(change.username()));
+        remoteSeen.putIfAbsent(nodeId, System.nanoTime());
+        Set<String> users = remoteOnline.computeIfAbsent(nodeId, id -> ConcurrentHashMap.newKeySet());
+        if (change.online()) {
+            users.add(change.username());
+        } else {
+            users.remove(change.username());
+        }
+    }
+
+    void remoteSnapshot(String nodeId, PresenceSnapshot snapshot) {
+        Set<String> users = ConcurrentHashMap.newKeySet();
+        users.addAll(snapshot.usernames());
+        Set<String> previous = remoteOnline.getOrDefault(nodeId, Set.of());
+        // Différence symétrique : seuls ces utilisateurs peuvent changer d'état
+        Set<String> changed = new HashSet<>(users);
+        changed.addAll(previous);
+        changed.removeIf(username -> users.contains(username) && previous.contains(username));
+        changed.forEach(username -> pendingChanges.putIfAbsent(username, isOnline(username)));
+        remoteOnline.put(nodeId, users);
+        remoteSeen.put(nodeId, System.nanoTime());
+    }
+
+    /** Oublie les nœuds dont aucune liste n'a été reçue depuis trois intervalles de synchronisation. */
+    void expireRemoteNodes(long now) {
+        long maxSilence = TimeUnit.MILLISECONDS.toNanos(syncIntervalMs * MISSED_SYNCS_BEFORE_EXPIRY);
+        for (Map.Entry<String, Long> seen : remoteSeen.entrySet()) {
+            if (now - seen.getValue() > maxSilence) {
+                String nodeId = seen.getKey();
+                log.info("Présence du nœud {} expirée", nodeId);
+                remoteOnline.getOrDefault(nodeId, Set.of())
+                        .forEach(username -> pendingChanges.putIfAbsent(username, isOnline(username)));
+                remoteOnline.remove(nodeId);
+                remoteSeen.remove(nodeId);
+            }
+        }
+    }
+
+    public boolean isOnline(String username) {
+        return sessionCounts.containsKey(username) || isOnlineRemotely(username);
+    }
+
+    private boolean isOnlineRemotely(String username) {
+        for (Set<String> users : remoteOnline.values()) {
+            if (users.contains(username)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public Set<String> onlineUsernames() {
+        Set<String> online = new HashSet<>(sessionCounts.keySet());
+        remoteOnline.values().forEach(online::addAll);
+        return Set.copyOf(online);
+    }
+
+    public int onlineCount() {
+        return remoteOnline.isEmpty() ? sessionCounts.size() : onlineUsernames().size();
+    }
+
+    public long version() {
+        return version.get();
+    }
+
+    /** Calcule le diff net depuis la dernière publication ; null s'il n'y a rien à publier. */
+    PresenceDiff drainChanges() {
+        List<String> online = new ArrayList<>();
+        List<String> offline = new ArrayList<>();
+        for (String username : pendingChanges.keySet()) {
+            Boolean wasOnline = pendingChanges.remove(username);
+            boolean nowOnline = isOnline(username);
+            if (wasOnline != null && wasOnline != nowOnline) {
+                (nowOnline ? online : offline).add(username);
+            }
+        }
+        if (online.isEmpty() && offline.isEmpty()) {
+            return null;
+        }
+        return new PresenceDiff(version.incrementAndGet(), online, offline);
+    }
+
+    private void flushSafely() {
+        try {
+            PresenceDiff diff = drainChanges();
+            if (diff != null) {
+                messagingTemplate.convertAndSend(PRESENCE_TOPIC, diff);
+            }
+        } catch (RuntimeException e) {
+            log.error("Publication de la présence impossible", e);
+        }
+    }
+
+    private void syncSafely() {
+        try {
+            clusterEvents.publish(SNAPSHOT_EVENT, new PresenceSnapshot(List.copyOf(sessionCounts.keySet())));
+            expireRemoteNodes(System.nanoTime());
+        } catch (RuntimeException e) {
+            log.error("Synchronisation de la présence impossible", e);
+        }
+    }
+
+    record PresenceChange(String username, boolean online) {}
+
+    record PresenceSnapshot(List<String> usernames) {}
+
+    public record PresenceDiff(long version, List<String> online, List<String> offline) {}
+}
@@ -0,0 +1,456 @@
+package com.chat.app.service;
+
+import com.chat.app.model.Message;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Non-lus par conversation, sans jamais compter les messages. Chaque conversation a un compteur
+ * (conversation_counters.seq) et chaque utilisateur un marqueur de lecture (read_markers.read_seq) :
+ * les non-lus sont la différence des deux. Un message envoyé coûte un incrément du compteur en
+ * mémoire, plus l'avance du marqueur de l'expéditeur (et la création de celui du destinataire d'un
+ * message privé) ; tout est écrit en base par lots toutes les {@code chat.unread.flush-interval-ms}.
+ *
+ * Les badges d'un utilisateur se lisent en une requête sur ses marqueurs (jointure sur les
+ * compteurs), complétée par ce qui n'est pas encore écrit : O(conversations), pas O(messages).
+ * En multi-instances, les compteurs sont additionnés en base ; un nœud voit les messages des
+ * autres au lot suivant, et markRead relit le compteur en base pour ne pas marquer lue une
+ * position antérieure aux messages des autres nœuds.
+ */
+@Service
+@Slf4j
+public class ReadMarkerService {
+
+    public static final String PUBLIC_CONVERSATION = "public";
+
+    // Requêtes portables (PostgreSQL, H2) : création si absente, puis mise à jour
+    private static final String INSERT_COUNTER_SQL =
+            "INSERT INTO conversation_counters (conversation, seq, last_message_id) "
+            + "SELECT CAST(? AS VARCHAR(64)), 0, NULL "
+            + "WHERE NOT EXISTS (SELECT 1 FROM conversation_counters WHERE conversation = ?)";
+    private static final String UPDATE_COUNTER_SQL =
+            "UPDATE conversation_counters SET seq = seq + ?, "
+            + "last_message_id = COALESCE(GREATEST(last_message_id, ?), last_message_id, ?) "
+            + "WHERE conversation = ?";
+    private static final String INSERT_MARKER_SQL =
+            "INSERT INTO read_markers (username, conversation, read_seq, last_read_message_id, channel_id, peer_username) "
+            + "SELECT CAST(? AS VARCHAR(255)), CAST(? AS VARCHAR(64)), CAST(? AS BIGINT), CAST(? AS BIGINT), "
+            + "CAST(? AS BIGINT), CAST(? AS VARCHAR(255)) "
+            + "WHERE NOT EXISTS (SELECT 1 FROM read_markers WHERE username = ? AND conversation = ?)";
+    // Un marqueur ne recule jamais
+    private static final String ADVANCE_MARKER_SQL =
+            "UPDATE read_markers SET read_seq = GREATEST(read_seq, ?), "
+            + "last_read_message_id = COALESCE(GREATEST(last_read_message_id, ?), last_read_message_id, ?) "
+            + "WHERE username = ? AND conversation = ?";
+    private static final String COUNTER_SQL = "SELECT seq, last_message_id FROM conversation_counters WHERE conversation = ?";
+    private static final String MARKERS_SQL =
+            "SELECT m.conversation, m.read_seq, m.last_read_message_id, m.channel_id, m.peer_username, "
+            + "c.seq, c.last_message_id FROM read_markers m "
+            + "LEFT JOIN conversation_counters c ON c.conversation = m.conversation WHERE m.username = ?";
+    private static final int IN_BATCH = 500;
+
+    private static final RowMapper<MarkerRow> MARKER_ROW_MAPPER = (rs, rowNum) -> new MarkerRow(
+            rs.getString(1), rs.getLong(2), rs.getObject(3, Long.class), rs.getObject(4, Long.class),
+            rs.getString(5), rs.getObject(6, Long.class), rs.getObject(7, Long.class));
+
+    private static final RowMapper<Tally> TALLY_MAPPER =
+            (rs, rowNum) -> new Tally(rs.getLong(1), rs.getObject(2, Long.class), System.nanoTime());
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final long flushIntervalMs;
+    private final long idleNanos;
+
+    // conversation -> compteur local (valeur lue en base + incréments pas encore écrits)
+    private final ConcurrentHashMap<String, Tally> counters = new ConcurrentHashMap<>();
+    // username -> (conversation -> écriture de marqueur en attente), modifié sous compute
+    private final ConcurrentHashMap<String, Map<String, PendingMarker>> pending = new ConcurrentHashMap<>();
+    private ScheduledExecutorService flusher;
+
+    public ReadMarkerService(JdbcTemplate jdbcTemplate,
+                             TransactionTemplate transactionTemplate,
+                             @Value("${chat.unread.flush-interval-ms:1000}") long flushIntervalMs,
+                             @Value("${chat.unread.idle-eviction-minutes:30}") long idleEvictionMinutes) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.flushIntervalMs = flushIntervalMs;
+        this.idleNanos = TimeUnit.MINUTES.toNanos(idleEvictionMinutes);
+    }
+
+    @PostConstruct
+    void start() {
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "unread-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushSafely, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /** Arrêt : dernier lot écrit avant la fermeture de la DataSource. */
+    @PreDestroy
+    void stop() {
+        flusher.shutdownNow();
+        flushSafely();
+    }
+
+    public static String channelConversation(Long channelId) {
+        return "channel:" + channelId;
+    }
+
+    public static String privateConversation(Long userId1, Long userId2) {
+        return "dm:" + Message.conversationKey(userId1, userId2);
+    }
+
+    public void channelMessage(Long channelId, String sender, Long messageId) {
+        messageSent(channelConversation(channelId), channelId, sender, null, messageId);
+    }
+
+    public void publicMessage(String sender, Long messageId) {
+        messageSent(PUBLIC_CONVERSATION, null, sender, null, messageId);
+    }
+
+    public void privateMessage(Long senderId, String sender, Long recipientId, String recipient, Long messageId) {
+        messageSent(privateConversation(senderId, recipientId), null, sender, recipient, messageId);
+    }
+
+    private void messageSent(String conversation, Long channelId, String sender, String recipient, Long messageId) {
+        long seq = increment(conversation, messageId);
+        // L'expéditeur a lu la conversation jusqu'à son propre message
+        queue(new PendingMarker(sender, conversation, channelId, recipient, seq, messageId, true));
+        if (recipient != null) {
+            // Premier message reçu : le destinataire commence juste avant (ancien historique considéré lu)
+            queue(new PendingMarker(recipient, conversation, null, sender, seq - 1, null, false));
+        }
+    }
+
+    /** Conversation lue jusqu'au dernier message écrit en base par toutes les instances, plus ceux pas encore écrits par celle-ci. */
+    public void markRead(String username, String conversation, Long channelId, String peerUsername) {
+        Tally tally = tally(conversation);
+        long readSeq;
+        Long lastMessageId;
+        // Sous le verrou des lots : aucun incrément n'est à la fois dans la base relue et compté comme non écrit
+        synchronized (this) {
+            List<Tally> stored = jdbcTemplate.query(COUNTER_SQL, TALLY_MAPPER, conversation);
+            if (!stored.isEmpty()) {
+                tally.catchUp(stored.get(0).seq(), stored.get(0).lastMessageId());
+            }
+            readSeq = tally.seq();
+            lastMessageId = tally.lastMessageId();
+        }
+        queue(new PendingMarker(username, conversation, channelId, peerUsername, readSeq, lastMessageId, true));
+    }
+
+    /** Conversations de l'utilisateur (celles où il a un marqueur), la plus récente d'abord. */
+    public List<UnreadConversation> unread(String username) {
+        Map<String, MarkerRow> stored = new LinkedHashMap<>();
+        for (MarkerRow row : jdbcTemplate.query(MARKERS_SQL, MARKER_ROW_MAPPER, username)) {
+            stored.put(row.conversation(), row);
+        }
+        return unread(username, stored);
+    }
+
+    // Lignes lues en base, complétées par les incréments et marqueurs pas encore écrits
+    List<UnreadConversation> unread(String username, Map<String, MarkerRow> stored) {
+        Map<String, PendingMarker> queued = pendingFor(username);
+        Set<String> conversations = new LinkedHashSet<>(stored.keySet());
+        conversations.addAll(queued.keySet());
+        List<UnreadConversation> result = new ArrayList<>(conversations.size());
+        for (String conversation : conversations) {
+            MarkerRow row = stored.get(conversation);
+            PendingMarker marker = queued.get(conversation);
+            long readSeq = row != null ? row.readSeq() : marker.readSeq();
+            Long lastRead = row != null ? row.lastReadMessageId() : marker.lastReadMessageId();
+            if (marker != null && marker.advance()) {
+                readSeq = Math.max(readSeq, marker.readSeq());
+                lastRead = max(lastRead, marker.lastReadMessageId());
+            }
+            Tally tally = counters.get(conversation);
+            long seq;
+            Long lastMessageId;
+            if (row != null && row.seq() != null) {
+                seq = row.seq() + (tally != null ? tally.unflushed() : 0);
+                lastMessageId = max(row.lastMessageId(), tally != null ? tally.lastMessageId() : null);
+            } else {
+                seq = tally != null ? tally.seq() : 0;
+                lastMessageId = tally != null ? tally.lastMessageId() : null;
+            }
+            Long channelId = row != null && row.channelId() != null ? row.channelId()
+                    : marker != null ? marker.channelId() : null;
+            String peer = row != null && row.peerUsername() != null ? row.peerUsername()
+                    : marker != null ? marker.peerUsername() : null;
+            result.add(new UnreadConversation(conversation, channelId, peer, Math.max(0, seq - readSeq),
+                    lastMessageId, lastRead));
+        }
+        result.sort(Comparator.comparing(UnreadConversation::lastMessageId,
+                Comparator.nullsLast(Comparator.reverseOrder())));
+        return result;
+    }
+
+    /** Salon supprimé : compteur et marqueurs oubliés. */
+    public synchronized void forget(String conversation) {
+        counters.remove(conversation);
+        for (String username : pending.keySet()) {
+            pending.computeIfPresent(username, (name, markers) -> {
+                markers.remove(conversation);
+                return markers.isEmpty() ? null : markers;
+            });
+        }
+        jdbcTemplate.update("DELETE FROM read_markers WHERE conversation = ?", conversation);
+        jdbcTemplate.update("DELETE FROM conversation_counters WHERE conversation = ?", conversation);
+    }
+
+    private long increment(String conversation, Long messageId) {
+        while (true) {
+            Tally tally = tally(conversation);
+            long seq = tally.increment(messageId, System.nanoTime());
+            if (seq >= 0) {
+                return seq;
+            }
+            // Oublié entre-temps par le nettoyage : on recharge
+            counters.remove(conversation, tally);
+        }
+    }
+
+    // Chargé en base au premier usage sur cette instance, hors verrou de la map
+    private Tally tally(String conversation) {
+        Tally tally = counters.get(conversation);
+        if (tally != null) {
+            return tally;
+        }
+        List<Tally> rows = jdbcTemplate.query(COUNTER_SQL, TALLY_MAPPER, conversation);
+        Tally loaded = rows.isEmpty() ? new Tally(0, null, System.nanoTime()) : rows.get(0);
+        Tally existing = counters.putIfAbsent(conversation, loaded);
+        return existing != null ? existing : loaded;
+    }
+
+    private void queue(PendingMarker marker) {
+        pending.compute(marker.username(), (username, markers) -> {
+            Map<String, PendingMarker> map = markers != null ? markers : new HashMap<>();
+            map.merge(marker.conversation(), marker, PendingMarker::merge);
+            return map;
+        });
+    }
+
+    private Map<String, PendingMarker> pendingFor(String username) {
+        Map<String, PendingMarker> copy = new HashMap<>();
+        pending.computeIfPresent(username, (name, markers) -> {
+            copy.putAll(markers);
+            return markers;
+        });
+        return copy;
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Écriture des non-lus impossible", e);
+        }
+    }
+
+    /** Écrit les incréments et marqueurs en attente en une transaction ; remis en attente en cas d'échec. */
+    synchronized void flush() {
+        Map<String, Tally> flushing = new HashMap<>();
+        List<Object[]> counterInserts = new ArrayList<>();
+        List<Object[]> counterUpdates = new ArrayList<>();
+        counters.forEach((conversation, tally) -> {
+            long delta = tally.beginFlush();
+            if (delta > 0) {
+                Long lastMessageId = tally.lastMessageId();
+                flushing.put(conversation, tally);
+                counterInserts.add(new Object[] {conversation, conversation});
+                counterUpdates.add(new Object[] {delta, lastMessageId, lastMessageId, conversation});
+            }
+        });
+        List<PendingMarker> markers = new ArrayList<>();
+        for (String username : pending.keySet()) {
+            Map<String, PendingMarker> taken = pending.remove(username);
+            if (taken != null) {
+                markers.addAll(taken.values());
+            }
+        }
+        if (!flushing.isEmpty() || !markers.isEmpty()) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> write(counterInserts, counterUpdates, markers));
+            } catch (RuntimeException e) {
+                log.warn("Écriture de {} compteurs et {} marqueurs impossible, nouvel essai au prochain lot : {}",
+                        flushing.size(), markers.size(), e.getMessage());
+                flushing.values().forEach(Tally::abortFlush);
+                markers.forEach(this::queue);
+                return;
+            }
+            refresh(flushing);
+        }
+        long now = System.nanoTime();
+        counters.forEach((conversation, tally) -> {
+            if (tally.evictIfIdle(now, idleNanos)) {
+                counters.remove(conversation, tally);
+            }
+        });
+    }
+
+    private void write(List<Object[]> counterInserts, List<Object[]> counterUpdates, List<PendingMarker> markers) {
+        if (!counterUpdates.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_COUNTER_SQL, counterInserts);
+            jdbcTemplate.batchUpdate(UPDATE_COUNTER_SQL, counterUpdates);
+        }
+        if (markers.isEmpty()) {
+            return;
+        }
+        List<Object[]> inserts = new ArrayList<>(markers.size());
+        List<Object[]> advances = new ArrayList<>();
+        for (PendingMarker marker : markers) {
+            inserts.add(new Object[] {marker.username(), marker.conversation(), marker.readSeq(),
+                    marker.lastReadMessageId(), marker.channelId(), marker.peerUsername(),
+                    marker.username(), marker.conversation()});
+            if (marker.advance()) {
+                advances.add(new Object[] {marker.readSeq(), marker.lastReadMessageId(), marker.lastReadMessageId(),
+                        marker.username(), marker.conversation()});
+            }
+        }
+        jdbcTemplate.batchUpdate(INSERT_MARKER_SQL, inserts);
+        if (!advances.isEmpty()) {
+            jdbcTemplate.batchUpdate(ADVANCE_MARKER_SQL, advances);
+        }
+    }
+
+    // Relit les compteurs écrits : ils incluent aussi les messages des autres instances
+    private void refresh(Map<String, Tally> flushed) {
+        Map<String, Long> seqs = new HashMap<>();
+        try {
+            List<String> conversations = new ArrayList<>(flushed.keySet());
+            for (int i = 0; i < conversations.size(); i += IN_BATCH) {
+                List<String> slice = conversations.subList(i, Math.min(conversations.size(), i + IN_BATCH));
+                jdbcTemplate.query("SELECT conversation, seq FROM conversation_counters WHERE conversation IN ("
+                                + String.join(",", Collections.nCopies(slice.size(), "?")) + ")",
+                        rs -> {
+                            seqs.put(rs.getString(1), rs.getLong(2));
+                        }, slice.toArray());
+            }
+        } catch (RuntimeException e) {
+            log.warn("Relecture des compteurs impossible : {}", e.getMessage());
+        }
+        flushed.forEach((conversation, tally) -> tally.endFlush(seqs.get(conversation)));
+    }
+
+    private static Long max(Long a, Long b) {
+        return a == null ? b : b == null ? a : Long.valueOf(Math.max(a, b));
+    }
+
+    /** Compteur d'une conversation sur cette instance : seq = base + inFlight + pending. */
+    static final class Tally {
+        private long base;
+        private long inFlight;
+        private long pending;
+        private Long lastMessageId;
+        private long touchedAt;
+        private boolean evicted;
+
+        Tally(long base, Long lastMessageId, long now) {
+            this.base = base;
+            this.lastMessageId = lastMessageId;
+            this.touchedAt = now;
+        }
+
+        // -1 si le compteur a été oublié : l'appelant en charge un nouveau
+        synchronized long increment(Long messageId, long now) {
+            if (evicted) {
+                return -1;
+            }
+            pending++;
+            lastMessageId = max(lastMessageId, messageId);
+            touchedAt = now;
+            return base + inFlight + pending;
+        }
+
+        synchronized long seq() {
+            return base + inFlight + pending;
+        }
+
+        synchronized long unflushed() {
+            return inFlight + pending;
+        }
+
+        synchronized Long lastMessageId() {
+            return lastMessageId;
+        }
+
+        synchronized long beginFlush() {
+            inFlight = pending;
+            pending = 0;
+            return inFlight;
+        }
+
+        synchronized void abortFlush() {
+            pending += inFlight;
+            inFlight = 0;
+        }
+
+        synchronized void endFlush(Long storedSeq) {
+            base = storedSeq != null ? Math.max(storedSeq, base + inFlight) : base + inFlight;
+            inFlight = 0;
+        }
+
+        // Relu en base hors lot (rien en cours d'écriture) : inclut les messages des autres instances
+        synchronized void catchUp(long storedSeq, Long storedLastMessageId) {
+            base = Math.max(base, storedSeq);
+            lastMessageId = max(lastMessageId, storedLastMessageId);
+        }
+
+        synchronized boolean evictIfIdle(long now, long idleNanos) {
+            if (pending == 0 && inFlight == 0 && now - touchedAt > idleNanos) {
+                evicted = true;
+            }
+            return evicted;
+        }
+    }
+
+    record PendingMarker(String username, String conversation, Long channelId, String peerUsername,
+                         long readSeq, Long lastReadMessageId, boolean advance) {
+
+        // Une avance l'emporte sur une création ; entre deux créations, la position la plus ancienne
+        PendingMarker merge(PendingMarker next) {
+            Long channel = channelId != null ? channelId : next.channelId;
+            String peer = peerUsername != null ? peerUsername : next.peerUsername;
+            if (advance && next.advance) {
+                return new PendingMarker(username, conversation, channel, peer, Math.max(readSeq, next.readSeq),
+                        max(lastReadMessageId, next.lastReadMessageId), true);
+            }
+            if (advance || next.advance) {
+                PendingMarker winner = advance ? this : next;
+                return new PendingMarker(username, conversation, channel, peer, winner.readSeq,
+                        winner.lastReadMessageId, true);
+            }
+            return readSeq <= next.readSeq ? this : next;
+        }
+    }
+
+    record MarkerRow(String conversation, long readSeq, Long lastReadMessageId, Long channelId,
+                     String peerUsername, Long seq, Long lastMessageId) {}
+
+    /** Badge d'une conversation : {@code channelId} pour un salon, {@code username} pour une conversation privée. */
+    public record UnreadConversation(String conversation, Long channelId, String username, long unread,
+                                     Long lastMessageId, Long lastReadMessageId) {}
+}
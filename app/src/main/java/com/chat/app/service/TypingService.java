@@ -0,0 +1,151 @@
+package com.chat.app.service;
+
+import com.chat.app.cluster.ClusterEvents;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Indicateurs de frappe des salons, reçus sur /app/chat.typing. Rien n'est écrit en base : chaque
+ * événement met seulement à jour l'échéance de l'utilisateur dans le salon. Toutes les
+ * {@code chat.typing.tick-ms}, un seul instantané par salon modifié est publié sur
+ * /topic/typing.{id}, quel que soit le nombre d'événements reçus entre-temps.
+ * Un utilisateur sans nouvel événement depuis {@code chat.typing.ttl-ms} ne tape plus.
+ *
+ * Sur plusieurs instances, chaque événement est aussi publié aux autres nœuds ({@link ClusterEvents}),
+ * qui l'appliquent avec leur propre échéance : chaque nœud publie l'instantané fusionné à ses sessions,
+ * et ces instantanés ne sont pas relayés par le broker.
+ */
+@Service
+@Slf4j
+public class TypingService {
+
+    public static final String TOPIC_PREFIX = "/topic/typing.";
+    static final String TYPING_EVENT = "typing";
+
+    private final MessageBroadcaster messageBroadcaster;
+    private final ClusterEvents clusterEvents;
+    private final long tickMs;
+    private final long ttlNanos;
+    private final int maxNames;
+
+    // channelId -> (username -> échéance System.nanoTime())
+    private final ConcurrentHashMap<Long, Map<String, Long>> typing = new ConcurrentHashMap<>();
+    // channelId -> noms du dernier instantané publié (absent = personne)
+    private final ConcurrentHashMap<Long, List<String>> published = new ConcurrentHashMap<>();
+    // Salons modifiés depuis le dernier tick
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+    private ScheduledExecutorService ticker;
+
+    public TypingService(MessageBroadcaster messageBroadcaster,
+                         ClusterEvents clusterEvents,
+                         @Value("${chat.typing.tick-ms:250}") long tickMs,
+                         @Value("${chat.typing.ttl-ms:3000}") long ttlMs,
+                         @Value("${chat.typing.max-names:5}") int maxNames) {
+        this.messageBroadcaster = messageBroadcaster;
+        this.clusterEvents = clusterEvents;
+        this.tickMs = tickMs;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        this.maxNames = maxNames;
+    }
+
+    @PostConstruct
+    void start() {
+        clusterEvents.subscribe(TYPING_EVENT, TypingEvent.class,
+                event -> typing(event.channelId(), event.username(), event.active(), System.nanoTime()));
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "typing-ticker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleWithFixedDelay(this::tickSafely, tickMs, tickMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        ticker.shutdownNow();
+    }
+
+    /** Début ou poursuite de la frappe (true), ou arrêt explicite (false). */
+    public void typing(Long channelId, String username, boolean active) {
+        typing(channelId, username, active, System.nanoTime());
+        clusterEvents.publish(TYPING_EVENT, new TypingEvent(channelId, username, active));
+    }
+
+    /** Message envoyé : l'expéditeur ne tape plus dans ce salon. */
+    public void stopped(Long channelId, String username) {
+        typing(channelId, username, false);
+    }
+
+    void typing(Long channelId, String username, boolean active, long now) {
+        if (active) {
+            // compute : atomique avec le retrait des salons vides par le tick
+            typing.compute(channelId, (id, users) -> {
+                Map<String, Long> map = users != null ? users : new ConcurrentHashMap<>();
+                map.put(username, now + ttlNanos);
+                return map;
+            });
+            dirty.add(channelId);
+        } else {
+            boolean[] removed = new boolean[1];
+            typing.computeIfPresent(channelId, (id, users) -> {
+                removed[0] = users.remove(username) != null;
+                return users.isEmpty() ? null : users;
+            });
+            if (removed[0]) {
+                dirty.add(channelId);
+            }
+        }
+    }
+
+    /** Instantanés des salons dont la liste a changé depuis le tick précédent (échéances comprises). */
+    List<TypingSnapshot> drainSnapshots(long now) {
+        for (Long channelId : typing.keySet()) {
+            typing.computeIfPresent(channelId, (id, users) -> {
+                if (users.values().removeIf(deadline -> deadline - now <= 0)) {
+                    dirty.add(id);
+                }
+                return users.isEmpty() ? null : users;
+            });
+        }
+        List<TypingSnapshot> snapshots = new ArrayList<>();
+        for (Long channelId : dirty) {
+            dirty.remove(channelId);
+            Map<String, Long> users = typing.get(channelId);
+            List<String> names = users != null ? users.keySet().stream().sorted().toList() : List.of();
+            List<String> previous = names.isEmpty() ? published.remove(channelId) : published.put(channelId, names);
+            if (!names.equals(previous != null ? previous : List.of())) {
+                snapshots.add(new TypingSnapshot(channelId,
+                        names.size() > maxNames ? names.subList(0, maxNames) : names, names.size()));
+            }
+        }
+        return snapshots;
+    }
+
+    private void tickSafely() {
+        try {
+            for (TypingSnapshot snapshot : drainSnapshots(System.nanoTime())) {
+                messageBroadcaster.sendToTopic(TOPIC_PREFIX + snapshot.channelId(), snapshot);
+            }
+        } catch (RuntimeException e) {
+            log.error("Publication des indicateurs de frappe impossible", e);
+        }
+    }
+
+    record TypingEvent(Long channelId, String username, boolean active) {}
+
+    /** Qui tape dans le salon : au plus {@code chat.typing.max-names} noms, {@code count} au total. */
+    public record TypingSnapshot(long channelId, List<String> users, int count) {}
+}
@@ -0,0 +1,111 @@
+package com.chat.app.service;
+
+import com.chat.app.cluster.ClusterEvents;
+import com.chat.app.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Annuaire des utilisateurs : pages triées par nom (keyset sur l'index unique de username)
+ * et autocomplétion par préfixe servie depuis un index trié en mémoire, sans requête en base.
+ * L'index est chargé au démarrage puis complété par {@link UserService#register}, sur ce nœud et,
+ * via {@link ClusterEvents}, sur les autres.
+ */
+@Service
+@Slf4j
+public class UserDirectoryService {
+
+    // Entrées "minuscules\0original" : tri et préfixe insensibles à la casse, doublons de casse conservés
+    private static final char SEPARATOR = '\0';
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    static final String ADD_EVENT = "user-directory.add";
+
+    private final UserRepository userRepository;
+    private final ClusterEvents clusterEvents;
+    private final NavigableSet<String> index = new ConcurrentSkipListSet<>();
+    private final int maxPageSize;
+    private final int maxSuggestions;
+
+    public UserDirectoryService(UserRepository userRepository,
+                                ClusterEvents clusterEvents,
+                                @Value("${chat.users.directory.max-page-size:200}") int maxPageSize,
+                                @Value("${chat.users.autocomplete.max-results:20}") int maxSuggestions) {
+        this.userRepository = userRepository;
+        this.clusterEvents = clusterEvents;
+        this.maxPageSize = maxPageSize;
+        this.maxSuggestions = maxSuggestions;
+    }
+
+    @PostConstruct
+    void load() {
+        clusterEvents.subscribe(ADD_EVENT, String.class, this::addLocally);
+        userRepository.findAllUsernames().forEach(this::addLocally);
+        log.info("Index des noms d'utilisateur chargé : {} entrées", index.size());
+    }
+
+    public void add(String username) {
+        addLocally(username);
+        clusterEvents.publish(ADD_EVENT, username);
+    }
+
+    private void addLocally(String username) {
+        index.add(entry(username));
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    /** Tous les noms, dans l'ordre de l'index (insensible à la casse). */
+    public List<String> all() {
+        List<String> usernames = new ArrayList<>(index.size());
+        for (String entry : index) {
+            usernames.add(username(entry));
+        }
+        return usernames;
+    }
+
+    /** Noms commençant par le préfixe (insensible à la casse), au plus {@code limit}. */
+    public List<String> autocomplete(String prefix, Integer limit) {
+        int max = limit == null || limit <= 0 ? maxSuggestions : Math.min(limit, maxSuggestions);
+        String key = prefix.toLowerCase(Locale.ROOT);
+        List<String> usernames = new ArrayList<>(max);
+        for (String entry : index.tailSet(key, true)) {
+            if (!entry.startsWith(key) || usernames.size() == max) {
+                break;
+            }
+            usernames.add(username(entry));
+        }
+        return usernames;
+    }
+
+    /** Page de noms triés strictement après {@code after} (null pour la première page), lue en base. */
+    public List<String> page(String after, Integer limit) {
+        PageRequest pageable = PageRequest.of(0, resolvePageSize(limit));
+        return after == null
+                ? userRepository.findUsernamesFirstPage(pageable)
+                : userRepository.findUsernamesAfter(after, pageable);
+    }
+
+    public int resolvePageSize(Integer limit) {
+        return limit == null || limit <= 0 ? DEFAULT_PAGE_SIZE : Math.min(limit, maxPageSize);
+    }
+
+    private static String entry(String username) {
+        return username.toLowerCase(Locale.ROOT) + SEPARATOR + username;
+    }
+
+    private static String username(String entry) {
+        return entry.substring(entry.indexOf(SEPARATOR) + 1);
+    }
+}
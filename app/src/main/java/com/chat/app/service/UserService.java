@@ -13,6 +13,7 @@ import org.springframework.stereotype.Service;
 public class UserService implements IUserService {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final UserDirectoryService userDirectoryService;
 
     @Override
     public User register(String username, String password, String email) {
@@ -28,7 +29,10 @@ public class UserService implements IUserService {
         user.setPassword(passwordEncoder.encode(password));
         user.setEmail(email);
 
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        // Disponible immédiatement pour l'autocomplétion
+        userDirectoryService.add(saved.getUsername());
+        return saved;
     }
 
     @Override
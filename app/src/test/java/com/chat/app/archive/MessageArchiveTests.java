@@ -0,0 +1,112 @@
+package com.chat.app.archive;
+
+import com.chat.app.dto.MessageDto;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MessageArchiveTests {
+
+	private static final LocalDateTime T0 = LocalDateTime.of(2024, 1, 1, 12, 0);
+	private static final String STREAM = MessageArchive.channelStream(1L);
+
+	@TempDir
+	Path directory;
+
+	private static MessageDto message(long id) {
+		return new MessageDto(id, "alice", null, 1L, "message " + id, T0.plusSeconds(id));
+	}
+
+	private static List<MessageDto> messages(long fromId, long toId) {
+		List<MessageDto> messages = new ArrayList<>();
+		for (long id = fromId; id <= toId; id++) {
+			messages.add(message(id));
+		}
+		return messages;
+	}
+
+	private static List<Long> ids(List<MessageDto> messages) {
+		return messages.stream().map(MessageDto::id).toList();
+	}
+
+	private MessageArchive open() throws Exception {
+		MessageArchive archive = new MessageArchive(directory.toString(), 64, 4);
+		archive.load();
+		return archive;
+	}
+
+	@Test
+	void pagesAcrossBlocksByCursor() throws Exception {
+		MessageArchive archive = open();
+		archive.append(STREAM, messages(1, 10));
+		archive.append(STREAM, messages(11, 20));
+
+		assertThat(ids(archive.latest(STREAM, 3))).containsExactly(20L, 19L, 18L);
+		assertThat(ids(archive.before(STREAM, message(12).timestamp(), 12, 4))).containsExactly(11L, 10L, 9L, 8L);
+		assertThat(ids(archive.after(STREAM, message(9).timestamp(), 9, 3))).containsExactly(10L, 11L, 12L);
+		assertThat(archive.timestampOf(STREAM, 15)).contains(message(15).timestamp());
+		assertThat(archive.last(STREAM)).contains(new MessageArchive.Position(message(20).timestamp(), 20));
+		assertThat(archive.stream(STREAM).count()).isEqualTo(20);
+	}
+
+	@Test
+	void rejectsBlocksOutOfOrder() throws Exception {
+		MessageArchive archive = open();
+		archive.append(STREAM, messages(5, 10));
+
+		assertThatThrownBy(() -> archive.append(STREAM, messages(8, 12))).isInstanceOf(IllegalStateException.class);
+	}
+
+	@Test
+	void reloadsIndexAndTruncatesIncompleteBlock() throws Exception {
+		open().append(STREAM, messages(1, 10));
+		Path segment = directory.resolve(STREAM).resolve("00000001.seg");
+		long size = Files.size(segment);
+		// Bloc interrompu en cours d'écriture
+		Files.write(segment, new byte[] { 0x43, 0x48, 0x41 }, StandardOpenOption.APPEND);
+
+		MessageArchive reloaded = open();
+
+		assertThat(Files.size(segment)).isEqualTo(size);
+		assertThat(ids(reloaded.latest(STREAM, 2))).containsExactly(10L, 9L);
+		reloaded.append(STREAM, messages(11, 12));
+		assertThat(ids(reloaded.after(STREAM, message(10).timestamp(), 10, 5))).containsExactly(11L, 12L);
+	}
+
+	@Test
+	void deletedMessagesAreFilteredAfterReload() throws Exception {
+		MessageArchive archive = open();
+		archive.append(STREAM, messages(1, 10));
+
+		assertThat(archive.deleteMessage(STREAM, 9)).isTrue();
+		assertThat(archive.deleteMessage(STREAM, 9)).isFalse();
+		assertThat(archive.deleteMessage(STREAM, 42)).isFalse();
+
+		MessageArchive reloaded = open();
+		assertThat(ids(reloaded.latest(STREAM, 3))).containsExactly(10L, 8L, 7L);
+		assertThat(ids(reloaded.after(STREAM, message(7).timestamp(), 7, 5))).containsExactly(8L, 10L);
+		assertThat(reloaded.stream(STREAM).count()).isEqualTo(9);
+		// Le curseur d'une page peut être le message supprimé
+		assertThat(ids(reloaded.before(STREAM, reloaded.timestampOf(STREAM, 9).orElseThrow(), 9, 2)))
+				.containsExactly(8L, 7L);
+	}
+
+	@Test
+	void deleteRemovesSegments() throws Exception {
+		MessageArchive archive = open();
+		archive.append(STREAM, messages(1, 3));
+		archive.delete(STREAM);
+
+		assertThat(archive.contains(STREAM)).isFalse();
+		assertThat(Files.exists(directory.resolve(STREAM))).isFalse();
+	}
+}
@@ -0,0 +1,70 @@
+package com.chat.app.cluster;
+
+import com.chat.app.dto.MessageDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClusterEventsTests {
+
+	private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+	private final LoopbackClusterFanout fanoutA = new LoopbackClusterFanout("a");
+	private final LoopbackClusterFanout fanoutB = new LoopbackClusterFanout("b");
+	private final ClusterEvents eventsA = new ClusterEvents(fanoutA, objectMapper);
+	private final ClusterEvents eventsB = new ClusterEvents(fanoutB, objectMapper);
+
+	@AfterEach
+	void leave() {
+		fanoutA.leave();
+		fanoutB.leave();
+	}
+
+	@Test
+	void eventIsDeliveredToPeerWithOrigin() {
+		fanoutB.setReceiver(eventsB::deliver);
+		List<String> received = new ArrayList<>();
+		eventsB.subscribe("test.message", Sample.class,
+				(origin, event) -> received.add(origin + ":" + event.message().content()));
+
+		MessageDto message = new MessageDto(7L, "alice", null, 3L, "bonjour", LocalDateTime.now());
+		eventsA.publish("test.message", new Sample("channel:3", message));
+
+		assertThat(received).containsExactly("a:bonjour");
+	}
+
+	@Test
+	void brokerFramesAreNotConsumed() {
+		ClusterEnvelope frame = new ClusterEnvelope("a", "/topic/public", "application/json",
+				System.currentTimeMillis(), "{}".getBytes(StandardCharsets.UTF_8));
+
+		assertThat(eventsB.deliver(frame)).isFalse();
+	}
+
+	@Test
+	void failingHandlerDoesNotBreakDelivery() {
+		fanoutB.setReceiver(eventsB::deliver);
+		List<Long> received = new ArrayList<>();
+		eventsB.subscribe("test.id", Long.class, id -> {
+			if (id == 1L) {
+				throw new IllegalStateException("échec");
+			}
+			received.add(id);
+		});
+
+		eventsA.publish("test.id", 1L);
+		eventsA.publish("test.id", 2L);
+		eventsA.publish("test.inconnu", 3L);
+
+		assertThat(received).containsExactly(2L);
+	}
+
+	record Sample(String key, MessageDto message) {}
+}
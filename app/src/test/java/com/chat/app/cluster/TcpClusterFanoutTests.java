@@ -0,0 +1,90 @@
+package com.chat.app.cluster;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TcpClusterFanoutTests {
+
+	private static final String SECRET = "secret-partage-de-test";
+
+	private final List<TcpClusterFanout> nodes = new ArrayList<>();
+
+	@AfterEach
+	void stopNodes() {
+		nodes.forEach(TcpClusterFanout::stop);
+	}
+
+	@Test
+	void authenticatedPeersExchangeFrames() throws Exception {
+		int portA = freePort();
+		int portB = freePort();
+		TcpClusterFanout a = start("a", portA, SECRET, portB);
+		TcpClusterFanout b = start("b", portB, SECRET, portA);
+		BlockingQueue<ClusterEnvelope> received = new LinkedBlockingQueue<>();
+		b.setReceiver(received::add);
+
+		ClusterEnvelope sent = envelope("a");
+		ClusterEnvelope delivered = null;
+		// Le pair se connecte en tâche de fond : on republie jusqu'à la première livraison
+		for (int i = 0; i < 50 && delivered == null; i++) {
+			a.publish(sent);
+			delivered = received.poll(200, TimeUnit.MILLISECONDS);
+		}
+		assertThat(delivered).isNotNull();
+		assertThat(delivered.originNodeId()).isEqualTo("a");
+		assertThat(delivered.destination()).isEqualTo("/topic/public");
+	}
+
+	@Test
+	void peerWithWrongSecretIsRejected() throws Exception {
+		int portB = freePort();
+		int portIntruder = freePort();
+		TcpClusterFanout b = start("b", portB, SECRET, portIntruder);
+		TcpClusterFanout intruder = start("intrus", portIntruder, "mauvais-secret-de-test", portB);
+		BlockingQueue<ClusterEnvelope> received = new LinkedBlockingQueue<>();
+		b.setReceiver(received::add);
+
+		for (int i = 0; i < 10; i++) {
+			intruder.publish(envelope("intrus"));
+			Thread.sleep(100);
+		}
+		assertThat(received.poll(300, TimeUnit.MILLISECONDS)).isNull();
+	}
+
+	@Test
+	void tcpModeRequiresSecret() {
+		assertThatThrownBy(() -> new TcpClusterFanout("a", "127.0.0.1", 0, "", List.of(), 10))
+				.isInstanceOf(IllegalStateException.class);
+	}
+
+	private TcpClusterFanout start(String nodeId, int port, String secret, int peerPort) throws IOException {
+		TcpClusterFanout node = new TcpClusterFanout(nodeId, "127.0.0.1", port, secret,
+				List.of("127.0.0.1:" + peerPort), 100);
+		node.start();
+		nodes.add(node);
+		return node;
+	}
+
+	private static ClusterEnvelope envelope(String origin) {
+		return new ClusterEnvelope(origin, "/topic/public", "application/json", System.currentTimeMillis(),
+				"{}".getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static int freePort() throws IOException {
+		try (ServerSocket socket = new ServerSocket(0)) {
+			return socket.getLocalPort();
+		}
+	}
+}
@@ -0,0 +1,253 @@
+package com.chat.app.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Générateur de charge STOMP : N utilisateurs synthétiques s'inscrivent via /api/auth,
+ * se connectent à /ws, s'abonnent à un salon et à leur file privée, puis envoient des messages
+ * à débit constant. La latence mesurée va de l'envoi STOMP à la réception par chaque abonné.
+ *
+ * Exclu de "mvn test" ; lancement : mvn test -Ploadtest [-Dloadtest.users=200 -Dloadtest.rate=1000 ...]
+ */
+@Tag("loadtest")
+@ActiveProfiles("loadtest")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class StompLoadTest {
+
+    // Préfixe du contenu des messages de charge : "lt|<System.nanoTime() à l'envoi>"
+    private static final String MARKER = "lt|";
+
+    private final int users = Integer.getInteger("loadtest.users", 50);
+    private final int channels = Integer.getInteger("loadtest.channels", 5);
+    private final int rate = Integer.getInteger("loadtest.rate", 200); // messages envoyés par seconde (tous utilisateurs)
+    private final int durationSeconds = Integer.getInteger("loadtest.duration-seconds", 10);
+    private final int privatePercent = Integer.getInteger("loadtest.private-percent", 20);
+    private final int drainSeconds = Integer.getInteger("loadtest.drain-seconds", 10);
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder expected = new LongAdder();
+    private final LongAdder received = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    @Test
+    void loadChannelsAndPrivateQueues() throws Exception {
+        System.out.printf("Test de charge : %d utilisateurs, %d salons, %d msg/s pendant %d s (%d %% privés)%n",
+                users, channels, rate, durationSeconds, privatePercent);
+
+        // 1. Inscription des utilisateurs et création des salons
+        List<String> usernames = new ArrayList<>();
+        List<String> tokens = new ArrayList<>();
+        String runId = Long.toString(System.currentTimeMillis(), 36);
+        for (int i = 0; i < users; i++) {
+            String username = "load-" + runId + "-" + i;
+            usernames.add(username);
+            tokens.add(register(username));
+        }
+        long[] channelIds = new long[channels];
+        int[] subscribersPerChannel = new int[channels];
+        for (int c = 0; c < channels; c++) {
+            channelIds[c] = createChannel(tokens.get(0), "load-" + runId + "-" + c);
+        }
+
+        // 2. Connexions STOMP et abonnements (salon i % channels + file privée)
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(2);
+        scheduler.setThreadNamePrefix("loadtest-heartbeat-");
+        scheduler.initialize();
+        WebSocketStompClient stompClient = new WebSocketStompClient(new StandardWebSocketClient());
+        MappingJackson2MessageConverter converter = new MappingJackson2MessageConverter();
+        converter.setObjectMapper(objectMapper);
+        stompClient.setMessageConverter(converter);
+        stompClient.setTaskScheduler(scheduler);
+
+        List<StompSession> sessions = new ArrayList<>();
+        String url = "ws://localhost:" + port + "/ws/websocket";
+        try {
+            for (int i = 0; i < users; i++) {
+                StompHeaders connectHeaders = new StompHeaders();
+                connectHeaders.add("Authorization", "Bearer " + tokens.get(i));
+                StompSession session = stompClient
+                        .connectAsync(url, new WebSocketHttpHeaders(), connectHeaders, new ErrorCountingHandler())
+                        .get(10, TimeUnit.SECONDS);
+                int channel = i % channels;
+                subscribersPerChannel[channel]++;
+                session.subscribe("/topic/channel." + channelIds[channel], new LatencyFrameHandler());
+                session.subscribe("/user/queue/messages", new LatencyFrameHandler());
+                sessions.add(session);
+            }
+            // Le SimpleBroker n'envoie pas de RECEIPT : on laisse le temps aux SUBSCRIBE d'être traités
+            Thread.sleep(1000);
+
+            // 3. Envoi à débit constant, par tranches de 10 ms, en tourniquet sur les utilisateurs
+            long start = System.nanoTime();
+            long end = start + TimeUnit.SECONDS.toNanos(durationSeconds);
+            long messageCount = 0;
+            int nextUser = 0;
+            while (System.nanoTime() < end) {
+                long due = (System.nanoTime() - start) * rate / 1_000_000_000L;
+                for (; messageCount < due; messageCount++) {
+                    int senderIndex = nextUser;
+                    nextUser = (nextUser + 1) % users;
+                    send(sessions.get(senderIndex), senderIndex, usernames, channelIds, subscribersPerChannel);
+                }
+                Thread.sleep(10);
+            }
+            double sendSeconds = (System.nanoTime() - start) / 1e9;
+
+            // 4. Attente des dernières livraisons
+            long drainDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(drainSeconds);
+            while (received.sum() < expected.sum() && System.nanoTime() < drainDeadline) {
+                Thread.sleep(50);
+            }
+            double totalSeconds = (System.nanoTime() - start) / 1e9;
+
+            report(sendSeconds, totalSeconds);
+            // Vérifié avant la déconnexion, qui fait elle-même remonter des erreurs de transport
+            assertThat(received.sum()).isPositive();
+            assertThat(errors.sum()).isZero();
+        } finally {
+            sessions.forEach(StompSession::disconnect);
+            stompClient.stop();
+            scheduler.shutdown();
+        }
+    }
+
+    private void send(StompSession session, int senderIndex, List<String> usernames,
+                      long[] channelIds, int[] subscribersPerChannel) {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("content", MARKER + System.nanoTime());
+        if (users > 1 && ThreadLocalRandom.current().nextInt(100) < privatePercent) {
+            int recipient = (senderIndex + 1 + ThreadLocalRandom.current().nextInt(users - 1)) % users;
+            payload.put("recipientUsername", usernames.get(recipient));
+            expected.add(2); // copie pour l'expéditeur et pour le destinataire
+        } else {
+            int channel = senderIndex % channels;
+            payload.put("channelId", channelIds[channel]);
+            expected.add(subscribersPerChannel[channel]);
+        }
+        try {
+            session.send("/app/chat.sendMessage", payload);
+            sent.increment();
+        } catch (RuntimeException e) {
+            errors.increment();
+        }
+    }
+
+    private void report(double sendSeconds, double totalSeconds) {
+        long lost = Math.max(0, expected.sum() - received.sum());
+        System.out.println("==================== Résultats du test de charge ====================");
+        System.out.printf("Messages envoyés    : %d (%.1f msg/s)%n", sent.sum(), sent.sum() / sendSeconds);
+        System.out.printf("Livraisons reçues   : %d / %d attendues (%.1f livraisons/s)%n",
+                received.sum(), expected.sum(), received.sum() / totalSeconds);
+        System.out.printf("Livraisons perdues  : %d%n", lost);
+        System.out.printf("Erreurs             : %d%n", errors.sum());
+        System.out.printf("Latence envoi→réception (ms) : moyenne %.2f | p50 %.2f | p99 %.2f | p99.9 %.2f | max %.2f%n",
+                latencies.mean() / 1e6,
+                latencies.percentile(50) / 1e6,
+                latencies.percentile(99) / 1e6,
+                latencies.percentile(99.9) / 1e6,
+                latencies.max() / 1e6);
+        System.out.println("=====================================================================");
+    }
+
+    private String register(String username) {
+        Map<String, String> request = Map.of(
+                "username", username,
+                "password", "password",
+                "email", username + "@loadtest.local");
+        ResponseEntity<Map> response = restTemplate.postForEntity("/api/auth/register", request, Map.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        return (String) response.getBody().get("token");
+    }
+
+    private long createChannel(String token, String name) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(token);
+        Map<String, String> request = Map.of("name", name, "description", "Salon de test de charge");
+        ResponseEntity<Map> response = restTemplate.postForEntity(
+                "/api/channels", new HttpEntity<>(request, headers), Map.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        return ((Number) response.getBody().get("id")).longValue();
+    }
+
+    // Mesure la latence de chaque livraison d'un message de charge
+    private class LatencyFrameHandler implements StompFrameHandler {
+
+        @Override
+        public Type getPayloadType(StompHeaders headers) {
+            return Map.class;
+        }
+
+        @Override
+        public void handleFrame(StompHeaders headers, Object payload) {
+            long now = System.nanoTime();
+            Object content = ((Map<?, ?>) payload).get("content");
+            if (content instanceof String text && text.startsWith(MARKER)) {
+                latencies.record(now - Long.parseLong(text.substring(MARKER.length())));
+                received.increment();
+            }
+        }
+    }
+
+    private class ErrorCountingHandler extends StompSessionHandlerAdapter {
+
+        // Trames reçues hors abonnement : ERROR envoyées par le serveur
+        @Override
+        public void handleFrame(StompHeaders headers, Object payload) {
+            errors.increment();
+        }
+
+        @Override
+        public void handleException(StompSession session, StompCommand command, StompHeaders headers,
+                                    byte[] payload, Throwable exception) {
+            errors.increment();
+        }
+
+        @Override
+        public void handleTransportError(StompSession session, Throwable exception) {
+            errors.increment();
+        }
+    }
+}
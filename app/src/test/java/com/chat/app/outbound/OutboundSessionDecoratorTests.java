@@ -0,0 +1,169 @@
+package com.chat.app.outbound;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OutboundSessionDecoratorTests {
+
+	private final CountDownLatch writing = new CountDownLatch(1);
+	private final CountDownLatch release = new CountDownLatch(1);
+	private final List<String> written = new CopyOnWriteArrayList<>();
+	private OutboundBackpressure backpressure;
+
+	@AfterEach
+	void tearDown() {
+		release.countDown();
+		backpressure.stop();
+	}
+
+	@Test
+	void disconnectClosesSessionWithoutBlockingTheSender() throws Exception {
+		WebSocketSession session = stalledSession();
+		OutboundSessionDecorator decorated = decorate(session, "disconnect");
+		decorated.sendMessage(frame("/topic/channel.1", 1));
+		assertThat(writing.await(5, TimeUnit.SECONDS)).isTrue();
+
+		// L'écriture de la première trame est bloquée : les suivantes s'accumulent jusqu'à la limite
+		for (int i = 2; i <= 10; i++) {
+			decorated.sendMessage(frame("/topic/channel.1", i));
+		}
+
+		verify(session, timeout(5000)).close(CloseStatus.SESSION_NOT_RELIABLE);
+		assertThat(backpressure.stats().bufferSizeDisconnects()).isEqualTo(1);
+	}
+
+	@Test
+	void dropOldestKeepsBufferUnderLimit() throws Exception {
+		OutboundSessionDecorator decorated = decorate(stalledSession(), "drop-oldest");
+		decorated.sendMessage(frame("/topic/channel.1", 1));
+		assertThat(writing.await(5, TimeUnit.SECONDS)).isTrue();
+		for (int i = 2; i <= 10; i++) {
+			decorated.sendMessage(frame("/topic/channel.1", i));
+		}
+
+		assertThat(decorated.bufferedBytes()).isLessThanOrEqualTo(backpressure.bufferSizeLimit());
+		release.countDown();
+		waitUntilDrained(decorated);
+		assertThat(written).first().asString().contains("body-1");
+		assertThat(written).last().asString().contains("body-10");
+		assertThat(written).noneMatch(frame -> frame.contains("body-2\u0000"));
+	}
+
+	@Test
+	void coalesceKeepsLatestFramePerDestination() throws Exception {
+		OutboundSessionDecorator decorated = decorate(stalledSession(), "coalesce");
+		decorated.sendMessage(frame("/topic/channel.1", 1));
+		assertThat(writing.await(5, TimeUnit.SECONDS)).isTrue();
+		decorated.sendMessage(frame("/topic/channel.1", 2));
+		for (int i = 3; i <= 8; i++) {
+			decorated.sendMessage(frame("/topic/typing.1", i));
+		}
+
+		release.countDown();
+		waitUntilDrained(decorated);
+		// Les trames de salon ne sont jamais remplacées, seule la dernière trame de frappe est écrite
+		assertThat(written).hasSize(3);
+		assertThat(written.get(1)).contains("body-2");
+		assertThat(written.get(2)).contains("body-8");
+		assertThat(backpressure.stats().coalescedFrames()).isEqualTo(5);
+	}
+
+	@Test
+	void closeFlushesBufferedFramesFirst() throws Exception {
+		WebSocketSession session = stalledSession();
+		OutboundSessionDecorator decorated = decorate(session, "disconnect");
+		decorated.sendMessage(frame("/topic/channel.1", 1));
+		assertThat(writing.await(5, TimeUnit.SECONDS)).isTrue();
+		decorated.sendMessage(new TextMessage("ERROR\nmessage:refus\n\n\u0000"));
+
+		decorated.close(CloseStatus.PROTOCOL_ERROR);
+		decorated.sendMessage(frame("/topic/channel.1", 2));
+		verify(session, never()).close(any());
+
+		release.countDown();
+		verify(session, timeout(5000)).close(CloseStatus.PROTOCOL_ERROR);
+		assertThat(written).hasSize(2);
+		assertThat(written.get(1)).startsWith("ERROR");
+	}
+
+	@Test
+	void stalledWriteIsClosedWithoutFurtherFrames() throws Exception {
+		WebSocketSession session = stalledSession();
+		OutboundSessionDecorator decorated = decorate(session, "disconnect", 200);
+		decorated.sendMessage(frame("/topic/channel.1", 1));
+		assertThat(writing.await(5, TimeUnit.SECONDS)).isTrue();
+
+		// Aucune trame suivante : c'est le watchdog qui détecte l'écriture bloquée
+		verify(session, timeout(5000)).close(CloseStatus.SESSION_NOT_RELIABLE);
+		assertThat(backpressure.stats().sendTimeDisconnects()).isEqualTo(1);
+	}
+
+	@Test
+	void closeGivesUpFlushingAfterSendTimeLimit() throws Exception {
+		WebSocketSession session = stalledSession();
+		OutboundSessionDecorator decorated = decorate(session, "disconnect", 200);
+		decorated.sendMessage(frame("/topic/channel.1", 1));
+		assertThat(writing.await(5, TimeUnit.SECONDS)).isTrue();
+		decorated.sendMessage(frame("/topic/channel.1", 2));
+
+		decorated.close(CloseStatus.PROTOCOL_ERROR);
+		verify(session, timeout(5000)).close(any());
+		assertThat(decorated.bufferedBytes()).isZero();
+	}
+
+	private OutboundSessionDecorator decorate(WebSocketSession session, String policy) {
+		return decorate(session, policy, 60_000);
+	}
+
+	private OutboundSessionDecorator decorate(WebSocketSession session, String policy, long sendTimeLimitMs) {
+		// Tampon de 2 trames
+		backpressure = new OutboundBackpressure(2 * frame("/topic/channel.1", 1).getPayloadLength(), sendTimeLimitMs,
+				policy, List.of("/topic/typing."), 4, new SimpleMeterRegistry());
+		backpressure.start();
+		OutboundSessionDecorator decorated = new OutboundSessionDecorator(session, backpressure);
+		backpressure.track(decorated);
+		return decorated;
+	}
+
+	private WebSocketSession stalledSession() throws Exception {
+		WebSocketSession session = mock(WebSocketSession.class);
+		when(session.getId()).thenReturn("s1");
+		doAnswer(invocation -> {
+			writing.countDown();
+			release.await();
+			written.add(((WebSocketMessage<?>) invocation.getArgument(0)).getPayload().toString());
+			return null;
+		}).when(session).sendMessage(any());
+		return session;
+	}
+
+	private void waitUntilDrained(OutboundSessionDecorator decorated) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (!decorated.idle() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+	}
+
+	private static TextMessage frame(String destination, int n) {
+		return new TextMessage("MESSAGE\ndestination:" + destination + "\nsubscription:sub-0\n\nbody-" + n + "\u0000");
+	}
+}
@@ -0,0 +1,96 @@
+package com.chat.app.ratelimit;
+
+import com.chat.app.dto.MessageDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class InboundRateLimitInterceptorTests {
+
+	private final SimpMessagingTemplate messagingTemplate = mock(SimpMessagingTemplate.class);
+	private final InboundRateLimitInterceptor interceptor = interceptor(0.001, 3, 0.001, 5);
+
+	@Test
+	void userIsLimitedAfterBurstAndNotifiedOnce() {
+		for (int i = 0; i < 3; i++) {
+			assertThat(interceptor.preSend(send("alice", "{\"content\":\"salut\"}"), null)).isNotNull();
+		}
+		assertThat(interceptor.preSend(send("alice", "{\"content\":\"salut\"}"), null)).isNull();
+		assertThat(interceptor.preSend(send("alice", "{\"content\":\"salut\"}"), null)).isNull();
+		// Les autres utilisateurs ont leur propre seau
+		assertThat(interceptor.preSend(send("bob", "{\"content\":\"salut\"}"), null)).isNotNull();
+
+		verify(messagingTemplate, times(1)).convertAndSendToUser(eq("alice"), eq("/queue/messages"), any(MessageDto.class));
+		assertThat(interceptor.stats().userRejections()).isEqualTo(2);
+	}
+
+	@Test
+	void channelIsLimitedAcrossUsers() {
+		for (int i = 0; i < 5; i++) {
+			assertThat(interceptor.preSend(send("user" + i, "{\"content\":\"x\",\"channelId\":7}"), null)).isNotNull();
+		}
+		assertThat(interceptor.preSend(send("user9", "{\"channelId\":7,\"content\":\"x\"}"), null)).isNull();
+		assertThat(interceptor.preSend(send("user9", "{\"channelId\":8,\"content\":\"x\"}"), null)).isNotNull();
+		assertThat(interceptor.stats().channelRejections()).isEqualTo(1);
+	}
+
+	@Test
+	void concurrentSendersNeverExceedBurst() throws Exception {
+		InboundRateLimitInterceptor limiter = interceptor(0.001, 100, 1000, 1000);
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		AtomicInteger accepted = new AtomicInteger();
+		CountDownLatch done = new CountDownLatch(8);
+		for (int t = 0; t < 8; t++) {
+			executor.execute(() -> {
+				for (int i = 0; i < 100; i++) {
+					if (limiter.preSend(send("alice", "{}"), null) != null) {
+						accepted.incrementAndGet();
+					}
+				}
+				done.countDown();
+			});
+		}
+		assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+		executor.shutdown();
+		assertThat(accepted.get()).isEqualTo(100);
+	}
+
+	@SuppressWarnings("unchecked")
+	private InboundRateLimitInterceptor interceptor(double userRate, int userBurst, double channelRate, int channelBurst) {
+		ObjectProvider<SimpMessagingTemplate> provider = mock(ObjectProvider.class);
+		when(provider.getObject()).thenReturn(messagingTemplate);
+		return new InboundRateLimitInterceptor(provider, new ObjectMapper(), new SimpleMeterRegistry(), true,
+				List.of("/app/chat.sendMessage"), userRate, userBurst, channelRate, channelBurst);
+	}
+
+	private static Message<byte[]> send(String username, String json) {
+		StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.SEND);
+		accessor.setDestination("/app/chat.sendMessage");
+		accessor.setUser(new UsernamePasswordAuthenticationToken(username, null, List.of()));
+		accessor.setLeaveMutable(true);
+		return MessageBuilder.createMessage(json.getBytes(StandardCharsets.UTF_8), accessor.getMessageHeaders());
+	}
+}
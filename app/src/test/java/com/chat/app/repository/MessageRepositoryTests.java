@@ -0,0 +1,117 @@
+package com.chat.app.repository;
+
+import com.chat.app.model.Channel;
+import com.chat.app.model.Message;
+import com.chat.app.model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** Requêtes keyset de l'historique, sur la base H2 embarquée. */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+class MessageRepositoryTests {
+
+	private static final LocalDateTime T0 = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+	@Autowired
+	private TestEntityManager entityManager;
+
+	@Autowired
+	private MessageRepository messageRepository;
+
+	private User alice;
+	private User bob;
+	private Channel channel;
+	private final List<Long> ids = new ArrayList<>();
+
+	@BeforeEach
+	void setUp() {
+		alice = user("alice");
+		bob = user("bob");
+		channel = new Channel();
+		channel.setName("général");
+		channel.setCreatorUsername("alice");
+		entityManager.persist(channel);
+		// Deux messages par seconde : les curseurs doivent départager par id à timestamp égal
+		for (int i = 0; i < 6; i++) {
+			ids.add(message(channel, null, T0.plusSeconds(i / 2)).getId());
+		}
+		message(null, bob, T0);
+		entityManager.flush();
+		entityManager.clear();
+	}
+
+	@Test
+	void channelPagesWalkTheWholeHistoryAcrossTimestampTies() {
+		List<Long> backwards = new ArrayList<>(ids(messageRepository.findChannelLatest(channel.getId(), PageRequest.of(0, 2))));
+		while (true) {
+			Long oldest = backwards.get(backwards.size() - 1);
+			List<Message> page = messageRepository.findChannelBefore(channel.getId(), timestamp(oldest), oldest, PageRequest.of(0, 2));
+			if (page.isEmpty()) {
+				break;
+			}
+			backwards.addAll(ids(page));
+		}
+
+		List<Long> newestFirst = new ArrayList<>(ids);
+		Collections.reverse(newestFirst);
+		assertThat(backwards).containsExactlyElementsOf(newestFirst);
+	}
+
+	@Test
+	void afterPageStartsRightAfterCursorWithinSameTimestamp() {
+		Long cursor = ids.get(2);
+
+		assertThat(ids(messageRepository.findChannelAfter(channel.getId(), timestamp(cursor), cursor, PageRequest.of(0, 10))))
+				.containsExactlyElementsOf(ids.subList(3, 6));
+		assertThat(ids(messageRepository.findChannelBefore(channel.getId(), timestamp(cursor), cursor, PageRequest.of(0, 10))))
+				.containsExactly(ids.get(1), ids.get(0));
+	}
+
+	@Test
+	void conversationKeyQueriesOnlyReadThatConversation() {
+		String key = Message.conversationKey(alice.getId(), bob.getId());
+
+		List<Message> latest = messageRepository.findConversationKeyLatest(key, PageRequest.of(0, 10));
+
+		assertThat(latest).hasSize(1);
+		assertThat(latest.get(0).getRecipient().getUsername()).isEqualTo("bob");
+		assertThat(messageRepository.findTimestampById(-1L)).isEmpty();
+	}
+
+	private User user(String username) {
+		User user = new User();
+		user.setUsername(username);
+		user.setPassword("x");
+		user.setEmail(username + "@example.com");
+		return entityManager.persist(user);
+	}
+
+	private Message message(Channel channel, User recipient, LocalDateTime timestamp) {
+		Message message = new Message();
+		message.setSender(alice);
+		message.setChannel(channel);
+		message.setRecipient(recipient);
+		message.setContent("message");
+		message.setTimestamp(timestamp);
+		return entityManager.persist(message);
+	}
+
+	private LocalDateTime timestamp(Long id) {
+		return messageRepository.findTimestampById(id).orElseThrow();
+	}
+
+	private static List<Long> ids(List<Message> messages) {
+		return messages.stream().map(Message::getId).toList();
+	}
+}
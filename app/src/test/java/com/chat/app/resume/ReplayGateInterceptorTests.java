@@ -0,0 +1,72 @@
+package com.chat.app.resume;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+class ReplayGateInterceptorTests {
+
+	private final ReplayGateInterceptor gate = new ReplayGateInterceptor();
+	private final MessageChannel channel = mock(MessageChannel.class);
+
+	@Test
+	void heldFramesAreFlushedInArrivalOrder() {
+		gate.close("s1", "sub-0");
+		Message<?> first = frame("s1", "sub-0", "1");
+		Message<?> second = frame("s1", "sub-0", "2");
+		Message<?> otherSubscription = frame("s1", "sub-1", "3");
+
+		assertThat(gate.preSend(first, channel)).isNull();
+		assertThat(gate.preSend(second, channel)).isNull();
+		assertThat(gate.preSend(otherSubscription, channel)).isSameAs(otherSubscription);
+
+		List<Message<?>> flushed = new ArrayList<>();
+		gate.open("s1", "sub-0", flushed::addAll);
+
+		assertThat(flushed).containsExactly(first, second);
+		assertThat(gate.isClosed("s1", "sub-0")).isFalse();
+	}
+
+	@Test
+	void gateReopensWhenFlushFails() {
+		gate.close("s1", "sub-0");
+		gate.preSend(frame("s1", "sub-0", "1"), channel);
+
+		assertThatThrownBy(() -> gate.open("s1", "sub-0", held -> {
+			throw new IllegalStateException("échec");
+		})).isInstanceOf(IllegalStateException.class);
+
+		Message<?> next = frame("s1", "sub-0", "2");
+		assertThat(gate.preSend(next, channel)).isSameAs(next);
+	}
+
+	@Test
+	void closedSessionDropsItsGates() {
+		gate.close("s1", "sub-0");
+		gate.close("s10", "sub-0");
+		gate.preSend(frame("s1", "sub-0", "1"), channel);
+
+		gate.sessionClosed("s1");
+
+		assertThat(gate.isClosed("s1", "sub-0")).isFalse();
+		// Préfixe d'un autre id de session : non concerné
+		assertThat(gate.isClosed("s10", "sub-0")).isTrue();
+	}
+
+	private static Message<?> frame(String sessionId, String subscriptionId, String body) {
+		SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+		accessor.setSessionId(sessionId);
+		accessor.setSubscriptionId(subscriptionId);
+		return MessageBuilder.createMessage(body.getBytes(), accessor.getMessageHeaders());
+	}
+}
@@ -0,0 +1,149 @@
+package com.chat.app.resume;
+
+import com.chat.app.dto.MessageDto;
+import com.chat.app.repository.UserRepository;
+import com.chat.app.service.ChannelAccessCache;
+import com.chat.app.service.MessageHistoryService;
+import com.chat.app.service.MessageHistoryService.MissedMessages;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StompResumeInterceptorTests {
+
+	private static final LocalDateTime T0 = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+	private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+	private final MessageHistoryService history = mock(MessageHistoryService.class);
+	private final ChannelAccessCache channelAccessCache = mock(ChannelAccessCache.class);
+	private final MessageChannel inbound = mock(MessageChannel.class);
+	private final SimpleBrokerMessageHandler broker = mock(SimpleBrokerMessageHandler.class);
+	private final ReplayGateInterceptor gate = new ReplayGateInterceptor();
+	private final List<Message<?>> delivered = new CopyOnWriteArrayList<>();
+	private StompResumeInterceptor interceptor;
+
+	@BeforeEach
+	void setUp() {
+		ExecutorSubscribableChannel outbound = new ExecutorSubscribableChannel();
+		outbound.subscribe(delivered::add);
+		interceptor = new StompResumeInterceptor(gate, history, channelAccessCache, mock(UserRepository.class),
+				objectMapper, outbound, 3);
+		when(channelAccessCache.exists(1L)).thenReturn(true);
+	}
+
+	@Test
+	void liveFramesAreHeldUntilReplayAndDeduplicated() throws Exception {
+		when(history.channelSince(1L, 5L, 3)).thenReturn(new MissedMessages(List.of(dto(6), dto(7), dto(8)), true));
+		Message<?> subscribe = subscribe("/topic/channel.1", "5");
+
+		interceptor.preSend(subscribe, inbound);
+		// Publiées pendant l'enregistrement de l'abonnement : la 7 est aussi dans le rejeu
+		assertThat(gate.preSend(live(7), inbound)).isNull();
+		assertThat(gate.preSend(live(9), inbound)).isNull();
+		assertThat(delivered).isEmpty();
+
+		interceptor.afterMessageHandled(subscribe, inbound, broker, null);
+
+		assertThat(delivered).extracting(this::id).containsExactly(6L, 7L, 8L, 9L);
+		assertThat(delivered).extracting(frame -> header(frame, StompResumeInterceptor.REPLAYED_HEADER))
+				.containsExactly("true", "true", "true", null);
+		assertThat(delivered).extracting(frame -> header(frame, StompResumeInterceptor.TRUNCATED_HEADER))
+				.containsExactly("true", null, null, null);
+		// Porte rouverte : le direct passe sans être retenu
+		Message<?> next = live(10);
+		assertThat(gate.preSend(next, inbound)).isSameAs(next);
+	}
+
+	@Test
+	void failedSubscriptionReleasesHeldFramesWithoutReplay() throws Exception {
+		Message<?> subscribe = subscribe("/topic/channel.1", "5");
+		interceptor.preSend(subscribe, inbound);
+		gate.preSend(live(9), inbound);
+
+		interceptor.afterMessageHandled(subscribe, inbound, broker, new IllegalStateException("refus"));
+
+		verify(history, never()).channelSince(eq(1L), anyLong(), anyInt());
+		assertThat(delivered).extracting(this::id).containsExactly(9L);
+		assertThat(gate.isClosed("s1", "sub-0")).isFalse();
+	}
+
+	@Test
+	void failedReplayStillReleasesHeldFrames() throws Exception {
+		when(history.channelSince(1L, 5L, 3)).thenThrow(new IllegalStateException("base indisponible"));
+		Message<?> subscribe = subscribe("/topic/channel.1", "5");
+		interceptor.preSend(subscribe, inbound);
+		gate.preSend(live(9), inbound);
+
+		interceptor.afterMessageHandled(subscribe, inbound, broker, null);
+
+		assertThat(delivered).extracting(this::id).containsExactly(9L);
+		assertThat(gate.isClosed("s1", "sub-0")).isFalse();
+	}
+
+	@Test
+	void subscriptionWithoutResumeHeaderIsNotGated() {
+		Message<?> subscribe = subscribe("/topic/channel.1", null);
+
+		interceptor.preSend(subscribe, inbound);
+
+		assertThat(gate.isClosed("s1", "sub-0")).isFalse();
+	}
+
+	private static Message<?> subscribe(String destination, String resumeAfter) {
+		StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.SUBSCRIBE);
+		accessor.setSessionId("s1");
+		accessor.setSubscriptionId("sub-0");
+		accessor.setDestination(destination);
+		if (resumeAfter != null) {
+			accessor.setNativeHeader(StompResumeInterceptor.RESUME_AFTER_HEADER, resumeAfter);
+		}
+		return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+	}
+
+	private Message<?> live(long id) throws Exception {
+		SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+		accessor.setSessionId("s1");
+		accessor.setSubscriptionId("sub-0");
+		accessor.setDestination("/topic/channel.1");
+		return MessageBuilder.createMessage(objectMapper.writeValueAsBytes(dto(id)), accessor.getMessageHeaders());
+	}
+
+	private static MessageDto dto(long id) {
+		return new MessageDto(id, "alice", null, 1L, "message " + id, T0.plusSeconds(id));
+	}
+
+	private long id(Message<?> frame) {
+		try {
+			return objectMapper.readTree((byte[]) frame.getPayload()).get("id").asLong();
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String header(Message<?> frame, String name) {
+		return SimpMessageHeaderAccessor.wrap(frame).getFirstNativeHeader(name);
+	}
+}
@@ -0,0 +1,140 @@
+package com.chat.app.retention;
+
+import com.chat.app.service.HotHistoryCache;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Conversion et maintenance des partitions sur une base PostgreSQL réelle, dans un schéma
+ * temporaire supprimé en fin de test (la table messages de la base n'est pas touchée).
+ *
+ * Exclu de "mvn test" ; lancement :
+ * mvn test -Ppgcheck -Dspring.datasource.url=jdbc:postgresql://localhost:5432/chatapp
+ */
+@Tag("pgcheck")
+class MessagePartitionManagerPostgresTest {
+
+	private static final String URL = System.getProperty("spring.datasource.url", "jdbc:postgresql://localhost:5432/chatapp");
+	private static final DateTimeFormatter MONTH = DateTimeFormatter.ofPattern("yyyyMM");
+
+	private final String schema = "pgcheck_partitions_" + Long.toString(System.nanoTime(), 36);
+	private JdbcTemplate admin;
+	private JdbcTemplate jdbcTemplate;
+	private MessagePartitionManager manager;
+
+	@BeforeEach
+	void setUp() {
+		admin = new JdbcTemplate(dataSource(URL));
+		admin.execute("CREATE SCHEMA " + schema);
+		DriverManagerDataSource dataSource = dataSource(URL + (URL.contains("?") ? "&" : "?") + "currentSchema=" + schema);
+		jdbcTemplate = new JdbcTemplate(dataSource);
+		// Table telle que créée par Hibernate avant le partitionnement
+		jdbcTemplate.execute("CREATE TABLE messages (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, " +
+				"channel_id BIGINT, content TEXT NOT NULL, timestamp TIMESTAMP NOT NULL, " +
+				"retention_days INTEGER NOT NULL DEFAULT 0)");
+		jdbcTemplate.execute("CREATE INDEX idx_messages_channel_ts_id ON messages (channel_id, timestamp, id)");
+		manager = new MessagePartitionManager(jdbcTemplate, new TransactionTemplate(new DataSourceTransactionManager(dataSource)),
+				new RetentionPolicy(List.of(30, 90, 365), 0), mock(HotHistoryCache.class), true, 2, 1440);
+	}
+
+	@AfterEach
+	void tearDown() {
+		manager.stop();
+		admin.execute("DROP SCHEMA " + schema + " CASCADE");
+	}
+
+	@Test
+	void existingTableIsConvertedWithoutCopy() {
+		insert(0, YearMonth.now().minusMonths(2), "ancien");
+		insert(0, YearMonth.now().minusMonths(1), "récent");
+
+		manager.start();
+
+		assertThat(jdbcTemplate.queryForObject(
+				"SELECT relkind::text FROM pg_class WHERE oid = to_regclass('messages')", String.class)).isEqualTo("p");
+		assertThat(children("messages_r0")).contains("messages_legacy", "messages_r0_default", month("messages_r0", 1))
+				// Mois courant couvert par messages_legacy
+				.doesNotContain(month("messages_r0", 0));
+		assertThat(children("messages_r30")).contains(month("messages_r30", 0), month("messages_r30", 1), month("messages_r30", 2));
+		assertThat(jdbcTemplate.queryForList("SELECT content FROM messages ORDER BY id", String.class))
+				.containsExactly("ancien", "récent");
+		// La séquence reprend après les ids existants
+		assertThat(insert(30, YearMonth.now(), "nouveau")).isGreaterThan(2);
+		assertThat(jdbcTemplate.queryForList("SELECT indexname FROM pg_indexes WHERE tablename = 'messages'", String.class))
+				.contains("idx_messages_channel_ts_id");
+	}
+
+	@Test
+	void rowsInDefaultPartitionAreMovedIntoTheirMonth() {
+		manager.start();
+		// Maintenance arrêtée : un mois au-delà de months-ahead et un mois passé arrivent dans la partition par défaut
+		insert(30, YearMonth.now().plusMonths(5), "futur");
+		insert(30, YearMonth.now().minusMonths(3), "expiré");
+		assertThat(count("messages_r30_default")).isEqualTo(2);
+
+		manager.maintain();
+
+		assertThat(count("messages_r30_default")).isZero();
+		assertThat(jdbcTemplate.queryForList("SELECT content FROM " + month("messages_r30", 5), String.class))
+				.containsExactly("futur");
+		// Mois passé créé puis supprimé par l'expiration
+		assertThat(children("messages_r30")).doesNotContain(month("messages_r30", -3));
+		assertThat(jdbcTemplate.queryForList("SELECT content FROM messages", String.class)).containsExactly("futur");
+		// La partition par défaut est rattachée à nouveau
+		insert(30, YearMonth.now().plusMonths(7), "plus tard");
+		assertThat(count("messages_r30_default")).isEqualTo(1);
+	}
+
+	@Test
+	void boundedPagesSkipMonthsBeyondTheirCursor() {
+		manager.start();
+		String latest = "SELECT id FROM messages WHERE channel_id = 1 ORDER BY timestamp DESC, id DESC LIMIT 50";
+		String before = "SELECT id FROM messages WHERE channel_id = 1 AND timestamp <= '" +
+				YearMonth.now().atDay(1).atStartOfDay().minusSeconds(1) + "' ORDER BY timestamp DESC, id DESC LIMIT 50";
+
+		assertThat(plan(latest)).contains(month("messages_r30", 0), month("messages_r30", 2));
+		assertThat(plan(before)).doesNotContain(month("messages_r30", 0), month("messages_r30", 2));
+	}
+
+	private long insert(int retentionDays, YearMonth month, String content) {
+		return jdbcTemplate.queryForObject(
+				"INSERT INTO messages (channel_id, content, timestamp, retention_days) VALUES (1, ?, ?, ?) RETURNING id",
+				Long.class, content, Timestamp.valueOf(month.atDay(10).atTime(12, 0)), retentionDays);
+	}
+
+	private long count(String table) {
+		return jdbcTemplate.queryForObject("SELECT count(*) FROM " + table, Long.class);
+	}
+
+	private List<String> children(String parent) {
+		return jdbcTemplate.queryForList("SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+				"WHERE i.inhparent = to_regclass(?)", String.class, parent);
+	}
+
+	private String plan(String sql) {
+		return String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + sql, String.class));
+	}
+
+	private static String month(String table, int offset) {
+		return table + "_" + MONTH.format(YearMonth.now().plusMonths(offset));
+	}
+
+	private static DriverManagerDataSource dataSource(String url) {
+		return new DriverManagerDataSource(url, System.getProperty("spring.datasource.username", "postgres"),
+				System.getProperty("spring.datasource.password", "postgres"));
+	}
+}
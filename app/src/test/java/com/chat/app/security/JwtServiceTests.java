@@ -0,0 +1,114 @@
+package com.chat.app.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JwtServiceTests {
+
+	private JwtService jwtService;
+	private UserDetails alice;
+
+	@BeforeEach
+	void setUp() {
+		jwtService = new JwtService();
+		ReflectionTestUtils.setField(jwtService, "jwtExpiration", 60_000L);
+		ReflectionTestUtils.setField(jwtService, "verifiedCacheMaxSize", 10);
+		alice = User.withUsername("alice").password("x").roles("USER").build();
+	}
+
+	@Test
+	void repeatedParsingIsServedFromVerifiedCache() {
+		String token = jwtService.generateToken(alice);
+
+		Claims first = jwtService.parseToken(token);
+		Claims second = jwtService.parseToken(token);
+
+		assertThat(second).isSameAs(first);
+		assertThat(jwtService.isTokenValid(first, alice)).isTrue();
+	}
+
+	@Test
+	void tamperedTokenIsRejected() {
+		String token = jwtService.generateToken(alice);
+		jwtService.parseToken(token);
+		String tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+
+		assertThatThrownBy(() -> jwtService.parseToken(tampered)).isInstanceOf(JwtException.class);
+	}
+
+	@Test
+	void tokenForAnotherUserIsNotValid() {
+		UserDetails bob = User.withUsername("bob").password("x").roles("USER").build();
+		String token = jwtService.generateToken(alice);
+
+		assertThat(jwtService.isTokenValid(token, bob)).isFalse();
+	}
+
+	@Test
+	void cachedClaimsAreReadOnly() {
+		Claims claims = jwtService.parseToken(jwtService.generateToken(alice));
+
+		assertThatThrownBy(() -> claims.put("sub", "mallory")).isInstanceOf(UnsupportedOperationException.class);
+		assertThatThrownBy(() -> claims.setSubject("mallory")).isInstanceOf(UnsupportedOperationException.class);
+		assertThatThrownBy(() -> claims.get(JwtUserPrincipal.ROLES_CLAIM, List.class).add("ROLE_ADMIN"))
+				.isInstanceOf(UnsupportedOperationException.class);
+		assertThat(claims.getSubject()).isEqualTo("alice");
+		assertThat(claims.getExpiration()).isNotNull();
+	}
+
+	@Test
+	void fullCacheEvictsOldestTokens() {
+		List<String> tokens = new ArrayList<>();
+		for (int i = 0; i < 15; i++) {
+			String token = jwtService.generateToken(Map.of("n", i), alice);
+			tokens.add(token);
+			jwtService.parseToken(token);
+		}
+
+		Map<?, ?> cache = (ConcurrentHashMap<?, ?>) ReflectionTestUtils.getField(jwtService, "verifiedTokens");
+		assertThat(cache).hasSize(10);
+		// Les plus récents sont servis depuis le cache, les plus anciens sont revérifiés
+		assertThat(jwtService.parseToken(tokens.get(14))).isSameAs(jwtService.parseToken(tokens.get(14)));
+		assertThat(jwtService.parseToken(tokens.get(0)).get("n", Integer.class)).isZero();
+		assertThat(cache).hasSize(10);
+	}
+
+	@Test
+	void nodesSharingTheSecretAcceptEachOthersTokens() {
+		String secret = Base64.getEncoder().encodeToString(new byte[32]);
+		JwtService issuer = node(secret);
+		JwtService other = node(secret);
+
+		assertThat(other.isTokenValid(issuer.generateToken(alice), alice)).isTrue();
+		assertThatThrownBy(() -> jwtService.parseToken(issuer.generateToken(alice))).isInstanceOf(JwtException.class);
+	}
+
+	@Test
+	void clusterRequiresAStrongSharedSecret() {
+		assertThatThrownBy(() -> new JwtService("", "tcp")).isInstanceOf(IllegalStateException.class);
+		assertThatThrownBy(() -> new JwtService(Base64.getEncoder().encodeToString(new byte[16]), "tcp"))
+				.isInstanceOf(IllegalStateException.class);
+		assertThatThrownBy(() -> new JwtService("pas du base64 !", "loopback")).isInstanceOf(IllegalStateException.class);
+	}
+
+	private static JwtService node(String secret) {
+		JwtService node = new JwtService(secret, "tcp");
+		ReflectionTestUtils.setField(node, "jwtExpiration", 60_000L);
+		ReflectionTestUtils.setField(node, "verifiedCacheMaxSize", 10);
+		return node;
+	}
+}
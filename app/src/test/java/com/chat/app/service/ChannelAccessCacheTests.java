@@ -0,0 +1,57 @@
+package com.chat.app.service;
+
+import com.chat.app.cluster.ClusterEvents;
+import com.chat.app.model.Channel;
+import com.chat.app.repository.ChannelRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ChannelAccessCacheTests {
+
+	private final ChannelRepository channelRepository = mock(ChannelRepository.class);
+	private final ChannelAccessCache cache = new ChannelAccessCache(channelRepository, mock(ClusterEvents.class));
+
+	@Test
+	void loadedEntryIsCachedUntilInvalidated() {
+		when(channelRepository.findWithAccessListsById(1L)).thenReturn(Optional.of(channel(1L)));
+
+		assertThat(cache.exists(1L)).isTrue();
+		assertThat(cache.exists(1L)).isTrue();
+		verify(channelRepository, times(1)).findWithAccessListsById(1L);
+
+		cache.invalidate(1L);
+		assertThat(cache.exists(1L)).isTrue();
+		verify(channelRepository, times(2)).findWithAccessListsById(1L);
+	}
+
+	@Test
+	void loadRacingWithInvalidationIsNotCached() {
+		// Invalidation (suppression du salon) pendant la lecture en base : l'état lu est déjà périmé
+		when(channelRepository.findWithAccessListsById(1L)).thenAnswer(invocation -> {
+			cache.invalidate(1L);
+			return Optional.of(channel(1L));
+		});
+		assertThat(cache.get(1L)).isPresent();
+
+		Channel deleted = channel(1L);
+		deleted.setDeletedAt(LocalDateTime.now());
+		when(channelRepository.findWithAccessListsById(1L)).thenReturn(Optional.of(deleted));
+		assertThat(cache.exists(1L)).isFalse();
+	}
+
+	private static Channel channel(Long id) {
+		Channel channel = new Channel();
+		channel.setId(id);
+		channel.setName("salon-" + id);
+		channel.setCreatorUsername("alice");
+		return channel;
+	}
+}
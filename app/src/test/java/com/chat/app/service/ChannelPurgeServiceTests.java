@@ -0,0 +1,115 @@
+package com.chat.app.service;
+
+import com.chat.app.archive.MessageArchive;
+import com.chat.app.model.ChannelPurgeJob;
+import com.chat.app.model.ChannelPurgeJob.Status;
+import com.chat.app.repository.ChannelPurgeJobRepository;
+import com.chat.app.repository.ChannelRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ChannelPurgeServiceTests {
+
+	private static final long CHANNEL_ID = 3L;
+
+	private final ChannelPurgeJobRepository jobRepository = mock(ChannelPurgeJobRepository.class);
+	private final MessageArchive messageArchive = mock(MessageArchive.class);
+	private final ReadMarkerService readMarkerService = mock(ReadMarkerService.class);
+	private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+	private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+	private final ChannelPurgeService purge = new ChannelPurgeService(mock(ChannelRepository.class), jobRepository,
+			mock(ChannelAccessCache.class), mock(HotHistoryCache.class), messageArchive, readMarkerService,
+			jdbcTemplate, transactionTemplate, 10, 0);
+
+	@AfterEach
+	void stop() {
+		purge.stop();
+	}
+
+	@Test
+	void pendingJobIsPurgedInBatchesThenChannelDeleted() throws Exception {
+		ChannelPurgeJob job = job(Status.PENDING, 0);
+		when(jdbcTemplate.queryForObject(anyString(), eq(Long.class), eq(CHANNEL_ID))).thenReturn(25L);
+		when(jdbcTemplate.update(anyString(), eq(CHANNEL_ID), eq(10))).thenReturn(10, 10, 5, 0);
+
+		purge.resumeUnfinished();
+		awaitCompletion(job);
+
+		assertThat(job.getTotalMessages()).isEqualTo(25);
+		assertThat(job.getDeletedMessages()).isEqualTo(25);
+		verify(jdbcTemplate, times(4)).update(anyString(), eq(CHANNEL_ID), eq(10));
+		verify(transactionTemplate, times(1)).executeWithoutResult(any());
+		verify(messageArchive).delete(MessageArchive.channelStream(CHANNEL_ID));
+		verify(readMarkerService).forget(ReadMarkerService.channelConversation(CHANNEL_ID));
+	}
+
+	@Test
+	void interruptedJobResumesFromRemainingMessagesAndRetriesAfterLateMessage() throws Exception {
+		// Tâche RUNNING trouvée au redémarrage : 5 messages déjà supprimés avant l'arrêt
+		ChannelPurgeJob job = job(Status.RUNNING, 5);
+		when(jdbcTemplate.update(anyString(), eq(CHANNEL_ID), eq(10))).thenReturn(10, 3, 0, 2, 0);
+		// Un message arrivé après le dernier lot bloque la suppression du salon (clé étrangère)
+		doThrow(new DataIntegrityViolationException("fk_messages_channel"))
+				.doNothing()
+				.when(transactionTemplate).executeWithoutResult(any());
+
+		purge.resumeUnfinished();
+		awaitCompletion(job);
+
+		assertThat(job.getDeletedMessages()).isEqualTo(20);
+		verify(jdbcTemplate, times(0)).queryForObject(anyString(), eq(Long.class), eq(CHANNEL_ID));
+		verify(jdbcTemplate, times(5)).update(anyString(), eq(CHANNEL_ID), eq(10));
+		verify(transactionTemplate, times(2)).executeWithoutResult(any());
+	}
+
+	@Test
+	void failedBatchMarksJobFailed() throws Exception {
+		ChannelPurgeJob job = job(Status.RUNNING, 0);
+		when(jdbcTemplate.update(anyString(), eq(CHANNEL_ID), eq(10))).thenThrow(new IllegalStateException("disque plein"));
+
+		purge.resumeUnfinished();
+		for (int i = 0; i < 100 && job.getStatus() != Status.FAILED; i++) {
+			Thread.sleep(50);
+		}
+		assertThat(job.getStatus()).isEqualTo(Status.FAILED);
+		assertThat(job.getError()).isEqualTo("disque plein");
+		verify(messageArchive, times(0)).delete(anyString());
+	}
+
+	private ChannelPurgeJob job(Status status, long alreadyDeleted) {
+		ChannelPurgeJob job = new ChannelPurgeJob();
+		job.setId(7L);
+		job.setChannelId(CHANNEL_ID);
+		job.setChannelName("salon");
+		job.setRequestedBy("alice");
+		job.setStatus(status);
+		job.setDeletedMessages(alreadyDeleted);
+		when(jobRepository.findByStatusInOrderByIdAsc(any())).thenReturn(List.of(job));
+		when(jobRepository.findById(7L)).thenReturn(Optional.of(job));
+		when(jobRepository.save(any(ChannelPurgeJob.class))).thenAnswer(invocation -> invocation.getArgument(0));
+		return job;
+	}
+
+	private static void awaitCompletion(ChannelPurgeJob job) throws InterruptedException {
+		for (int i = 0; i < 100 && job.getStatus() != Status.COMPLETED; i++) {
+			Thread.sleep(50);
+		}
+		assertThat(job.getStatus()).isEqualTo(Status.COMPLETED);
+	}
+}
@@ -0,0 +1,55 @@
+package com.chat.app.service;
+
+import com.chat.app.dto.MessageDto;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HotHistoryBufferTests {
+
+	private static final LocalDateTime T0 = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+	private static MessageDto message(long id) {
+		return new MessageDto(id, "alice", null, 1L, "m" + id, T0.plusSeconds(id));
+	}
+
+	private static List<Long> ids(List<MessageDto> messages) {
+		return messages.stream().map(MessageDto::id).toList();
+	}
+
+	@Test
+	void servesTailAndEvictsOldestWhenFull() {
+		HotHistoryBuffer buffer = new HotHistoryBuffer(3);
+		buffer.seed(List.of(message(1), message(2)), true);
+		buffer.append(message(3));
+		buffer.append(message(4));
+
+		assertThat(ids(buffer.latest(3))).containsExactly(2L, 3L, 4L);
+		// Le message 1 a été évincé : la page antérieure doit venir de la base
+		assertThat(buffer.before(2L, 1)).isNull();
+		assertThat(ids(buffer.after(2L, 5))).containsExactly(3L, 4L);
+	}
+
+	@Test
+	void completeBufferAnswersShortPages() {
+		HotHistoryBuffer buffer = new HotHistoryBuffer(10);
+		buffer.seed(List.of(message(1), message(2)), true);
+
+		assertThat(ids(buffer.latest(50))).containsExactly(1L, 2L);
+		assertThat(buffer.before(1L, 10)).isEmpty();
+	}
+
+	@Test
+	void seedMergesConcurrentAppendsAndRemoveKeepsOrder() {
+		HotHistoryBuffer buffer = new HotHistoryBuffer(5);
+		buffer.append(message(4));
+		buffer.seed(List.of(message(1), message(2), message(3)), true);
+		buffer.append(message(5));
+		buffer.remove(3L);
+
+		assertThat(ids(buffer.latest(5))).containsExactly(1L, 2L, 4L, 5L);
+	}
+}
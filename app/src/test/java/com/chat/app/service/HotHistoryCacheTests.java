@@ -0,0 +1,59 @@
+package com.chat.app.service;
+
+import com.chat.app.cluster.ClusterEvents;
+import com.chat.app.dto.MessageDto;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class HotHistoryCacheTests {
+
+	private static final LocalDateTime T0 = LocalDateTime.of(2024, 1, 1, 12, 0);
+	private static final String KEY = HotHistoryCache.channelKey(1L);
+
+	private final HotHistoryCache cache = new HotHistoryCache(mock(ClusterEvents.class), 10, 1000, 5000);
+
+	@Test
+	void appendBeforeWarmUpButNotYetVisibleInDatabaseIsKept() {
+		// Message 3 diffusé (tampon absent) mais pas encore validé en base au moment du chauffage
+		cache.append(KEY, message(3));
+		cache.append(HotHistoryCache.channelKey(2L), message(9));
+
+		List<MessageDto> page = cache.read(KEY, null, null, 10, () -> List.of(message(1), message(2))).orElseThrow();
+		assertThat(ids(page)).containsExactly(1L, 2L, 3L);
+	}
+
+	@Test
+	void appendsDuringWarmUpAreMergedInOrder() {
+		List<MessageDto> page = cache.read(KEY, null, null, 10, () -> {
+			// Envois concurrents de la lecture en base, dont un déjà visible par la requête
+			cache.append(KEY, message(4));
+			cache.append(KEY, message(2));
+			return List.of(message(1), message(2));
+		}).orElseThrow();
+		assertThat(ids(page)).containsExactly(1L, 2L, 4L);
+
+		cache.append(KEY, message(3));
+		assertThat(ids(cache.read(KEY, null, null, 10, List::of).orElseThrow())).containsExactly(1L, 2L, 3L, 4L);
+	}
+
+	@Test
+	void removedMessageIsNotResurrectedByWarmUp() {
+		cache.append(KEY, message(3));
+		cache.remove(KEY, 3L);
+
+		assertThat(ids(cache.read(KEY, null, null, 10, () -> List.of(message(1))).orElseThrow())).containsExactly(1L);
+	}
+
+	private static MessageDto message(long id) {
+		return new MessageDto(id, "alice", null, 1L, "m" + id, T0.plusSeconds(id));
+	}
+
+	private static List<Long> ids(List<MessageDto> messages) {
+		return messages.stream().map(MessageDto::id).toList();
+	}
+}
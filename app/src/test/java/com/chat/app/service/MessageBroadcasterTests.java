@@ -0,0 +1,42 @@
+package com.chat.app.service;
+
+import com.chat.app.dto.MessageDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.util.MimeTypeUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MessageBroadcasterTests {
+
+	private final List<Message<?>> sent = new ArrayList<>();
+	private final ObjectMapper objectMapper = new ObjectMapper()
+			.registerModule(new JavaTimeModule())
+			.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+	private final MessageBroadcaster broadcaster = new MessageBroadcaster(
+			new SimpMessagingTemplate((message, timeout) -> sent.add(message)), objectMapper);
+
+	@Test
+	void privateMessageIsEncodedOnceForBothUsers() throws Exception {
+		MessageDto dto = new MessageDto(1L, "alice", "bob", null, "Bonjour", LocalDateTime.of(2025, 1, 1, 12, 0));
+
+		broadcaster.sendToUsers("/queue/messages", dto, "alice", "bob");
+
+		assertThat(sent).hasSize(2);
+		assertThat(SimpMessageHeaderAccessor.getDestination(sent.get(0).getHeaders())).isEqualTo("/user/alice/queue/messages");
+		assertThat(SimpMessageHeaderAccessor.getDestination(sent.get(1).getHeaders())).isEqualTo("/user/bob/queue/messages");
+		// Même tableau d'octets pour les deux envois
+		assertThat(sent.get(1).getPayload()).isSameAs(sent.get(0).getPayload());
+		assertThat((byte[]) sent.get(0).getPayload()).isEqualTo(objectMapper.writeValueAsBytes(dto));
+		assertThat(SimpMessageHeaderAccessor.wrap(sent.get(0)).getContentType()).isEqualTo(MimeTypeUtils.APPLICATION_JSON);
+	}
+}
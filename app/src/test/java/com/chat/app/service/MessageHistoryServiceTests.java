@@ -0,0 +1,95 @@
+package com.chat.app.service;
+
+import com.chat.app.archive.MessageArchive;
+import com.chat.app.model.Channel;
+import com.chat.app.model.Message;
+import com.chat.app.model.User;
+import com.chat.app.repository.MessageRepository;
+import com.chat.app.service.MessageHistoryService.MissedMessages;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MessageHistoryServiceTests {
+
+	private static final LocalDateTime T0 = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+	private final MessageRepository messageRepository = mock(MessageRepository.class);
+	private final HotHistoryCache hotHistoryCache = mock(HotHistoryCache.class);
+	private final MessageArchive messageArchive = mock(MessageArchive.class);
+	private final MessageHistoryService history = new MessageHistoryService(messageRepository, hotHistoryCache,
+			mock(ConversationKeyBackfill.class), messageArchive);
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(history, "defaultLimit", 50);
+		ReflectionTestUtils.setField(history, "maxLimit", 200);
+		// Tampons froids et archive vide : tout est lu en base
+		when(hotHistoryCache.read(anyString(), any(), any(), anyInt(), any())).thenReturn(Optional.empty());
+		when(messageArchive.last(anyString())).thenReturn(Optional.empty());
+		when(messageArchive.timestampOf(anyString(), anyLong())).thenReturn(Optional.empty());
+	}
+
+	@Test
+	void beforePageIsReadFromCursorPositionAndReturnedOldestFirst() {
+		when(messageRepository.findTimestampById(10L)).thenReturn(Optional.of(T0.plusSeconds(10)));
+		when(messageRepository.findChannelBefore(1L, T0.plusSeconds(10), 10L, PageRequest.of(0, 3)))
+				.thenReturn(List.of(message(9), message(8), message(7)));
+
+		assertThat(history.channelHistory(1L, 10L, null, 3)).extracting("id").containsExactly(7L, 8L, 9L);
+	}
+
+	@Test
+	void unknownCursorIsReportedInsteadOfAnEmptyPage() {
+		when(messageRepository.findTimestampById(anyLong())).thenReturn(Optional.empty());
+
+		assertThatThrownBy(() -> history.channelHistory(1L, 42L, null, 10)).isInstanceOf(NoSuchElementException.class);
+		assertThatThrownBy(() -> history.publicHistory(null, 42L, 10)).isInstanceOf(NoSuchElementException.class);
+	}
+
+	@Test
+	void cursorsAreExclusive() {
+		assertThatThrownBy(() -> history.channelHistory(1L, 1L, 2L, 10)).isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	void resumeAfterDeletedMessageReplaysLatestAsTruncated() {
+		when(messageRepository.findTimestampById(42L)).thenReturn(Optional.empty());
+		when(messageRepository.findChannelLatest(eq(1L), any())).thenReturn(List.of(message(12), message(11)));
+
+		MissedMessages missed = history.channelSince(1L, 42L, 2);
+
+		assertThat(missed.truncated()).isTrue();
+		assertThat(missed.messages()).extracting("id").containsExactly(11L, 12L);
+	}
+
+	private static Message message(long id) {
+		User sender = new User();
+		sender.setUsername("alice");
+		Channel channel = new Channel();
+		channel.setId(1L);
+		Message message = new Message();
+		message.setId(id);
+		message.setSender(sender);
+		message.setChannel(channel);
+		message.setContent("message " + id);
+		message.setTimestamp(T0.plusSeconds(id));
+		return message;
+	}
+}
@@ -0,0 +1,101 @@
+package com.chat.app.service;
+
+import com.chat.app.retention.MessagePartitionManager;
+import com.chat.app.service.MessageSearchService.SearchCursor;
+import com.chat.app.service.MessageSearchService.SearchHit;
+import com.chat.app.service.MessageSearchService.SearchPage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+class MessageSearchServiceTests {
+
+	private static final LocalDateTime T0 = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+	private JdbcTemplate jdbcTemplate;
+
+	@BeforeEach
+	void setUp() {
+		// Base H2 propre à chaque test : recherche par LIKE
+		jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", ""));
+		jdbcTemplate.execute("CREATE TABLE users (id BIGINT PRIMARY KEY, username VARCHAR(255))");
+		jdbcTemplate.execute("CREATE TABLE messages (id BIGINT PRIMARY KEY, sender_id BIGINT, recipient_id BIGINT, " +
+				"channel_id BIGINT, conversation_key VARCHAR(41), content TEXT, timestamp TIMESTAMP)");
+		jdbcTemplate.update("INSERT INTO users VALUES (1, 'alice')");
+	}
+
+	private MessageSearchService service(int maxCandidates) {
+		return new MessageSearchService(jdbcTemplate, mock(ConversationKeyBackfill.class),
+				mock(MessagePartitionManager.class), "french", 20, 100, maxCandidates);
+	}
+
+	private void message(long id, String content) {
+		jdbcTemplate.update("INSERT INTO messages (id, sender_id, channel_id, content, timestamp) VALUES (?, 1, 1, ?, ?)",
+				id, content, Timestamp.valueOf(T0.plusSeconds(id)));
+	}
+
+	private static List<Long> ids(SearchPage page) {
+		return page.hits().stream().map(SearchHit::message).map(message -> message.id()).toList();
+	}
+
+	@Test
+	void pagesByCursorFromNewestToOldest() {
+		for (long id = 1; id <= 7; id++) {
+			message(id, "bonjour " + id);
+		}
+		MessageSearchService search = service(1000);
+
+		List<Long> seen = new ArrayList<>();
+		SearchPage page = search.searchChannel(1L, "BONJOUR", null, 3);
+		seen.addAll(ids(page));
+		while (page.hasMore()) {
+			page = search.searchChannel(1L, "bonjour", page.nextCursor(), 3);
+			seen.addAll(ids(page));
+		}
+
+		assertThat(seen).containsExactly(7L, 6L, 5L, 4L, 3L, 2L, 1L);
+		assertThat(page.nextCursor()).isNull();
+	}
+
+	@Test
+	void onlyMostRecentCandidatesAreSearched() {
+		for (long id = 1; id <= 5; id++) {
+			message(id, "bonjour " + id);
+		}
+
+		assertThat(ids(service(2).searchChannel(1L, "bonjour", null, 10))).containsExactly(5L, 4L);
+	}
+
+	@Test
+	void likeWildcardsAreMatchedLiterally() {
+		message(1, "remise de 100% aujourd'hui");
+		message(2, "remise de 1000 euros");
+		message(3, "fichier mon_rapport.pdf");
+		message(4, "fichier monXrapport.pdf");
+
+		MessageSearchService search = service(1000);
+
+		assertThat(ids(search.searchChannel(1L, "100%", null, 10))).containsExactly(1L);
+		assertThat(ids(search.searchChannel(1L, "mon_rapport", null, 10))).containsExactly(3L);
+	}
+
+	@Test
+	void cursorRoundTripsAndRejectsGarbage() {
+		SearchCursor cursor = new SearchCursor(0.25f, T0.plusNanos(123_000), 42);
+
+		assertThat(SearchCursor.decode(cursor.encode())).isEqualTo(cursor);
+		assertThatThrownBy(() -> service(1000).searchChannel(1L, "x", "pas-un-curseur", 10))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+}
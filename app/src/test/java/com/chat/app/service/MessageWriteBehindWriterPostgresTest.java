@@ -0,0 +1,202 @@
+package com.chat.app.service;
+
+import com.chat.app.model.Message;
+import com.chat.app.model.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * File write-behind sur une base PostgreSQL réelle, dans un schéma temporaire supprimé en fin de test :
+ * lots, intervalle, vidage à l'arrêt, lignes fautives, base injoignable et écriture de secours.
+ *
+ * Exclu de "mvn test" ; lancement :
+ * mvn test -Ppgcheck -Dspring.datasource.url=jdbc:postgresql://localhost:5432/chatapp
+ */
+@Tag("pgcheck")
+class MessageWriteBehindWriterPostgresTest {
+
+	private static final String URL = System.getProperty("spring.datasource.url", "jdbc:postgresql://localhost:5432/chatapp");
+
+	private final String schema = "pgcheck_write_behind_" + Long.toString(System.nanoTime(), 36);
+	private final List<MessageWriteBehindWriter> writers = new ArrayList<>();
+	// Simule une base injoignable pour le seul thread d'écriture
+	private volatile boolean writerCannotConnect;
+	private JdbcTemplate admin;
+	private JdbcTemplate jdbcTemplate;
+	private TransactionTemplate transactionTemplate;
+
+	@BeforeEach
+	void setUp() {
+		admin = new JdbcTemplate(dataSource(URL));
+		admin.execute("CREATE SCHEMA " + schema);
+		DelegatingDataSource dataSource = new DelegatingDataSource(
+				dataSource(URL + (URL.contains("?") ? "&" : "?") + "currentSchema=" + schema)) {
+			@Override
+			public Connection getConnection() throws SQLException {
+				if (writerCannotConnect && Thread.currentThread().getName().equals("message-write-behind")) {
+					throw new SQLException("Connection refused", "08001");
+				}
+				return super.getConnection();
+			}
+		};
+		jdbcTemplate = new JdbcTemplate(dataSource);
+		transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+		jdbcTemplate.execute("CREATE TABLE messages (id BIGSERIAL PRIMARY KEY, sender_id BIGINT NOT NULL, recipient_id BIGINT, " +
+				"channel_id BIGINT, conversation_key VARCHAR(41), content TEXT NOT NULL, timestamp TIMESTAMP NOT NULL, " +
+				"retention_days INTEGER NOT NULL DEFAULT 0)");
+	}
+
+	@AfterEach
+	void tearDown() throws InterruptedException {
+		writerCannotConnect = false;
+		for (MessageWriteBehindWriter writer : writers) {
+			writer.stop();
+		}
+		admin.execute("DROP SCHEMA " + schema + " CASCADE");
+	}
+
+	@Test
+	void queuedMessagesAreWrittenInBatchesOfFlushSize() {
+		MessageWriteBehindWriter writer = writer(100, 5, 50);
+		for (int i = 0; i < 12; i++) {
+			writer.enqueue(message("m" + i));
+		}
+
+		writer.start();
+
+		await(() -> writer.flushedCount() == 12);
+		assertThat(writer.batchCount()).isEqualTo(3);
+		assertThat(contents()).hasSize(12);
+	}
+
+	@Test
+	void partialBatchIsWrittenAfterTheInterval() {
+		MessageWriteBehindWriter writer = writer(100, 500, 50);
+		writer.start();
+
+		writer.enqueue(message("seul"));
+
+		await(() -> writer.flushedCount() == 1);
+		assertThat(writer.batchCount()).isEqualTo(1);
+		assertThat(contents()).containsExactly("seul");
+	}
+
+	@Test
+	void stopWritesPendingMessagesAndLaterOnesDirectly() throws InterruptedException {
+		// Intervalle long : le thread garde le premier message en attendant la suite du lot
+		MessageWriteBehindWriter writer = writer(100, 500, 10_000);
+		writer.start();
+		writer.enqueue(message("a"));
+		Thread.sleep(100);
+		writer.enqueue(message("b"));
+		writer.enqueue(message("c"));
+		assertThat(contents()).isEmpty();
+
+		writer.stop();
+		assertThat(contents()).containsExactly("a", "b", "c");
+
+		writer.enqueue(message("après l'arrêt"));
+		assertThat(writer.queueSize()).isZero();
+		assertThat(contents()).containsExactly("a", "b", "c", "après l'arrêt");
+	}
+
+	@Test
+	void rejectedRowIsDroppedAlone() {
+		MessageWriteBehindWriter writer = writer(100, 10, 50);
+		writer.enqueue(message("a"));
+		writer.enqueue(message(null));
+		writer.enqueue(message("c"));
+
+		writer.start();
+
+		await(() -> writer.flushedCount() == 2 && writer.droppedCount() == 1);
+		assertThat(contents()).containsExactly("a", "c");
+	}
+
+	@Test
+	void batchIsRetriedWhileTheDatabaseIsUnreachable() throws InterruptedException {
+		MessageWriteBehindWriter writer = writer(100, 10, 50);
+		writer.enqueue(message("a"));
+		writer.enqueue(message("b"));
+		writerCannotConnect = true;
+
+		writer.start();
+		await(() -> writer.retryCount() >= 2);
+		assertThat(contents()).isEmpty();
+		writerCannotConnect = false;
+
+		await(() -> writer.flushedCount() == 2);
+		assertThat(writer.droppedCount()).isZero();
+		assertThat(contents()).containsExactly("a", "b");
+	}
+
+	@Test
+	void overflowWriteSurvivesCallerRollback() {
+		// File d'un seul message, thread d'écriture non démarré : le second message déborde
+		MessageWriteBehindWriter writer = writer(1, 10, 50);
+
+		transactionTemplate.executeWithoutResult(status -> {
+			writer.enqueue(message("en file"));
+			writer.enqueue(message("débordement"));
+			status.setRollbackOnly();
+		});
+
+		assertThat(writer.overflowCount()).isEqualTo(1);
+		assertThat(contents()).containsExactly("débordement");
+	}
+
+	private MessageWriteBehindWriter writer(int capacity, int flushSize, long flushIntervalMs) {
+		MessageWriteBehindWriter writer = new MessageWriteBehindWriter(jdbcTemplate, transactionTemplate,
+				capacity, flushSize, flushIntervalMs, 0, 10, 20, 200);
+		writers.add(writer);
+		return writer;
+	}
+
+	private List<String> contents() {
+		return jdbcTemplate.queryForList("SELECT content FROM messages ORDER BY id", String.class);
+	}
+
+	private static void await(BooleanSupplier condition) {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (!condition.getAsBoolean()) {
+			assertThat(System.currentTimeMillis()).as("délai dépassé").isLessThan(deadline);
+			try {
+				Thread.sleep(10);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+
+	private static Message message(String content) {
+		User sender = new User();
+		sender.setId(1L);
+		Message message = new Message();
+		message.setSender(sender);
+		message.setContent(content);
+		message.setTimestamp(LocalDateTime.now());
+		return message;
+	}
+
+	private static DriverManagerDataSource dataSource(String url) {
+		return new DriverManagerDataSource(url, System.getProperty("spring.datasource.username", "postgres"),
+				System.getProperty("spring.datasource.password", "postgres"));
+	}
+}
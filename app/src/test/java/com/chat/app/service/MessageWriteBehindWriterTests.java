@@ -0,0 +1,24 @@
+package com.chat.app.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MessageWriteBehindWriterTests {
+
+	@Test
+	void startIsRejectedOutsidePostgres() {
+		DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID(), "sa", "");
+		MessageWriteBehindWriter writer = new MessageWriteBehindWriter(new JdbcTemplate(dataSource),
+				new TransactionTemplate(new DataSourceTransactionManager(dataSource)), 10, 10, 50, 0, 10, 100, 5000);
+
+		// Sans séquence PostgreSQL, aucun id ne pourrait être réservé
+		assertThatThrownBy(writer::start).isInstanceOf(IllegalStateException.class);
+	}
+}
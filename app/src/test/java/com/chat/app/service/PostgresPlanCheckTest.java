@@ -0,0 +1,167 @@
+package com.chat.app.service;
+
+import com.chat.app.model.Message;
+import com.chat.app.service.MessageSearchService.SearchPage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Plans et durées sur une base PostgreSQL réelle : recherche plein texte d'un grand salon
+ * (première page et page profonde par curseur) et rattrapage de conversation_key
+ * (y compris le démarrage suivant, sans message à traiter).
+ * Les plans EXPLAIN (ANALYZE, BUFFERS) et les durées sont affichés sur la sortie standard.
+ *
+ * Exclu de "mvn test" ; lancement :
+ * mvn test -Ppgcheck -Dspring.datasource.url=jdbc:postgresql://localhost:5432/chatapp
+ *   [-Dpgcheck.channel-messages=200000 -Dpgcheck.private-messages=50000]
+ */
+@Tag("pgcheck")
+@ActiveProfiles("pgcheck")
+@SpringBootTest
+class PostgresPlanCheckTest {
+
+    // Mot présent dans un message sur 1 000 du salon de vérification
+    private static final String RARE_WORD = "zygomatique";
+
+    private final int channelMessages = Integer.getInteger("pgcheck.channel-messages", 200_000);
+    private final int privateMessages = Integer.getInteger("pgcheck.private-messages", 50_000);
+    private final String suffix = Long.toString(System.nanoTime(), 36);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MessageSearchService searchService;
+
+    @Autowired
+    private ConversationKeyBackfill conversationKeyBackfill;
+
+    private long alice;
+    private long bob;
+    private long channel;
+
+    @BeforeEach
+    void setUp() {
+        alice = user("pgcheck-alice-" + suffix);
+        bob = user("pgcheck-bob-" + suffix);
+        channel = jdbcTemplate.queryForObject(
+                "INSERT INTO channels (name, creator_username, created_at, retention_days) " +
+                "VALUES (?, ?, now(), 0) RETURNING id", Long.class, "pgcheck-" + suffix, "pgcheck-alice-" + suffix);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM messages WHERE channel_id = ? OR sender_id IN (?, ?)", channel, alice, bob);
+        jdbcTemplate.update("DELETE FROM channels WHERE id = ?", channel);
+        jdbcTemplate.update("DELETE FROM users WHERE id IN (?, ?)", alice, bob);
+    }
+
+    @Test
+    void channelSearch() {
+        long start = System.nanoTime();
+        jdbcTemplate.update(
+                "INSERT INTO messages (sender_id, channel_id, content, timestamp, retention_days) " +
+                "SELECT ?, ?, (ARRAY['bonjour','réunion','demain','projet','café','déploiement','facture','vacances'])[1 + g % 8]" +
+                " || ' ' || (ARRAY['équipe','client','serveur','planning','budget'])[1 + g % 5]" +
+                " || CASE WHEN g % 1000 = 0 THEN ' " + RARE_WORD + "' ELSE '' END || ' ' || g, " +
+                "now() - (? - g) * interval '1 second', 0 FROM generate_series(1, ?) g",
+                alice, channel, channelMessages, channelMessages);
+        jdbcTemplate.execute("ANALYZE messages");
+        System.out.printf("Salon de %d messages inséré en %d ms%n", channelMessages, elapsedMs(start));
+
+        explain("Recherche d'un mot rare (candidats)",
+                "SELECT m.id FROM messages m WHERE m.channel_id = " + channel + " AND " + match(RARE_WORD) +
+                " ORDER BY m.timestamp DESC, m.id DESC LIMIT 1000");
+        explain("Recherche d'un mot fréquent (candidats)",
+                "SELECT m.id FROM messages m WHERE m.channel_id = " + channel + " AND " + match("projet") +
+                " ORDER BY m.timestamp DESC, m.id DESC LIMIT 1000");
+
+        for (String query : List.of(RARE_WORD, "projet")) {
+            searchService.searchChannel(channel, query, null, 20); // préchauffage
+            start = System.nanoTime();
+            SearchPage page = searchService.searchChannel(channel, query, null, 20);
+            long firstPageMs = elapsedMs(start);
+            assertThat(page.hits()).isNotEmpty();
+
+            int depth = 1;
+            long deepPageMs = firstPageMs;
+            while (page.hasMore() && depth < 20) {
+                start = System.nanoTime();
+                page = searchService.searchChannel(channel, query, page.nextCursor(), 20);
+                deepPageMs = elapsedMs(start);
+                depth++;
+            }
+            System.out.printf("Recherche \"%s\" : page 1 en %d ms, page %d en %d ms%n",
+                    query, firstPageMs, depth, deepPageMs);
+        }
+        assertThat(plan("SELECT m.id FROM messages m WHERE m.channel_id = " + channel + " AND " + match(RARE_WORD)))
+                .contains("idx_messages_content_fts_french");
+    }
+
+    @Test
+    void conversationKeyBackfill() {
+        // Messages privés antérieurs à conversation_key : insertion directe, sans la clé
+        jdbcTemplate.update(
+                "INSERT INTO messages (sender_id, recipient_id, content, timestamp, retention_days) " +
+                "SELECT CASE WHEN g % 2 = 0 THEN ? ELSE ? END, CASE WHEN g % 2 = 0 THEN ? ELSE ? END, " +
+                "'message ' || g, now() - (? - g) * interval '1 second', 0 FROM generate_series(1, ?) g",
+                alice, bob, bob, alice, privateMessages, privateMessages);
+
+        long start = System.nanoTime();
+        conversationKeyBackfill.run();
+        System.out.printf("Rattrapage de conversation_key (%d messages privés) en %d ms%n",
+                privateMessages, elapsedMs(start));
+
+        // Démarrage suivant : rien à rattraper, constaté par l'index partiel des messages sans clé
+        start = System.nanoTime();
+        conversationKeyBackfill.run();
+        System.out.printf("Rattrapage sans message à traiter en %d ms%n", elapsedMs(start));
+        String firstMissing = "SELECT MIN(id) FROM messages WHERE recipient_id IS NOT NULL AND conversation_key IS NULL";
+        explain("Recherche du premier message sans clé", firstMissing);
+        assertThat(plan(firstMissing)).contains("idx_messages_conversation_key_missing");
+
+        String key = Message.conversationKey(alice, bob);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM messages WHERE conversation_key = ?",
+                Long.class, key)).isEqualTo(privateMessages);
+
+        jdbcTemplate.execute("ANALYZE messages");
+        String history = "SELECT m.id FROM messages m WHERE m.conversation_key = '" + key +
+                "' ORDER BY m.timestamp DESC, m.id DESC LIMIT 50";
+        explain("Historique d'une conversation", history);
+        assertThat(plan(history)).contains("idx_messages_conversation_ts_id");
+    }
+
+    private long user(String username) {
+        return jdbcTemplate.queryForObject(
+                "INSERT INTO users (username, password, email) VALUES (?, 'x', ?) RETURNING id",
+                Long.class, username, username + "@example.invalid");
+    }
+
+    // Même expression que l'index plein texte créé par MessageSearchService
+    private static String match(String word) {
+        return "to_tsvector('french', m.content) @@ websearch_to_tsquery('french', '" + word + "')";
+    }
+
+    private String plan(String sql) {
+        return String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + sql, String.class));
+    }
+
+    private void explain(String title, String sql) {
+        System.out.println("==================== " + title + " ====================");
+        jdbcTemplate.queryForList("EXPLAIN (ANALYZE, BUFFERS) " + sql, String.class).forEach(System.out::println);
+    }
+
+    private static long elapsedMs(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+}
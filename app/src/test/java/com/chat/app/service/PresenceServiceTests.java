@@ -0,0 +1,96 @@
+package com.chat.app.service;
+
+import com.chat.app.cluster.ClusterEvents;
+import com.chat.app.service.PresenceService.PresenceChange;
+import com.chat.app.service.PresenceService.PresenceDiff;
+import com.chat.app.service.PresenceService.PresenceSnapshot;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class PresenceServiceTests {
+
+	private final ClusterEvents clusterEvents = mock(ClusterEvents.class);
+	private final PresenceService presence = new PresenceService(mock(SimpMessagingTemplate.class), clusterEvents, 500, 10_000);
+
+	@Test
+	void userStaysOnlineUntilLastSessionCloses() {
+		presence.connected("s1", "alice");
+		presence.connected("s2", "alice");
+		presence.disconnected("s1");
+
+		assertThat(presence.isOnline("alice")).isTrue();
+		presence.disconnected("s2");
+		assertThat(presence.isOnline("alice")).isFalse();
+	}
+
+	@Test
+	void duplicateDisconnectEventsAreIgnored() {
+		presence.connected("s1", "alice");
+		presence.connected("s2", "alice");
+		presence.disconnected("s1");
+		presence.disconnected("s1");
+
+		assertThat(presence.isOnline("alice")).isTrue();
+	}
+
+	@Test
+	void changesAreCoalescedPerWindow() {
+		presence.connected("s1", "alice");
+		presence.connected("s2", "bob");
+		PresenceDiff first = presence.drainChanges();
+		assertThat(first.online()).containsExactlyInAnyOrder("alice", "bob");
+		assertThat(first.offline()).isEmpty();
+
+		// Déconnexion puis reconnexion dans la même fenêtre : rien à publier
+		presence.disconnected("s1");
+		presence.connected("s3", "alice");
+		presence.disconnected("s2");
+		PresenceDiff second = presence.drainChanges();
+		assertThat(second.online()).isEmpty();
+		assertThat(second.offline()).containsExactly("bob");
+		assertThat(second.version()).isGreaterThan(first.version());
+
+		assertThat(presence.drainChanges()).isNull();
+	}
+
+	@Test
+	void remoteNodesAreMergedIntoPresence() {
+		presence.connected("s1", "alice");
+		verify(clusterEvents).publish(PresenceService.CHANGE_EVENT, new PresenceChange("alice", true));
+		presence.remoteChanged("b", new PresenceChange("alice", true));
+		presence.remoteChanged("b", new PresenceChange("bob", true));
+		presence.drainChanges();
+
+		// alice reste en ligne sur le nœud b : pas de diff à sa déconnexion locale
+		presence.disconnected("s1");
+		assertThat(presence.isOnline("alice")).isTrue();
+		assertThat(presence.onlineUsernames()).containsExactlyInAnyOrder("alice", "bob");
+		assertThat(presence.drainChanges()).isNull();
+
+		// La liste complète du nœud b corrige un événement perdu
+		presence.remoteSnapshot("b", new PresenceSnapshot(List.of("bob", "carol")));
+		PresenceDiff diff = presence.drainChanges();
+		assertThat(diff.online()).containsExactly("carol");
+		assertThat(diff.offline()).containsExactly("alice");
+	}
+
+	@Test
+	void silentRemoteNodeExpires() {
+		presence.remoteSnapshot("b", new PresenceSnapshot(List.of("bob")));
+		presence.drainChanges();
+
+		presence.expireRemoteNodes(System.nanoTime() + TimeUnit.SECONDS.toNanos(10));
+		assertThat(presence.isOnline("bob")).isTrue();
+
+		presence.expireRemoteNodes(System.nanoTime() + TimeUnit.SECONDS.toNanos(31));
+		assertThat(presence.isOnline("bob")).isFalse();
+		assertThat(presence.drainChanges().offline()).containsExactly("bob");
+	}
+}
@@ -0,0 +1,86 @@
+package com.chat.app.service;
+
+import com.chat.app.service.ReadMarkerService.MarkerRow;
+import com.chat.app.service.ReadMarkerService.Tally;
+import com.chat.app.service.ReadMarkerService.UnreadConversation;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ReadMarkerServiceTests {
+
+	private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+	private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+	private final ReadMarkerService markers = new ReadMarkerService(jdbcTemplate, transactionTemplate, 1000, 30);
+
+	@Test
+	void privateMessagesAreUnreadForRecipientUntilReply() {
+		markers.privateMessage(1L, "alice", 2L, "bob", 10L);
+		markers.privateMessage(1L, "alice", 2L, "bob", 11L);
+		markers.privateMessage(1L, "alice", 2L, "bob", 12L);
+
+		assertThat(markers.unread("bob")).containsExactly(new UnreadConversation("dm:1:2", null, "alice", 3, 12L, null));
+		assertThat(markers.unread("alice")).containsExactly(new UnreadConversation("dm:1:2", null, "bob", 0, 12L, 12L));
+
+		// Répondre vaut lecture : l'avance l'emporte sur la création en attente
+		markers.privateMessage(2L, "bob", 1L, "alice", 13L);
+		assertThat(markers.unread("bob")).containsExactly(new UnreadConversation("dm:1:2", null, "alice", 0, 13L, 13L));
+		assertThat(markers.unread("alice")).containsExactly(new UnreadConversation("dm:1:2", null, "bob", 1, 13L, 12L));
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	void storedMarkersAreCompletedByUnflushedMessages() {
+		when(jdbcTemplate.query(startsWith("SELECT seq"), any(RowMapper.class), eq("channel:5")))
+				.thenReturn(List.of(new Tally(15, 100L, 0)));
+		markers.channelMessage(5L, "carol", 101L);
+
+		Map<String, MarkerRow> stored = Map.of("channel:5", new MarkerRow("channel:5", 10, 95L, 5L, null, 15L, 100L));
+		assertThat(markers.unread("dave", stored)).containsExactly(new UnreadConversation("channel:5", 5L, null, 6, 101L, 95L));
+
+		markers.markRead("dave", "channel:5", 5L, null);
+		assertThat(markers.unread("dave", stored)).containsExactly(new UnreadConversation("channel:5", 5L, null, 0, 101L, 101L));
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	void markReadCatchesUpWithMessagesFromOtherNodes() {
+		// Compteur chargé à 15, puis 4 messages écrits en base par un autre nœud
+		when(jdbcTemplate.query(startsWith("SELECT seq"), any(RowMapper.class), eq("channel:5")))
+				.thenReturn(List.of(new Tally(15, 100L, 0)))
+				.thenReturn(List.of(new Tally(19, 104L, 0)));
+		markers.channelMessage(5L, "carol", 101L);
+
+		markers.markRead("dave", "channel:5", 5L, null);
+
+		// Base relue (19) plus le message de cette instance pas encore écrit
+		Map<String, MarkerRow> stored = Map.of("channel:5", new MarkerRow("channel:5", 10, 95L, 5L, null, 19L, 104L));
+		assertThat(markers.unread("dave", stored)).containsExactly(new UnreadConversation("channel:5", 5L, null, 0, 104L, 104L));
+	}
+
+	@Test
+	void failedFlushKeepsPendingWrites() {
+		doThrow(new IllegalStateException("base indisponible")).when(transactionTemplate).executeWithoutResult(any());
+		markers.publicMessage("carol", 7L);
+		markers.flush();
+		assertThat(markers.unread("carol")).containsExactly(new UnreadConversation("public", null, null, 0, 7L, 7L));
+
+		doNothing().when(transactionTemplate).executeWithoutResult(any());
+		markers.flush();
+		// Tout est écrit : plus rien en attente pour cette instance
+		assertThat(markers.unread("carol")).isEmpty();
+	}
+}
@@ -0,0 +1,86 @@
+package com.chat.app.service;
+
+import com.chat.app.cluster.ClusterEvents;
+import com.chat.app.service.TypingService.TypingSnapshot;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class TypingServiceTests {
+
+	private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+	private final ClusterEvents clusterEvents = mock(ClusterEvents.class);
+	private final TypingService typing = new TypingService(mock(MessageBroadcaster.class), clusterEvents, 250, 3000, 2);
+
+	@Test
+	void keystrokesAreCoalescedIntoOneSnapshotPerTick() {
+		for (int i = 0; i < 50; i++) {
+			typing.typing(1L, "alice", true, 0);
+		}
+		typing.typing(1L, "bob", true, 0);
+		typing.typing(2L, "carol", true, 0);
+
+		List<TypingSnapshot> snapshots = typing.drainSnapshots(0);
+		assertThat(snapshots).containsExactlyInAnyOrder(
+				new TypingSnapshot(1L, List.of("alice", "bob"), 2),
+				new TypingSnapshot(2L, List.of("carol"), 1));
+
+		// Nouveaux événements sans changement de la liste : rien à publier
+		typing.typing(1L, "alice", true, SECOND);
+		assertThat(typing.drainSnapshots(SECOND)).isEmpty();
+	}
+
+	@Test
+	void usersExpireOrStopExplicitly() {
+		typing.typing(1L, "alice", true, 0);
+		typing.typing(1L, "bob", true, 2 * SECOND);
+		typing.drainSnapshots(2 * SECOND);
+
+		// alice n'a plus rien envoyé depuis 3 s
+		assertThat(typing.drainSnapshots(3 * SECOND)).containsExactly(new TypingSnapshot(1L, List.of("bob"), 1));
+
+		typing.typing(1L, "bob", false, 3 * SECOND);
+		assertThat(typing.drainSnapshots(3 * SECOND)).containsExactly(new TypingSnapshot(1L, List.of(), 0));
+		assertThat(typing.drainSnapshots(4 * SECOND)).isEmpty();
+	}
+
+	@Test
+	void snapshotListsAtMostMaxNames() {
+		typing.typing(1L, "carol", true, 0);
+		typing.typing(1L, "alice", true, 0);
+		typing.typing(1L, "bob", true, 0);
+
+		assertThat(typing.drainSnapshots(0)).containsExactly(new TypingSnapshot(1L, List.of("alice", "bob"), 3));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void eventsAreSharedWithOtherNodes() {
+		ArgumentCaptor<Consumer<TypingService.TypingEvent>> remote = ArgumentCaptor.forClass(Consumer.class);
+		typing.start();
+		try {
+			verify(clusterEvents).subscribe(eq(TypingService.TYPING_EVENT), eq(TypingService.TypingEvent.class), remote.capture());
+
+			typing.typing(1L, "alice", true);
+			verify(clusterEvents).publish(TypingService.TYPING_EVENT, new TypingService.TypingEvent(1L, "alice", true));
+
+			// Événement d'un autre nœud : appliqué localement, sans republication
+			remote.getValue().accept(new TypingService.TypingEvent(1L, "bob", true));
+			verify(clusterEvents).publish(eq(TypingService.TYPING_EVENT), any());
+			assertThat(typing.drainSnapshots(System.nanoTime()))
+					.containsExactly(new TypingSnapshot(1L, List.of("alice", "bob"), 2));
+		} finally {
+			typing.stop();
+		}
+	}
+}
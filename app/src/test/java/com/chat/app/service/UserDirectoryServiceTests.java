@@ -0,0 +1,45 @@
+package com.chat.app.service;
+
+import com.chat.app.cluster.ClusterEvents;
+import com.chat.app.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class UserDirectoryServiceTests {
+
+	private final UserRepository userRepository = mock(UserRepository.class);
+	private final UserDirectoryService directory = new UserDirectoryService(userRepository, mock(ClusterEvents.class), 200, 3);
+
+	@BeforeEach
+	void load() {
+		when(userRepository.findAllUsernames()).thenReturn(List.of("Alice", "albert", "bob", "alfred", "Alain"));
+		directory.load();
+	}
+
+	@Test
+	void autocompleteIsCaseInsensitiveAndSorted() {
+		assertThat(directory.autocomplete("AL", null)).containsExactly("Alain", "albert", "alfred");
+		assertThat(directory.autocomplete("ali", null)).containsExactly("Alice");
+		assertThat(directory.autocomplete("z", null)).isEmpty();
+	}
+
+	@Test
+	void autocompleteIsCappedByConfiguredMaximum() {
+		assertThat(directory.autocomplete("a", 10)).hasSize(3);
+		assertThat(directory.autocomplete("a", 2)).hasSize(2);
+	}
+
+	@Test
+	void registeredUsersAreSearchableImmediately() {
+		directory.add("Bastien");
+
+		assertThat(directory.autocomplete("ba", null)).containsExactly("Bastien");
+		assertThat(directory.size()).isEqualTo(6);
+	}
+}